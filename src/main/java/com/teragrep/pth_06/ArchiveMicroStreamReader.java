@@ -47,24 +47,39 @@ package com.teragrep.pth_06;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.teragrep.pth_06.config.Config;
+import com.teragrep.pth_06.metrics.planner.PlannerMetrics;
 import com.teragrep.pth_06.planner.*;
 import com.teragrep.pth_06.planner.offset.DatasourceOffset;
 import com.teragrep.pth_06.planner.offset.KafkaOffset;
 import com.teragrep.pth_06.scheduler.*;
 import com.teragrep.pth_06.task.ArchiveMicroBatchInputPartition;
+import com.teragrep.pth_06.task.EncodedArchiveObjects;
 import com.teragrep.pth_06.task.TeragrepPartitionReaderFactory;
 import com.teragrep.pth_06.task.KafkaMicroBatchInputPartition;
+import com.teragrep.pth_06.task.MetadataAggregateInputPartition;
+import com.teragrep.pth_06.task.MetadataAggregates;
+import com.teragrep.pth_06.task.PartitionAffinity;
+import org.apache.spark.SparkContext;
+import org.apache.spark.SparkExecutorInfo;
+import org.apache.spark.sql.SparkSession;
 import org.apache.spark.sql.connector.metric.CustomTaskMetric;
 import org.apache.spark.sql.connector.read.InputPartition;
 import org.apache.spark.sql.connector.read.PartitionReaderFactory;
 import org.apache.spark.sql.connector.read.streaming.MicroBatchStream;
 import org.apache.spark.sql.connector.read.streaming.Offset;
 import org.apache.spark.sql.execution.streaming.LongOffset;
+import scala.Option;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 // logger
 
@@ -91,6 +106,10 @@ public final class ArchiveMicroStreamReader implements MicroBatchStream {
     private final ArchiveQuery aq;
     private final KafkaQuery kq;
     private final BatchCalculator batchCalculator;
+    private final SpeculativeOffsetPlanner speculativePlanner;
+    private final PlannerMetrics plannerMetrics;
+    private final ExecutorThroughputListener throughputListener;
+    private final boolean isThroughputListenerRegistered;
 
     /**
      * Constructor for ArchiveMicroStreamReader
@@ -102,9 +121,22 @@ public final class ArchiveMicroStreamReader implements MicroBatchStream {
         LOGGER.debug("ArchiveMicroStreamReader ctor called");
 
         this.config = config;
+        this.plannerMetrics = new PlannerMetrics();
+        final ThroughputModel throughputModel = new ThroughputModel(config.batchConfig);
+        final KafkaRecordSizes kafkaRecordSizes = new KafkaRecordSizes(config.kafkaConfig.defaultRecordSize);
+        final EventLimit eventLimit = new EventLimit(
+                config.archiveConfig.limitEvents,
+                config.archiveConfig.limitAverageEventSize
+        );
+        this.throughputListener = new ExecutorThroughputListener(
+                throughputModel,
+                kafkaRecordSizes,
+                eventLimit,
+                config.batchConfig.costModelAdaptive
+        );
 
         if (config.isArchiveEnabled) {
-            this.aq = new ArchiveQueryProcessor(config);
+            this.aq = new ArchiveQueryProcessor(config, plannerMetrics, throughputModel, eventLimit);
         }
         else {
             this.aq = null;
@@ -117,7 +149,24 @@ public final class ArchiveMicroStreamReader implements MicroBatchStream {
             this.kq = null;
         }
 
-        this.batchCalculator = new BatchCalculator(this.config, this.aq, this.kq);
+        this.batchCalculator = new BatchCalculator(
+                this.config,
+                this.aq,
+                this.kq,
+                plannerMetrics,
+                throughputModel,
+                kafkaRecordSizes,
+                this::availableCores
+        );
+        this.speculativePlanner = new SpeculativeOffsetPlanner(
+                this::planLatestOffset,
+                config.isPlanningSpeculative,
+                config.loggingConfig.isDebug()
+        );
+        if (config.batchConfig.speculativePlanning && !config.isPlanningSpeculative) {
+            LOGGER.warn("Speculative planning is disabled, as the event limit needs the records of the previous batch");
+        }
+        this.isThroughputListenerRegistered = registerThroughputListener();
         LOGGER.debug("ArchiveMicroStreamReader ctor exit");
     }
 
@@ -132,11 +181,46 @@ public final class ArchiveMicroStreamReader implements MicroBatchStream {
         this.config = config;
         this.aq = aq;
         this.kq = kq;
+        this.plannerMetrics = new PlannerMetrics();
+        this.throughputListener = new ExecutorThroughputListener(
+                new ThroughputModel(config.batchConfig),
+                new KafkaRecordSizes(config.kafkaConfig.defaultRecordSize),
+                new EventLimit(config.archiveConfig.limitEvents, config.archiveConfig.limitAverageEventSize),
+                config.batchConfig.costModelAdaptive
+        );
+        this.isThroughputListenerRegistered = false;
 
-        this.batchCalculator = new BatchCalculator(this.config, this.aq, this.kq);
+        this.batchCalculator = new BatchCalculator(this.config, this.aq, this.kq, plannerMetrics);
+        this.speculativePlanner = new SpeculativeOffsetPlanner(
+                this::planLatestOffset,
+                config.isPlanningSpeculative,
+                config.loggingConfig.isDebug()
+        );
         LOGGER.debug("ArchiveMicroStreamReader test ctor exit");
     }
 
+    /**
+     * Registers the listener feeding the throughput model, the event limit and the kafka record sizes with the task
+     * metrics of the executors, if the adaptive cost model, an event limit or kafka is enabled and a Spark session is
+     * available.
+     *
+     * @return if the listener was registered
+     */
+    private boolean registerThroughputListener() {
+        boolean registered = false;
+        if (config.batchConfig.costModelAdaptive || config.archiveConfig.limitEvents > 0 || config.isKafkaEnabled) {
+            final Option<SparkSession> session = SparkSession.getActiveSession();
+            if (session.isDefined()) {
+                session.get().sparkContext().addSparkListener(throughputListener);
+                registered = true;
+            }
+            else {
+                LOGGER.warn("No active Spark session, batch units are estimated from the static configuration");
+            }
+        }
+        return registered;
+    }
+
     /**
      * Used when Spark requests the initial offset when starting a new query.
      *
@@ -146,11 +230,10 @@ public final class ArchiveMicroStreamReader implements MicroBatchStream {
     @Override
     public Offset initialOffset() {
         LOGGER.debug("ArchiveMicroStreamReader.initialOffset called");
-        // archive only: subtract 3600s (1 hour) from earliest to return first row (start exclusive)
         final DatasourceOffset rv;
         if (this.config.isArchiveEnabled && !this.config.isKafkaEnabled) {
             // only archive
-            rv = new DatasourceOffset(new LongOffset(this.aq.getInitialOffset() - 3600L));
+            rv = new DatasourceOffset(new LongOffset(archiveInitialOffset()));
         }
         else if (!this.config.isArchiveEnabled && this.config.isKafkaEnabled) {
             // only kafka
@@ -159,7 +242,7 @@ public final class ArchiveMicroStreamReader implements MicroBatchStream {
         else if (this.config.isArchiveEnabled) {
             // both
             rv = new DatasourceOffset(
-                    new LongOffset(this.aq.getInitialOffset() - 3600L),
+                    new LongOffset(archiveInitialOffset()),
                     new KafkaOffset(this.kq.getBeginningOffsets(null))
             );
         }
@@ -188,8 +271,13 @@ public final class ArchiveMicroStreamReader implements MicroBatchStream {
     @Override
     public void commit(Offset offset) {
         LOGGER.debug("ArchiveMicroStreamReader.commit offset <{}>", offset);
+        speculativePlanner.await();
         if (this.config.isArchiveEnabled) {
-            this.aq.commit(((DatasourceOffset) offset).getArchiveOffset().offset());
+            this.aq
+                    .commit(
+                            ((DatasourceOffset) offset).getArchiveOffset().offset(),
+                            ((DatasourceOffset) offset).getArchiveLogfileId()
+                    );
         }
         LOGGER.debug("ArchiveMicroStreamReader.commit exit");
     }
@@ -200,6 +288,13 @@ public final class ArchiveMicroStreamReader implements MicroBatchStream {
     @Override
     public void stop() {
         LOGGER.debug("ArchiveMicroStreamReader.stop called");
+        speculativePlanner.close();
+        if (isThroughputListenerRegistered) {
+            final Option<SparkSession> session = SparkSession.getActiveSession();
+            if (session.isDefined()) {
+                session.get().sparkContext().removeSparkListener(throughputListener);
+            }
+        }
         if (this.config.isKafkaEnabled) {
             try {
                 kq.close();
@@ -215,17 +310,52 @@ public final class ArchiveMicroStreamReader implements MicroBatchStream {
     }
 
     /**
-     * Used when Spark progresses the query further to fetch more data.
+     * Used when Spark progresses the query further to fetch more data. Hands over the offset planned in the background
+     * during the previous micro-batch when speculative planning is enabled.
      *
      * @return {@link DatasourceOffset} object containing all necessary offsets for the enabled datasources.
      */
     @Override
     public Offset latestOffset() {
         LOGGER.debug("ArchiveMicroStreamReader.latestOffset called");
+        final DatasourceOffset rv = speculativePlanner.next();
+        LOGGER.debug("ArchiveMicroStreamReader.latestOffset returns <{}>", rv);
+        return rv;
+    }
+
+    /**
+     * Archive offset before the first hour to scan, as the start offset is exclusive. The first hour is the earliest
+     * one, or the latest one when scanning newest first.
+     *
+     * @return initial archive offset
+     */
+    private long archiveInitialOffset() {
+        final long rv;
+        if (config.archiveConfig.scanNewestFirst) {
+            // add 3600s (1 hour) to the latest bound to return the last row
+            rv = this.aq.getInitialOffset() + 3600L;
+        }
+        else {
+            // subtract 3600s (1 hour) from earliest to return first row
+            rv = this.aq.getInitialOffset() - 3600L;
+        }
+        return rv;
+    }
+
+    /**
+     * Progresses the enabled datasources to the end offset of the next micro-batch.
+     *
+     * @return {@link DatasourceOffset} object containing all necessary offsets for the enabled datasources.
+     */
+    private DatasourceOffset planLatestOffset() {
+        LOGGER.debug("ArchiveMicroStreamReader.planLatestOffset called");
         DatasourceOffset rv;
         if (this.config.isArchiveEnabled && !this.config.isKafkaEnabled) {
             // only archive
-            rv = new DatasourceOffset(new LongOffset(this.aq.incrementAndGetLatestOffset()));
+            rv = new DatasourceOffset(
+                    new LongOffset(this.aq.incrementAndGetLatestOffset()),
+                    this.aq.mostRecentLogfileId()
+            );
         }
         else if (!this.config.isArchiveEnabled && this.config.isKafkaEnabled) {
             // only kafka
@@ -235,6 +365,7 @@ public final class ArchiveMicroStreamReader implements MicroBatchStream {
             // both
             rv = new DatasourceOffset(
                     new LongOffset(this.aq.incrementAndGetLatestOffset()),
+                    this.aq.mostRecentLogfileId(),
                     new KafkaOffset(this.kq.getInitialEndOffsets())
             );
         }
@@ -243,7 +374,7 @@ public final class ArchiveMicroStreamReader implements MicroBatchStream {
             throw new IllegalStateException("no datasources enabled, can't get latest offset");
         }
 
-        LOGGER.debug("ArchiveMicroStreamReader.latestOffset returns <{}>", rv);
+        LOGGER.debug("ArchiveMicroStreamReader.planLatestOffset returns <{}>", rv);
         return rv;
     }
 
@@ -257,10 +388,22 @@ public final class ArchiveMicroStreamReader implements MicroBatchStream {
     @Override
     public InputPartition[] planInputPartitions(Offset start, Offset end) {
         LOGGER.debug("ArchiveMicroStreamReader.planInputPartitions: start <{}>, end <{}>", start, end);
+        speculativePlanner.await();
         List<InputPartition> inputPartitions = new ArrayList<>();
 
         List<List<BatchUnit>> currentBatch = batchCalculator.processRange(start, end);
 
+        // aggregated metadata of all the archive objects of the batch
+        final List<ArchiveS3ObjectMetadata> aggregatedObjects = new ArrayList<>();
+        // compressed bytes of each stream of the archive partitions, by partition index
+        final Map<Integer, Map<String, Long>> plannedPartitions = new HashMap<>();
+        final PartitionAffinity partitionAffinity = new PartitionAffinity(
+                PartitionAffinity.Mode.valueOf(config.batchConfig.locality.toUpperCase(Locale.ROOT)),
+                executorHosts()
+        );
+        // offset ranges of the kafka partitions, by partition index
+        final Map<Integer, KafkaTopicPartitionOffsetMetadata> plannedKafkaPartitions = new HashMap<>();
+
         for (List<BatchUnit> taskObjectList : currentBatch) {
 
             // archive tasks
@@ -271,27 +414,26 @@ public final class ArchiveMicroStreamReader implements MicroBatchStream {
                 }
             }
 
-            if (!archiveTaskList.isEmpty()) {
+            if (config.isMetadataAggregated) {
+                aggregatedObjects.addAll(archiveTaskList);
+            }
+            else if (!archiveTaskList.isEmpty()) {
+                // partitions are matched to their tasks for the throughput model and the event limit
+                if (config.batchConfig.costModelAdaptive || config.archiveConfig.limitEvents > 0) {
+                    final Map<String, Long> streamBytes = new HashMap<>();
+                    for (final ArchiveS3ObjectMetadata archiveObject : archiveTaskList) {
+                        streamBytes.merge(archiveObject.stream, archiveObject.compressedSize, Long::sum);
+                    }
+                    plannedPartitions.put(inputPartitions.size(), streamBytes);
+                }
                 inputPartitions
-                        .add(
-                                new ArchiveMicroBatchInputPartition(
-                                        config.archiveConfig.s3EndPoint,
-                                        config.archiveConfig.s3Identity,
-                                        config.archiveConfig.s3Credential,
-                                        archiveTaskList,
-                                        config.auditConfig.query,
-                                        config.auditConfig.reason,
-                                        config.auditConfig.user,
-                                        config.auditConfig.pluginClassName,
-                                        config.archiveConfig.skipNonRFC5424Files,
-                                        config.archiveConfig.epochMigrationMode
-                                )
-                        );
+                        .add(new ArchiveMicroBatchInputPartition(new EncodedArchiveObjects(archiveTaskList), partitionAffinity.preferredLocations(archiveTaskList)));
             }
 
             // kafka tasks
             for (BatchUnit batchUnit : taskObjectList) {
                 if (batchUnit.type.equals(BatchUnit.Type.KAFKA)) {
+                    plannedKafkaPartitions.put(inputPartitions.size(), batchUnit.kafkaTopicPartitionOffsetMetadata);
                     inputPartitions
                             .add(
                                     new KafkaMicroBatchInputPartition(
@@ -307,33 +449,101 @@ public final class ArchiveMicroStreamReader implements MicroBatchStream {
             }
         }
 
+        throughputListener.planned(plannedPartitions, plannedKafkaPartitions);
+
+        if (!aggregatedObjects.isEmpty()) {
+            inputPartitions.add(new MetadataAggregateInputPartition(new MetadataAggregates(aggregatedObjects)));
+        }
+
         LOGGER
                 .debug(
                         "ArchiveMicroStreamReader.planInputPartitions: returned <{}> inputPartitions",
                         inputPartitions.size()
                 );
+        // executors process this batch while the next one is planned
+        speculativePlanner.speculate();
         return inputPartitions.toArray(new InputPartition[0]);
     }
 
+    /**
+     * @return cores available for the tasks of a batch, or the static partition count without a Spark session
+     */
+    private int availableCores() {
+        final Option<SparkSession> session = SparkSession.getActiveSession();
+        final int cores;
+        if (session.isDefined()) {
+            cores = session.get().sparkContext().defaultParallelism();
+        }
+        else {
+            cores = config.batchConfig.numPartitions;
+        }
+        return cores;
+    }
+
+    /**
+     * @return hosts of the executors, without the driver unless it is the only one, or empty if locality is not in use
+     */
+    private List<String> executorHosts() {
+        final List<String> hosts = new ArrayList<>();
+        final Option<SparkSession> session = SparkSession.getActiveSession();
+        if (!"none".equals(config.batchConfig.locality) && session.isDefined()) {
+            final SparkContext sparkContext = session.get().sparkContext();
+            final String driverHost = sparkContext.getConf().get("spark.driver.host", "");
+            final Set<String> allHosts = new TreeSet<>();
+            for (final SparkExecutorInfo executorInfo : sparkContext.statusTracker().getExecutorInfos()) {
+                allHosts.add(executorInfo.host());
+            }
+            for (final String host : allHosts) {
+                if (!host.equals(driverHost)) {
+                    hosts.add(host);
+                }
+            }
+            if (hosts.isEmpty()) {
+                hosts.addAll(allHosts);
+            }
+        }
+        return hosts;
+    }
+
     @Override
     public PartitionReaderFactory createReaderFactory() {
         LOGGER.debug("ArchiveMicroStreamReader.createReaderFactory called");
-        final TeragrepPartitionReaderFactory readerFactory = new TeragrepPartitionReaderFactory(config.isMetadataQuery);
+        final TeragrepPartitionReaderFactory readerFactory = new TeragrepPartitionReaderFactory(
+                config.isMetadataQuery,
+                config.archiveConfig.s3EndPoint,
+                config.archiveConfig.s3Identity,
+                config.archiveConfig.s3Credential,
+                config.auditConfig.query,
+                config.auditConfig.reason,
+                config.auditConfig.user,
+                config.auditConfig.pluginClassName,
+                config.archiveConfig.skipNonRFC5424Files,
+                config.archiveConfig.epochMigrationMode,
+                config.archiveConfig.prefetchObjects,
+                config.archiveConfig.prefetchBudgetBytes
+        );
         LOGGER.debug("ArchiveMicroStreamReader.createReaderFactory returned <{}>", readerFactory);
         return readerFactory;
     }
 
     public DatasourceOffset mostRecentOffset() {
         LOGGER.debug("ArchiveMicroStreamReader.mostRecentOffset called");
+        final DatasourceOffset rv = speculativePlanner.mostRecent(this::currentOffset);
+        LOGGER.debug("ArchiveMicroStreamReader.mostRecentOffset returns <{}>", rv);
+        return rv;
+    }
+
+    private DatasourceOffset currentOffset() {
         final DatasourceOffset rv;
         if (config.isArchiveEnabled && config.isKafkaEnabled) {
             rv = new DatasourceOffset(
                     new LongOffset(this.aq.mostRecentOffset()),
+                    this.aq.mostRecentLogfileId(),
                     new KafkaOffset(this.kq.getInitialEndOffsets())
             );
         }
         else if (config.isArchiveEnabled) {
-            rv = new DatasourceOffset(new LongOffset(this.aq.mostRecentOffset()));
+            rv = new DatasourceOffset(new LongOffset(this.aq.mostRecentOffset()), this.aq.mostRecentLogfileId());
         }
         else if (config.isKafkaEnabled) {
             rv = new DatasourceOffset(new KafkaOffset(this.kq.getInitialEndOffsets()));
@@ -341,20 +551,17 @@ public final class ArchiveMicroStreamReader implements MicroBatchStream {
         else {
             throw new IllegalStateException("No datasources enabled, can't get last used offset");
         }
-        LOGGER.debug("ArchiveMicroStreamReader.mostRecentOffset returns <{}>", rv);
         return rv;
     }
 
     public CustomTaskMetric[] currentDatabaseMetrics() {
         LOGGER.debug("ArchiveMicroStreamReader.currentDatabaseMetrics called");
-        final CustomTaskMetric[] metrics;
+        final List<CustomTaskMetric> metrics = new ArrayList<>();
         if (aq != null) {
-            metrics = aq.currentDatabaseMetrics();
-        }
-        else {
-            metrics = new CustomTaskMetric[0];
+            metrics.addAll(Arrays.asList(aq.currentDatabaseMetrics()));
         }
-        LOGGER.debug("ArchiveMicroStreamReader.currentDatabaseMetrics returns <{}> metrics", metrics.length);
-        return metrics;
+        metrics.addAll(Arrays.asList(plannerMetrics.currentMetrics()));
+        LOGGER.debug("ArchiveMicroStreamReader.currentDatabaseMetrics returns <{}> metrics", metrics.size());
+        return metrics.toArray(new CustomTaskMetric[0]);
     }
 }
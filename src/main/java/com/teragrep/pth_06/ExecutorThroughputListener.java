@@ -0,0 +1,270 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06;
+
+import com.teragrep.pth_06.metrics.bytes.ArchiveCompressedBytesProcessedMetricAggregator;
+import com.teragrep.pth_06.metrics.bytes.BytesProcessedMetricAggregator;
+import com.teragrep.pth_06.metrics.objects.ArchiveProcessingNanosMetricAggregator;
+import com.teragrep.pth_06.metrics.records.RecordsProcessedMetricAggregator;
+import com.teragrep.pth_06.planner.EventLimit;
+import com.teragrep.pth_06.planner.ThroughputModel;
+import com.teragrep.pth_06.scheduler.KafkaRecordSizes;
+import org.apache.spark.scheduler.AccumulableInfo;
+import org.apache.spark.scheduler.SparkListener;
+import org.apache.spark.scheduler.SparkListenerTaskEnd;
+import org.apache.spark.scheduler.TaskInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Feeds the {@link ThroughputModel} with the processing time and compressed bytes the archive partition readers report
+ * as task metrics, the {@link EventLimit} with the records they report, and the {@link KafkaRecordSizes} with the bytes
+ * and records the Kafka partition readers report. A
+ * finished task is matched to the partition planned with the same index in the batch of its stage, and only if its
+ * metrics fit that partition, so that tasks of other queries in the same Spark context are left out. A batch is bound
+ * to the stage of the first task matched to it. Spark delivers the task ends asynchronously, often after the next batch
+ * is planned, so the partitions of a batch are kept until their tasks are observed or {@value #MAX_PLANNED_BATCHES}
+ * newer batches are planned.
+ */
+final class ExecutorThroughputListener extends SparkListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExecutorThroughputListener.class);
+    static final int MAX_PLANNED_BATCHES = 16;
+
+    private final ThroughputModel throughputModel;
+    private final KafkaRecordSizes kafkaRecordSizes;
+    private final EventLimit eventLimit;
+    private final boolean isCostModelAdaptive;
+    // spark names the accumulators of custom metrics by their description
+    private final String compressedBytesMetric;
+    private final String processingNanosMetric;
+    private final String bytesMetric;
+    private final String recordsMetric;
+    // batches with unobserved partitions, oldest first
+    private final Deque<PlannedBatch> plannedBatches;
+
+    /**
+     * @param throughputModel     fed with the throughput of the archive partitions if the cost model is adaptive
+     * @param kafkaRecordSizes    fed with the record sizes of the kafka partitions
+     * @param eventLimit          fed with the records processed by the archive partitions
+     * @param isCostModelAdaptive if the throughput model follows the executors
+     */
+    ExecutorThroughputListener(
+            final ThroughputModel throughputModel,
+            final KafkaRecordSizes kafkaRecordSizes,
+            final EventLimit eventLimit,
+            final boolean isCostModelAdaptive
+    ) {
+        this.throughputModel = throughputModel;
+        this.kafkaRecordSizes = kafkaRecordSizes;
+        this.eventLimit = eventLimit;
+        this.isCostModelAdaptive = isCostModelAdaptive;
+        this.compressedBytesMetric = new ArchiveCompressedBytesProcessedMetricAggregator().description();
+        this.processingNanosMetric = new ArchiveProcessingNanosMetricAggregator().description();
+        this.bytesMetric = new BytesProcessedMetricAggregator().description();
+        this.recordsMetric = new RecordsProcessedMetricAggregator().description();
+        this.plannedBatches = new ArrayDeque<>();
+    }
+
+    /**
+     * @param partitions      compressed bytes of each stream of the archive partitions of a batch, by partition index
+     * @param kafkaPartitions offset ranges of the kafka partitions of a batch, by partition index
+     */
+    synchronized void planned(
+            final Map<Integer, Map<String, Long>> partitions,
+            final Map<Integer, KafkaTopicPartitionOffsetMetadata> kafkaPartitions
+    ) {
+        if (!partitions.isEmpty() || !kafkaPartitions.isEmpty()) {
+            plannedBatches.addLast(new PlannedBatch(partitions, kafkaPartitions));
+        }
+        while (plannedBatches.size() > MAX_PLANNED_BATCHES) {
+            final PlannedBatch dropped = plannedBatches.removeFirst();
+            LOGGER
+                    .debug(
+                            "ExecutorThroughputListener dropped <{}> unobserved archive and <{}> kafka partitions",
+                            dropped.partitions.size(), dropped.kafkaPartitions.size()
+                    );
+        }
+    }
+
+    @Override
+    public void onTaskEnd(final SparkListenerTaskEnd taskEnd) {
+        final TaskInfo taskInfo = taskEnd.taskInfo();
+        if (taskInfo != null && taskInfo.successful()) {
+            long compressedBytes = -1L;
+            long processingNanos = -1L;
+            long bytes = -1L;
+            long records = -1L;
+            final scala.collection.Iterator<AccumulableInfo> accumulables = taskInfo.accumulables().iterator();
+            while (accumulables.hasNext()) {
+                final AccumulableInfo accumulable = accumulables.next();
+                if (accumulable.name().isDefined() && accumulable.update().isDefined()) {
+                    final String name = accumulable.name().get();
+                    if (compressedBytesMetric.equals(name)) {
+                        compressedBytes = Long.parseLong(accumulable.update().get().toString());
+                    }
+                    else if (processingNanosMetric.equals(name)) {
+                        processingNanos = Long.parseLong(accumulable.update().get().toString());
+                    }
+                    else if (bytesMetric.equals(name)) {
+                        bytes = Long.parseLong(accumulable.update().get().toString());
+                    }
+                    else if (recordsMetric.equals(name)) {
+                        records = Long.parseLong(accumulable.update().get().toString());
+                    }
+                }
+            }
+
+            if (compressedBytes > 0L && processingNanos > 0L) {
+                observe(taskEnd.stageId(), taskInfo.index(), compressedBytes, processingNanos, Math.max(records, 0L));
+            }
+            else if (bytes > 0L && records > 0L) {
+                observeKafka(taskEnd.stageId(), taskInfo.index(), bytes, records);
+            }
+        }
+    }
+
+    private synchronized void observe(
+            final int stageId,
+            final int index,
+            final long compressedBytes,
+            final long processingNanos,
+            final long records
+    ) {
+        Map<String, Long> streams = null;
+        boolean isStageBound = false;
+        final Iterator<PlannedBatch> batches = plannedBatches.iterator();
+        while (streams == null && !isStageBound && batches.hasNext()) {
+            final PlannedBatch batch = batches.next();
+            isStageBound = batch.stageId == stageId;
+            if (isStageBound || batch.stageId == PlannedBatch.UNBOUND) {
+                final Map<String, Long> candidate = batch.partitions.get(index);
+                if (
+                    candidate != null && candidate.values().stream().mapToLong(Long::longValue).sum() == compressedBytes
+                ) {
+                    streams = candidate;
+                    batch.stageId = stageId;
+                    batch.partitions.remove(index);
+                    if (batch.isObserved()) {
+                        batches.remove();
+                    }
+                }
+            }
+        }
+        if (streams != null) {
+            if (isCostModelAdaptive) {
+                throughputModel.observe(streams, processingNanos);
+            }
+            eventLimit.processed(records);
+            LOGGER
+                    .debug(
+                            "ExecutorThroughputListener observed partition <{}> of <{}> bytes and <{}> records in <{}> ns, {} {}",
+                            index, compressedBytes, records, processingNanos, throughputModel, eventLimit
+                    );
+        }
+    }
+
+    private synchronized void observeKafka(final int stageId, final int index, final long bytes, final long records) {
+        KafkaTopicPartitionOffsetMetadata offsets = null;
+        boolean isStageBound = false;
+        final Iterator<PlannedBatch> batches = plannedBatches.iterator();
+        while (offsets == null && !isStageBound && batches.hasNext()) {
+            final PlannedBatch batch = batches.next();
+            isStageBound = batch.stageId == stageId;
+            if (isStageBound || batch.stageId == PlannedBatch.UNBOUND) {
+                final KafkaTopicPartitionOffsetMetadata candidate = batch.kafkaPartitions.get(index);
+                // compaction and transaction markers leave gaps in the offsets, never extra records
+                if (candidate != null && records <= candidate.endOffset - candidate.startOffset) {
+                    offsets = candidate;
+                    batch.stageId = stageId;
+                    batch.kafkaPartitions.remove(index);
+                    if (batch.isObserved()) {
+                        batches.remove();
+                    }
+                }
+            }
+        }
+        if (offsets != null) {
+            kafkaRecordSizes.observe(offsets.topicPartition, bytes, records);
+            LOGGER
+                    .debug(
+                            "ExecutorThroughputListener observed <{}> records of <{}> bytes from <{}>, {}", records,
+                            bytes, offsets.topicPartition, kafkaRecordSizes
+                    );
+        }
+    }
+
+    private static final class PlannedBatch {
+
+        private static final int UNBOUND = -1;
+
+        // compressed bytes of each stream of the unobserved archive partitions, by partition index
+        private final Map<Integer, Map<String, Long>> partitions;
+        // offset ranges of the unobserved kafka partitions, by partition index
+        private final Map<Integer, KafkaTopicPartitionOffsetMetadata> kafkaPartitions;
+        // stage running the partitions, once the first of them is observed
+        private int stageId;
+
+        private PlannedBatch(
+                final Map<Integer, Map<String, Long>> partitions,
+                final Map<Integer, KafkaTopicPartitionOffsetMetadata> kafkaPartitions
+        ) {
+            this.partitions = new HashMap<>(partitions);
+            this.kafkaPartitions = new HashMap<>(kafkaPartitions);
+            this.stageId = UNBOUND;
+        }
+
+        private boolean isObserved() {
+            return partitions.isEmpty() && kafkaPartitions.isEmpty();
+        }
+    }
+}
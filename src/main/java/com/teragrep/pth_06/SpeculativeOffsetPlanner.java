@@ -0,0 +1,198 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06;
+
+import com.teragrep.pth_06.planner.offset.DatasourceOffset;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Plans the latest offset of the next micro-batch on a background thread while the current micro-batch executes, so
+ * that {@link ArchiveMicroStreamReader#latestOffset()} can hand over the precomputed result. The planning function owns
+ * the database connection and the Kafka consumer, so every other user of them must call {@link #await()} before
+ * touching them. When disabled, the offset is planned synchronously by {@link #next()}.
+ */
+final class SpeculativeOffsetPlanner implements AutoCloseable {
+
+    private static final Logger classLogger = LoggerFactory.getLogger(SpeculativeOffsetPlanner.class);
+    private final ConfiguredLogger LOGGER;
+
+    private final Supplier<DatasourceOffset> planningFunction;
+    private final boolean isEnabled;
+    private final ExecutorService executor;
+    private Future<DatasourceOffset> pending;
+    private DatasourceOffset handedOver;
+
+    SpeculativeOffsetPlanner(final Supplier<DatasourceOffset> planningFunction, final boolean isEnabled) {
+        this(planningFunction, isEnabled, false);
+    }
+
+    SpeculativeOffsetPlanner(
+            final Supplier<DatasourceOffset> planningFunction,
+            final boolean isEnabled,
+            final boolean isDebug
+    ) {
+        this.LOGGER = new ConfiguredLogger(classLogger, isDebug);
+        this.planningFunction = planningFunction;
+        this.isEnabled = isEnabled;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "pth_06-speculative-planner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pending = null;
+        this.handedOver = null;
+    }
+
+    /**
+     * Starts planning the next offset in the background, unless disabled or already planning.
+     */
+    void speculate() {
+        if (isEnabled && pending == null) {
+            LOGGER.debug("SpeculativeOffsetPlanner.speculate starting background planning");
+            pending = executor.submit(planningFunction::get);
+        }
+    }
+
+    /**
+     * Hands over the speculatively planned offset, or plans it synchronously if no planning was started.
+     *
+     * @return latest offset for the next micro-batch
+     */
+    DatasourceOffset next() {
+        final DatasourceOffset rv;
+        if (pending == null) {
+            rv = planningFunction.get();
+        }
+        else {
+            try {
+                rv = pending.get();
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for speculative planning", e);
+            }
+            catch (final ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException("Speculative planning failed", e.getCause());
+            }
+            finally {
+                pending = null;
+            }
+        }
+        LOGGER.debug("SpeculativeOffsetPlanner.next handing over <{}>", rv);
+        handedOver = rv;
+        return rv;
+    }
+
+    /**
+     * Waits for the background planning to finish, if any is running. A failure is not thrown here but by the following
+     * {@link #next()}.
+     */
+    void await() {
+        if (pending != null) {
+            try {
+                pending.get();
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for speculative planning", e);
+            }
+            catch (final ExecutionException ignored) {
+                // surfaced by next()
+            }
+        }
+    }
+
+    /**
+     * Offset most recently handed over to Spark. When speculation is disabled, or nothing has been handed over yet, the
+     * offset is read from the sources once the background planning has finished.
+     *
+     * @param current reads the most recent offset from the sources
+     * @return most recent offset
+     */
+    DatasourceOffset mostRecent(final Supplier<DatasourceOffset> current) {
+        final DatasourceOffset rv;
+        if (isEnabled && handedOver != null) {
+            rv = handedOver;
+        }
+        else {
+            await();
+            rv = current.get();
+        }
+        return rv;
+    }
+
+    /**
+     * Stops the background planning and waits for it to terminate.
+     */
+    @Override
+    public void close() {
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+        executor.shutdownNow();
+        try {
+            // planning may still use the connections the caller is about to close
+            if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                LOGGER.warn("SpeculativeOffsetPlanner.close background planning did not terminate");
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
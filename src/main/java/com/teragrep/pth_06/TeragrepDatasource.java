@@ -45,7 +45,6 @@
  */
 package com.teragrep.pth_06;
 
-import com.teragrep.pth_06.config.Config;
 import org.apache.spark.sql.connector.catalog.SupportsRead;
 import org.apache.spark.sql.connector.catalog.Table;
 import org.apache.spark.sql.connector.catalog.TableCapability;
@@ -102,7 +101,7 @@ public final class TeragrepDatasource implements DataSourceRegister, TableProvid
 
     @Override
     public ScanBuilder newScanBuilder(CaseInsensitiveStringMap options) {
-        return () -> new TeragrepScan(schema, new Config(options));
+        return new TeragrepScanBuilder(schema, options);
     }
 
     @Override
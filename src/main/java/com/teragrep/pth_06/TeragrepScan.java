@@ -54,9 +54,15 @@ import com.teragrep.pth_06.metrics.database.ArchiveDatabaseRowAvgLatencyMetricAg
 import com.teragrep.pth_06.metrics.database.ArchiveDatabaseRowCountMetricAggregator;
 import com.teragrep.pth_06.metrics.database.ArchiveDatabaseRowMaxLatencyMetricAggregator;
 import com.teragrep.pth_06.metrics.database.ArchiveDatabaseRowMinLatencyMetricAggregator;
+import com.teragrep.pth_06.metrics.database.ArchiveSliceStoreBytesMetricAggregator;
+import com.teragrep.pth_06.metrics.database.ArchiveSliceStoreRowsMetricAggregator;
 import com.teragrep.pth_06.metrics.objects.ArchiveObjectsProcessedMetricAggregator;
+import com.teragrep.pth_06.metrics.objects.ArchivePrefetchHitRatioMetricAggregator;
+import com.teragrep.pth_06.metrics.objects.ArchivePrefetchWaitNanosMetricAggregator;
+import com.teragrep.pth_06.metrics.objects.ArchiveProcessingNanosMetricAggregator;
 import com.teragrep.pth_06.metrics.offsets.ArchiveOffsetMetricAggregator;
 import com.teragrep.pth_06.metrics.offsets.KafkaOffsetMetricAggregator;
+import com.teragrep.pth_06.metrics.planner.PlannerMetrics;
 import com.teragrep.pth_06.metrics.records.LatestKafkaTimestampMetricAggregator;
 import com.teragrep.pth_06.metrics.records.RecordsPerSecondMetricAggregator;
 import com.teragrep.pth_06.metrics.records.RecordsProcessedMetricAggregator;
@@ -104,11 +110,13 @@ public final class TeragrepScan implements Scan {
 
     @Override
     public CustomMetric[] supportedCustomMetrics() {
-        return new CustomMetric[] {
+        final CustomMetric[] metrics = new CustomMetric[] {
                 new ArchiveDatabaseRowCountMetricAggregator(),
                 new ArchiveDatabaseRowAvgLatencyMetricAggregator(),
                 new ArchiveDatabaseRowMaxLatencyMetricAggregator(),
                 new ArchiveDatabaseRowMinLatencyMetricAggregator(),
+                new ArchiveSliceStoreRowsMetricAggregator(),
+                new ArchiveSliceStoreBytesMetricAggregator(),
                 new ArchiveCompressedBytesProcessedMetricAggregator(),
                 new BytesProcessedMetricAggregator(),
                 new BytesPerSecondMetricAggregator(),
@@ -116,9 +124,16 @@ public final class TeragrepScan implements Scan {
                 new RecordsPerSecondMetricAggregator(),
                 new LatestKafkaTimestampMetricAggregator(),
                 new ArchiveObjectsProcessedMetricAggregator(),
+                new ArchiveProcessingNanosMetricAggregator(),
+                new ArchivePrefetchHitRatioMetricAggregator(),
+                new ArchivePrefetchWaitNanosMetricAggregator(),
                 new KafkaOffsetMetricAggregator(),
                 new ArchiveOffsetMetricAggregator(),
         };
+        final CustomMetric[] plannerMetrics = PlannerMetrics.supportedMetrics();
+        final CustomMetric[] supportedMetrics = Arrays.copyOf(metrics, metrics.length + plannerMetrics.length);
+        System.arraycopy(plannerMetrics, 0, supportedMetrics, metrics.length, plannerMetrics.length);
+        return supportedMetrics;
     }
 
     @Override
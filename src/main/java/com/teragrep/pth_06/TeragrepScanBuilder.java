@@ -0,0 +1,119 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06;
+
+import com.teragrep.pth_06.config.Config;
+import org.apache.spark.sql.connector.read.Scan;
+import org.apache.spark.sql.connector.read.ScanBuilder;
+import org.apache.spark.sql.connector.read.SupportsPushDownLimit;
+import org.apache.spark.sql.types.StructType;
+import org.apache.spark.sql.util.CaseInsensitiveStringMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <h1>TeragrepScanBuilder</h1> Builds the {@link TeragrepScan} from the options of the query. A limit pushed down by
+ * Spark would be passed to the archive planner as archive.limit.events. Spark only pushes limits down to batch scans,
+ * and the datasource supports {@link org.apache.spark.sql.connector.catalog.TableCapability#MICRO_BATCH_READ} alone,
+ * so {@link #pushLimit(int)} is never called as things are and the limit has to be given as archive.limit.events.
+ *
+ * @see SupportsPushDownLimit
+ */
+public final class TeragrepScanBuilder implements ScanBuilder, SupportsPushDownLimit {
+
+    private final Logger LOGGER = LoggerFactory.getLogger(TeragrepScanBuilder.class);
+    private final StructType schema;
+    private final CaseInsensitiveStringMap options;
+    private int pushedLimit;
+
+    public TeragrepScanBuilder(final StructType schema, final CaseInsensitiveStringMap options) {
+        this.schema = schema;
+        this.options = options;
+        this.pushedLimit = 0;
+    }
+
+    @Override
+    public boolean pushLimit(final int limit) {
+        LOGGER.debug("TeragrepScanBuilder.pushLimit limit <{}>", limit);
+        // 0 is not a limit for the planner
+        if (limit > 0) {
+            this.pushedLimit = limit;
+        }
+        return limit > 0;
+    }
+
+    @Override
+    public boolean isPartiallyPushed() {
+        return true;
+    }
+
+    @Override
+    public Scan build() {
+        return new TeragrepScan(schema, new Config(options()));
+    }
+
+    /**
+     * Options of the query with the pushed limit, unless a lower archive.limit.events was already given.
+     *
+     * @return options to configure the scan with
+     */
+    CaseInsensitiveStringMap options() {
+        final CaseInsensitiveStringMap rv;
+        final long givenLimit = Long.parseLong(options.getOrDefault("archive.limit.events", "0"));
+        if (pushedLimit > 0 && (givenLimit == 0 || pushedLimit < givenLimit)) {
+            final Map<String, String> opts = new HashMap<>(options);
+            opts.put("archive.limit.events", String.valueOf(pushedLimit));
+            rv = new CaseInsensitiveStringMap(opts);
+        }
+        else {
+            rv = options;
+        }
+        return rv;
+    }
+}
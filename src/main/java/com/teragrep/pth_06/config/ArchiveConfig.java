@@ -54,6 +54,10 @@ public final class ArchiveConfig {
     public final String dbUrl;
     public final String dbJournalDbName;
     public final String dbStreamDbName;
+    public final boolean dbUseServerPrepStmts;
+    public final long filterTableCacheTtlSeconds;
+    public final boolean corruptedArchiveInMemory;
+    public final long corruptedArchiveRefreshSeconds;
 
     // s3
     public final String s3EndPoint;
@@ -62,9 +66,24 @@ public final class ArchiveConfig {
 
     public final boolean skipNonRFC5424Files;
     public final boolean epochMigrationMode;
+    public final int prefetchObjects;
+    public final long prefetchBudgetBytes;
 
     public final long archiveIncludeBeforeEpoch;
 
+    // seek
+    public final int seekWindowDays;
+    public final int seekMaxWindowDays;
+    public final int seekParallelConnections;
+    public final boolean scanNewestFirst;
+    public final long limitEvents;
+    public final long limitAverageEventSize;
+
+    // slice store
+    public final boolean sliceStoreInMemory;
+    public final int sliceStoreMaxRows;
+    public final boolean sliceStoreSegmented;
+
     // bloom
     public final boolean bloomEnabled;
     public final boolean withoutFilters;
@@ -87,14 +106,64 @@ public final class ArchiveConfig {
 
         dbJournalDbName = opts.getOrDefault("DBjournaldbname", "journaldb");
         dbStreamDbName = opts.getOrDefault("DBstreamdbname", "streamdb");
+        // prepare the recurring planner queries on the server once per connection
+        dbUseServerPrepStmts = opts.getOrDefault("DBuseServerPrepStmts", "true").equalsIgnoreCase("true");
+        // reuse the streamdb host and tag resolution of earlier queries in the same JVM, 0 disables
+        filterTableCacheTtlSeconds = Long.parseLong(opts.getOrDefault("archive.filterTableCache.ttlSeconds", "0"));
+        // filter corrupted archives on the driver instead of joining them in the pull, 0 loads them once per query
+        corruptedArchiveInMemory = opts
+                .getOrDefault("archive.corruptedArchive.inMemory", "false")
+                .equalsIgnoreCase("true");
+        corruptedArchiveRefreshSeconds = Long
+                .parseLong(opts.getOrDefault("archive.corruptedArchive.refreshSeconds", "0"));
 
         // skip not rfc5424 parseable files
         skipNonRFC5424Files = opts.getOrDefault("skipNonRFC5424Files", "false").equalsIgnoreCase("true");
         epochMigrationMode = opts.getOrDefault("epochMigrationMode", "false").equalsIgnoreCase("true");
+        // objects of a task downloaded ahead while the current one is parsed, 0 downloads them one at a time
+        prefetchObjects = Integer.parseInt(opts.getOrDefault("archive.prefetch.objects", "0"));
+        // compressed bytes the prefetching readers of an executor may hold at once
+        prefetchBudgetBytes = Long.parseLong(opts.getOrDefault("archive.prefetch.budgetMB", "256")) * 1024L * 1024L;
+        if (prefetchObjects < 0 || prefetchBudgetBytes < 1) {
+            throw new IllegalArgumentException(
+                    "Configuration items 'archive.prefetch.objects' must not be negative and 'archive.prefetch.budgetMB' must be at least 1, were <"
+                            + prefetchObjects + "> and <" + opts.get("archive.prefetch.budgetMB") + ">"
+            );
+        }
 
         archiveIncludeBeforeEpoch = Long
                 .parseLong(opts.getOrDefault("archive.includeBeforeEpoch", String.valueOf(Long.MAX_VALUE)));
 
+        // days pulled into the slice table per query, grown up to maximum while the pulls return nothing
+        seekWindowDays = Integer.parseInt(opts.getOrDefault("archive.seek.windowDays", "1"));
+        seekMaxWindowDays = Integer
+                .parseInt(opts.getOrDefault("archive.seek.maxWindowDays", String.valueOf(seekWindowDays)));
+        // connections pulling the days of a window concurrently, 1 pulls the whole window with a single query
+        seekParallelConnections = Integer.parseInt(opts.getOrDefault("archive.seek.parallelConnections", "1"));
+        if (seekParallelConnections < 1) {
+            throw new IllegalArgumentException(
+                    "Configuration item 'archive.seek.parallelConnections' must be at least 1, was <"
+                            + seekParallelConnections + ">"
+            );
+        }
+        // plan the batches from the latest bound of the query backwards, the archive offsets decrease
+        scanNewestFirst = opts.getOrDefault("archive.scan.newestFirst", "false").equalsIgnoreCase("true");
+        // stop planning once the scheduled objects hold this many events by uncompressed size, 0 plans everything
+        limitEvents = Long.parseLong(opts.getOrDefault("archive.limit.events", "0"));
+        limitAverageEventSize = Long.parseLong(opts.getOrDefault("archive.limit.averageEventSize", "512"));
+        if (limitEvents < 0 || limitAverageEventSize < 1) {
+            throw new IllegalArgumentException(
+                    "Configuration items 'archive.limit.events' must not be negative and 'archive.limit.averageEventSize' must be at least 1, were <"
+                            + limitEvents + "> and <" + limitAverageEventSize + ">"
+            );
+        }
+
+        // keep the pulled logfiles on the driver instead of a temporary table, bounded by row count
+        sliceStoreInMemory = opts.getOrDefault("archive.sliceStore.inMemory", "false").equalsIgnoreCase("true");
+        sliceStoreMaxRows = Integer.parseInt(opts.getOrDefault("archive.sliceStore.maxRows", "1000000"));
+        // a temporary table per pull, dropped whole once committed
+        sliceStoreSegmented = opts.getOrDefault("archive.sliceStore.segmented", "false").equalsIgnoreCase("true");
+
         isStub = false;
     }
 
@@ -108,6 +177,10 @@ public final class ArchiveConfig {
 
         dbJournalDbName = "";
         dbStreamDbName = "";
+        dbUseServerPrepStmts = false;
+        filterTableCacheTtlSeconds = 0L;
+        corruptedArchiveInMemory = false;
+        corruptedArchiveRefreshSeconds = 0L;
 
         bloomEnabled = false;
         withoutFilters = false;
@@ -116,9 +189,22 @@ public final class ArchiveConfig {
 
         skipNonRFC5424Files = false;
         epochMigrationMode = false;
+        prefetchObjects = 0;
+        prefetchBudgetBytes = 0L;
 
         archiveIncludeBeforeEpoch = 0L;
 
+        seekWindowDays = 1;
+        seekMaxWindowDays = 1;
+        seekParallelConnections = 1;
+        scanNewestFirst = false;
+        limitEvents = 0L;
+        limitAverageEventSize = 1L;
+
+        sliceStoreInMemory = false;
+        sliceStoreMaxRows = 0;
+        sliceStoreSegmented = false;
+
         isStub = true;
     }
 
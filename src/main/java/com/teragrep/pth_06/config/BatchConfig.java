@@ -45,6 +45,7 @@
  */
 package com.teragrep.pth_06.config;
 
+import java.util.Locale;
 import java.util.Map;
 
 public final class BatchConfig {
@@ -54,9 +55,17 @@ public final class BatchConfig {
     public final float fileCompressionRatio;
     public final float processingSpeed;
     public final long totalObjectCountLimit;
+    public final boolean speculativePlanning;
+    public final boolean costModelAdaptive;
+    public final double costModelAlpha;
+    public final String locality;
+    public final boolean partitionsAuto;
+    public final double partitionsTargetTaskSeconds;
+    public final int partitionsMin;
+    public final int partitionsMax;
 
     public BatchConfig(Map<String, String> opts) {
-        // TODO activeSession.get.sparkContext.defaultParallelism;
+        // static count, batch.partitions.auto sizes each batch by its weight and the default parallelism instead
         numPartitions = Integer.parseInt(opts.getOrDefault("num_partitions", "1"));
         quantumLength = Integer.parseInt(opts.getOrDefault("quantumLength", "15"));
         fileCompressionRatio = Float
@@ -64,5 +73,33 @@ public final class BatchConfig {
         processingSpeed = Float.parseFloat(opts.getOrDefault("batch.size.processingSpeed", String.valueOf(273 / 2F)));
         totalObjectCountLimit = Long
                 .parseLong(opts.getOrDefault("batch.size.totalObjectCountLimit", String.valueOf(1000L)));
+        // plan the next batch on a background thread while the current batch executes, unless archive.limit.events is set
+        speculativePlanning = opts.getOrDefault("batch.speculativePlanning", "false").equalsIgnoreCase("true");
+        // follow the throughput observed on the executors instead of the static compression ratio and speed
+        costModelAdaptive = opts.getOrDefault("batch.costModel.adaptive", "false").equalsIgnoreCase("true");
+        costModelAlpha = Double.parseDouble(opts.getOrDefault("batch.costModel.alpha", "0.2"));
+        // size the partition count of each batch by its estimated processing time instead of num_partitions
+        partitionsAuto = opts.getOrDefault("batch.partitions.auto", "false").equalsIgnoreCase("true");
+        partitionsTargetTaskSeconds = Double.parseDouble(opts.getOrDefault("batch.partitions.targetTaskSeconds", "30"));
+        partitionsMin = Integer.parseInt(opts.getOrDefault("batch.partitions.min", "1"));
+        partitionsMax = Integer.parseInt(opts.getOrDefault("batch.partitions.max", String.valueOf(Integer.MAX_VALUE)));
+        if (partitionsTargetTaskSeconds <= 0D) {
+            throw new IllegalArgumentException(
+                    "batch.partitions.targetTaskSeconds must be positive, was: " + partitionsTargetTaskSeconds
+            );
+        }
+        if (partitionsMin < 1 || partitionsMax < partitionsMin) {
+            throw new IllegalArgumentException(
+                    "batch.partitions.min must be at least 1 and at most batch.partitions.max, was: " + partitionsMin
+                            + " and " + partitionsMax
+            );
+        }
+        // prefer the same executor hosts for the same bucket and host or directory across batches
+        locality = opts.getOrDefault("batch.locality", "none").toLowerCase(Locale.ROOT);
+        if (!"none".equals(locality) && !"host".equals(locality) && !"directory".equals(locality)) {
+            throw new IllegalArgumentException(
+                    "batch.locality must be one of none, host or directory, was: " + locality
+            );
+        }
     }
 }
@@ -45,6 +45,7 @@
  */
 package com.teragrep.pth_06.config;
 
+import com.teragrep.pth_06.metrics.planner.PlannerMetrics;
 import org.jooq.DSLContext;
 
 import java.util.Objects;
@@ -57,6 +58,7 @@ public final class ConditionConfig {
     private final boolean withoutFilters;
     private final String withoutFiltersPattern;
     private final long bloomTermId;
+    private final PlannerMetrics plannerMetrics;
 
     public ConditionConfig(DSLContext ctx, boolean streamQuery) {
         this(ctx, streamQuery, false);
@@ -87,6 +89,18 @@ public final class ConditionConfig {
             boolean withoutFilters,
             String withoutFiltersPattern,
             long bloomTermId
+    ) {
+        this(ctx, streamQuery, bloomEnabled, withoutFilters, withoutFiltersPattern, bloomTermId, new PlannerMetrics());
+    }
+
+    public ConditionConfig(
+            DSLContext ctx,
+            boolean streamQuery,
+            boolean bloomEnabled,
+            boolean withoutFilters,
+            String withoutFiltersPattern,
+            long bloomTermId,
+            PlannerMetrics plannerMetrics
     ) {
         this.ctx = ctx;
         this.streamQuery = streamQuery;
@@ -94,6 +108,7 @@ public final class ConditionConfig {
         this.withoutFilters = withoutFilters;
         this.withoutFiltersPattern = withoutFiltersPattern;
         this.bloomTermId = bloomTermId;
+        this.plannerMetrics = plannerMetrics;
     }
 
     public DSLContext context() {
@@ -123,7 +138,11 @@ public final class ConditionConfig {
         return streamQuery;
     }
 
-    //* DSLContext must be same instance to be equal */
+    public PlannerMetrics plannerMetrics() {
+        return plannerMetrics;
+    }
+
+    //* DSLContext must be same instance to be equal, planner metrics only collect timings and are left out */
     @Override
     public boolean equals(Object object) {
         if (this == object) {
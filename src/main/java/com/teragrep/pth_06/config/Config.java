@@ -71,6 +71,9 @@ public final class Config {
     public final boolean isKafkaEnabled;
 
     public final boolean isMetadataQuery;
+    public final boolean isMetadataAggregated;
+
+    public final boolean isPlanningSpeculative;
 
     public Config(Map<String, String> opts) {
         this.query = opts.get("queryXML");
@@ -104,6 +107,13 @@ public final class Config {
 
         // fetch metadata (defaults to false)
         isMetadataQuery = opts.getOrDefault("metadataQuery.enabled", "false").equalsIgnoreCase("true");
+        // one row per hour, index, sourcetype and host aggregated on the driver instead of a row per object
+        isMetadataAggregated = isMetadataQuery
+                && opts.getOrDefault("metadataQuery.aggregate", "false").equalsIgnoreCase("true");
+
+        // the next batch is planned before the tasks of the current one report their records, so with an event limit
+        // speculation would plan and run at least one batch past the limit
+        isPlanningSpeculative = batchConfig.speculativePlanning && archiveConfig.limitEvents == 0L;
 
         loggingConfig = new LoggingConfigImpl(opts);
 
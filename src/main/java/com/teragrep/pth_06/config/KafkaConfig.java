@@ -64,6 +64,8 @@ public final class KafkaConfig {
     public final boolean kafkaContinuousProcessing;
 
     public final boolean skipNonRFC5424Records;
+    public final long maxRecordsPerPartition;
+    public final long defaultRecordSize;
     public final boolean isStub;
 
     public KafkaConfig(Map<String, String> opts) {
@@ -76,6 +78,21 @@ public final class KafkaConfig {
         // TODO: Rename to match kafka config name
         skipNonRFC5424Records = opts.getOrDefault("skipNonRFC5424Files", "false").equalsIgnoreCase("true");
 
+        // split the offset range of a topic partition into input partitions of at most this many records
+        maxRecordsPerPartition = Long
+                .parseLong(opts.getOrDefault("kafka.maxRecordsPerPartition", String.valueOf(Long.MAX_VALUE)));
+        if (maxRecordsPerPartition < 1) {
+            throw new IllegalArgumentException(
+                    "kafka.maxRecordsPerPartition must be positive, was: " + maxRecordsPerPartition
+            );
+        }
+
+        // bytes of a record until the record sizes of the partitions are observed
+        defaultRecordSize = Long.parseLong(opts.getOrDefault("kafka.defaultRecordSize", "1024"));
+        if (defaultRecordSize < 1) {
+            throw new IllegalArgumentException("kafka.defaultRecordSize must be positive, was: " + defaultRecordSize);
+        }
+
         isStub = false;
     }
 
@@ -86,6 +103,8 @@ public final class KafkaConfig {
         executorConfig = new HashMap<>();
         kafkaContinuousProcessing = false;
         skipNonRFC5424Records = false;
+        maxRecordsPerPartition = Long.MAX_VALUE;
+        defaultRecordSize = 1024L;
 
         isStub = true;
     }
@@ -0,0 +1,188 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.metrics.planner;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.teragrep.pth_06.metrics.TaskMetric;
+import org.apache.spark.sql.connector.metric.CustomMetric;
+import org.apache.spark.sql.connector.metric.CustomTaskMetric;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Times the phases of the driver-side planning. Every {@link PlannerPhase} is reported as count, p50, p99 and max
+ * duration in nanoseconds, and the estimated makespan of the batches the same way in milliseconds. Shared by the
+ * planner threads, the underlying timers and histograms are thread-safe.
+ */
+public final class PlannerMetrics {
+
+    private static final String[] suffixes = {
+            "Count", "P50", "P99", "Max"
+    };
+    private static final String makespanMetricName = "BatchEstimatedMakespan";
+
+    private final MetricRegistry metricRegistry;
+
+    public PlannerMetrics() {
+        this(new MetricRegistry());
+    }
+
+    public PlannerMetrics(final MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    /**
+     * @param phase phase to time
+     * @return context stopping the timing of the phase when closed
+     */
+    public Timer.Context time(final PlannerPhase phase) {
+        return metricRegistry.timer(phase.metricName()).time();
+    }
+
+    /**
+     * @param seconds estimated seconds the longest partition of a batch takes to process
+     */
+    public void makespan(final double seconds) {
+        metricRegistry.histogram(makespanMetricName).update((long) (seconds * 1000D));
+    }
+
+    public CustomTaskMetric[] currentMetrics() {
+        final List<CustomTaskMetric> metrics = new ArrayList<>();
+        for (final PlannerPhase phase : PlannerPhase.values()) {
+            final Timer timer = metricRegistry.timer(phase.metricName());
+            final Snapshot snapshot = timer.getSnapshot();
+            metrics.add(new TaskMetric(phase.metricName() + suffixes[0], timer.getCount()));
+            metrics.add(new TaskMetric(phase.metricName() + suffixes[1], (long) snapshot.getMedian()));
+            metrics.add(new TaskMetric(phase.metricName() + suffixes[2], (long) snapshot.get99thPercentile()));
+            metrics.add(new TaskMetric(phase.metricName() + suffixes[3], snapshot.getMax()));
+        }
+        final Histogram makespan = metricRegistry.histogram(makespanMetricName);
+        final Snapshot makespanSnapshot = makespan.getSnapshot();
+        metrics.add(new TaskMetric(makespanMetricName + suffixes[0], makespan.getCount()));
+        metrics.add(new TaskMetric(makespanMetricName + suffixes[1], (long) makespanSnapshot.getMedian()));
+        metrics.add(new TaskMetric(makespanMetricName + suffixes[2], (long) makespanSnapshot.get99thPercentile()));
+        metrics.add(new TaskMetric(makespanMetricName + suffixes[3], makespanSnapshot.getMax()));
+        return metrics.toArray(new CustomTaskMetric[0]);
+    }
+
+    /**
+     * @return metrics matching the ones of {@link #currentMetrics()}, for the supported metrics of the scan
+     */
+    public static CustomMetric[] supportedMetrics() {
+        final List<CustomMetric> metrics = new ArrayList<>();
+        for (final PlannerPhase phase : PlannerPhase.values()) {
+            metrics
+                    .add(
+                            new PlannerMetricAggregator(
+                                    phase.metricName() + suffixes[0],
+                                    "number of " + phase.description() + " runs"
+                            )
+                    );
+            metrics
+                    .add(
+                            new PlannerMetricAggregator(
+                                    phase.metricName() + suffixes[1],
+                                    "median duration of " + phase.description() + " in nanoseconds"
+                            )
+                    );
+            metrics
+                    .add(
+                            new PlannerMetricAggregator(
+                                    phase.metricName() + suffixes[2],
+                                    "99th percentile duration of " + phase.description() + " in nanoseconds"
+                            )
+                    );
+            metrics
+                    .add(
+                            new PlannerMetricAggregator(
+                                    phase.metricName() + suffixes[3],
+                                    "maximum duration of " + phase.description() + " in nanoseconds"
+                            )
+                    );
+        }
+        metrics.add(new PlannerMetricAggregator(makespanMetricName + suffixes[0], "number of batches scheduled"));
+        metrics
+                .add(
+                        new PlannerMetricAggregator(
+                                makespanMetricName + suffixes[1],
+                                "median estimated makespan of the partitions of a batch in milliseconds"
+                        )
+                );
+        metrics
+                .add(
+                        new PlannerMetricAggregator(
+                                makespanMetricName + suffixes[2],
+                                "99th percentile estimated makespan of the partitions of a batch in milliseconds"
+                        )
+                );
+        metrics
+                .add(
+                        new PlannerMetricAggregator(
+                                makespanMetricName + suffixes[3],
+                                "maximum estimated makespan of the partitions of a batch in milliseconds"
+                        )
+                );
+        metrics
+                .add(
+                        new PlannerMetricAggregator(
+                                "ArchiveRollingDayLag",
+                                "days between the rolling day and the end day of the archive query"
+                        )
+                );
+        metrics
+                .add(
+                        new PlannerMetricAggregator(
+                                "ArchiveEmptyDaysScanned",
+                                "days pulled from the archive without any objects"
+                        )
+                );
+        return metrics.toArray(new CustomMetric[0]);
+    }
+}
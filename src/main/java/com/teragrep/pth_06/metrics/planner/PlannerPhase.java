@@ -0,0 +1,76 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.metrics.planner;
+
+/**
+ * Phases of the driver-side planning of a batch, each timed separately by {@link PlannerMetrics}.
+ */
+public enum PlannerPhase {
+
+    FILTER_TABLE("ArchivePlannerFilterTable", "creation of the streamdb filter table"),
+    BLOOM_TABLE_DISCOVERY("ArchivePlannerBloomTableDiscovery", "discovery of the bloomdb tables matching a term"),
+    BLOOM_CATEGORY_TABLE("ArchivePlannerBloomCategoryTable", "creation of a bloom category table with filters"),
+    PULL("ArchivePlannerPull", "pull of a seek window into the slice store"),
+    HOUR_WEIGHTS("ArchivePlannerHourWeights", "weighing the hours of the slice store"),
+    HOUR_RANGE("ArchivePlannerHourRange", "reading the hour range of a batch from the slice store"),
+    SCHEDULING("ArchivePlannerScheduling", "scheduling the batch units into partitions");
+
+    private final String metricName;
+    private final String description;
+
+    PlannerPhase(final String metricName, final String description) {
+        this.metricName = metricName;
+        this.description = description;
+    }
+
+    public String metricName() {
+        return metricName;
+    }
+
+    public String description() {
+        return description;
+    }
+}
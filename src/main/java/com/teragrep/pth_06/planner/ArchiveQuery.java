@@ -51,6 +51,7 @@ import org.jooq.Result;
 import org.jooq.types.ULong;
 
 import java.sql.Date;
+import java.util.function.Consumer;
 
 /**
  * <h1>Archive Query</h1> Interface for an archive query.
@@ -65,13 +66,57 @@ public interface ArchiveQuery {
             long endHour
     );
 
+    /**
+     * Passes the logfiles between the hours to the consumer one at a time, instead of collecting them into a result.
+     *
+     * @param startHour exclusive start hour
+     * @param endHour   inclusive end hour
+     * @param consumer  receives each logfile between the hours
+     */
+    public abstract void processBetweenUnixEpochHours(
+            long startHour,
+            long endHour,
+            Consumer<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> consumer
+    );
+
+    /**
+     * Passes the logfiles between the offsets to the consumer one at a time. An offset with a logfile id ends within
+     * its hour, after the logfile with that id.
+     *
+     * @param startHour      exclusive start hour
+     * @param startLogfileId last logfile id consumed within the start hour, null if the whole start hour was consumed
+     * @param endHour        inclusive end hour
+     * @param endLogfileId   last logfile id included from the end hour, null to include the whole end hour
+     * @param consumer       receives each logfile between the offsets
+     */
+    public abstract void processBetweenOffsets(
+            long startHour,
+            Long startLogfileId,
+            long endHour,
+            Long endLogfileId,
+            Consumer<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> consumer
+    );
+
     public abstract void commit(long offset);
 
+    /**
+     * Commits the offset, keeping the logfiles of a partially consumed hour until the whole hour is committed.
+     *
+     * @param offset    last committed hour
+     * @param logfileId last logfile id committed within the hour, null if the whole hour was committed
+     */
+    public abstract void commit(long offset, Long logfileId);
+
     public abstract Long getInitialOffset();
 
     public abstract Long incrementAndGetLatestOffset();
 
     public abstract Long mostRecentOffset();
 
+    /**
+     * @return last logfile id within the hour of {@link #mostRecentOffset()}, null if the batch ended on a whole hour
+     */
+    public abstract Long mostRecentLogfileId();
+
     public abstract CustomTaskMetric[] currentDatabaseMetrics();
 }
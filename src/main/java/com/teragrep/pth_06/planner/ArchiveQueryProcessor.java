@@ -46,7 +46,10 @@
 package com.teragrep.pth_06.planner;
 
 import com.teragrep.pth_06.config.Config;
+import com.teragrep.pth_06.metrics.TaskMetric;
+import com.teragrep.pth_06.metrics.planner.PlannerMetrics;
 import com.teragrep.pth_06.planner.walker.EarliestWalker;
+import com.teragrep.pth_06.planner.walker.LatestWalker;
 import org.apache.spark.sql.connector.metric.CustomTaskMetric;
 import org.jooq.*;
 import org.jooq.types.ULong;
@@ -61,6 +64,12 @@ import java.sql.SQLException;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * <h1>Archive Query Processor</h1> Class for controlled execution of Archive query offsets.
@@ -76,35 +85,94 @@ public class ArchiveQueryProcessor implements ArchiveQuery {
 
     private final Logger LOGGER = LoggerFactory.getLogger(ArchiveQueryProcessor.class);
     private final StreamDBClient sdc;
-    private final LocalDate endDay = LocalDate.now(); // FIXME, parametrize end range
+    private final LocalDate startDay;
+    private final LocalDate endDay;
     private LocalDate rollingDay;
+    // plans from the latest bound backwards, the offsets decrease and an offset is the earliest hour consumed
+    private final boolean newestFirst;
+    private final long latestBoundEpoch;
     private Long latestOffset = null;
+    // last planned logfile id of the latestOffset hour, null when the whole hour is planned
+    private Long latestLogfileId = null;
     private final Long earliestEpoch;
     private final long quantumLength;
     private final long numPartitions;
-    private final float compressionRatio;
-    private final float processingSpeed;
+    private final ThroughputModel throughputModel;
     private final long totalObjectCountLimit;
+    private final SeekWindow seekWindow;
+    // spans all the batches of the query, planning stops once the processed records reach it
+    private final EventLimit eventLimit;
+    private long emptyDaysScanned = 0L;
 
     public ArchiveQueryProcessor(Config config) {
+        this(config, new PlannerMetrics());
+    }
+
+    public ArchiveQueryProcessor(Config config, PlannerMetrics plannerMetrics) {
+        this(config, plannerMetrics, new ThroughputModel(config.batchConfig));
+    }
+
+    /**
+     * @param config          configuration of the query
+     * @param plannerMetrics  times the planner phases run against the archive
+     * @param throughputModel estimates the time the executors take to process the planned objects
+     */
+    public ArchiveQueryProcessor(Config config, PlannerMetrics plannerMetrics, ThroughputModel throughputModel) {
+        this(
+                config,
+                plannerMetrics,
+                throughputModel,
+                new EventLimit(config.archiveConfig.limitEvents, config.archiveConfig.limitAverageEventSize)
+        );
+    }
+
+    /**
+     * @param config          configuration of the query
+     * @param plannerMetrics  times the planner phases run against the archive
+     * @param throughputModel estimates the time the executors take to process the planned objects
+     * @param eventLimit      count of events the query is limited to, fed with the records processed by the executors
+     */
+    public ArchiveQueryProcessor(
+            Config config,
+            PlannerMetrics plannerMetrics,
+            ThroughputModel throughputModel,
+            EventLimit eventLimit
+    ) {
         // get configs from config object
         this.quantumLength = config.batchConfig.quantumLength;
         this.numPartitions = config.batchConfig.numPartitions;
-        this.compressionRatio = config.batchConfig.fileCompressionRatio;
-        this.processingSpeed = config.batchConfig.processingSpeed;
+        this.throughputModel = throughputModel;
         this.totalObjectCountLimit = config.batchConfig.totalObjectCountLimit;
+        this.seekWindow = new SeekWindow(config.archiveConfig.seekWindowDays, config.archiveConfig.seekMaxWindowDays);
+        this.eventLimit = eventLimit;
 
         LOGGER.info("ArchiveQueryProcessor Incoming: config.query <[{}]>", config.query);
         if (config.query == null) {
             throw new IllegalArgumentException("Query was not provided");
         }
 
+        final long latestEpoch;
         try {
             EarliestWalker earliestWalker = new EarliestWalker();
             this.earliestEpoch = earliestWalker.fromString(config.query);
             // TODO hack to update startDay from query
             rollingDay = Instant.ofEpochSecond(this.earliestEpoch).atZone(ZoneId.systemDefault()).toLocalDate();
 
+            final Long walkedLatestEpoch = new LatestWalker().fromString(config.query);
+            if (walkedLatestEpoch == null) {
+                latestEpoch = LatestWalker.unboundedLatestEpoch;
+            }
+            else {
+                latestEpoch = walkedLatestEpoch;
+            }
+            // days after latest or today have nothing to pull
+            if (latestEpoch < Instant.now().getEpochSecond()) {
+                endDay = Instant.ofEpochSecond(latestEpoch).atZone(ZoneId.systemDefault()).toLocalDate();
+            }
+            else {
+                endDay = LocalDate.now();
+            }
+            LOGGER.info("ArchiveQueryProcessor latestEpoch <{}> endDay <{}>", latestEpoch, endDay);
         }
         catch (ParserConfigurationException | IOException | SAXException ex) {
             throw new RuntimeException(
@@ -113,8 +181,15 @@ public class ArchiveQueryProcessor implements ArchiveQuery {
             );
         }
 
+        this.startDay = rollingDay;
+        this.newestFirst = config.archiveConfig.scanNewestFirst;
+        this.latestBoundEpoch = Math.min(latestEpoch, Instant.now().getEpochSecond());
+        if (newestFirst) {
+            rollingDay = endDay;
+        }
+
         try {
-            this.sdc = new StreamDBClient(config);
+            this.sdc = new StreamDBClient(config, latestEpoch, plannerMetrics);
         }
         catch (SQLException e) {
             throw new RuntimeException("StreamDB not connected.");
@@ -122,19 +197,111 @@ public class ArchiveQueryProcessor implements ArchiveQuery {
     }
 
     /**
-     * Increment the rolling day and pull data for that day into the sliceTable. Continued until endDay is reached or
-     * sliceTable has data for current day.
+     * Pull data for the seek window starting from the rolling day into the sliceTable, moving the rolling day to the
+     * next day until the last day to scan is reached or sliceTable has data for the pulled days.
      */
     private void seekToResults() {
         LOGGER.debug("ArchiveQueryProcessor.seekToResults>");
-        int rows = sdc.pullToSliceTable(Date.valueOf(rollingDay));
+        int rows = pullSeekWindow();
+
+        while (rows == 0 && hasDaysLeft()) {
+            rollingDay = nextDay();
+            rows = pullSeekWindow();
+        }
+    }
+
+    /**
+     * @return if there are days after the rolling day in the scanning direction
+     */
+    private boolean hasDaysLeft() {
+        final boolean rv;
+        if (newestFirst) {
+            rv = rollingDay.isAfter(startDay);
+        }
+        else {
+            rv = rollingDay.isBefore(endDay);
+        }
+        return rv;
+    }
+
+    /**
+     * @return day after the rolling day in the scanning direction
+     */
+    private LocalDate nextDay() {
+        final LocalDate rv;
+        if (newestFirst) {
+            rv = rollingDay.minusDays(1);
+        }
+        else {
+            rv = rollingDay.plusDays(1);
+        }
+        return rv;
+    }
+
+    /**
+     * Pull the days of the current seek window, starting from the rolling day, into the sliceTable. The rolling day is
+     * moved to the last pulled day, which is the first day of the window when scanning newest first.
+     *
+     * @return count of rows pulled
+     */
+    private int pullSeekWindow() {
+        final LocalDate windowStart;
+        final LocalDate windowEnd;
+        if (newestFirst) {
+            windowStart = seekWindow.start(rollingDay, startDay);
+            windowEnd = rollingDay;
+        }
+        else {
+            windowStart = rollingDay;
+            windowEnd = seekWindow.end(rollingDay, endDay);
+        }
+        final int rows = sdc.pullToSliceTable(Date.valueOf(windowStart), Date.valueOf(windowEnd));
+        LOGGER.debug("Got {} row(s) on [{}, {}] with {}", rows, windowStart, windowEnd, seekWindow);
+        if (rows == 0) {
+            emptyDaysScanned += ChronoUnit.DAYS.between(windowStart, windowEnd) + 1;
+        }
 
-        LOGGER.debug("Got {} row(s) on {}", rows, rollingDay);
-        while (rows == 0 && rollingDay.isBefore(endDay)) {
-            rollingDay = rollingDay.plusDays(1);
-            rows = sdc.pullToSliceTable(Date.valueOf(rollingDay));
-            LOGGER.debug("Got {} row(s) on {}", rows, rollingDay);
+        if (newestFirst) {
+            rollingDay = windowStart;
+        }
+        else {
+            rollingDay = windowEnd;
         }
+        seekWindow.adapt(rows);
+        return rows;
+    }
+
+    /**
+     * Weights of the hours in the sliceTable that are not yet planned, in the scanning direction.
+     *
+     * @return hour weights after the latest offset
+     */
+    private Iterator<WeightedOffset> unplannedHourWeights() {
+        final Iterator<WeightedOffset> rv;
+        if (newestFirst) {
+            // logfiles of a logdate may have a logtime on the previous day, those hours are planned once that day is
+            // pulled too
+            final long earliestComplete;
+            if (hasDaysLeft()) {
+                earliestComplete = rollingDay.atStartOfDay(ZoneId.systemDefault()).toEpochSecond();
+            }
+            else {
+                earliestComplete = Long.MIN_VALUE;
+            }
+            final List<WeightedOffset> hourWeights = sdc.getHourWeightsFromSliceTable(Long.MIN_VALUE);
+            final List<WeightedOffset> olderHourWeights = new ArrayList<>();
+            for (int i = hourWeights.size() - 1; i >= 0; i--) {
+                final WeightedOffset hourWeight = hourWeights.get(i);
+                if (hourWeight.offset() < this.latestOffset && hourWeight.offset() >= earliestComplete) {
+                    olderHourWeights.add(hourWeight);
+                }
+            }
+            rv = olderHourWeights.iterator();
+        }
+        else {
+            rv = sdc.getHourWeightsFromSliceTable(this.latestOffset).iterator();
+        }
+        return rv;
     }
 
     /**
@@ -155,30 +322,143 @@ public class ArchiveQueryProcessor implements ArchiveQuery {
         return sdc.getHourRange(startHour, endHour);
     }
 
+    @Override
+    public void processBetweenUnixEpochHours(
+            long startHour,
+            long endHour,
+            Consumer<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> consumer
+    ) {
+        LOGGER.debug("ArchiveQueryProcessor.processBetweenUnixEpochHours streaming> [{}, {}[", startHour, endHour);
+        sdc.streamHourRange(startHour, endHour, consumer);
+    }
+
     /**
-     * Deletes the contents of the sliceTable up until commit offset.
+     * Passes the logfiles between the offsets to the consumer. Logfiles within an hour are ordered by their unsigned
+     * id, a logfile id in an offset marks the last logfile of that hour which belongs before the offset. When scanning
+     * newest first the start offset is the later one, and the logfiles are those of hours from the end offset up until
+     * the start offset.
+     *
+     * @param startHour      Exclusive start hour
+     * @param startLogfileId Last logfile id consumed within the start hour, null if the whole start hour was consumed
+     * @param endHour        Inclusive end hour
+     * @param endLogfileId   Last logfile id included from the end hour, null to include the whole end hour
+     * @param consumer       receives each logfile between the offsets
+     */
+    @Override
+    public void processBetweenOffsets(
+            final long startHour,
+            final Long startLogfileId,
+            final long endHour,
+            final Long endLogfileId,
+            final Consumer<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> consumer
+    ) {
+        LOGGER
+                .debug(
+                        "ArchiveQueryProcessor.processBetweenOffsets> [{}:{}, {}:{}[", startHour, startLogfileId,
+                        endHour, endLogfileId
+                );
+        if (newestFirst) {
+            // hours are never split when scanning newest first
+            sdc.streamHourRange(endHour - 1, startHour - 1, consumer);
+        }
+        else {
+            processForwardBetweenOffsets(startHour, startLogfileId, endHour, endLogfileId, consumer);
+        }
+    }
+
+    private void processForwardBetweenOffsets(
+            final long startHour,
+            final Long startLogfileId,
+            final long endHour,
+            final Long endLogfileId,
+            final Consumer<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> consumer
+    ) {
+        // a partially consumed start hour is read again for the logfiles after the start logfile id
+        final long excludedStartHour;
+        if (startLogfileId == null) {
+            excludedStartHour = startHour;
+        }
+        else {
+            excludedStartHour = startHour - 1;
+        }
+
+        sdc.streamHourRange(excludedStartHour, endHour, r -> {
+            final long logtime = r.value8();
+            final long logfileId = r.value1().longValue();
+            final boolean consumedBeforeStart = startLogfileId != null && logtime == startHour
+                    && Long.compareUnsigned(logfileId, startLogfileId) <= 0;
+            final boolean afterEnd = endLogfileId != null && logtime == endHour
+                    && Long.compareUnsigned(logfileId, endLogfileId) > 0;
+            if (!consumedBeforeStart && !afterEnd) {
+                consumer.accept(r);
+            }
+        });
+    }
+
+    /**
+     * Deletes the contents of the sliceTable up until commit offset, or from the commit offset onwards when scanning
+     * newest first.
      * 
      * @param offset Last committed offset
      */
     @Override
     public void commit(long offset) {
-        final int deletedRows = sdc.deleteRangeFromSliceTable(Long.MIN_VALUE, offset);
+        final int deletedRows;
+        if (newestFirst) {
+            deletedRows = sdc.deleteRangeFromSliceTable(offset - 1, Long.MAX_VALUE);
+        }
+        else {
+            deletedRows = sdc.deleteRangeFromSliceTable(Long.MIN_VALUE, offset);
+        }
         LOGGER.debug("ArchiveQueryProcessor.commit() deleted <{}> commited rows from slice table", deletedRows);
     }
 
     /**
-     * Returns the earliest offset, which always remains the same within a query.
+     * Deletes the contents of the sliceTable up until commit offset. A partially committed hour is kept in the
+     * sliceTable until the offset of a later batch commits it whole.
+     *
+     * @param offset    Last committed offset
+     * @param logfileId Last committed logfile id within the offset hour, null if the whole hour was committed
+     */
+    @Override
+    public void commit(long offset, Long logfileId) {
+        if (logfileId == null) {
+            commit(offset);
+        }
+        else {
+            final int deletedRows = sdc.deleteRangeFromSliceTable(Long.MIN_VALUE, offset - 1);
+            LOGGER
+                    .debug(
+                            "ArchiveQueryProcessor.commit() deleted <{}> commited rows from slice table, kept hour <{}> after logfile id <{}>",
+                            deletedRows, offset, logfileId
+                    );
+        }
+    }
+
+    /**
+     * Returns the earliest offset, or the latest bound of the query when scanning newest first. Always remains the same
+     * within a query.
      * 
-     * @return Earliest offset
+     * @return Earliest offset, or latest bound when scanning newest first
      */
     @Override
     public Long getInitialOffset() {
-        return this.earliestEpoch;
+        final Long rv;
+        if (newestFirst) {
+            rv = this.latestBoundEpoch;
+        }
+        else {
+            rv = this.earliestEpoch;
+        }
+        return rv;
     }
 
     /**
      * Increments the latest offset value and returns that incremented offset. Works by pulling data into the SliceTable
-     * until weight limit or endDay is reached.
+     * until weight limit or endDay is reached. An hour heavier than the whole limit is split between batches by the
+     * logfile ids, see {@link #mostRecentLogfileId()}. When scanning newest first the offset decreases instead, and the
+     * hours are not split. A batch ends once its objects are estimated to hold the events the query still misses, and
+     * the offset no longer moves once the executors have processed the events the query is limited to.
      * 
      * @return latest offset
      */
@@ -188,50 +468,139 @@ public class ArchiveQueryProcessor implements ArchiveQuery {
         // and load that day's events into sliceTable
         if (this.latestOffset == null) {
             this.latestOffset = getInitialOffset();
-            sdc.pullToSliceTable(Date.valueOf(rollingDay));
+            pullSeekWindow();
         }
 
         // Initialize the batchSizeLimit object to split the data into appropriate sized batches
         BatchSizeLimit batchSizeLimit = new BatchSizeLimit(quantumLength * numPartitions, totalObjectCountLimit);
+        eventLimit.startBatch();
 
-        // Keep loading more offsets until the limit is reached
-        while (!batchSizeLimit.isOverLimit()) {
-            WeightedOffset weightedOffsetOfNextHour = sdc.getNextHourAndSizeFromSliceTable(this.latestOffset);
+        // The rest of a split hour is planned before the hours after it
+        if (this.latestLogfileId != null && !eventLimit.isReached()) {
+            splitHour(this.latestOffset, this.latestLogfileId, batchSizeLimit);
+        }
 
-            // SliceTable was empty on latestOffset day
-            if (weightedOffsetOfNextHour.isStub) {
-                LOGGER.debug("Weighted offset was empty on day {}", rollingDay);
+        // Weigh all the hours in sliceTable at once, the cutoff is chosen from them in memory
+        Iterator<WeightedOffset> hourWeights = unplannedHourWeights();
 
-                // Stop loop on endDay: no future date processing
-                if (rollingDay.isEqual(endDay) || rollingDay.isAfter(endDay)) {
+        // Keep loading more offsets until the limit is reached or an hour was split
+        while (this.latestLogfileId == null && !batchSizeLimit.isOverLimit() && !eventLimit.isBatchFull()) {
+            // SliceTable has no more hours after latestOffset
+            if (!hourWeights.hasNext()) {
+                LOGGER.debug("Weighted offsets were exhausted on day {}", rollingDay);
+
+                // Stop loop on the last day to scan: no future date processing
+                if (!hasDaysLeft()) {
                     break;
                 }
 
                 // Pull next day to sliceTable
-                rollingDay = rollingDay.plusDays(1);
+                rollingDay = nextDay();
                 seekToResults();
-                weightedOffsetOfNextHour = sdc.getNextHourAndSizeFromSliceTable(this.latestOffset);
+                hourWeights = unplannedHourWeights();
+                continue;
             }
 
-            // If SliceTable was not empty on the processed day, estimate the weight of it to calculate
-            // the limit and update the latestOffset.
-            if (!weightedOffsetOfNextHour.isStub) {
-                batchSizeLimit.add(weightedOffsetOfNextHour.estimateWeight(compressionRatio, processingSpeed));
+            // Estimate the weight of the next hour to calculate the limit and update the latestOffset.
+            final WeightedOffset weightedOffsetOfNextHour = hourWeights.next();
+            final float weightOfNextHour = weightedOffsetOfNextHour.estimateWeight(throughputModel.secondsPerByte());
+            if (!newestFirst && batchSizeLimit.isOverLimit(weightOfNextHour, weightedOffsetOfNextHour.objectCount())) {
+                // the hour alone does not fit in a batch
+                splitHour(weightedOffsetOfNextHour.offset(), null, batchSizeLimit);
+            }
+            else {
+                batchSizeLimit.add(weightOfNextHour, weightedOffsetOfNextHour.objectCount());
+                eventLimit.add(weightedOffsetOfNextHour.uncompressedSize());
                 this.latestOffset = weightedOffsetOfNextHour.offset();
             }
         }
 
-        LOGGER.info("Return latest offset: {}", this.latestOffset);
+        LOGGER
+                .info(
+                        "Return latest offset: {} logfile id: {} with {}", this.latestOffset, this.latestLogfileId,
+                        eventLimit
+                );
         return this.latestOffset;
     }
 
+    /**
+     * Adds the logfiles of the hour to the batch in the order of their unsigned ids until the limit is reached. The
+     * latest offset is moved to the hour, and the latest logfile id to the last added logfile if any were left over.
+     *
+     * @param hour              hour to split
+     * @param consumedLogfileId last logfile id of the hour planned by the previous batch, null if none were
+     * @param batchSizeLimit    limit of the batch being planned
+     */
+    private void splitHour(final long hour, final Long consumedLogfileId, final BatchSizeLimit batchSizeLimit) {
+        // id, file size and uncompressed size of each logfile left in the hour
+        final List<long[]> logfiles = new ArrayList<>();
+        sdc.streamHourRange(hour - 1, hour, r -> {
+            final long logfileId = r.value1().longValue();
+            if (consumedLogfileId == null || Long.compareUnsigned(logfileId, consumedLogfileId) > 0) {
+                long uncompressedSize = 0L;
+                if (r.value10() != null) {
+                    uncompressedSize = r.value10().longValue();
+                }
+                logfiles.add(new long[] {
+                        logfileId, r.value9().longValue(), uncompressedSize
+                });
+            }
+        });
+        logfiles.sort((a, b) -> Long.compareUnsigned(a[0], b[0]));
+
+        Long lastLogfileId = null;
+        boolean isWholeHour = true;
+        for (final long[] logfile : logfiles) {
+            if (batchSizeLimit.isOverLimit() || eventLimit.isBatchFull()) {
+                isWholeHour = false;
+                break;
+            }
+            batchSizeLimit
+                    .add(new WeightedOffset(hour, logfile[1]).estimateWeight(throughputModel.secondsPerByte()), 1);
+            eventLimit.add(logfile[2]);
+            lastLogfileId = logfile[0];
+        }
+
+        this.latestOffset = hour;
+        if (isWholeHour) {
+            this.latestLogfileId = null;
+        }
+        else {
+            this.latestLogfileId = lastLogfileId;
+        }
+        LOGGER
+                .debug(
+                        "ArchiveQueryProcessor.splitHour hour <{}> of <{}> logfiles planned up to logfile id <{}>",
+                        hour, logfiles.size(), this.latestLogfileId
+                );
+    }
+
     @Override
     public Long mostRecentOffset() {
         return latestOffset;
     }
 
+    /**
+     * @return last planned logfile id within the hour of {@link #mostRecentOffset()}, null if the whole hour is planned
+     */
+    @Override
+    public Long mostRecentLogfileId() {
+        return latestLogfileId;
+    }
+
     @Override
     public CustomTaskMetric[] currentDatabaseMetrics() {
-        return sdc.currentDatabaseMetrics();
+        final CustomTaskMetric[] databaseMetrics = sdc.currentDatabaseMetrics();
+        final CustomTaskMetric[] metrics = Arrays.copyOf(databaseMetrics, databaseMetrics.length + 2);
+        final long daysLeft;
+        if (newestFirst) {
+            daysLeft = ChronoUnit.DAYS.between(startDay, rollingDay);
+        }
+        else {
+            daysLeft = ChronoUnit.DAYS.between(rollingDay, endDay);
+        }
+        metrics[databaseMetrics.length] = new TaskMetric("ArchiveRollingDayLag", Math.max(0L, daysLeft));
+        metrics[databaseMetrics.length + 1] = new TaskMetric("ArchiveEmptyDaysScanned", emptyDaysScanned);
+        return metrics;
     }
 }
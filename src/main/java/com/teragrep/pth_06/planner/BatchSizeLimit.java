@@ -79,11 +79,12 @@ final class BatchSizeLimit {
     /**
      * Accumulate the given weight and count of objects
      * 
-     * @param weight weight of offset delta
+     * @param weight      weight of offset delta
+     * @param objectCount count of objects in offset delta
      */
-    void add(float weight) {
+    void add(float weight, long objectCount) {
         accumulatedWeight += weight;
-        accumulatedObjectCount++;
+        accumulatedObjectCount += objectCount;
     }
 
     /**
@@ -93,8 +94,19 @@ final class BatchSizeLimit {
      * @return if weight or object count is over the given limit
      */
     boolean isOverLimit() {
-        final boolean tooHeavyWeight = accumulatedWeight > maxWeight;
-        final boolean tooManyObjects = accumulatedObjectCount > maxObjectCount;
+        return isOverLimit(accumulatedWeight, accumulatedObjectCount);
+    }
+
+    /**
+     * check if the given weight OR count of objects alone is over the limit, regardless of what was accumulated
+     *
+     * @param weight      weight of offset delta
+     * @param objectCount count of objects in offset delta
+     * @return if weight or object count alone is over the given limit
+     */
+    boolean isOverLimit(final float weight, final long objectCount) {
+        final boolean tooHeavyWeight = weight > maxWeight;
+        final boolean tooManyObjects = objectCount > maxObjectCount;
 
         return tooManyObjects || tooHeavyWeight;
     }
@@ -0,0 +1,164 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import com.teragrep.pth_06.ConfiguredLogger;
+import org.jooq.Cursor;
+import org.jooq.DSLContext;
+import org.jooq.Record1;
+import org.jooq.Record10;
+import org.jooq.Result;
+import org.jooq.SelectJoinStep;
+import org.jooq.conf.ParamType;
+import org.jooq.types.ULong;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Date;
+import java.util.function.LongSupplier;
+
+import static com.teragrep.pth_06.jooq.generated.journaldb.Journaldb.JOURNALDB;
+
+/**
+ * Logfile ids of journaldb.corrupted_archive held in a compressed bitmap, so that the pulls filter the corrupted
+ * archives on the driver instead of checking each logfile against the table. The ids are loaded on first use and again
+ * once the refresh interval has passed, a non-positive interval keeps them for the whole query.
+ */
+final class CorruptedArchiveIds {
+
+    private static final Logger classLogger = LoggerFactory.getLogger(CorruptedArchiveIds.class);
+    private static final int fetchSize = 10000;
+    private final ConfiguredLogger LOGGER;
+
+    private final DSLContext ctx;
+    private final long refreshMillis;
+    private final LongSupplier clock;
+    private final boolean isStub;
+    private final boolean isLogSQL;
+    private Roaring64NavigableMap ids;
+    private long loadedMillis;
+
+    CorruptedArchiveIds() {
+        this(null, 0L, System::currentTimeMillis, true, false, false);
+    }
+
+    CorruptedArchiveIds(
+            final DSLContext ctx,
+            final long refreshMillis,
+            final boolean isDebugEnabled,
+            final boolean isLogSQL
+    ) {
+        this(ctx, refreshMillis, System::currentTimeMillis, false, isDebugEnabled, isLogSQL);
+    }
+
+    CorruptedArchiveIds(
+            final DSLContext ctx,
+            final long refreshMillis,
+            final LongSupplier clock,
+            final boolean isStub,
+            final boolean isDebugEnabled,
+            final boolean isLogSQL
+    ) {
+        this.LOGGER = new ConfiguredLogger(classLogger, isDebugEnabled);
+        this.ctx = ctx;
+        this.refreshMillis = refreshMillis;
+        this.clock = clock;
+        this.isStub = isStub;
+        this.isLogSQL = isLogSQL;
+        this.ids = null;
+        this.loadedMillis = 0L;
+    }
+
+    /**
+     * @return true if the corrupted archives are left to the pull query instead
+     */
+    boolean isStub() {
+        return isStub;
+    }
+
+    /**
+     * Removes the rows of corrupted archives.
+     *
+     * @param rows pulled rows, modified in place
+     * @return the same rows without the corrupted archives
+     */
+    synchronized Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> filter(
+            final Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> rows
+    ) {
+        if (isStub) {
+            throw new IllegalStateException("CorruptedArchiveIds stub can not filter rows");
+        }
+        if (ids == null || refreshMillis > 0L && clock.getAsLong() - loadedMillis >= refreshMillis) {
+            load();
+        }
+        if (!ids.isEmpty()) {
+            final int pulled = rows.size();
+            rows.removeIf(row -> ids.contains(row.value1().longValue()));
+            LOGGER.debug("CorruptedArchiveIds.filter removed <{}> of <{}> rows", pulled - rows.size(), pulled);
+        }
+        return rows;
+    }
+
+    private void load() {
+        final Roaring64NavigableMap loaded = new Roaring64NavigableMap();
+        final SelectJoinStep<Record1<ULong>> select = ctx
+                .select(JOURNALDB.CORRUPTED_ARCHIVE.LOGFILE_ID)
+                .from(JOURNALDB.CORRUPTED_ARCHIVE);
+        if (isLogSQL) {
+            LOGGER.info("{SQL} CorruptedArchiveIds.load select <\n{}\n>", select.getSQL(ParamType.INLINED));
+        }
+        try (final Cursor<Record1<ULong>> cursor = select.fetchSize(fetchSize).fetchLazy()) {
+            for (final Record1<ULong> record : cursor) {
+                loaded.addLong(record.value1().longValue());
+            }
+        }
+        loaded.runOptimize();
+        this.ids = loaded;
+        this.loadedMillis = clock.getAsLong();
+        LOGGER.info("CorruptedArchiveIds loaded <{}> corrupted logfile ids", loaded.getLongCardinality());
+    }
+}
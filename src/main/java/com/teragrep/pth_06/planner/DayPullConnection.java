@@ -0,0 +1,136 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import com.teragrep.pth_06.ConfiguredLogger;
+import org.jooq.DSLContext;
+import org.jooq.Record10;
+import org.jooq.Result;
+import org.jooq.Select;
+import org.jooq.exception.DataAccessException;
+import org.jooq.types.ULong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Date;
+import java.util.Objects;
+
+/**
+ * Additional journaldb connection of {@link ParallelDayPuller}. Its session holds its own copies of the temporary
+ * tables the logfile query joins, so the query built by {@link StreamDBClient} can be fetched on it.
+ */
+final class DayPullConnection implements AutoCloseable {
+
+    private static final Logger classLogger = LoggerFactory.getLogger(DayPullConnection.class);
+    private final ConfiguredLogger LOGGER;
+
+    private final ReconnectingConnectionProvider connectionProvider;
+    private final DSLContext ctx;
+    private final SessionTables sessionTables;
+
+    DayPullConnection(
+            final ReconnectingConnectionProvider connectionProvider,
+            final DSLContext ctx,
+            final SessionTables sessionTables,
+            final boolean isDebugEnabled
+    ) {
+        this.LOGGER = new ConfiguredLogger(classLogger, isDebugEnabled);
+        this.connectionProvider = connectionProvider;
+        this.ctx = ctx;
+        this.sessionTables = sessionTables;
+    }
+
+    /**
+     * Creates the temporary tables of the session.
+     */
+    void open() {
+        sessionTables.create(ctx, sessionTables.walker(ctx));
+    }
+
+    /**
+     * Fetches the rows of the select in the session of this connection. A lost connection is reconnected and the select
+     * fetched once more.
+     *
+     * @param select logfile query
+     * @return rows of the query
+     */
+    Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> fetch(
+            final Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> select
+    ) {
+        try {
+            return ctx.fetch(select);
+        }
+        catch (final DataAccessException e) {
+            if (connectionProvider.isValid()) {
+                throw e;
+            }
+            LOGGER.warn("DayPullConnection lost the database connection: <{}>, reconnecting", e.getMessage());
+            connectionProvider.reconnect();
+            open();
+            return ctx.fetch(select);
+        }
+    }
+
+    @Override
+    public void close() {
+        connectionProvider.close();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final DayPullConnection that = (DayPullConnection) o;
+        return Objects.equals(LOGGER, that.LOGGER) && Objects.equals(connectionProvider, that.connectionProvider)
+                && Objects.equals(ctx, that.ctx) && Objects.equals(sessionTables, that.sessionTables);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(LOGGER, connectionProvider, ctx, sessionTables);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import org.jooq.Field;
+import org.jooq.impl.DSL;
+import org.jooq.types.ULong;
+
+import java.util.Objects;
+
+/**
+ * Uses the epoch_hour column of a logfile as the logtime, and falls back to extracting the logtime from the logfile
+ * path with {@link SafeLogtimeFunction} only when epoch_hour is not populated.
+ */
+final class EpochHourLogtimeFunction {
+
+    private final Field<ULong> epochHourField;
+    private final SafeLogtimeFunction fallbackFunction;
+
+    EpochHourLogtimeFunction(final Field<ULong> epochHourField, final Field<String> pathField) {
+        this(epochHourField, new SafeLogtimeFunction(pathField));
+    }
+
+    EpochHourLogtimeFunction(final Field<ULong> epochHourField, final SafeLogtimeFunction fallbackFunction) {
+        this.epochHourField = epochHourField;
+        this.fallbackFunction = fallbackFunction;
+    }
+
+    /**
+     * Logtime of a logfile as UNIX epoch.
+     *
+     * @return a jOOQ Field representing epoch_hour, or the path extracted UNIX epoch time if epoch_hour is null
+     */
+    Field<Long> asField() {
+        return DSL
+                .when(epochHourField.isNotNull(), epochHourField.cast(Long.class))
+                .otherwise(fallbackFunction.asField());
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == null) {
+            return false;
+        }
+        if (getClass() != o.getClass()) {
+            return false;
+        }
+        final EpochHourLogtimeFunction that = (EpochHourLogtimeFunction) o;
+        return Objects.equals(epochHourField, that.epochHourField)
+                && Objects.equals(fallbackFunction, that.fallbackFunction);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(epochHourField, fallbackFunction);
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+/**
+ * Class for checking whether a query has read the count of events it is limited to. Planning stops for good only once
+ * the archive partition readers have reported that many records as processed, since the count of events held by the
+ * scheduled objects is only estimated from their uncompressed size and an average event size. The estimate paces the
+ * planning instead: a batch is full once its objects are estimated to hold the events still missing.
+ */
+public final class EventLimit {
+
+    /** Maximum count of events, 0 if not limited */
+    private final long maxEvents;
+
+    /** Estimated average size of an event in bytes */
+    private final long averageEventSize;
+
+    /** accumulated sum of uncompressed bytes scheduled in the batch being planned */
+    private long scheduledBytes;
+
+    /** count of records reported as processed by the archive partition readers */
+    private long processedEvents;
+
+    /**
+     * Initialize the EventLimit with the given limit and average event size.
+     *
+     * @param maxEvents        maximum count of events, 0 if not limited
+     * @param averageEventSize estimated average size of an event in bytes
+     * @throws IllegalArgumentException if maxEvents is negative or averageEventSize is less than 1
+     */
+    public EventLimit(final long maxEvents, final long averageEventSize) {
+        if (maxEvents < 0) {
+            throw new IllegalArgumentException("Event limit must not be negative, was: " + maxEvents);
+        }
+        if (averageEventSize < 1) {
+            throw new IllegalArgumentException(
+                    "Average event size must be at least one byte, was: " + averageEventSize
+            );
+        }
+        this.maxEvents = maxEvents;
+        this.averageEventSize = averageEventSize;
+        this.scheduledBytes = 0L;
+        this.processedEvents = 0L;
+    }
+
+    /**
+     * @return if the query is limited
+     */
+    public boolean isLimited() {
+        return maxEvents > 0;
+    }
+
+    /**
+     * Starts planning a new batch.
+     */
+    void startBatch() {
+        scheduledBytes = 0L;
+    }
+
+    /**
+     * accumulate the uncompressed size of scheduled objects
+     *
+     * @param uncompressedBytes uncompressed size of the objects
+     */
+    void add(final long uncompressedBytes) {
+        scheduledBytes += uncompressedBytes;
+    }
+
+    /**
+     * @return estimated count of events scheduled in the batch being planned
+     */
+    long estimatedEvents() {
+        return scheduledBytes / averageEventSize;
+    }
+
+    /**
+     * accumulate the records an archive partition reader processed
+     *
+     * @param events count of records processed
+     */
+    public synchronized void processed(final long events) {
+        processedEvents += events;
+    }
+
+    /**
+     * @return count of records reported as processed
+     */
+    public synchronized long processedEvents() {
+        return processedEvents;
+    }
+
+    /**
+     * @return if the limited count of events has been processed, never if the query is not limited
+     */
+    boolean isReached() {
+        return maxEvents > 0 && processedEvents() >= maxEvents;
+    }
+
+    /**
+     * @return if the batch being planned is estimated to hold the events still missing, never if the query is not
+     *         limited
+     */
+    boolean isBatchFull() {
+        return maxEvents > 0 && estimatedEvents() >= maxEvents - processedEvents();
+    }
+
+    @Override
+    public String toString() {
+        return "EventLimit[processed="
+                .concat(String.valueOf(processedEvents()))
+                .concat(", scheduled=")
+                .concat(String.valueOf(estimatedEvents()))
+                .concat("/")
+                .concat(String.valueOf(maxEvents))
+                .concat(", averageEventSize=")
+                .concat(String.valueOf(averageEventSize))
+                .concat("]");
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import org.jooq.Record5;
+import org.jooq.Result;
+import org.jooq.types.ULong;
+import org.jooq.types.UShort;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the rows of {@link GetArchivedObjectsFilterTable} resolved for a streamdb condition, so that the following
+ * queries with the same condition fill the filter table without joining streamdb and journaldb again. The rows are
+ * shared by the queries of the JVM connecting to the same database as the same user, and expire after the time to live,
+ * after which the next query resolves them again. The expired rows of all the conditions are dropped whenever rows are
+ * cached. A non-positive time to live disables the cache.
+ */
+final class FilterTableCache {
+
+    private static final int maxEntries = 1024;
+    private static final Map<String, Entry> sharedEntries = Collections
+            .synchronizedMap(new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, FilterTableCache.Entry> eldest) {
+                    return size() > maxEntries;
+                }
+            });
+
+    private final Map<String, Entry> entries;
+    private final String url;
+    private final String user;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    FilterTableCache() {
+        this("", "", 0L);
+    }
+
+    FilterTableCache(final String url, final String user, final long ttlMillis) {
+        this(sharedEntries, url, user, ttlMillis, System::currentTimeMillis);
+    }
+
+    FilterTableCache(
+            final Map<String, Entry> entries,
+            final String url,
+            final String user,
+            final long ttlMillis,
+            final LongSupplier clock
+    ) {
+        this.entries = entries;
+        this.url = url;
+        this.user = user;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    boolean isStub() {
+        return ttlMillis <= 0L;
+    }
+
+    /**
+     * @param condition streamdb condition rendered with inlined values
+     * @return rows resolved for the condition, empty if they were not cached or have expired
+     */
+    Optional<Result<Record5<String, String, ULong, String, UShort>>> get(final String condition) {
+        final Optional<Result<Record5<String, String, ULong, String, UShort>>> rows;
+        final String key = key(condition);
+        final Entry entry = entries.get(key);
+        if (isStub() || entry == null) {
+            rows = Optional.empty();
+        }
+        else if (entry.isExpired(clock.getAsLong())) {
+            entries.remove(key, entry);
+            rows = Optional.empty();
+        }
+        else {
+            rows = Optional.of(entry.rows);
+        }
+        return rows;
+    }
+
+    /**
+     * @param condition streamdb condition rendered with inlined values
+     * @param rows      rows resolved for the condition, detached from the configuration of the session that fetched
+     *                  them as they outlive it
+     */
+    void put(final String condition, final Result<Record5<String, String, ULong, String, UShort>> rows) {
+        if (!isStub()) {
+            final long nowMillis = clock.getAsLong();
+            rows.detach();
+            // iterating a synchronized map needs its lock
+            synchronized (entries) {
+                entries.values().removeIf(entry -> entry.isExpired(nowMillis));
+                entries.put(key(condition), new Entry(rows, nowMillis + ttlMillis));
+            }
+        }
+    }
+
+    private String key(final String condition) {
+        // the same condition resolves differently on other databases, and for users with other grants
+        return url + "\n" + user + "\n" + condition;
+    }
+
+    static final class Entry {
+
+        private final Result<Record5<String, String, ULong, String, UShort>> rows;
+        private final long expiresMillis;
+
+        Entry(final Result<Record5<String, String, ULong, String, UShort>> rows, final long expiresMillis) {
+            this.rows = rows;
+            this.expiresMillis = expiresMillis;
+        }
+
+        private boolean isExpired(final long nowMillis) {
+            return nowMillis >= expiresMillis;
+        }
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final FilterTableCache that = (FilterTableCache) o;
+        // caches are equal when they share their entries, comparing the entries themselves would lock the map
+        return ttlMillis == that.ttlMillis && entries == that.entries && Objects.equals(url, that.url)
+                && Objects.equals(user, that.user);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(System.identityHashCode(entries), url, user, ttlMillis);
+    }
+}
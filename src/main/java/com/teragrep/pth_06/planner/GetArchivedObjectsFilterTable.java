@@ -55,6 +55,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Objects;
+import java.util.Optional;
 
 import static com.teragrep.pth_06.jooq.generated.journaldb.Journaldb.JOURNALDB;
 import static com.teragrep.pth_06.jooq.generated.streamdb.Streamdb.STREAMDB;
@@ -71,21 +72,36 @@ public final class GetArchivedObjectsFilterTable {
     public static final Field<String> directory = DSL.field(DSL.name(tmpTableName, "directory"), String.class);
     public static final Field<String> stream = DSL.field(DSL.name(tmpTableName, "stream"), String.class);
     private static final Index hostIndex = DSL.index(DSL.name("cix_host_id_tag"));
+    private static final int insertRowsPerStatement = 1000;
 
     private final ConfiguredLogger logger;
     private static final Logger classLogger = LoggerFactory.getLogger(GetArchivedObjectsFilterTable.class);
     private final DSLContext ctx;
+    private final FilterTableCache filterTableCache;
 
     private final boolean isLogSQL;
 
     public GetArchivedObjectsFilterTable(final DSLContext ctx, final boolean isDebug, final boolean isLogSQL) {
+        this(ctx, new FilterTableCache(), isDebug, isLogSQL);
+    }
+
+    GetArchivedObjectsFilterTable(
+            final DSLContext ctx,
+            final FilterTableCache filterTableCache,
+            final boolean isDebug,
+            final boolean isLogSQL
+    ) {
         this.ctx = ctx;
+        this.filterTableCache = filterTableCache;
         this.logger = new ConfiguredLogger(classLogger, isDebug);
         this.isLogSQL = isLogSQL;
     }
 
     public void create(final Condition streamdbCondition) {
         logger.debug("GetArchivedObjectsFilterTable.create called condition <{}>", streamdbCondition);
+        final String cacheKey = ctx.renderInlined(streamdbCondition);
+        final Optional<Result<Record5<String, String, ULong, String, UShort>>> cachedRows = filterTableCache
+                .get(cacheKey);
         DropTableStep dropQuery = ctx.dropTemporaryTableIfExists(GetArchivedObjectsFilterTable.FILTER_TABLE);
 
         if (isLogSQL) {
@@ -119,7 +135,7 @@ public final class GetArchivedObjectsFilterTable {
                                 .innerJoin(JOURNALDB.LOGTAG)
                                 .on((STREAMDB.STREAM.TAG).eq(JOURNALDB.LOGTAG.LOGTAG_))
                                 // following change
-                                .where(streamdbCondition)
+                                .where(cachedRows.isPresent() ? DSL.falseCondition() : streamdbCondition)
                 );
 
         if (isLogSQL) {
@@ -128,6 +144,26 @@ public final class GetArchivedObjectsFilterTable {
 
         query.execute();
 
+        if (cachedRows.isPresent()) {
+            // the table was created empty, with the column types of the resolving query
+            final int rows = insert(cachedRows.get());
+            logger.debug("GetArchivedObjectsFilterTable.create filled <{}> cached rows", rows);
+        }
+        else if (!filterTableCache.isStub()) {
+            filterTableCache
+                    .put(
+                            cacheKey,
+                            ctx
+                                    .select(
+                                            GetArchivedObjectsFilterTable.directory,
+                                            GetArchivedObjectsFilterTable.stream, GetArchivedObjectsFilterTable.tag_id,
+                                            GetArchivedObjectsFilterTable.host, GetArchivedObjectsFilterTable.host_id
+                                    )
+                                    .from(GetArchivedObjectsFilterTable.FILTER_TABLE)
+                                    .fetch()
+                    );
+        }
+
         // this could be within tmpTableCreateSql but JOOQ can't (yet) https://github.com/jOOQ/jOOQ/issues/11752
         try (
                 final CreateIndexIncludeStep indexStep = ctx.createIndex(GetArchivedObjectsFilterTable.hostIndex)
@@ -149,17 +185,43 @@ public final class GetArchivedObjectsFilterTable {
         logger.debug("GetArchivedObjectsFilterTable.create exit");
     }
 
+    private int insert(final Result<Record5<String, String, ULong, String, UShort>> rows) {
+        int inserted = 0;
+        for (int start = 0; start < rows.size(); start += insertRowsPerStatement) {
+            final int end = Math.min(start + insertRowsPerStatement, rows.size());
+            InsertValuesStep5<Record, String, String, ULong, String, UShort> insertStep = ctx
+                    .insertInto(
+                            GetArchivedObjectsFilterTable.FILTER_TABLE, GetArchivedObjectsFilterTable.directory,
+                            GetArchivedObjectsFilterTable.stream, GetArchivedObjectsFilterTable.tag_id,
+                            GetArchivedObjectsFilterTable.host, GetArchivedObjectsFilterTable.host_id
+                    );
+            for (final Record5<String, String, ULong, String, UShort> row : rows.subList(start, end)) {
+                insertStep = insertStep.values(row.value1(), row.value2(), row.value3(), row.value4(), row.value5());
+            }
+            if (isLogSQL) {
+                logger
+                        .info(
+                                "{SQL} GetArchivedObjectsFilterTable.insert insertStep <\n{}\n>",
+                                insertStep.getSQL(ParamType.INLINED)
+                        );
+            }
+            inserted += insertStep.execute();
+        }
+        return inserted;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
         final GetArchivedObjectsFilterTable that = (GetArchivedObjectsFilterTable) o;
-        return Objects.equals(logger, that.logger) && Objects.equals(ctx, that.ctx) && isLogSQL == that.isLogSQL;
+        return Objects.equals(logger, that.logger) && Objects.equals(ctx, that.ctx)
+                && Objects.equals(filterTableCache, that.filterTableCache) && isLogSQL == that.isLogSQL;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(logger, ctx, isLogSQL);
+        return Objects.hash(logger, ctx, filterTableCache, isLogSQL);
     }
 }
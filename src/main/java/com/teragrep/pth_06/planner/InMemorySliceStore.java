@@ -0,0 +1,486 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import com.teragrep.pth_06.ConfiguredLogger;
+import com.teragrep.pth_06.metrics.TaskMetric;
+import org.apache.spark.sql.connector.metric.CustomTaskMetric;
+import org.jooq.DSLContext;
+import org.jooq.Record10;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.Select;
+import org.jooq.impl.DSL;
+import org.jooq.types.ULong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Driver-resident {@link SliceStore}. Rows are kept sorted by logtime in primitive columns, with the repeating bucket,
+ * directory, stream and host names dictionary encoded, so that range lookups and commits do not need the database.
+ * Commits drop rows from the head of the columns, and the columns are compacted when the next rows are inserted. The
+ * count of rows is bounded by maxRows: an insert that would go over it moves the live rows to the fallback store, which
+ * holds the rows from then on.
+ */
+final class InMemorySliceStore implements SliceStore {
+
+    private static final Logger classLogger = LoggerFactory.getLogger(InMemorySliceStore.class);
+    private final ConfiguredLogger LOGGER;
+
+    /** stands in for a null file size, sizes are unsigned in the database */
+    private static final long NULL_SIZE = -1L;
+    /** stands in for a null logdate */
+    private static final int NULL_DAY = Integer.MIN_VALUE;
+    /** four long columns, five int columns and the path reference */
+    private static final long ROW_BYTES = 4L * Long.BYTES + 5L * Integer.BYTES + 8L;
+
+    private final DSLContext ctx;
+    private final int maxRows;
+    private final SliceStore fallback;
+    private final StringDictionary directories;
+    private final StringDictionary streams;
+    private final StringDictionary hosts;
+    private final StringDictionary buckets;
+
+    private Columns columns;
+    /** rows from head to tail are live, the rows before head are committed */
+    private int head;
+    private int tail;
+    private long pathBytes;
+    /** rows are held by the fallback store */
+    private boolean overflowed;
+
+    InMemorySliceStore(final int maxRows, final SliceStore fallback, final boolean isDebugEnabled) {
+        this.LOGGER = new ConfiguredLogger(classLogger, isDebugEnabled);
+        this.ctx = DSL.using(SQLDialect.MYSQL);
+        this.maxRows = maxRows;
+        this.fallback = fallback;
+        this.directories = new StringDictionary();
+        this.streams = new StringDictionary();
+        this.hosts = new StringDictionary();
+        this.buckets = new StringDictionary();
+        this.columns = new Columns(0);
+        this.head = 0;
+        this.tail = 0;
+        this.pathBytes = 0L;
+        this.overflowed = false;
+    }
+
+    @Override
+    public void create() {
+        LOGGER.debug("InMemorySliceStore.create called");
+        clear();
+        if (overflowed) {
+            // the query has gone over maxRows once, it is likely to do so again
+            fallback.create();
+        }
+    }
+
+    @Override
+    public int insert(
+            final Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> select
+    ) {
+        final int rows;
+        if (overflowed) {
+            rows = fallback.insert(select);
+        }
+        else {
+            rows = insertRows(select.fetch());
+        }
+        return rows;
+    }
+
+    @Override
+    public int insert(
+            final Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> pull,
+            final List<Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>>> days
+    ) {
+        final int rows;
+        if (overflowed) {
+            rows = fallback.insert(pull, days);
+        }
+        else {
+            rows = insert(pull);
+        }
+        return rows;
+    }
+
+    @Override
+    public int insertRows(
+            final Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> result
+    ) {
+        if (overflowed) {
+            return fallback.insertRows(result);
+        }
+
+        // rows without logtime are never within a range and the next commit would delete them
+        final List<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> incoming = new ArrayList<>(
+                result.size()
+        );
+        for (final Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong> record : result) {
+            if (record.value8() != null) {
+                incoming.add(record);
+            }
+        }
+        incoming.sort(Comparator.comparingLong(Record10::value8));
+
+        final int rowCount = (tail - head) + incoming.size();
+        if (rowCount > maxRows) {
+            LOGGER
+                    .warn(
+                            "In-memory slice store would hold <{}> rows, over the limit of <{}> rows. Moving the rows to the slice table. Raise archive.sliceStore.maxRows or lower archive.seek.maxWindowDays to keep them in memory",
+                            rowCount, maxRows
+                    );
+            overflow();
+            return fallback.insertRows(result);
+        }
+
+        // merge the live rows and the incoming rows into compacted columns
+        final Columns merged = new Columns(rowCount);
+        int existingRow = head;
+        int incomingRow = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (
+                incomingRow >= incoming.size()
+                        || existingRow < tail && columns.logtimes[existingRow] <= incoming.get(incomingRow).value8()
+            ) {
+                merged.copy(row, columns, existingRow);
+                existingRow++;
+            }
+            else {
+                set(merged, row, incoming.get(incomingRow));
+                pathBytes += StringDictionary.estimateBytes(merged.paths[row]);
+                incomingRow++;
+            }
+        }
+        columns = merged;
+        head = 0;
+        tail = rowCount;
+
+        LOGGER
+                .debug(
+                        "InMemorySliceStore.insert inserted <{}> of <{}> rows, now <{}>", incoming.size(),
+                        result.size(), this
+                );
+        return result.size();
+    }
+
+    @Override
+    public List<WeightedOffset> hourWeights(final long previousHour, final long includeBeforeEpoch) {
+        if (overflowed) {
+            return fallback.hourWeights(previousHour, includeBeforeEpoch);
+        }
+        final List<WeightedOffset> hourWeights = new ArrayList<>();
+        int row = firstRowAfter(previousHour);
+        while (row < tail && columns.logtimes[row] < includeBeforeEpoch) {
+            final long hour = columns.logtimes[row];
+            long fileSize = 0L;
+            long uncompressedSize = 0L;
+            long objectCount = 0L;
+            while (row < tail && columns.logtimes[row] == hour) {
+                if (columns.fileSizes[row] != NULL_SIZE) {
+                    fileSize += columns.fileSizes[row];
+                }
+                if (columns.uncompressedFileSizes[row] != NULL_SIZE) {
+                    uncompressedSize += columns.uncompressedFileSizes[row];
+                }
+                objectCount++;
+                row++;
+            }
+            hourWeights.add(new WeightedOffset(hour, fileSize, uncompressedSize, objectCount));
+        }
+        return hourWeights;
+    }
+
+    @Override
+    public Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> hourRange(
+            final long excludedStartHour,
+            final long includedEndHour,
+            final long includeBeforeEpoch
+    ) {
+        if (overflowed) {
+            return fallback.hourRange(excludedStartHour, includedEndHour, includeBeforeEpoch);
+        }
+        final Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> result = ctx
+                .newResult(
+                        SliceTable.id, SliceTable.directory, SliceTable.stream, SliceTable.host, SliceTable.logdate,
+                        SliceTable.bucket, SliceTable.path, SliceTable.logtime, SliceTable.filesize,
+                        SliceTable.uncompressedFilesize
+                );
+        hourRange(excludedStartHour, includedEndHour, includeBeforeEpoch, result::add);
+        return result;
+    }
+
+    @Override
+    public void hourRange(
+            final long excludedStartHour,
+            final long includedEndHour,
+            final long includeBeforeEpoch,
+            final Consumer<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> consumer
+    ) {
+        if (overflowed) {
+            fallback.hourRange(excludedStartHour, includedEndHour, includeBeforeEpoch, consumer);
+            return;
+        }
+        for (
+                int row = firstRowAfter(excludedStartHour); row < tail && columns.logtimes[row] <= includedEndHour && columns.logtimes[row] < includeBeforeEpoch; row++
+        ) {
+            consumer.accept(record(row));
+        }
+    }
+
+    @Override
+    public int deleteRange(final long start, final long end) {
+        if (overflowed) {
+            return fallback.deleteRange(start, end);
+        }
+        final int from = firstRowAfter(start);
+        final int to = firstRowAfter(end);
+        if (to <= from) {
+            return 0;
+        }
+
+        for (int row = from; row < to; row++) {
+            pathBytes -= StringDictionary.estimateBytes(columns.paths[row]);
+            columns.paths[row] = null;
+        }
+        if (from == head) {
+            // commits always drop from the head
+            head = to;
+        }
+        else {
+            columns.remove(from, to, tail);
+            tail -= to - from;
+        }
+
+        LOGGER.debug("InMemorySliceStore.deleteRange deleted <{}> rows, now <{}>", to - from, this);
+        return to - from;
+    }
+
+    @Override
+    public boolean isSessionScoped() {
+        return overflowed && fallback.isSessionScoped();
+    }
+
+    @Override
+    public CustomTaskMetric[] currentMetrics() {
+        if (overflowed) {
+            return fallback.currentMetrics();
+        }
+        return new CustomTaskMetric[] {
+                new TaskMetric("ArchiveSliceStoreRows", tail - head),
+                new TaskMetric("ArchiveSliceStoreBytes", estimatedBytes())
+        };
+    }
+
+    /**
+     * Estimates the heap used by the columns, the paths and the dictionaries.
+     *
+     * @return estimated size in bytes
+     */
+    long estimatedBytes() {
+        return columns.ids.length * ROW_BYTES + pathBytes + directories.estimatedBytes() + streams.estimatedBytes()
+                + hosts.estimatedBytes() + buckets.estimatedBytes();
+    }
+
+    /**
+     * @return true if the rows have been moved to the fallback store
+     */
+    boolean isOverflowed() {
+        return overflowed;
+    }
+
+    /**
+     * Moves the live rows to the fallback store and releases the columns.
+     */
+    private void overflow() {
+        fallback.create();
+        fallback.insertRows(hourRange(Long.MIN_VALUE, Long.MAX_VALUE, Long.MAX_VALUE));
+        clear();
+        overflowed = true;
+    }
+
+    private void clear() {
+        columns = new Columns(0);
+        head = 0;
+        tail = 0;
+        pathBytes = 0L;
+    }
+
+    /**
+     * Binary search of the live rows.
+     *
+     * @param logtime exclusive lower bound
+     * @return first live row with a logtime greater than the given logtime, tail if there is none
+     */
+    private int firstRowAfter(final long logtime) {
+        int low = head;
+        int high = tail;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (columns.logtimes[middle] <= logtime) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void set(
+            final Columns target,
+            final int row,
+            final Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong> record
+    ) {
+        target.ids[row] = record.value1().longValue();
+        target.directories[row] = directories.encode(record.value2());
+        target.streams[row] = streams.encode(record.value3());
+        target.hosts[row] = hosts.encode(record.value4());
+        target.logdates[row] = record.value5() == null ? NULL_DAY : (int) record.value5().toLocalDate().toEpochDay();
+        target.buckets[row] = buckets.encode(record.value6());
+        target.paths[row] = record.value7();
+        target.logtimes[row] = record.value8();
+        target.fileSizes[row] = record.value9() == null ? NULL_SIZE : record.value9().longValue();
+        target.uncompressedFileSizes[row] = record.value10() == null ? NULL_SIZE : record.value10().longValue();
+    }
+
+    private Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong> record(final int row) {
+        final Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong> record = ctx
+                .newRecord(
+                        SliceTable.id, SliceTable.directory, SliceTable.stream, SliceTable.host, SliceTable.logdate,
+                        SliceTable.bucket, SliceTable.path, SliceTable.logtime, SliceTable.filesize,
+                        SliceTable.uncompressedFilesize
+                );
+        record
+                .values(ULong.valueOf(columns.ids[row]), directories.decode(columns.directories[row]), streams.decode(columns.streams[row]), hosts.decode(columns.hosts[row]), columns.logdates[row] == NULL_DAY ? null : Date.valueOf(LocalDate.ofEpochDay(columns.logdates[row])), buckets.decode(columns.buckets[row]), columns.paths[row], columns.logtimes[row], columns.fileSizes[row] == NULL_SIZE ? null : ULong.valueOf(columns.fileSizes[row]), columns.uncompressedFileSizes[row] == NULL_SIZE ? null : ULong.valueOf(columns.uncompressedFileSizes[row]));
+        return record;
+    }
+
+    @Override
+    public String toString() {
+        if (overflowed) {
+            return "InMemorySliceStore[overflowed to ".concat(fallback.toString()).concat("]");
+        }
+        return "InMemorySliceStore[rows="
+                .concat(String.valueOf(tail - head))
+                .concat("/")
+                .concat(String.valueOf(maxRows))
+                .concat(", bytes=")
+                .concat(String.valueOf(estimatedBytes()))
+                .concat("]");
+    }
+
+    /**
+     * Column arrays of the rows.
+     */
+    private static final class Columns {
+
+        private final long[] ids;
+        private final long[] logtimes;
+        private final long[] fileSizes;
+        private final long[] uncompressedFileSizes;
+        private final int[] logdates;
+        private final int[] directories;
+        private final int[] streams;
+        private final int[] hosts;
+        private final int[] buckets;
+        private final String[] paths;
+
+        private Columns(final int capacity) {
+            this.ids = new long[capacity];
+            this.logtimes = new long[capacity];
+            this.fileSizes = new long[capacity];
+            this.uncompressedFileSizes = new long[capacity];
+            this.logdates = new int[capacity];
+            this.directories = new int[capacity];
+            this.streams = new int[capacity];
+            this.hosts = new int[capacity];
+            this.buckets = new int[capacity];
+            this.paths = new String[capacity];
+        }
+
+        private void copy(final int row, final Columns source, final int sourceRow) {
+            ids[row] = source.ids[sourceRow];
+            logtimes[row] = source.logtimes[sourceRow];
+            fileSizes[row] = source.fileSizes[sourceRow];
+            uncompressedFileSizes[row] = source.uncompressedFileSizes[sourceRow];
+            logdates[row] = source.logdates[sourceRow];
+            directories[row] = source.directories[sourceRow];
+            streams[row] = source.streams[sourceRow];
+            hosts[row] = source.hosts[sourceRow];
+            buckets[row] = source.buckets[sourceRow];
+            paths[row] = source.paths[sourceRow];
+        }
+
+        /**
+         * Removes the rows from..to by moving the rows after them up to tail in their place.
+         */
+        private void remove(final int from, final int to, final int tail) {
+            final int length = tail - to;
+            System.arraycopy(ids, to, ids, from, length);
+            System.arraycopy(logtimes, to, logtimes, from, length);
+            System.arraycopy(fileSizes, to, fileSizes, from, length);
+            System.arraycopy(uncompressedFileSizes, to, uncompressedFileSizes, from, length);
+            System.arraycopy(logdates, to, logdates, from, length);
+            System.arraycopy(directories, to, directories, from, length);
+            System.arraycopy(streams, to, streams, from, length);
+            System.arraycopy(hosts, to, hosts, from, length);
+            System.arraycopy(buckets, to, buckets, from, length);
+            System.arraycopy(paths, to, paths, from, length);
+            for (int row = from + length; row < tail; row++) {
+                paths[row] = null;
+            }
+        }
+    }
+}
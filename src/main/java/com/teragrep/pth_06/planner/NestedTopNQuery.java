@@ -68,8 +68,11 @@ public final class NestedTopNQuery {
     private final String innerTableName = "limited";
     private final Table<Record> innerTable = DSL.table(DSL.name(innerTableName));
 
-    // TODO refactor: heavily database session dependant: create synthetic logtime field, based on the path
-    private final SafeLogtimeFunction logtimeFunction = new SafeLogtimeFunction(JOURNALDB.LOGFILE.PATH);
+    // logtime from epoch_hour, falls back to the session dependant synthetic logtime based on the path if it is not populated
+    private final EpochHourLogtimeFunction logtimeFunction = new EpochHourLogtimeFunction(
+            JOURNALDB.LOGFILE.EPOCH_HOUR,
+            JOURNALDB.LOGFILE.PATH
+    );
 
     private final Field<ULong> id = DSL.field(DSL.name(innerTableName, "id"), ULong.class);
     private final Field<String> directory = DSL.field(DSL.name(innerTableName, "directory"), String.class);
@@ -95,11 +98,27 @@ public final class NestedTopNQuery {
     }
 
     public Table<Record> getTableStatement(Condition journaldbConditionArg, Date day) {
-        logger.debug("NestedTopNQuery.getTableStatement called condition <{}> date <{}>", journaldbConditionArg, day);
+        return getTableStatement(journaldbConditionArg, day, day);
+    }
+
+    public Table<Record> getTableStatement(Condition journaldbConditionArg, Date startDay, Date endDay) {
+        logger
+                .debug(
+                        "NestedTopNQuery.getTableStatement called condition <{}> dates <{}> - <{}>",
+                        journaldbConditionArg, startDay, endDay
+                );
         SelectOnConditionStep<Record> selectOnConditionStep = DSL
                 .select(resultFields)
                 .from(GetArchivedObjectsFilterTable.FILTER_TABLE)
-                .innerJoin(JOURNALDB.LOGFILE.forceIndex(Indexes.LOGFILE_CIX_LOGFILE_LOGDATE_HOST_ID_LOGTAG_ID.getName())).on(JOURNALDB.LOGFILE.LOGTAG_ID.eq(GetArchivedObjectsFilterTable.tag_id)).and(JOURNALDB.LOGFILE.HOST_ID.eq(GetArchivedObjectsFilterTable.host_id));
+                .innerJoin(
+                        JOURNALDB.LOGFILE
+                                .forceIndex(
+                                        Indexes.LOGFILE_CIX_LOGFILE_LOGDATE_HOST_ID_LOGTAG_ID.getName(),
+                                        Indexes.LOGFILE_CIX_LOGFILE_EPOCH_HOUR_HOST_ID_LOGTAG_ID.getName()
+                                )
+                )
+                .on(JOURNALDB.LOGFILE.LOGTAG_ID.eq(GetArchivedObjectsFilterTable.tag_id))
+                .and(JOURNALDB.LOGFILE.HOST_ID.eq(GetArchivedObjectsFilterTable.host_id));
 
         if (streamDBClient.bloomEnabled()) {
             // join all tables needed for the condition generated by walker
@@ -116,9 +135,17 @@ public final class NestedTopNQuery {
             }
         }
 
+        final Condition logdateCondition;
+        if (startDay.equals(endDay)) {
+            logdateCondition = JOURNALDB.LOGFILE.LOGDATE.eq(startDay);
+        }
+        else {
+            logdateCondition = JOURNALDB.LOGFILE.LOGDATE.between(startDay, endDay);
+        }
+
         logger.debug("NestedTopNQuery.getTableStatement exit");
         return selectOnConditionStep
-                .where(JOURNALDB.LOGFILE.LOGDATE.eq(day).and(journaldbConditionArg))
+                .where(logdateCondition.and(journaldbConditionArg))
                 .orderBy(logtimeForOrderBy, JOURNALDB.LOGFILE.ID.asc())
                 .asTable(innerTable);
     }
@@ -0,0 +1,187 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import com.teragrep.pth_06.ConfiguredLogger;
+import org.jooq.Record10;
+import org.jooq.Result;
+import org.jooq.Select;
+import org.jooq.types.ULong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.ToIntFunction;
+
+/**
+ * Fetches the logfiles of several days concurrently, one day per {@link DayPullConnection} at a time. The fetched days
+ * are handed over in the order of the given queries, so the slice store receives them in logtime order while the later
+ * days are still being fetched. Without connections the puller is a stub and {@link StreamDBClient} pulls the days with
+ * a single query on its own connection.
+ */
+final class ParallelDayPuller implements AutoCloseable {
+
+    private static final Logger classLogger = LoggerFactory.getLogger(ParallelDayPuller.class);
+    private final ConfiguredLogger LOGGER;
+
+    private final List<DayPullConnection> connections;
+    private final LinkedBlockingQueue<DayPullConnection> idleConnections;
+    private final ExecutorService executorService;
+
+    ParallelDayPuller() {
+        this(Collections.emptyList(), false);
+    }
+
+    ParallelDayPuller(final List<DayPullConnection> connections, final boolean isDebugEnabled) {
+        this.LOGGER = new ConfiguredLogger(classLogger, isDebugEnabled);
+        this.connections = connections;
+        this.idleConnections = new LinkedBlockingQueue<>(connections);
+        this.executorService = Executors.newFixedThreadPool(Math.max(1, connections.size()), runnable -> {
+            final Thread thread = new Thread(runnable, "pth_06-day-puller");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    boolean isStub() {
+        return connections.isEmpty();
+    }
+
+    /**
+     * Fetches the rows of the selects concurrently and passes each result to the sink in the order of the selects.
+     *
+     * @param selects logfile queries, one per day in ascending order
+     * @param sink    stores a result and returns the count of rows stored
+     * @return sum of the counts returned by the sink
+     */
+    int pull(
+            final List<Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>>> selects,
+            final ToIntFunction<Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>>> sink
+    ) {
+        if (isStub()) {
+            throw new IllegalStateException("ParallelDayPuller has no connections");
+        }
+        LOGGER.debug("ParallelDayPuller.pull called for <{}> days", selects.size());
+        final List<Future<Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>>>> futures = new ArrayList<>(
+                selects.size()
+        );
+        for (
+            final Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> select : selects
+        ) {
+            futures.add(executorService.submit(() -> fetch(select)));
+        }
+
+        int rows = 0;
+        try {
+            for (
+                final Future<Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>>> future : futures
+            ) {
+                rows += sink.applyAsInt(future.get());
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while pulling days", e);
+        }
+        catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Pulling a day failed", e.getCause());
+        }
+        finally {
+            // nothing is stored after a failure, the remaining fetches would be wasted
+            for (final Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+        LOGGER.debug("ParallelDayPuller.pull returns <{}> rows", rows);
+        return rows;
+    }
+
+    private Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> fetch(
+            final Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> select
+    ) throws InterruptedException {
+        final DayPullConnection connection = idleConnections.take();
+        try {
+            return connection.fetch(select);
+        }
+        finally {
+            idleConnections.add(connection);
+        }
+    }
+
+    @Override
+    public void close() {
+        executorService.shutdownNow();
+        for (final DayPullConnection connection : connections) {
+            connection.close();
+        }
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final ParallelDayPuller that = (ParallelDayPuller) o;
+        return Objects.equals(LOGGER, that.LOGGER) && Objects.equals(connections, that.connections);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(LOGGER, connections);
+    }
+}
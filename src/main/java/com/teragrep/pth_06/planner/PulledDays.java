@@ -0,0 +1,167 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import java.sql.Date;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Keeps track of the logdates pulled into the sliceTable and of the committed offset, so that the uncommitted part of
+ * the sliceTable can be pulled again after the database session has been lost. Scanning oldest first commits the hours
+ * up to the committed offset, scanning newest first commits the hours from the newest first committed offset up.
+ */
+final class PulledDays {
+
+    private final ZoneId zoneId;
+    private LocalDate firstDay;
+    private LocalDate lastDay;
+    private long committedOffset;
+    private long newestFirstCommittedOffset;
+
+    PulledDays() {
+        this(ZoneId.systemDefault());
+    }
+
+    PulledDays(final ZoneId zoneId) {
+        this.zoneId = zoneId;
+        this.firstDay = null;
+        this.lastDay = null;
+        this.committedOffset = Long.MIN_VALUE;
+        this.newestFirstCommittedOffset = Long.MAX_VALUE;
+    }
+
+    void pulled(final Date startDay, final Date endDay) {
+        final LocalDate start = startDay.toLocalDate();
+        final LocalDate end = endDay.toLocalDate();
+        if (firstDay == null || start.isBefore(firstDay)) {
+            firstDay = start;
+        }
+        if (lastDay == null || end.isAfter(lastDay)) {
+            lastDay = end;
+        }
+    }
+
+    void committed(final long offset) {
+        if (offset > committedOffset) {
+            committedOffset = offset;
+        }
+    }
+
+    void committedNewestFirst(final long offset) {
+        if (offset < newestFirstCommittedOffset) {
+            newestFirstCommittedOffset = offset;
+        }
+    }
+
+    boolean isEmpty() {
+        return firstDay == null;
+    }
+
+    /**
+     * First logdate that may still have uncommitted rows. Logfiles of a logdate may have a logtime on the previous day,
+     * so the day before the committed offset is included.
+     *
+     * @return first logdate to pull again
+     */
+    Date restoreStart() {
+        if (isEmpty()) {
+            throw new IllegalStateException("No days were pulled");
+        }
+        LocalDate rv = firstDay;
+        if (committedOffset != Long.MIN_VALUE) {
+            final LocalDate committedDay = Instant.ofEpochSecond(committedOffset).atZone(zoneId).toLocalDate();
+            if (committedDay.minusDays(1).isAfter(rv)) {
+                rv = committedDay.minusDays(1);
+            }
+        }
+        if (rv.isAfter(lastDay)) {
+            rv = lastDay;
+        }
+        return Date.valueOf(rv);
+    }
+
+    /**
+     * Last logdate that may still have uncommitted rows. Logfiles of the logdate after the newest first committed
+     * offset may have a logtime before it, so that day is included.
+     *
+     * @return last logdate to pull again
+     */
+    Date restoreEnd() {
+        if (isEmpty()) {
+            throw new IllegalStateException("No days were pulled");
+        }
+        LocalDate rv = lastDay;
+        if (newestFirstCommittedOffset != Long.MAX_VALUE) {
+            final LocalDate committedDay = Instant
+                    .ofEpochSecond(newestFirstCommittedOffset)
+                    .atZone(zoneId)
+                    .toLocalDate();
+            if (committedDay.plusDays(1).isBefore(rv)) {
+                rv = committedDay.plusDays(1);
+            }
+        }
+        if (rv.isBefore(firstDay)) {
+            rv = firstDay;
+        }
+        return Date.valueOf(rv);
+    }
+
+    /**
+     * @return offset up to which the hours are committed, Long.MIN_VALUE if none are
+     */
+    long committedOffset() {
+        return committedOffset;
+    }
+
+    /**
+     * @return offset from which up the hours are committed when scanning newest first, Long.MAX_VALUE if none are
+     */
+    long newestFirstCommittedOffset() {
+        return newestFirstCommittedOffset;
+    }
+}
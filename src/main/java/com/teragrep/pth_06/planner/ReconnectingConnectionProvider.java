@@ -0,0 +1,158 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import com.teragrep.pth_06.ConfiguredLogger;
+import org.jooq.ConnectionProvider;
+import org.jooq.exception.DataAccessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Provides the single JDBC connection of {@link StreamDBClient} to jOOQ, and replaces it with a new one on
+ * {@link #reconnect()}. The statements of the connection are prepared on the server and cached by the driver, so the
+ * recurring planner queries are parsed by MariaDB once per connection.
+ */
+final class ReconnectingConnectionProvider implements ConnectionProvider, AutoCloseable {
+
+    private static final Logger classLogger = LoggerFactory.getLogger(ReconnectingConnectionProvider.class);
+    private final ConfiguredLogger LOGGER;
+
+    private final String url;
+    private final Properties properties;
+    private Connection connection;
+
+    ReconnectingConnectionProvider(
+            final String url,
+            final String userName,
+            final String password,
+            final boolean useServerPrepStmts,
+            final boolean isDebugEnabled
+    ) throws SQLException {
+        this(url, properties(userName, password, useServerPrepStmts), isDebugEnabled);
+    }
+
+    ReconnectingConnectionProvider(final String url, final Properties properties, final boolean isDebugEnabled)
+            throws SQLException {
+        this.LOGGER = new ConfiguredLogger(classLogger, isDebugEnabled);
+        this.url = url;
+        this.properties = properties;
+        this.connection = DriverManager.getConnection(url, properties);
+    }
+
+    private static Properties properties(
+            final String userName,
+            final String password,
+            final boolean useServerPrepStmts
+    ) {
+        final Properties properties = new Properties();
+        properties.setProperty("user", userName);
+        properties.setProperty("password", password);
+        if (useServerPrepStmts) {
+            // cachePrepStmts keeps the server prepared statements of the connection for reuse
+            properties.setProperty("useServerPrepStmts", "true");
+            properties.setProperty("cachePrepStmts", "true");
+        }
+        return properties;
+    }
+
+    @Override
+    public Connection acquire() {
+        return connection;
+    }
+
+    @Override
+    public void release(final Connection released) {
+        // the connection is kept open until reconnect or close
+    }
+
+    /**
+     * @return true if the current connection is still usable
+     */
+    boolean isValid() {
+        try {
+            return !connection.isClosed() && connection.isValid(5);
+        }
+        catch (final SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Replaces the current connection with a new one. Everything bound to the session of the old connection, such as
+     * temporary tables, is lost.
+     *
+     * @throws DataAccessException if the new connection can't be opened
+     */
+    void reconnect() {
+        LOGGER.info("ReconnectingConnectionProvider.reconnect to <{}>", url);
+        close();
+        try {
+            connection = DriverManager.getConnection(url, properties);
+        }
+        catch (final SQLException e) {
+            throw new DataAccessException("Reconnecting to <" + url + "> failed", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+                LOGGER.debug("Closed JDBC connection");
+            }
+        }
+        catch (final SQLException e) {
+            LOGGER.warn("Error closing JDBC connection: <{}>", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import java.time.LocalDate;
+
+/**
+ * Amount of days pulled into the sliceTable with a single query. The window is doubled after each pull that returned no
+ * rows, up to the maximum window size, so that empty stretches of the archive are skipped with a few queries. A pull
+ * that returned rows resets the window to the initial size.
+ */
+final class SeekWindow {
+
+    /** window size used after a pull that returned rows */
+    private final int initialDays;
+
+    /** upper bound for the window size */
+    private final int maxDays;
+
+    /** current window size in days */
+    private int days;
+
+    /**
+     * Initialize the SeekWindow with the given initial and maximum window sizes.
+     *
+     * @param initialDays window size in days after a pull that returned rows
+     * @param maxDays     maximum window size in days
+     * @throws IllegalArgumentException if initialDays is less than 1 or maxDays is less than initialDays
+     */
+    SeekWindow(final int initialDays, final int maxDays) {
+        if (initialDays < 1) {
+            throw new IllegalArgumentException("Seek window must be at least one day, was: " + initialDays);
+        }
+        if (maxDays < initialDays) {
+            throw new IllegalArgumentException(
+                    "Maximum seek window <" + maxDays + "> is less than the initial seek window <" + initialDays + ">"
+            );
+        }
+        this.initialDays = initialDays;
+        this.maxDays = maxDays;
+        this.days = initialDays;
+    }
+
+    /**
+     * Last day of the window starting from the given day, capped to the given limit.
+     *
+     * @param start first day of the window
+     * @param limit last day that can be included in the window
+     * @return inclusive end day of the window, never before start
+     */
+    LocalDate end(final LocalDate start, final LocalDate limit) {
+        final LocalDate end = start.plusDays(days - 1L);
+        final LocalDate rv;
+        if (!end.isAfter(limit)) {
+            rv = end;
+        }
+        else if (limit.isBefore(start)) {
+            rv = start;
+        }
+        else {
+            rv = limit;
+        }
+        return rv;
+    }
+
+    /**
+     * First day of the window ending on the given day, capped to the given limit. Used when seeking backwards.
+     *
+     * @param end   last day of the window
+     * @param limit first day that can be included in the window
+     * @return inclusive start day of the window, never after end
+     */
+    LocalDate start(final LocalDate end, final LocalDate limit) {
+        final LocalDate start = end.minusDays(days - 1L);
+        final LocalDate rv;
+        if (!start.isBefore(limit)) {
+            rv = start;
+        }
+        else if (limit.isAfter(end)) {
+            rv = end;
+        }
+        else {
+            rv = limit;
+        }
+        return rv;
+    }
+
+    /**
+     * Adapt the window size to the row count of the previous pull.
+     *
+     * @param rows row count of the previous pull
+     */
+    void adapt(final int rows) {
+        if (rows == 0) {
+            days = (int) Math.min((long) days * 2, maxDays);
+        }
+        else {
+            days = initialDays;
+        }
+    }
+
+    /**
+     * @return current window size in days
+     */
+    int days() {
+        return days;
+    }
+
+    @Override
+    public String toString() {
+        return "SeekWindow[days="
+                .concat(String.valueOf(days))
+                .concat(", initial=")
+                .concat(String.valueOf(initialDays))
+                .concat(", max=")
+                .concat(String.valueOf(maxDays))
+                .concat("]");
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import com.teragrep.pth_06.ConfiguredLogger;
+import com.teragrep.pth_06.metrics.TaskMetric;
+import org.apache.spark.sql.connector.metric.CustomTaskMetric;
+import org.jooq.DSLContext;
+import org.jooq.Record10;
+import org.jooq.Record4;
+import org.jooq.Result;
+import org.jooq.Select;
+import org.jooq.impl.DSL;
+import org.jooq.types.ULong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Slice store keeping the rows of every logdate of a pull in a temporary table of its own, a segment. A commit drops
+ * the segments whose rows all fall within the committed range instead of deleting rows, so the temporary tables do not
+ * grow over a long scan and a day is released as soon as it is consumed, in either scanning direction. The committed
+ * rows of a partially consumed segment are left in place until the segment is dropped, since the planner never asks
+ * for hours at or before the committed offset again.
+ */
+final class SegmentedSliceTable implements SliceStore {
+
+    private static final Logger classLogger = LoggerFactory.getLogger(SegmentedSliceTable.class);
+    private final ConfiguredLogger LOGGER;
+
+    private final DSLContext ctx;
+    private final boolean isDebugEnabled;
+    private final boolean isLogSQL;
+    private final List<Segment> segments;
+    private long segmentCount;
+
+    SegmentedSliceTable(final DSLContext ctx, final boolean isDebugEnabled, final boolean isLogSQL) {
+        this.LOGGER = new ConfiguredLogger(classLogger, isDebugEnabled);
+        this.ctx = ctx;
+        this.isDebugEnabled = isDebugEnabled;
+        this.isLogSQL = isLogSQL;
+        this.segments = new ArrayList<>();
+        this.segmentCount = 0L;
+    }
+
+    @Override
+    public void create() {
+        LOGGER.debug("SegmentedSliceTable.create called, dropping <{}> segments", segments.size());
+        for (final Segment segment : segments) {
+            segment.sliceTable.drop();
+        }
+        segments.clear();
+    }
+
+    @Override
+    public int insert(
+            final Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> select
+    ) {
+        final SliceTable pulled = newSliceTable();
+        final int rows = pulled.insert(select);
+        if (rows == 0) {
+            pulled.drop();
+        }
+        else {
+            // a pull of a single logdate, or of several logdates kept together
+            Long minLogtime = null;
+            Long maxLogtime = null;
+            for (final Record4<Date, Long, Long, Integer> logdate : pulled.logdates()) {
+                if (logdate.value2() != null) {
+                    minLogtime = minLogtime == null ? logdate.value2() : Math.min(minLogtime, logdate.value2());
+                    maxLogtime = maxLogtime == null ? logdate.value3() : Math.max(maxLogtime, logdate.value3());
+                }
+            }
+            segments.add(new Segment(pulled, rows, minLogtime, maxLogtime));
+        }
+        LOGGER.debug("SegmentedSliceTable.insert <{}> rows, now <{}> segments", rows, segments.size());
+        return rows;
+    }
+
+    @Override
+    public int insert(
+            final Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> pull,
+            final List<Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>>> days
+    ) {
+        // each logdate is selected straight into a segment of its own instead of splitting the whole pull afterwards
+        int rows = 0;
+        for (final Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> day : days) {
+            rows += insert(day);
+        }
+        return rows;
+    }
+
+    @Override
+    public int insertRows(
+            final Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> rows
+    ) {
+        final Map<Date, Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>>> rowsOfLogdates = new LinkedHashMap<>();
+        for (final Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong> row : rows) {
+            rowsOfLogdates
+                    .computeIfAbsent(row.value5(), logdate -> ctx.newResult(SliceTable.id, SliceTable.directory, SliceTable.stream, SliceTable.host, SliceTable.logdate, SliceTable.bucket, SliceTable.path, SliceTable.logtime, SliceTable.filesize, SliceTable.uncompressedFilesize))
+                    .add(row);
+        }
+
+        int inserted = 0;
+        for (
+            final Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> rowsOfLogdate : rowsOfLogdates
+                    .values()
+        ) {
+            Long minLogtime = null;
+            Long maxLogtime = null;
+            for (
+                final Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong> row : rowsOfLogdate
+            ) {
+                final Long logtime = row.value8();
+                if (logtime != null) {
+                    minLogtime = minLogtime == null ? logtime : Math.min(minLogtime, logtime);
+                    maxLogtime = maxLogtime == null ? logtime : Math.max(maxLogtime, logtime);
+                }
+            }
+            final SliceTable sliceTable = newSliceTable();
+            final int insertedOfLogdate = sliceTable.insertRows(rowsOfLogdate);
+            segments.add(new Segment(sliceTable, insertedOfLogdate, minLogtime, maxLogtime));
+            inserted += insertedOfLogdate;
+        }
+        LOGGER.debug("SegmentedSliceTable.insertRows <{}> rows, now <{}> segments", inserted, segments.size());
+        return inserted;
+    }
+
+    private SliceTable newSliceTable() {
+        segmentCount++;
+        final SliceTable sliceTable = new SliceTable(
+                ctx,
+                DSL.table(DSL.name("sliceTable_" + segmentCount)),
+                isDebugEnabled,
+                isLogSQL
+        );
+        sliceTable.create();
+        return sliceTable;
+    }
+
+    @Override
+    public List<WeightedOffset> hourWeights(final long previousHour, final long includeBeforeEpoch) {
+        // an hour may have rows in several segments
+        final Map<Long, long[]> sizesAndCountOfHours = new TreeMap<>();
+        for (final Segment segment : segments) {
+            if (segment.hasRowsAfter(previousHour) && segment.hasRowsBefore(includeBeforeEpoch)) {
+                for (
+                    final WeightedOffset weightedOffset : segment.sliceTable
+                            .hourWeights(previousHour, includeBeforeEpoch)
+                ) {
+                    final long[] sizesAndCount = sizesAndCountOfHours
+                            .computeIfAbsent(weightedOffset.offset(), hour -> new long[3]);
+                    sizesAndCount[0] += weightedOffset.fileSize();
+                    sizesAndCount[1] += weightedOffset.uncompressedSize();
+                    sizesAndCount[2] += weightedOffset.objectCount();
+                }
+            }
+        }
+
+        final List<WeightedOffset> hourWeights = new ArrayList<>(sizesAndCountOfHours.size());
+        for (final Map.Entry<Long, long[]> hour : sizesAndCountOfHours.entrySet()) {
+            hourWeights
+                    .add(new WeightedOffset(hour.getKey(), hour.getValue()[0], hour.getValue()[1], hour.getValue()[2]));
+        }
+        return hourWeights;
+    }
+
+    @Override
+    public Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> hourRange(
+            final long excludedStartHour,
+            final long includedEndHour,
+            final long includeBeforeEpoch
+    ) {
+        final Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> result = ctx
+                .newResult(
+                        SliceTable.id, SliceTable.directory, SliceTable.stream, SliceTable.host, SliceTable.logdate,
+                        SliceTable.bucket, SliceTable.path, SliceTable.logtime, SliceTable.filesize,
+                        SliceTable.uncompressedFilesize
+                );
+        for (final Segment segment : segments) {
+            if (segment.hasRowsAfter(excludedStartHour) && segment.hasRowsUpTo(includedEndHour)) {
+                result.addAll(segment.sliceTable.hourRange(excludedStartHour, includedEndHour, includeBeforeEpoch));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void hourRange(
+            final long excludedStartHour,
+            final long includedEndHour,
+            final long includeBeforeEpoch,
+            final Consumer<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> consumer
+    ) {
+        for (final Segment segment : segments) {
+            if (segment.hasRowsAfter(excludedStartHour) && segment.hasRowsUpTo(includedEndHour)) {
+                segment.sliceTable.hourRange(excludedStartHour, includedEndHour, includeBeforeEpoch, consumer);
+            }
+        }
+    }
+
+    @Override
+    public int deleteRange(final long start, final long end) {
+        int deletedRows = 0;
+        final Iterator<Segment> segmentIterator = segments.iterator();
+        while (segmentIterator.hasNext()) {
+            final Segment segment = segmentIterator.next();
+            if (segment.isWithin(start, end)) {
+                // fully consumed, from either end
+                segment.sliceTable.drop();
+                segmentIterator.remove();
+                deletedRows += segment.rows;
+            }
+            else if (start != Long.MIN_VALUE && segment.hasRowsAfter(start) && segment.hasRowsUpTo(end)) {
+                final int segmentDeletedRows = segment.sliceTable.deleteRange(start, end);
+                segment.rows -= segmentDeletedRows;
+                deletedRows += segmentDeletedRows;
+            }
+        }
+        LOGGER
+                .debug(
+                        "SegmentedSliceTable.deleteRange deleted <{}> rows, <{}> segments remain", deletedRows,
+                        segments.size()
+                );
+        return deletedRows;
+    }
+
+    @Override
+    public boolean isSessionScoped() {
+        return true;
+    }
+
+    @Override
+    public CustomTaskMetric[] currentMetrics() {
+        long rows = 0L;
+        for (final Segment segment : segments) {
+            rows += segment.rows;
+        }
+        return new CustomTaskMetric[] {
+                new TaskMetric("ArchiveSliceStoreRows", rows)
+        };
+    }
+
+    private static final class Segment {
+
+        private final SliceTable sliceTable;
+        private int rows;
+        // null when no row has a logtime
+        private final Long minLogtime;
+        private final Long maxLogtime;
+
+        private Segment(final SliceTable sliceTable, final int rows, final Long minLogtime, final Long maxLogtime) {
+            this.sliceTable = sliceTable;
+            this.rows = rows;
+            this.minLogtime = minLogtime;
+            this.maxLogtime = maxLogtime;
+        }
+
+        private boolean hasRowsAfter(final long hour) {
+            return maxLogtime != null && maxLogtime > hour;
+        }
+
+        private boolean hasRowsBefore(final long hour) {
+            return minLogtime != null && minLogtime < hour;
+        }
+
+        private boolean hasRowsUpTo(final long hour) {
+            return minLogtime != null && minLogtime <= hour;
+        }
+
+        /**
+         * @return true if deleting the range between the hours, and the rows without logtime, would delete all rows
+         */
+        private boolean isWithin(final long start, final long end) {
+            return minLogtime == null || minLogtime > start && maxLogtime <= end;
+        }
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final SegmentedSliceTable that = (SegmentedSliceTable) o;
+        return isDebugEnabled == that.isDebugEnabled && isLogSQL == that.isLogSQL && segmentCount == that.segmentCount
+                && Objects.equals(LOGGER, that.LOGGER) && Objects.equals(ctx, that.ctx) && Objects.equals(segments, that.segments);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(LOGGER, ctx, isDebugEnabled, isLogSQL, segments, segmentCount);
+    }
+}
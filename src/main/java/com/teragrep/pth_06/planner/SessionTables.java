@@ -0,0 +1,191 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import com.codahale.metrics.Timer;
+import com.teragrep.pth_06.ConfiguredLogger;
+import com.teragrep.pth_06.metrics.planner.PlannerMetrics;
+import com.teragrep.pth_06.metrics.planner.PlannerPhase;
+import com.teragrep.pth_06.planner.walker.ConditionWalker;
+import com.teragrep.pth_06.planner.walker.FilterlessSearch;
+import com.teragrep.pth_06.planner.walker.FilterlessSearchImpl;
+import com.teragrep.pth_06.planner.walker.FilterlessSearchStub;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Creates the temporary tables the journaldb condition of the query depends on: the streamdb filter table and the bloom
+ * term tables. A walker built for another session recreates the term tables with the same names, so the condition
+ * walked in one session remains valid in every session set up by this class.
+ */
+final class SessionTables {
+
+    private static final Logger classLogger = LoggerFactory.getLogger(SessionTables.class);
+    private final ConfiguredLogger LOGGER;
+
+    private final String query;
+    private final boolean bloomEnabled;
+    private final boolean withoutFilters;
+    private final String withoutFiltersPattern;
+    private final FilterTableCache filterTableCache;
+    private final boolean isSQLThrowExceptionsNone;
+    private final PlannerMetrics plannerMetrics;
+    private final boolean isDebugEnabled;
+    private final boolean isLogSQL;
+
+    SessionTables(
+            final String query,
+            final boolean bloomEnabled,
+            final boolean withoutFilters,
+            final String withoutFiltersPattern,
+            final FilterTableCache filterTableCache,
+            final boolean isSQLThrowExceptionsNone,
+            final PlannerMetrics plannerMetrics,
+            final boolean isDebugEnabled,
+            final boolean isLogSQL
+    ) {
+        this.LOGGER = new ConfiguredLogger(classLogger, isDebugEnabled);
+        this.query = query;
+        this.bloomEnabled = bloomEnabled;
+        this.withoutFilters = withoutFilters;
+        this.withoutFiltersPattern = withoutFiltersPattern;
+        this.filterTableCache = filterTableCache;
+        this.isSQLThrowExceptionsNone = isSQLThrowExceptionsNone;
+        this.plannerMetrics = plannerMetrics;
+        this.isDebugEnabled = isDebugEnabled;
+        this.isLogSQL = isLogSQL;
+    }
+
+    /**
+     * @param sessionCtx context of the session
+     * @return walker creating its tables in the given session
+     */
+    ConditionWalker walker(final DSLContext sessionCtx) {
+        final FilterlessSearch filterlessSearch;
+        if (withoutFilters) {
+            filterlessSearch = new FilterlessSearchImpl(sessionCtx, withoutFiltersPattern);
+        }
+        else {
+            filterlessSearch = new FilterlessSearchStub();
+        }
+        return new ConditionWalker(sessionCtx, bloomEnabled, filterlessSearch, plannerMetrics);
+    }
+
+    /**
+     * Sets the sql mode of the session and creates its temporary tables.
+     *
+     * @param sessionCtx context of the session
+     * @param walker     walker of the session
+     * @return journaldb condition of the query
+     */
+    Condition create(final DSLContext sessionCtx, final ConditionWalker walker) {
+        LOGGER.debug("SessionTables.create called");
+        if (isSQLThrowExceptionsNone) {
+            // force sql mode to NO_ENGINE_SUBSTITUTION, STRICT mode
+
+            final String noEngineSubstitution = "SET sql_mode = 'NO_ENGINE_SUBSTITUTION';";
+            if (isLogSQL) {
+                LOGGER
+                        .info(
+                                "{SQL} SessionTables noEngineSubstitution <\n{}\n>", "noEngineSubstitution",
+                                noEngineSubstitution
+                        );
+            }
+            sessionCtx.execute(noEngineSubstitution);
+        }
+
+        final Condition streamdbCondition;
+        final Condition journaldbCondition;
+        try {
+            // Construct both streamDB and journalDB query conditions
+            streamdbCondition = walker.fromString(query, true);
+            journaldbCondition = walker.fromString(query, false);
+        }
+        catch (ParserConfigurationException | IOException | SAXException e) {
+            throw new IllegalArgumentException(e);
+        }
+
+        final Timer.Context phaseTimerCtx = plannerMetrics.time(PlannerPhase.FILTER_TABLE);
+        try {
+            new GetArchivedObjectsFilterTable(sessionCtx, filterTableCache, isDebugEnabled, isLogSQL)
+                    .create(streamdbCondition); // TEMPTABLE
+        }
+        finally {
+            phaseTimerCtx.stop();
+        }
+        LOGGER.debug("SessionTables.create exit");
+        return journaldbCondition;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final SessionTables that = (SessionTables) o;
+        return bloomEnabled == that.bloomEnabled
+                && withoutFilters == that.withoutFilters && isSQLThrowExceptionsNone == that.isSQLThrowExceptionsNone
+                && isDebugEnabled == that.isDebugEnabled && isLogSQL == that.isLogSQL && Objects
+                        .equals(LOGGER, that.LOGGER)
+                && Objects.equals(query, that.query) && Objects.equals(withoutFiltersPattern, that.withoutFiltersPattern) && Objects.equals(filterTableCache, that.filterTableCache) && Objects.equals(plannerMetrics, that.plannerMetrics);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects
+                .hash(
+                        LOGGER, query, bloomEnabled, withoutFilters, withoutFiltersPattern, filterTableCache,
+                        isSQLThrowExceptionsNone, plannerMetrics, isDebugEnabled, isLogSQL
+                );
+    }
+}
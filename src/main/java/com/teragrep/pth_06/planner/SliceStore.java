@@ -0,0 +1,157 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import org.apache.spark.sql.connector.metric.CustomTaskMetric;
+import org.jooq.Record10;
+import org.jooq.Result;
+import org.jooq.Select;
+import org.jooq.types.ULong;
+
+import java.sql.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Holds the candidate logfiles of the archive query between pulling them from journaldb and committing them. Rows are
+ * (id, directory, stream, host, logdate, bucket, path, logtime, filesize, uncompressed filesize).
+ */
+interface SliceStore {
+
+    /**
+     * Creates the store, dropping any earlier contents.
+     */
+    public abstract void create();
+
+    /**
+     * Inserts the rows selected by the given query.
+     *
+     * @param select logfile rows to insert
+     * @return count of rows selected
+     */
+    public abstract int insert(
+            Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> select
+    );
+
+    /**
+     * Inserts the rows of a pull spanning several logdates, selected either by a single query or by a query per logdate.
+     *
+     * @param pull logfile rows of all the logdates
+     * @param days logfile rows of each logdate
+     * @return count of rows selected
+     */
+    public abstract int insert(
+            Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> pull,
+            List<Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>>> days
+    );
+
+    /**
+     * Inserts rows already fetched from the database.
+     *
+     * @param rows logfile rows to insert
+     * @return count of rows given
+     */
+    public abstract int insertRows(
+            Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> rows
+    );
+
+    /**
+     * Weighs every hour in the store after previousHour.
+     *
+     * @param previousHour       exclusive start hour
+     * @param includeBeforeEpoch exclusive upper bound of logtime
+     * @return weighted offsets of the hours in ascending logtime order, empty if the store has none
+     */
+    public abstract List<WeightedOffset> hourWeights(long previousHour, long includeBeforeEpoch);
+
+    /**
+     * Rows between the given hours.
+     *
+     * @param excludedStartHour  exclusive start hour
+     * @param includedEndHour    inclusive end hour
+     * @param includeBeforeEpoch exclusive upper bound of logtime
+     * @return rows between the hours
+     */
+    public abstract Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> hourRange(
+            long excludedStartHour,
+            long includedEndHour,
+            long includeBeforeEpoch
+    );
+
+    /**
+     * Passes the rows between the given hours to the consumer one at a time, without holding all of them in memory.
+     *
+     * @param excludedStartHour  exclusive start hour
+     * @param includedEndHour    inclusive end hour
+     * @param includeBeforeEpoch exclusive upper bound of logtime
+     * @param consumer           receives each row between the hours
+     */
+    public abstract void hourRange(
+            long excludedStartHour,
+            long includedEndHour,
+            long includeBeforeEpoch,
+            Consumer<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> consumer
+    );
+
+    /**
+     * Deletes the rows between the given hours, and the rows without logtime.
+     *
+     * @param start exclusive start hour
+     * @param end   inclusive end hour
+     * @return count of deleted rows
+     */
+    public abstract int deleteRange(long start, long end);
+
+    /**
+     * @return true if the contents are lost with the database session
+     */
+    public abstract boolean isSessionScoped();
+
+    /**
+     * @return metrics describing the store, empty if there are none
+     */
+    public abstract CustomTaskMetric[] currentMetrics();
+}
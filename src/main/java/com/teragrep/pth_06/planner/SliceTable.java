@@ -46,6 +46,8 @@
 package com.teragrep.pth_06.planner;
 
 import com.teragrep.pth_06.ConfiguredLogger;
+import com.teragrep.pth_06.metrics.TaskMetric;
+import org.apache.spark.sql.connector.metric.CustomTaskMetric;
 import org.jooq.*;
 import org.jooq.conf.ParamType;
 import org.jooq.impl.DSL;
@@ -53,10 +55,14 @@ import org.jooq.types.ULong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.math.BigDecimal;
 import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 
-public final class SliceTable {
+public final class SliceTable implements SliceStore {
 
     private static final String sliceTableName = "sliceTable";
     private final DSLContext ctx;
@@ -77,24 +83,47 @@ public final class SliceTable {
             .field(DSL.name(sliceTableName, "uncompressed_filesize"), ULong.class);
 
     private static final Index logtimeIndex = DSL.index(DSL.name("ix_logtime"));
+    private static final int insertRowsPerStatement = 1000;
+    private static final int hourRangeFetchSize = 1000;
+    private final Table<Record> table;
     private final boolean isLogSQL;
+    // rows inserted and not deleted since the table was created
+    private long rowCount;
 
     public SliceTable(final DSLContext ctx, final boolean isDebugEnabled, final boolean isLogSQL) {
+        this(ctx, SLICE_TABLE, isDebugEnabled, isLogSQL);
+    }
+
+    /**
+     * @param table temporary table holding the rows, with the columns of {@link #SLICE_TABLE}
+     */
+    SliceTable(final DSLContext ctx, final Table<Record> table, final boolean isDebugEnabled, final boolean isLogSQL) {
         this.ctx = ctx;
+        this.table = table;
         this.LOGGER = new ConfiguredLogger(classLogger, isDebugEnabled);
         this.isLogSQL = isLogSQL;
+        this.rowCount = 0L;
+    }
+
+    /**
+     * @param column column of {@link #SLICE_TABLE}
+     * @return the column qualified with the table of this slice
+     */
+    private <T> Field<T> column(final Field<T> column) {
+        return DSL.field(DSL.name(table.getName(), column.getName()), column.getDataType());
     }
 
+    @Override
     public void create() {
         LOGGER.debug("SliceTable.create called");
-        try (final DropTableStep dropTableStep = ctx.dropTemporaryTableIfExists(SLICE_TABLE)) {
+        try (final DropTableStep dropTableStep = ctx.dropTemporaryTableIfExists(table)) {
             if (isLogSQL) {
                 LOGGER.info("{SQL} SliceTable.create dropTableStep <\n{}\n>", dropTableStep.getSQL(ParamType.INLINED));
             }
             dropTableStep.execute();
         }
         try (
-                final CreateTableColumnStep createTableStep = ctx.createTemporaryTable(SLICE_TABLE).columns(id, directory, stream, host, logdate, bucket, path, logtime, filesize, uncompressedFilesize)
+                final CreateTableColumnStep createTableStep = ctx.createTemporaryTable(table).columns(id, directory, stream, host, logdate, bucket, path, logtime, filesize, uncompressedFilesize)
         ) {
             if (isLogSQL) {
                 LOGGER
@@ -105,7 +134,7 @@ public final class SliceTable {
             }
             createTableStep.execute();
         }
-        try (final CreateIndexIncludeStep createIndexStep = ctx.createIndex(logtimeIndex).on(SLICE_TABLE, logtime)) {
+        try (final CreateIndexIncludeStep createIndexStep = ctx.createIndex(logtimeIndex).on(table, column(logtime))) {
 
             if (isLogSQL) {
                 LOGGER
@@ -116,20 +145,184 @@ public final class SliceTable {
             }
             createIndexStep.execute();
         }
+        rowCount = 0L;
         LOGGER.debug("SliceTable.create exit");
     }
 
+    @Override
+    public int insert(
+            final Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> select
+    ) {
+        try (final InsertOnDuplicateStep<Record> selectStep = ctx.insertInto(table).select(select)) {
+            if (isLogSQL) {
+                LOGGER.info("{SQL} SliceTable.insert selectStep <\n{}\n>", selectStep.getSQL(ParamType.INLINED));
+            }
+            final int inserted = selectStep.execute();
+            this.rowCount += inserted;
+            return inserted;
+        }
+    }
+
+    @Override
+    public int insert(
+            final Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> pull,
+            final List<Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>>> days
+    ) {
+        return insert(pull);
+    }
+
+    @Override
+    public int insertRows(
+            final Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> rows
+    ) {
+        int inserted = 0;
+        // bounded statements stay below max_allowed_packet
+        for (int start = 0; start < rows.size(); start += insertRowsPerStatement) {
+            final int end = Math.min(start + insertRowsPerStatement, rows.size());
+            InsertValuesStep10<Record, ULong, String, String, String, Date, String, String, Long, ULong, ULong> insertStep = ctx
+                    .insertInto(table, column(id), column(directory), column(stream), column(host), column(logdate), column(bucket), column(path), column(logtime), column(filesize), column(uncompressedFilesize));
+            for (
+                final Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong> row : rows
+                        .subList(start, end)
+            ) {
+                insertStep = insertStep
+                        .values(
+                                row.value1(), row.value2(), row.value3(), row.value4(), row.value5(), row.value6(),
+                                row.value7(), row.value8(), row.value9(), row.value10()
+                        );
+            }
+            if (isLogSQL) {
+                LOGGER.info("{SQL} SliceTable.insertRows insertStep <\n{}\n>", insertStep.getSQL(ParamType.INLINED));
+            }
+            inserted += insertStep.execute();
+        }
+        this.rowCount += inserted;
+        return inserted;
+    }
+
+    @Override
+    public List<WeightedOffset> hourWeights(final long previousHour, final long includeBeforeEpoch) {
+        final Result<Record4<Long, BigDecimal, BigDecimal, Integer>> hourWeightRecords = ctx
+                .select(column(logtime), DSL.sum(column(filesize)), DSL.sum(column(uncompressedFilesize)), DSL.count())
+                .from(table)
+                .where(column(logtime).greaterThan(previousHour).and(column(logtime).lessThan(includeBeforeEpoch)))
+                .groupBy(column(logtime))
+                .orderBy(column(logtime).asc())
+                .fetch();
+
+        final List<WeightedOffset> hourWeights = new ArrayList<>(hourWeightRecords.size());
+        for (final Record4<Long, BigDecimal, BigDecimal, Integer> hourWeightRecord : hourWeightRecords) {
+            final long offset = hourWeightRecord.get(0, Long.class);
+            final long fileSize = hourWeightRecord.get(1, BigDecimal.class).longValue();
+            // sum is null when none of the logfiles of the hour have an uncompressed size
+            final BigDecimal uncompressedSum = hourWeightRecord.get(2, BigDecimal.class);
+            long uncompressedSize = 0L;
+            if (uncompressedSum != null) {
+                uncompressedSize = uncompressedSum.longValue();
+            }
+            final long objectCount = hourWeightRecord.get(3, Long.class);
+            hourWeights.add(new WeightedOffset(offset, fileSize, uncompressedSize, objectCount));
+        }
+        return hourWeights;
+    }
+
+    @Override
+    public Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> hourRange(
+            final long excludedStartHour,
+            final long includedEndHour,
+            final long includeBeforeEpoch
+    ) {
+        return ctx
+                .select(column(id), column(directory), column(stream), column(host), column(logdate), column(bucket), column(path), column(logtime), column(filesize), column(uncompressedFilesize)).from(table).where(column(logtime).greaterThan(excludedStartHour).and(column(logtime).lessOrEqual(includedEndHour)).and(column(logtime).lessThan(includeBeforeEpoch))).fetch();
+    }
+
+    @Override
+    public void hourRange(
+            final long excludedStartHour,
+            final long includedEndHour,
+            final long includeBeforeEpoch,
+            final Consumer<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> consumer
+    ) {
+        // the driver streams the rows in chunks of fetch size instead of reading them all at once
+        try (
+                final Cursor<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> cursor = ctx
+                        .select(column(id), column(directory), column(stream), column(host), column(logdate), column(bucket), column(path), column(logtime), column(filesize), column(uncompressedFilesize)).from(table).where(column(logtime).greaterThan(excludedStartHour).and(column(logtime).lessOrEqual(includedEndHour)).and(column(logtime).lessThan(includeBeforeEpoch))).fetchSize(hourRangeFetchSize).fetchLazy()
+        ) {
+            for (
+                final Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong> record : cursor
+            ) {
+                consumer.accept(record);
+            }
+        }
+    }
+
+    @Override
+    public int deleteRange(final long start, final long end) {
+        final Condition rangeCondition = column(logtime).greaterThan(start).and(column(logtime).lessOrEqual(end));
+        final DeleteConditionStep<Record> deleteRangeStep = ctx
+                .deleteFrom(table)
+                .where(rangeCondition.or(column(logtime).isNull()));
+
+        if (isLogSQL) {
+            LOGGER
+                    .info(
+                            "{SQL} SliceTable.deleteRange deleteRangeStep <\n{}\n>",
+                            deleteRangeStep.getSQL(ParamType.INLINED)
+                    );
+        }
+        final int deleted = deleteRangeStep.execute();
+        rowCount -= deleted;
+        return deleted;
+    }
+
+    /**
+     * @return logdate, lowest logtime, highest logtime and count of the rows of each logdate in the table
+     */
+    Result<Record4<Date, Long, Long, Integer>> logdates() {
+        return ctx
+                .select(column(logdate), DSL.min(column(logtime)), DSL.max(column(logtime)), DSL.count())
+                .from(table)
+                .groupBy(column(logdate))
+                .fetch();
+    }
+
+    /**
+     * Drops the table and its rows.
+     */
+    void drop() {
+        try (final DropTableStep dropTableStep = ctx.dropTemporaryTableIfExists(table)) {
+            if (isLogSQL) {
+                LOGGER.info("{SQL} SliceTable.drop dropTableStep <\n{}\n>", dropTableStep.getSQL(ParamType.INLINED));
+            }
+            dropTableStep.execute();
+        }
+        rowCount = 0L;
+    }
+
+    @Override
+    public boolean isSessionScoped() {
+        return true;
+    }
+
+    @Override
+    public CustomTaskMetric[] currentMetrics() {
+        return new CustomTaskMetric[] {
+                new TaskMetric("ArchiveSliceStoreRows", rowCount)
+        };
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
         final SliceTable that = (SliceTable) o;
-        return Objects.equals(ctx, that.ctx) && Objects.equals(LOGGER, that.LOGGER) && isLogSQL == that.isLogSQL;
+        return Objects.equals(ctx, that.ctx) && Objects.equals(table, that.table) && Objects.equals(LOGGER, that.LOGGER)
+                && isLogSQL == that.isLogSQL;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(ctx, LOGGER, isLogSQL);
+        return Objects.hash(ctx, table, LOGGER, isLogSQL);
     }
 }
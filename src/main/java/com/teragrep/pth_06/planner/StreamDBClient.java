@@ -45,10 +45,14 @@
  */
 package com.teragrep.pth_06.planner;
 
-import java.io.IOException;
-import java.math.BigDecimal;
 import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Snapshot;
@@ -56,20 +60,18 @@ import com.codahale.metrics.Timer;
 import com.teragrep.pth_06.ConfiguredLogger;
 import com.teragrep.pth_06.config.Config;
 import com.teragrep.pth_06.metrics.TaskMetric;
+import com.teragrep.pth_06.metrics.planner.PlannerMetrics;
+import com.teragrep.pth_06.metrics.planner.PlannerPhase;
 import com.teragrep.pth_06.planner.walker.ConditionWalker;
-import com.teragrep.pth_06.planner.walker.FilterlessSearch;
-import com.teragrep.pth_06.planner.walker.FilterlessSearchImpl;
-import com.teragrep.pth_06.planner.walker.FilterlessSearchStub;
+import com.teragrep.pth_06.planner.walker.LatestWalker;
 import org.apache.spark.sql.connector.metric.CustomTaskMetric;
 import org.jooq.*;
 import org.jooq.conf.*;
+import org.jooq.exception.DataAccessException;
 import org.jooq.impl.DSL;
 import org.jooq.types.ULong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.xml.sax.SAXException;
-
-import javax.xml.parsers.ParserConfigurationException;
 
 import static com.teragrep.pth_06.jooq.generated.journaldb.Journaldb.JOURNALDB;
 
@@ -95,7 +97,7 @@ public final class StreamDBClient implements AutoCloseable {
     private final ConfiguredLogger LOGGER;
 
     private final MetricRegistry metricRegistry;
-    private final Connection connection;
+    private final ReconnectingConnectionProvider connectionProvider;
     private final DSLContext ctx;
     private final long includeBeforeEpoch;
     private final boolean bloomEnabled;
@@ -103,14 +105,38 @@ public final class StreamDBClient implements AutoCloseable {
     private final ConditionWalker walker;
     private final boolean isDebugEnabled;
     private final boolean isLogSQL;
-    private final GetArchivedObjectsFilterTable filterTable;
+    private final SessionTables sessionTables;
     private final NestedTopNQuery nestedTopNQuery;
-    private final SliceTable sliceTable;
+    private final SliceStore sliceStore;
+    private final ParallelDayPuller parallelDayPuller;
+    private final PulledDays pulledDays;
+    private final PlannerMetrics plannerMetrics;
+    private final CorruptedArchiveIds corruptedArchiveIds;
 
     public StreamDBClient(Config config) throws SQLException {
+        this(config, LatestWalker.unboundedLatestEpoch);
+    }
+
+    /**
+     * @param config      configuration of the query
+     * @param latestEpoch latest epoch of the query, logfiles of later hours are left out of the slice
+     * @throws SQLException if the database can't be connected
+     */
+    public StreamDBClient(Config config, long latestEpoch) throws SQLException {
+        this(config, latestEpoch, new PlannerMetrics());
+    }
+
+    /**
+     * @param config         configuration of the query
+     * @param latestEpoch    latest epoch of the query, logfiles of later hours are left out of the slice
+     * @param plannerMetrics times the planner phases run by this client
+     * @throws SQLException if the database can't be connected
+     */
+    public StreamDBClient(Config config, long latestEpoch, PlannerMetrics plannerMetrics) throws SQLException {
         this.isDebugEnabled = config.loggingConfig.isDebug();
         this.LOGGER = new ConfiguredLogger(classLogger, isDebugEnabled);
         this.isLogSQL = config.sqlConfig.isLog();
+        this.plannerMetrics = plannerMetrics;
         LOGGER.debug("StreamDBClient ctor called with config <[{}]>", config);
         this.bloomEnabled = config.archiveConfig.bloomEnabled;
         LOGGER.info("StreamDBClient bloom.enabled: " + this.bloomEnabled);
@@ -138,104 +164,210 @@ public final class StreamDBClient implements AutoCloseable {
         }
 
         System.getProperties().setProperty("org.jooq.no-logo", "true");
-        this.connection = DriverManager.getConnection(url, userName, password);
-        this.ctx = DSL.using(connection, SQLDialect.MYSQL, settings);
-        this.filterTable = new GetArchivedObjectsFilterTable(ctx, isDebugEnabled, isLogSQL);
+        this.connectionProvider = new ReconnectingConnectionProvider(
+                url,
+                userName,
+                password,
+                config.archiveConfig.dbUseServerPrepStmts,
+                isDebugEnabled
+        );
+        this.ctx = DSL.using(connectionProvider, SQLDialect.MYSQL, settings);
+        this.sessionTables = new SessionTables(
+                config.query,
+                bloomEnabled,
+                withoutFilters,
+                withoutFiltersPattern,
+                new FilterTableCache(url, userName, config.archiveConfig.filterTableCacheTtlSeconds * 1000L),
+                isSQLThrowExceptionsNone,
+                plannerMetrics,
+                isDebugEnabled,
+                isLogSQL
+        );
         this.nestedTopNQuery = new NestedTopNQuery(this, isDebugEnabled);
-        this.sliceTable = new SliceTable(ctx, isDebugEnabled, isLogSQL);
+        if (config.archiveConfig.sliceStoreInMemory) {
+            // keep the slice on the driver instead of a temporary table, unless it grows over maxRows
+            this.sliceStore = new InMemorySliceStore(
+                    config.archiveConfig.sliceStoreMaxRows,
+                    new SliceTable(ctx, isDebugEnabled, isLogSQL),
+                    isDebugEnabled
+            );
+        }
+        else if (config.archiveConfig.sliceStoreSegmented) {
+            this.sliceStore = new SegmentedSliceTable(ctx, isDebugEnabled, isLogSQL);
+        }
+        else {
+            this.sliceStore = new SliceTable(ctx, isDebugEnabled, isLogSQL);
+        }
 
-        if (isSQLThrowExceptionsNone) {
-            // force sql mode to NO_ENGINE_SUBSTITUTION, STRICT mode
+        if (config.archiveConfig.corruptedArchiveInMemory) {
+            this.corruptedArchiveIds = new CorruptedArchiveIds(
+                    ctx,
+                    config.archiveConfig.corruptedArchiveRefreshSeconds * 1000L,
+                    isDebugEnabled,
+                    isLogSQL
+            );
+        }
+        else {
+            this.corruptedArchiveIds = new CorruptedArchiveIds();
+        }
 
-            final String noEngineSubstitution = "SET sql_mode = 'NO_ENGINE_SUBSTITUTION';";
-            if (isLogSQL) {
-                LOGGER
-                        .info(
-                                "{SQL} StreamDBClient noEngineSubstitution <\n{}\n>", "noEngineSubstitution",
-                                noEngineSubstitution
-                        );
+        // -- TODO use dslContext.batch for all initial operations
+        this.walker = sessionTables.walker(ctx);
+        this.journaldbCondition = sessionTables.create(ctx, walker); // TEMPTABLES
+        sliceStore.create();
+
+        if (config.archiveConfig.seekParallelConnections > 1) {
+            final List<DayPullConnection> dayPullConnections = new ArrayList<>();
+            for (int i = 0; i < config.archiveConfig.seekParallelConnections; i++) {
+                final ReconnectingConnectionProvider dayPullConnectionProvider = new ReconnectingConnectionProvider(
+                        url,
+                        userName,
+                        password,
+                        config.archiveConfig.dbUseServerPrepStmts,
+                        isDebugEnabled
+                );
+                final DayPullConnection dayPullConnection = new DayPullConnection(
+                        dayPullConnectionProvider,
+                        DSL.using(dayPullConnectionProvider, SQLDialect.MYSQL, settings),
+                        sessionTables,
+                        isDebugEnabled
+                );
+                dayPullConnections.add(dayPullConnection);
+                dayPullConnection.open();
             }
-            ctx.execute(noEngineSubstitution);
+            this.parallelDayPuller = new ParallelDayPuller(dayPullConnections, isDebugEnabled);
+        }
+        else {
+            this.parallelDayPuller = new ParallelDayPuller();
         }
 
-        // -- TODO use dslContext.batch for all initial operations
-        final FilterlessSearch filterlessSearch;
-        if (withoutFilters) {
-            filterlessSearch = new FilterlessSearchImpl(ctx, withoutFiltersPattern);
+        // by default no cutoff
+        if (latestEpoch < config.archiveConfig.archiveIncludeBeforeEpoch) {
+            // the hour of latest is included
+            includeBeforeEpoch = latestEpoch + 1;
         }
         else {
-            filterlessSearch = new FilterlessSearchStub();
+            includeBeforeEpoch = config.archiveConfig.archiveIncludeBeforeEpoch;
         }
 
-        this.walker = new ConditionWalker(ctx, bloomEnabled, filterlessSearch);
-        Condition streamdbCondition;
+        this.metricRegistry = new MetricRegistry();
+        this.pulledDays = new PulledDays();
+        LOGGER.debug("StreamDBClient ctor exit");
+    }
 
+    /**
+     * Runs the operation, and if it fails because the database connection was lost, reconnects, restores the session
+     * and runs the operation again.
+     *
+     * @param operation database operation
+     * @return result of the operation
+     */
+    private <T> T reconnectOnFailure(final Supplier<T> operation) {
         try {
-            // Construct both streamDB and journalDB query conditions
-            streamdbCondition = walker.fromString(config.query, true);
-            this.journaldbCondition = walker.fromString(config.query, false);
+            return operation.get();
         }
-        catch (ParserConfigurationException | IOException | SAXException e) {
-            throw new IllegalArgumentException(e);
+        catch (final DataAccessException e) {
+            if (connectionProvider.isValid()) {
+                throw e;
+            }
+            LOGGER.warn("StreamDBClient lost the database connection: <{}>, reconnecting", e.getMessage());
+            connectionProvider.reconnect();
+            restoreSession();
+            return operation.get();
         }
+    }
 
-        filterTable.create(streamdbCondition); // TEMPTABLE
-        sliceTable.create();
-
-        // by default no cutoff
-        includeBeforeEpoch = config.archiveConfig.archiveIncludeBeforeEpoch;
-
-        this.metricRegistry = new MetricRegistry();
-        LOGGER.debug("StreamDBClient ctor exit");
+    /**
+     * Rebuilds the temporary tables of a new session. A new walker recreates the bloom term tables with the same names
+     * as the walker of this client did, so the journaldb condition and the tables joined for it remain valid. The
+     * uncommitted part of the sliceTable is pulled again if it was lost with the old session.
+     */
+    private void restoreSession() {
+        LOGGER.info("StreamDBClient.restoreSession called");
+        sessionTables.create(ctx, sessionTables.walker(ctx));
+
+        if (sliceStore.isSessionScoped()) {
+            sliceStore.create();
+            if (!pulledDays.isEmpty()) {
+                final int rows = pull(pulledDays.restoreStart(), pulledDays.restoreEnd());
+                int committedRows = sliceStore.deleteRange(Long.MIN_VALUE, pulledDays.committedOffset());
+                if (pulledDays.newestFirstCommittedOffset() != Long.MAX_VALUE) {
+                    committedRows += sliceStore
+                            .deleteRange(pulledDays.newestFirstCommittedOffset() - 1, Long.MAX_VALUE);
+                }
+                LOGGER
+                        .info(
+                                "StreamDBClient.restoreSession pulled <{}> rows again, <{}> of them were already committed",
+                                rows, committedRows
+                        );
+            }
+        }
+        LOGGER.debug("StreamDBClient.restoreSession exit");
     }
 
     public CustomTaskMetric[] currentDatabaseMetrics() {
         LOGGER.debug("StreamDBClient.currentDatabaseMetrics called");
         final Snapshot latencySnapshot = metricRegistry.histogram("ArchiveDatabaseLatencyPerRow").getSnapshot();
-        return new CustomTaskMetric[] {
+        final CustomTaskMetric[] databaseMetrics = new CustomTaskMetric[] {
                 new TaskMetric("ArchiveDatabaseRowCount", metricRegistry.counter("ArchiveDatabaseRowCount").getCount()),
                 new TaskMetric("ArchiveDatabaseRowMaxLatency", latencySnapshot.getMax()),
                 new TaskMetric("ArchiveDatabaseRowAvgLatency", (long) latencySnapshot.getMean()),
                 new TaskMetric("ArchiveDatabaseRowMinLatency", latencySnapshot.getMin()),
         };
+        final CustomTaskMetric[] sliceStoreMetrics = sliceStore.currentMetrics();
+        final CustomTaskMetric[] metrics = Arrays
+                .copyOf(databaseMetrics, databaseMetrics.length + sliceStoreMetrics.length);
+        System.arraycopy(sliceStoreMetrics, 0, metrics, databaseMetrics.length, sliceStoreMetrics.length);
+        return metrics;
     }
 
     public int pullToSliceTable(Date day) {
-        LOGGER.debug("StreamDBClient.pullToSliceTable called for date <{}>", day);
+        return pullToSliceTable(day, day);
+    }
 
-        SelectConditionStep<Record1<Integer>> corruptedLogfilesField = DSL
-                .selectOne()
-                .from(JOURNALDB.CORRUPTED_ARCHIVE)
-                .where(JOURNALDB.LOGFILE.ID.eq(JOURNALDB.CORRUPTED_ARCHIVE.LOGFILE_ID));
-        SelectOnConditionStep<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> select = ctx
-                .select(
-                        JOURNALDB.LOGFILE.ID, nestedTopNQuery.directory(), nestedTopNQuery.stream(),
-                        JOURNALDB.HOST.NAME, JOURNALDB.LOGFILE.LOGDATE, JOURNALDB.BUCKET.NAME, JOURNALDB.LOGFILE.PATH,
-                        nestedTopNQuery.logtime(), JOURNALDB.LOGFILE.FILE_SIZE, JOURNALDB.LOGFILE.UNCOMPRESSED_FILE_SIZE
-                )
-                .from(nestedTopNQuery.getTableStatement(journaldbCondition, day))
-                .join(JOURNALDB.LOGFILE)
-                .on(JOURNALDB.LOGFILE.ID.eq(nestedTopNQuery.id()))
-                .join(JOURNALDB.BUCKET)
-                .on(JOURNALDB.BUCKET.ID.eq(JOURNALDB.LOGFILE.BUCKET_ID))
-                .join(JOURNALDB.HOST)
-                .on(JOURNALDB.HOST.ID.eq(JOURNALDB.LOGFILE.HOST_ID))
-                .join(JOURNALDB.LOGTAG)
-                .on(JOURNALDB.LOGTAG.ID.eq(JOURNALDB.LOGFILE.LOGTAG_ID))
-                .andNotExists(corruptedLogfilesField);
+    /**
+     * Pulls the logfiles of all the days between startDay and endDay into the sliceTable with a single query, or with a
+     * query per day on the parallel connections when archive.seek.parallelConnections is over one. A segmented slice
+     * store selects each day into a segment of its own.
+     *
+     * @param startDay first logdate to pull, inclusive
+     * @param endDay   last logdate to pull, inclusive
+     * @return count of rows pulled
+     */
+    public int pullToSliceTable(Date startDay, Date endDay) {
+        LOGGER.debug("StreamDBClient.pullToSliceTable called for dates <{}> - <{}>", startDay, endDay);
+        final int rows = reconnectOnFailure(() -> pull(startDay, endDay));
+        pulledDays.pulled(startDay, endDay);
+        LOGGER.debug("StreamDBClient.pullToSliceTable returns <{}> rows", rows);
+        return rows;
+    }
 
+    private int pull(Date startDay, Date endDay) {
         final Timer.Context timerCtx = metricRegistry.timer("ArchiveDatabaseLatency").time();
         final int rows;
-
-        try (final InsertOnDuplicateStep<Record> selectStep = ctx.insertInto(SliceTable.SLICE_TABLE).select(select)) {
-            if (isLogSQL) {
-                LOGGER
-                        .info(
-                                "{SQL} StreamDBClient.pullToSliceTable selectStep <\n{}\n>",
-                                selectStep.getSQL(ParamType.INLINED)
-                        );
+        final Timer.Context phaseTimerCtx = plannerMetrics.time(PlannerPhase.PULL);
+        try {
+            final boolean singleQuery = parallelDayPuller.isStub() || startDay.equals(endDay);
+            if (singleQuery && corruptedArchiveIds.isStub() && startDay.equals(endDay)) {
+                rows = sliceStore.insert(logfiles(startDay, endDay));
+            }
+            else if (singleQuery && corruptedArchiveIds.isStub()) {
+                rows = sliceStore.insert(logfiles(startDay, endDay), days(startDay, endDay));
             }
-            rows = selectStep.execute();
+            else if (singleQuery) {
+                // the rows pass the driver to leave out the corrupted archives
+                rows = sliceStore.insertRows(corruptedArchiveIds.filter(ctx.fetch(logfiles(startDay, endDay))));
+            }
+            else if (corruptedArchiveIds.isStub()) {
+                rows = parallelDayPuller.pull(days(startDay, endDay), sliceStore::insertRows);
+            }
+            else {
+                rows = parallelDayPuller
+                        .pull(days(startDay, endDay), result -> sliceStore.insertRows(corruptedArchiveIds.filter(result)));
+            }
+        }
+        finally {
+            phaseTimerCtx.stop();
         }
 
         final long latencyNs = timerCtx.stop();
@@ -248,50 +380,89 @@ public final class StreamDBClient implements AutoCloseable {
 
         metricRegistry.counter("ArchiveDatabaseRowCount").inc(rows);
 
-        LOGGER.debug("StreamDBClient.pullToSliceTable returns <{}> rows", rows);
         return rows;
-
     }
 
-    WeightedOffset getNextHourAndSizeFromSliceTable(long previousHour) {
-        LOGGER.debug("StreamDBClient.getNextHourAndSizeFromSliceTable called with previousHour <{}>", previousHour);
+    private List<Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>>> days(
+            Date startDay,
+            Date endDay
+    ) {
+        final List<Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>>> selects = new ArrayList<>();
+        final LocalDate lastDay = endDay.toLocalDate();
+        for (LocalDate day = startDay.toLocalDate(); !day.isAfter(lastDay); day = day.plusDays(1)) {
+            selects.add(logfiles(Date.valueOf(day), Date.valueOf(day)));
+        }
+        return selects;
+    }
 
-        final Result<Record2<Long, BigDecimal>> hourAndFilesizeRecord = ctx
-                .select(SliceTable.logtime, DSL.sum(SliceTable.filesize))
-                .from(SliceTable.SLICE_TABLE)
-                .where(SliceTable.logtime.greaterThan(previousHour).and(SliceTable.logtime.lessThan(includeBeforeEpoch))).groupBy(SliceTable.logtime).orderBy(SliceTable.logtime.asc()).limit(1).fetch();
-        final WeightedOffset weightedOffset;
-        if (hourAndFilesizeRecord.isEmpty()) {
-            weightedOffset = new WeightedOffset();
+    private Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> logfiles(
+            Date startDay,
+            Date endDay
+    ) {
+        SelectConditionStep<Record1<Integer>> corruptedLogfilesField = DSL
+                .selectOne()
+                .from(JOURNALDB.CORRUPTED_ARCHIVE)
+                .where(JOURNALDB.LOGFILE.ID.eq(JOURNALDB.CORRUPTED_ARCHIVE.LOGFILE_ID));
+        SelectOnConditionStep<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> select = ctx
+                .select(
+                        JOURNALDB.LOGFILE.ID, nestedTopNQuery.directory(), nestedTopNQuery.stream(),
+                        JOURNALDB.HOST.NAME, JOURNALDB.LOGFILE.LOGDATE, JOURNALDB.BUCKET.NAME, JOURNALDB.LOGFILE.PATH,
+                        nestedTopNQuery.logtime(), JOURNALDB.LOGFILE.FILE_SIZE, JOURNALDB.LOGFILE.UNCOMPRESSED_FILE_SIZE
+                )
+                .from(nestedTopNQuery.getTableStatement(journaldbCondition, startDay, endDay))
+                .join(JOURNALDB.LOGFILE)
+                .on(JOURNALDB.LOGFILE.ID.eq(nestedTopNQuery.id()))
+                .join(JOURNALDB.BUCKET)
+                .on(JOURNALDB.BUCKET.ID.eq(JOURNALDB.LOGFILE.BUCKET_ID))
+                .join(JOURNALDB.HOST)
+                .on(JOURNALDB.HOST.ID.eq(JOURNALDB.LOGFILE.HOST_ID))
+                .join(JOURNALDB.LOGTAG)
+                .on(JOURNALDB.LOGTAG.ID.eq(JOURNALDB.LOGFILE.LOGTAG_ID));
+        final Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> logfiles;
+        if (corruptedArchiveIds.isStub()) {
+            logfiles = select.andNotExists(corruptedLogfilesField);
         }
         else {
-            final long offset = hourAndFilesizeRecord.get(0).get(0, Long.class);
-            final long fileSize = hourAndFilesizeRecord.get(0).get(1, BigDecimal.class).longValue();
-
-            weightedOffset = new WeightedOffset(offset, fileSize);
+            // filtered on the driver
+            logfiles = select;
         }
+        return logfiles;
+    }
 
-        LOGGER.debug("StreamDBClient.getNextHourAndSizeFromSliceTable returns weightedOffset <{}>", weightedOffset);
-        return weightedOffset;
+    /**
+     * Weighs every hour in the slice store after previousHour at once.
+     *
+     * @param previousHour exclusive start hour
+     * @return weighted offsets of the hours in ascending logtime order, empty if the slice store has none
+     */
+    List<WeightedOffset> getHourWeightsFromSliceTable(long previousHour) {
+        LOGGER.debug("StreamDBClient.getHourWeightsFromSliceTable called with previousHour <{}>", previousHour);
+
+        final List<WeightedOffset> hourWeights;
+        final Timer.Context phaseTimerCtx = plannerMetrics.time(PlannerPhase.HOUR_WEIGHTS);
+        try {
+            hourWeights = reconnectOnFailure(() -> sliceStore.hourWeights(previousHour, includeBeforeEpoch));
+        }
+        finally {
+            phaseTimerCtx.stop();
+        }
 
+        LOGGER.debug("StreamDBClient.getHourWeightsFromSliceTable returns <{}> hours", hourWeights.size());
+        return hourWeights;
     }
 
     int deleteRangeFromSliceTable(long start, long end) {
         LOGGER.debug("StreamDBClient.deleteRangeFromSliceTable called  start <{}> end <{}>", start, end);
 
-        final Condition rangeCondition = SliceTable.logtime.greaterThan(start).and(SliceTable.logtime.lessOrEqual(end));
-        final DeleteConditionStep<Record> deleteRangeStep = ctx
-                .deleteFrom(SliceTable.SLICE_TABLE)
-                .where(rangeCondition.or(SliceTable.logtime.isNull()));
-
-        if (isLogSQL) {
-            LOGGER
-                    .info(
-                            "{SQL} StreamDBClient.deleteRangeFromSliceTable deleteRangeStep <\n{}\n>",
-                            deleteRangeStep.getSQL(ParamType.INLINED)
-                    );
+        final int deletedRowsCount = reconnectOnFailure(() -> sliceStore.deleteRange(start, end));
+        if (start == Long.MIN_VALUE) {
+            // commits delete everything up to the committed offset
+            pulledDays.committed(end);
+        }
+        else if (end == Long.MAX_VALUE) {
+            // newest first commits delete everything from the committed offset up
+            pulledDays.committedNewestFirst(start + 1);
         }
-        final int deletedRowsCount = deleteRangeStep.execute();
 
         LOGGER.debug("StreamDBClient.deleteRangeFromSliceTable exit");
         return deletedRowsCount;
@@ -306,19 +477,65 @@ public final class StreamDBClient implements AutoCloseable {
                         "StreamDBClient.getHourRange called excludedStartHour <{}> includedEndHour <{}>",
                         excludedStartHour, includedEndHour
                 );
-        Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> result = ctx
-                .select(
-                        SliceTable.id, SliceTable.directory, SliceTable.stream, SliceTable.host, SliceTable.logdate,
-                        SliceTable.bucket, SliceTable.path, SliceTable.logtime, SliceTable.filesize,
-                        SliceTable.uncompressedFilesize
-                )
-                .from(SliceTable.SLICE_TABLE)
-                .where(SliceTable.logtime.greaterThan(excludedStartHour).and(SliceTable.logtime.lessOrEqual(includedEndHour)).and(SliceTable.logtime.lessThan(includeBeforeEpoch))).fetch();
+        final Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> result;
+        final Timer.Context phaseTimerCtx = plannerMetrics.time(PlannerPhase.HOUR_RANGE);
+        try {
+            result = reconnectOnFailure(
+                    () -> sliceStore.hourRange(excludedStartHour, includedEndHour, includeBeforeEpoch)
+            );
+        }
+        finally {
+            phaseTimerCtx.stop();
+        }
 
         LOGGER.debug("StreamDBClient.getHourRange returns <{}> records", result.size());
         return result;
     }
 
+    /**
+     * Passes the rows between the hours to the consumer as they are read from the slice store. The rows are not
+     * requested again after a lost connection if some of them were already consumed.
+     *
+     * @param excludedStartHour exclusive start hour
+     * @param includedEndHour   inclusive end hour
+     * @param consumer          receives each row between the hours
+     * @return count of rows consumed
+     */
+    long streamHourRange(
+            long excludedStartHour,
+            long includedEndHour,
+            Consumer<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> consumer
+    ) {
+        LOGGER
+                .debug(
+                        "StreamDBClient.streamHourRange called excludedStartHour <{}> includedEndHour <{}>",
+                        excludedStartHour, includedEndHour
+                );
+        final long[] consumed = new long[1];
+        final long rows;
+        final Timer.Context phaseTimerCtx = plannerMetrics.time(PlannerPhase.HOUR_RANGE);
+        try {
+            rows = reconnectOnFailure(() -> {
+                if (consumed[0] != 0) {
+                    // the rows already consumed would be passed again
+                    throw new IllegalStateException(
+                            "StreamDBClient lost the database connection after streaming <" + consumed[0] + "> rows"
+                    );
+                }
+                sliceStore.hourRange(excludedStartHour, includedEndHour, includeBeforeEpoch, record -> {
+                    consumed[0]++;
+                    consumer.accept(record);
+                });
+                return consumed[0];
+            });
+        }
+        finally {
+            phaseTimerCtx.stop();
+        }
+        LOGGER.debug("StreamDBClient.streamHourRange consumed <{}> records", rows);
+        return rows;
+    }
+
     ConditionWalker walker() {
         return this.walker;
     }
@@ -329,15 +546,8 @@ public final class StreamDBClient implements AutoCloseable {
 
     @Override
     public void close() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                LOGGER.debug("Closed JDBC connection");
-            }
-        }
-        catch (final SQLException e) {
-            LOGGER.warn("Error closing JDBC connection: <{}>", e.getMessage());
-        }
+        parallelDayPuller.close();
+        connectionProvider.close();
     }
 
     @Override
@@ -347,17 +557,17 @@ public final class StreamDBClient implements AutoCloseable {
         }
         final StreamDBClient that = (StreamDBClient) o;
         return includeBeforeEpoch == that.includeBeforeEpoch
-                && bloomEnabled == that.bloomEnabled && isDebugEnabled == that.isDebugEnabled && Objects
-                        .equals(LOGGER, that.LOGGER)
-                && Objects.equals(metricRegistry, that.metricRegistry) && Objects.equals(connection, that.connection) && Objects.equals(ctx, that.ctx) && Objects.equals(journaldbCondition, that.journaldbCondition) && Objects.equals(walker, that.walker) && Objects.equals(filterTable, that.filterTable) && Objects.equals(sliceTable, that.sliceTable) && isLogSQL == that.isLogSQL;
+                && bloomEnabled == that.bloomEnabled && isDebugEnabled == that.isDebugEnabled
+                && Objects.equals(LOGGER, that.LOGGER) && Objects.equals(metricRegistry, that.metricRegistry) && Objects.equals(connectionProvider, that.connectionProvider) && Objects.equals(ctx, that.ctx) && Objects.equals(journaldbCondition, that.journaldbCondition) && Objects.equals(walker, that.walker) && Objects.equals(sessionTables, that.sessionTables) && Objects.equals(sliceStore, that.sliceStore) && isLogSQL == that.isLogSQL && Objects.equals(parallelDayPuller, that.parallelDayPuller) && Objects.equals(pulledDays, that.pulledDays) && Objects.equals(plannerMetrics, that.plannerMetrics) && Objects.equals(corruptedArchiveIds, that.corruptedArchiveIds);
     }
 
     @Override
     public int hashCode() {
         return Objects
                 .hash(
-                        LOGGER, metricRegistry, connection, ctx, includeBeforeEpoch, bloomEnabled, journaldbCondition,
-                        walker, isDebugEnabled, filterTable, sliceTable, isLogSQL
+                        LOGGER, metricRegistry, connectionProvider, ctx, includeBeforeEpoch, bloomEnabled,
+                        journaldbCondition, walker, isDebugEnabled, sessionTables, sliceStore, isLogSQL,
+                        parallelDayPuller, pulledDays, plannerMetrics, corruptedArchiveIds
                 );
     }
 }
@@ -0,0 +1,131 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes repeating strings, such as bucket, directory, stream and host names, as int codes. Codes are never removed,
+ * as the count of distinct values is small compared to the count of rows using them.
+ */
+final class StringDictionary {
+
+    /** code of a null string */
+    static final int NULL_CODE = -1;
+
+    private final Map<String, Integer> codes;
+    private final List<String> values;
+    private long estimatedBytes;
+
+    StringDictionary() {
+        this.codes = new HashMap<>();
+        this.values = new ArrayList<>();
+        this.estimatedBytes = 0L;
+    }
+
+    /**
+     * @param value string to encode, may be null
+     * @return code of the string
+     */
+    int encode(final String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+            // entry, boxed code and the string itself
+            estimatedBytes += 64L + StringDictionary.estimateBytes(value);
+        }
+        return code;
+    }
+
+    /**
+     * @param code code given by {@link #encode(String)}
+     * @return the encoded string, null for {@link #NULL_CODE}
+     */
+    String decode(final int code) {
+        if (code == NULL_CODE) {
+            return null;
+        }
+        return values.get(code);
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    long estimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Estimates the heap size of a string: object header, fields and the char array.
+     *
+     * @param value string to estimate
+     * @return estimated size in bytes
+     */
+    static long estimateBytes(final String value) {
+        if (value == null) {
+            return 0L;
+        }
+        return 40L + 2L * value.length();
+    }
+
+    @Override
+    public String toString() {
+        return "StringDictionary[values="
+                .concat(String.valueOf(values.size()))
+                .concat(", bytes=")
+                .concat(String.valueOf(estimatedBytes))
+                .concat("]");
+    }
+}
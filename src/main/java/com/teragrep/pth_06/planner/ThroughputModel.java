@@ -0,0 +1,245 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import com.teragrep.pth_06.config.BatchConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Estimates the time the executors take to process archive objects. Starts from the configured compression ratio and
+ * processing speed, and follows the observed throughput of the executors with an exponentially weighted moving average,
+ * both over all streams and per stream. Objects whose uncompressed size is known are estimated by it, and teach the
+ * compression ratio of their stream to the estimates of the objects whose uncompressed size is not known. Observations
+ * arrive from the listener thread while the planner estimates, so the methods are synchronized.
+ */
+public final class ThroughputModel {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000D;
+
+    /** weight of a new observation in the moving averages */
+    private final double alpha;
+
+    /** ratio of uncompressed to compressed size */
+    private final float compressionRatio;
+
+    /** nanoseconds per compressed byte over all streams */
+    private double nanosPerByte;
+
+    /** nanoseconds per compressed byte of the observed streams */
+    private final Map<String, Double> nanosPerByteOfStreams;
+
+    /** sums of compressed and uncompressed sizes of the objects of each stream with a known uncompressed size */
+    private final Map<String, long[]> sizesOfStreams;
+
+    private long observations;
+
+    public ThroughputModel(final BatchConfig batchConfig) {
+        this(batchConfig.fileCompressionRatio, batchConfig.processingSpeed, batchConfig.costModelAlpha);
+    }
+
+    /**
+     * @param compressionRatio initial ratio of uncompressed to compressed size
+     * @param processingSpeed  initial processing speed in uncompressed megabytes per second
+     * @param alpha            weight of a new observation, between 0 and 1
+     * @throws IllegalArgumentException if alpha is not between 0 and 1
+     */
+    public ThroughputModel(final float compressionRatio, final float processingSpeed, final double alpha) {
+        if (alpha <= 0D || alpha > 1D) {
+            throw new IllegalArgumentException("Cost model alpha must be within (0, 1], was: " + alpha);
+        }
+        this.alpha = alpha;
+        this.compressionRatio = compressionRatio;
+        this.nanosPerByte = compressionRatio / 1024D / 1024D / processingSpeed * NANOS_PER_SECOND;
+        this.nanosPerByteOfStreams = new HashMap<>();
+        this.sizesOfStreams = new HashMap<>();
+        this.observations = 0L;
+    }
+
+    /**
+     * Follow the throughput of a task. The task time is attributed to its streams by their share of the bytes.
+     *
+     * @param bytesOfStreams compressed bytes of each stream processed by the task
+     * @param nanos          time the task took to process them
+     */
+    public synchronized void observe(final Map<String, Long> bytesOfStreams, final long nanos) {
+        long totalBytes = 0L;
+        for (final long bytes : bytesOfStreams.values()) {
+            totalBytes += bytes;
+        }
+
+        if (totalBytes > 0L && nanos > 0L) {
+            final double observed = (double) nanos / totalBytes;
+            for (final Map.Entry<String, Long> stream : bytesOfStreams.entrySet()) {
+                final double share = (double) stream.getValue() / totalBytes;
+                final double current = nanosPerByteOfStreams.getOrDefault(stream.getKey(), nanosPerByte);
+                nanosPerByteOfStreams.put(stream.getKey(), current + alpha * share * (observed - current));
+            }
+            nanosPerByte = nanosPerByte + alpha * (observed - nanosPerByte);
+            observations++;
+        }
+    }
+
+    /**
+     * @return estimated seconds to process a compressed byte of any stream
+     */
+    public synchronized double secondsPerByte() {
+        return nanosPerByte / NANOS_PER_SECOND;
+    }
+
+    /**
+     * @param stream          stream of the object, null if not known
+     * @param compressedBytes compressed size of the object
+     * @return estimated seconds to process the object
+     */
+    public synchronized double estimateSeconds(final String stream, final long compressedBytes) {
+        final double streamNanosPerByte;
+        if (stream == null) {
+            streamNanosPerByte = nanosPerByte;
+        }
+        else {
+            streamNanosPerByte = nanosPerByteOfStreams.getOrDefault(stream, nanosPerByte);
+        }
+        return streamNanosPerByte * compressedBytes / NANOS_PER_SECOND;
+    }
+
+    /**
+     * Adds an object with a known uncompressed size to the compression ratio of its stream. To be called once for each
+     * planned object.
+     *
+     * @param stream            stream of the object
+     * @param compressedBytes   compressed size of the object
+     * @param uncompressedBytes uncompressed size of the object, negative if not known
+     */
+    public synchronized void learnRatio(final String stream, final long compressedBytes, final long uncompressedBytes) {
+        if (uncompressedBytes >= 0L && compressedBytes > 0L) {
+            final long[] sizes = sizesOfStreams.computeIfAbsent(stream, s -> new long[2]);
+            sizes[0] += compressedBytes;
+            sizes[1] += uncompressedBytes;
+        }
+    }
+
+    /**
+     * Estimates an archive object by its uncompressed size when known, and otherwise by its compressed size and the
+     * compression ratio of its stream. The compressed size alone does not tell the decompression work, as the ratio
+     * varies a lot between streams.
+     *
+     * @param stream            stream of the object
+     * @param compressedBytes   compressed size of the object
+     * @param uncompressedBytes uncompressed size of the object, negative if not known
+     * @return estimated seconds to process the object
+     */
+    public synchronized double estimateSeconds(
+            final String stream,
+            final long compressedBytes,
+            final long uncompressedBytes
+    ) {
+        final double ratio = compressionRatio(stream);
+        final double nanosPerUncompressedByte;
+        if (nanosPerByteOfStreams.containsKey(stream)) {
+            // observed per compressed byte of this stream
+            nanosPerUncompressedByte = nanosPerByteOfStreams.get(stream) / ratio;
+        }
+        else {
+            // observed per compressed byte of all streams at the configured ratio
+            nanosPerUncompressedByte = nanosPerByte / compressionRatio;
+        }
+
+        final double bytes;
+        if (uncompressedBytes >= 0L) {
+            bytes = uncompressedBytes;
+        }
+        else {
+            bytes = ratio * compressedBytes;
+        }
+        return nanosPerUncompressedByte * bytes / NANOS_PER_SECOND;
+    }
+
+    /**
+     * @param stream stream of the objects
+     * @return ratio of uncompressed to compressed size of the stream, or the configured ratio if not known
+     */
+    public synchronized double compressionRatio(final String stream) {
+        final long[] sizes = sizesOfStreams.get(stream);
+        final double ratio;
+        if (sizes == null || sizes[0] == 0L || sizes[1] == 0L) {
+            ratio = compressionRatio;
+        }
+        else {
+            ratio = (double) sizes[1] / sizes[0];
+        }
+        return ratio;
+    }
+
+    /**
+     * @param uncompressedBytes uncompressed size of the data
+     * @return estimated seconds to process the data
+     */
+    public synchronized double estimateUncompressedSeconds(final long uncompressedBytes) {
+        return nanosPerByte / compressionRatio * uncompressedBytes / NANOS_PER_SECOND;
+    }
+
+    /**
+     * @return count of tasks observed
+     */
+    public synchronized long observations() {
+        return observations;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ThroughputModel[nanosPerByte="
+                .concat(String.valueOf(nanosPerByte))
+                .concat(", streams=")
+                .concat(String.valueOf(nanosPerByteOfStreams.size()))
+                .concat(", ratios=")
+                .concat(String.valueOf(sizesOfStreams.size()))
+                .concat(", observations=")
+                .concat(String.valueOf(observations))
+                .concat("]");
+    }
+}
@@ -46,43 +46,50 @@
 package com.teragrep.pth_06.planner;
 
 /**
- * Contains the file size and offset of a given event. Used to estimate the weight of that event.
+ * Contains the file size, uncompressed size, object count and offset of a given event. Used to estimate the weight of
+ * that event.
  */
 final class WeightedOffset {
 
     private final long offset;
     private final long fileSize;
-
-    final boolean isStub;
-
-    /**
-     * Creates a stub object. Used when the offset could not be found.
-     */
-    WeightedOffset() {
-        this(0, 0, true);
-    }
+    private final long uncompressedSize;
+    private final long objectCount;
 
     /**
-     * Creates a non-stub WeightedOffset object.
+     * Creates a WeightedOffset object.
      * 
      * @param offset   Offset of event
      * @param fileSize File size of event
      */
     WeightedOffset(long offset, long fileSize) {
-        this(offset, fileSize, false);
+        this(offset, fileSize, 0, 1);
     }
 
     /**
-     * Creates a WeightedOffset object. Not to be used outside of this class.
-     * 
-     * @param offset   Offset of the event
-     * @param fileSize File size of the event
-     * @param isStub   If this object is a stub object
+     * Creates a WeightedOffset object for an event consisting of several objects.
+     *
+     * @param offset      Offset of event
+     * @param fileSize    File size of event
+     * @param objectCount Count of objects in the event
      */
-    private WeightedOffset(long offset, long fileSize, boolean isStub) {
+    WeightedOffset(long offset, long fileSize, long objectCount) {
+        this(offset, fileSize, 0, objectCount);
+    }
+
+    /**
+     * Creates a WeightedOffset object for an event consisting of several objects with a known uncompressed size.
+     *
+     * @param offset           Offset of event
+     * @param fileSize         File size of event
+     * @param uncompressedSize Uncompressed size of the objects of the event which have one
+     * @param objectCount      Count of objects in the event
+     */
+    WeightedOffset(long offset, long fileSize, long uncompressedSize, long objectCount) {
         this.offset = offset;
         this.fileSize = fileSize;
-        this.isStub = isStub;
+        this.uncompressedSize = uncompressedSize;
+        this.objectCount = objectCount;
     }
 
     /**
@@ -91,39 +98,54 @@ final class WeightedOffset {
      * @return Estimated weight
      * @param compressionRatio file compression ratio
      * @param processingSpeed  processing speed
-     * @throws IllegalStateException if the object is a stub
      */
     float estimateWeight(final float compressionRatio, final float processingSpeed) {
-        if (isStub) {
-            throw new IllegalStateException("WeightedOffset is stub");
-        }
-
         return (fileSize * compressionRatio) / 1024 / 1024 / processingSpeed;
     }
 
     /**
-     * Returns the offset if the object is not a stub object.
+     * Estimates the weight of the event based on file size and the processing time of a compressed byte.
+     *
+     * @param secondsPerByte seconds to process a compressed byte
+     * @return Estimated weight
+     */
+    float estimateWeight(final double secondsPerByte) {
+        return (float) (fileSize * secondsPerByte);
+    }
+
+    /**
+     * Returns the offset.
      * 
      * @return offset
-     * @throws IllegalStateException if the object is a stub
      */
     long offset() {
-        if (isStub) {
-            throw new IllegalStateException("WeightedOffset is stub");
-        }
         return offset;
     }
 
     /**
-     * Returns the file size if the object is not a stub object.
+     * Returns the file size.
      * 
      * @return file size
-     * @throws IllegalStateException if the object is a stub
      */
     long fileSize() {
-        if (isStub) {
-            throw new IllegalStateException("WeightedOffset is stub");
-        }
         return fileSize;
     }
+
+    /**
+     * Returns the uncompressed size. Objects without a known uncompressed size are not included.
+     *
+     * @return uncompressed size
+     */
+    long uncompressedSize() {
+        return uncompressedSize;
+    }
+
+    /**
+     * Returns the count of objects.
+     *
+     * @return object count
+     */
+    long objectCount() {
+        return objectCount;
+    }
 }
@@ -67,10 +67,18 @@ public class DatasourceOffset extends Offset implements Serializable {
         this.serializedDatasourceOffset = new SerializedDatasourceOffset(archiveOffset, kafkaOffset);
     }
 
+    public DatasourceOffset(LongOffset archiveOffset, Long archiveLogfileId, KafkaOffset kafkaOffset) {
+        this.serializedDatasourceOffset = new SerializedDatasourceOffset(archiveOffset, archiveLogfileId, kafkaOffset);
+    }
+
     public DatasourceOffset(LongOffset archiveOffset) {
         this.serializedDatasourceOffset = new SerializedDatasourceOffset(archiveOffset);
     }
 
+    public DatasourceOffset(LongOffset archiveOffset, Long archiveLogfileId) {
+        this.serializedDatasourceOffset = new SerializedDatasourceOffset(archiveOffset, archiveLogfileId);
+    }
+
     public DatasourceOffset(KafkaOffset kafkaOffset) {
         this.serializedDatasourceOffset = new SerializedDatasourceOffset(kafkaOffset);
     }
@@ -84,6 +92,13 @@ public class DatasourceOffset extends Offset implements Serializable {
         return serializedDatasourceOffset.archiveOffset;
     }
 
+    /**
+     * @return last logfile id consumed within the hour of the archive offset, null if the whole hour was consumed
+     */
+    public Long getArchiveLogfileId() {
+        return serializedDatasourceOffset.archiveLogfileId;
+    }
+
     public KafkaOffset getKafkaOffset() {
         KafkaOffset kafkaOffset = serializedDatasourceOffset.kafkaOffset;
 
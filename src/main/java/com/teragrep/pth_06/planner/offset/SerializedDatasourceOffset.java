@@ -50,7 +50,9 @@ import org.apache.spark.sql.execution.streaming.LongOffset;
 import java.io.Serializable;
 
 /**
- * <h1>Serialized Datasource Offset</h1> Class for representing a serialized offset of data source.
+ * <h1>Serialized Datasource Offset</h1> Class for representing a serialized offset of data source. The archive offset
+ * is the logtime hour, optionally followed by the last logfile id consumed within that hour when a batch ends in the
+ * middle of the hour. The id is left out of the json of whole hour offsets, keeping it the same as before.
  *
  * @see LongOffset
  * @see KafkaOffset
@@ -62,26 +64,34 @@ public class SerializedDatasourceOffset implements Serializable {
     private final Long version = 1L;
 
     public final LongOffset archiveOffset;
+    public final Long archiveLogfileId;
     public final KafkaOffset kafkaOffset;
 
     public SerializedDatasourceOffset(LongOffset archiveOffset, KafkaOffset kafkaOffset) {
+        this(archiveOffset, null, kafkaOffset);
+    }
+
+    public SerializedDatasourceOffset(LongOffset archiveOffset, Long archiveLogfileId, KafkaOffset kafkaOffset) {
         this.archiveOffset = archiveOffset;
+        this.archiveLogfileId = archiveLogfileId;
         this.kafkaOffset = kafkaOffset;
     }
 
     public SerializedDatasourceOffset(LongOffset archiveOffset) {
-        this.kafkaOffset = null;
-        this.archiveOffset = archiveOffset;
+        this(archiveOffset, null, null);
+    }
+
+    public SerializedDatasourceOffset(LongOffset archiveOffset, Long archiveLogfileId) {
+        this(archiveOffset, archiveLogfileId, null);
     }
 
     public SerializedDatasourceOffset(KafkaOffset kafkaOffset) {
-        this.kafkaOffset = kafkaOffset;
-        this.archiveOffset = null;
+        this(null, null, kafkaOffset);
     }
 
     @Override
     public String toString() {
         return "SerializedDatasourceOffset{" + "version=" + version + ", archiveOffset=" + archiveOffset
-                + ", kafkaOffset=" + kafkaOffset + '}';
+                + ", archiveLogfileId=" + archiveLogfileId + ", kafkaOffset=" + kafkaOffset + '}';
     }
 }
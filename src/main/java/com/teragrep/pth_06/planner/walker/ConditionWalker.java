@@ -46,6 +46,7 @@
 package com.teragrep.pth_06.planner.walker;
 
 import com.teragrep.pth_06.config.ConditionConfig;
+import com.teragrep.pth_06.metrics.planner.PlannerMetrics;
 import com.teragrep.pth_06.planner.walker.conditions.ElementCondition;
 import com.teragrep.pth_06.planner.walker.conditions.ValidElement;
 import com.teragrep.pth_06.planner.walker.conditions.WithoutFiltersCondition;
@@ -76,6 +77,7 @@ public final class ConditionWalker extends XmlWalker<Condition> {
 
     private final boolean bloomEnabled;
     private final FilterlessSearch filterlessSearch;
+    private final PlannerMetrics plannerMetrics;
     // Default query is full
     private boolean streamQuery = false;
     private final DSLContext ctx;
@@ -94,10 +96,20 @@ public final class ConditionWalker extends XmlWalker<Condition> {
     }
 
     public ConditionWalker(DSLContext ctx, boolean bloomEnabled, FilterlessSearch filterlessSearch) {
+        this(ctx, bloomEnabled, filterlessSearch, new PlannerMetrics());
+    }
+
+    public ConditionWalker(
+            DSLContext ctx,
+            boolean bloomEnabled,
+            FilterlessSearch filterlessSearch,
+            PlannerMetrics plannerMetrics
+    ) {
         super();
         this.ctx = ctx;
         this.bloomEnabled = bloomEnabled;
         this.filterlessSearch = filterlessSearch;
+        this.plannerMetrics = plannerMetrics;
         this.combinedMatchSet = new HashSet<>();
     }
 
@@ -176,7 +188,15 @@ public final class ConditionWalker extends XmlWalker<Condition> {
 
     Condition emitElem(final Element current) {
         final ValidElement element = new ValidElement(current);
-        final ConditionConfig conditionConfig = new ConditionConfig(ctx, streamQuery, bloomEnabled, bloomTermId);
+        final ConditionConfig conditionConfig = new ConditionConfig(
+                ctx,
+                streamQuery,
+                bloomEnabled,
+                false,
+                "",
+                bloomTermId,
+                plannerMetrics
+        );
         final ElementCondition elementCondition = new ElementCondition(element, conditionConfig);
         if (elementCondition.isBloomSearchCondition() && !filterlessSearch.isStub()) {
             throw new RuntimeException("Search terms are not allowed when <bloom.withoutFilters> option is enabled");
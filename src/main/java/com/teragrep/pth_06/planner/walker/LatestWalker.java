@@ -0,0 +1,131 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner.walker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Element;
+
+/**
+ * <h1>Latest Walker</h1> Walker for latest epoch. Elements other than latest do not bound the query, and are emitted as
+ * {@link #unboundedLatestEpoch}.
+ */
+public final class LatestWalker extends XmlWalker<Long> {
+
+    private final Logger LOGGER = LoggerFactory.getLogger(LatestWalker.class);
+
+    public static final long unboundedLatestEpoch = Long.MAX_VALUE;
+
+    public LatestWalker() {
+        super();
+    }
+
+    @Override
+    Long emitElem(Element current) {
+        final String tag = current.getTagName();
+        final long latestEpoch;
+
+        if ("latest".equalsIgnoreCase(tag) || "index_latest".equalsIgnoreCase(tag)) {
+            latestEpoch = Long.parseLong(current.getAttribute("value"));
+        }
+        else {
+            latestEpoch = unboundedLatestEpoch;
+        }
+
+        return latestEpoch;
+    }
+
+    @Override
+    public Long emitLogicalOperation(String op, Object l, Object r) throws IllegalStateException {
+        final Long rv;
+        final Long left = (Long) l;
+        final Long right = (Long) r;
+
+        if (op == null) {
+            throw new IllegalStateException("Parse error, unbalanced elements. " + left);
+        }
+
+        if ("AND".equalsIgnoreCase(op)) {
+            // both bounds apply
+            rv = Math.min(left, right);
+        }
+        else if ("OR".equalsIgnoreCase(op)) {
+            // either side may match up to its own bound
+            rv = Math.max(left, right);
+        }
+        else {
+            throw new IllegalStateException(
+                    "Parse error, unsorted logical operation. op: " + op + " expression: " + left
+            );
+        }
+
+        return rv;
+    }
+
+    @Override
+    public Long emitUnaryOperation(String op, Element current) throws IllegalStateException {
+
+        Long rv = emitElem(current);
+        LOGGER.info("LatestWalker.emitUnaryOperation incoming op: " + op + " element: " + current);
+
+        if (op == null) {
+            throw new IllegalStateException("Parse error op was null");
+        }
+        if (rv != null) {
+            if ("NOT".equalsIgnoreCase(op)) {
+                // Unary operations ignored
+                rv = null;
+            }
+            else {
+                throw new IllegalStateException(
+                        "Parse error, unsupported logical operation: " + op + " expression: " + rv
+                );
+            }
+        }
+
+        return rv;
+    }
+}
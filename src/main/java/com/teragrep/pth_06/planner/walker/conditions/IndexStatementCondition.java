@@ -45,7 +45,9 @@
  */
 package com.teragrep.pth_06.planner.walker.conditions;
 
+import com.codahale.metrics.Timer;
 import com.teragrep.pth_06.config.ConditionConfig;
+import com.teragrep.pth_06.metrics.planner.PlannerPhase;
 import com.teragrep.pth_06.planner.bloomfilter.*;
 import org.jooq.Condition;
 import org.jooq.Table;
@@ -95,7 +97,13 @@ public final class IndexStatementCondition implements QueryCondition, BloomQuery
                         config.bloomTermId(),
                         value
                 );
-                categoryTable.create();
+                final Timer.Context phaseTimerCtx = config.plannerMetrics().time(PlannerPhase.BLOOM_CATEGORY_TABLE);
+                try {
+                    categoryTable.create();
+                }
+                finally {
+                    phaseTimerCtx.stop();
+                }
                 // create table condition for table
                 final Condition nullFilterCondition = table.field("filter").isNull();
                 final QueryCondition tableCondition = new CategoryTableCondition(table, config.bloomTermId());
@@ -120,7 +128,13 @@ public final class IndexStatementCondition implements QueryCondition, BloomQuery
                 config.context(),
                 tableFilteringCondition
         );
-        return new HashSet<>(conditionMatchingTables.tables());
+        final Timer.Context phaseTimerCtx = config.plannerMetrics().time(PlannerPhase.BLOOM_TABLE_DISCOVERY);
+        try {
+            return new HashSet<>(conditionMatchingTables.tables());
+        }
+        finally {
+            phaseTimerCtx.stop();
+        }
     }
 
     @Override
@@ -46,6 +46,8 @@
 package com.teragrep.pth_06.planner.walker.conditions;
 
 import org.jooq.Condition;
+import org.jooq.impl.DSL;
+import org.jooq.types.ULong;
 
 import java.sql.Date;
 import java.time.Instant;
@@ -68,11 +70,20 @@ public final class LatestCondition implements QueryCondition {
         final java.sql.Date timeQualifier = new Date(instant.toEpochMilli());
         Condition condition;
         condition = JOURNALDB.LOGFILE.LOGDATE.lessOrEqual(timeQualifier);
-        condition = condition
-                .and(
+        // epoch_hour is unsigned and indexed, prune with it and extract logtime from the path only when it is null
+        final Condition epochHourCondition;
+        if (epochSeconds < 0) {
+            epochHourCondition = DSL.falseCondition();
+        }
+        else {
+            epochHourCondition = JOURNALDB.LOGFILE.EPOCH_HOUR.lessOrEqual(ULong.valueOf(epochSeconds));
+        }
+        final Condition pathCondition = DSL
+                .condition(
                         "UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H'))"
                                 + " <= " + instant.getEpochSecond()
                 );
+        condition = condition.and(epochHourCondition.or(JOURNALDB.LOGFILE.EPOCH_HOUR.isNull().and(pathCondition)));
         // raw SQL used here since following not supported for mariadb:
         // queryCondition = queryCondition.and(toTimestamp(
         // regexpReplaceAll(JOURNALDB.LOGFILE.PATH, "((^.*\\/.*-)|(\\.log\\.gz.*))", ""),
@@ -49,9 +49,7 @@ import com.teragrep.pth_06.ArchiveS3ObjectMetadata;
 import com.teragrep.pth_06.planner.ArchiveQuery;
 import com.teragrep.pth_06.planner.offset.DatasourceOffset;
 import org.apache.spark.sql.connector.read.streaming.Offset;
-import org.jooq.Record;
 import org.jooq.Record10;
-import org.jooq.Result;
 import org.jooq.types.ULong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -73,33 +71,40 @@ public final class ArchiveRangeProcessor implements RangeProcessor {
     public List<BatchUnit> processRange(Offset start, Offset end) {
         LOGGER.debug("processRange(): args: start: " + start + " end: " + end);
 
-        List<BatchUnit> batchUnits = new ArrayList<>();
+        final List<BatchUnit> batchUnits = new ArrayList<>();
 
-        Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> result = aq
-                .processBetweenUnixEpochHours(
+        // each logfile becomes a batch unit as it is read, the range is never held as a result
+        aq
+                .processBetweenOffsets(
                         ((DatasourceOffset) start).getArchiveOffset().offset(),
-                        ((DatasourceOffset) end).getArchiveOffset().offset()
+                        ((DatasourceOffset) start).getArchiveLogfileId(),
+                        ((DatasourceOffset) end).getArchiveOffset().offset(),
+                        ((DatasourceOffset) end).getArchiveLogfileId(), r -> batchUnits.add(batchUnit(r))
                 );
+        return batchUnits;
+    }
 
-        for (Record r : result) {
-            // uncompressed size can be null
-            long uncompressedSize = -1L;
-            if (r.get(9) != null) {
-                uncompressedSize = r.get(9, Long.class);
-            }
-
-            batchUnits
-                    .add(new BatchUnit(new ArchiveS3ObjectMetadata(r.get(0, String.class), // id
-                            r.get(5, String.class), // bucket
-                            r.get(6, String.class), // path
-                            r.get(1, String.class), // directory
-                            r.get(2, String.class), // stream
-                            r.get(3, String.class), // host
-                            r.get(7, Long.class), // logtime
-                            r.get(8, Long.class), // compressedSize
-                            uncompressedSize // uncompressedSize
-                    )));
+    private BatchUnit batchUnit(
+            final Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong> r
+    ) {
+        // uncompressed size can be null
+        long uncompressedSize = -1L;
+        if (r.value10() != null) {
+            uncompressedSize = r.value10().longValue();
         }
-        return batchUnits;
+
+        return new BatchUnit(
+                new ArchiveS3ObjectMetadata(
+                        r.value1().toString(), // id
+                        r.value6(), // bucket
+                        r.value7(), // path
+                        r.value2(), // directory
+                        r.value3(), // stream
+                        r.value4(), // host
+                        r.value8(), // logtime
+                        r.value9().longValue(), // compressedSize
+                        uncompressedSize // uncompressedSize
+                )
+        );
     }
 }
@@ -45,16 +45,22 @@
  */
 package com.teragrep.pth_06.scheduler;
 
+import com.codahale.metrics.Timer;
 import com.teragrep.pth_06.config.Config;
+import com.teragrep.pth_06.metrics.planner.PlannerMetrics;
+import com.teragrep.pth_06.metrics.planner.PlannerPhase;
 import com.teragrep.pth_06.planner.ArchiveQuery;
 import com.teragrep.pth_06.planner.KafkaQuery;
+import com.teragrep.pth_06.planner.ThroughputModel;
 import org.apache.spark.sql.connector.read.streaming.Offset;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.PriorityQueue;
+import java.util.function.IntSupplier;
 
 /**
  * <h1>Batch</h1> Contains the necessary operations to form a Spark batch. It consists of Archive and/or Kafka data.
@@ -69,12 +75,47 @@ public final class BatchCalculator {
     private final Config config;
     private final ArchiveQuery archiveQuery;
     private final KafkaQuery kafkaQuery;
+    private final PlannerMetrics plannerMetrics;
+    private final ThroughputModel throughputModel;
+    private final KafkaRecordSizes kafkaRecordSizes;
+    private final IntSupplier availableCores;
+    // end offset of the latest range planned, its objects are already in the compression ratios
+    private Offset learnedEnd;
 
     public BatchCalculator(Config config, ArchiveQuery aq, KafkaQuery kq) {
+        this(config, aq, kq, new PlannerMetrics());
+    }
+
+    public BatchCalculator(Config config, ArchiveQuery aq, KafkaQuery kq, PlannerMetrics plannerMetrics) {
+        this(
+                config,
+                aq,
+                kq,
+                plannerMetrics,
+                new ThroughputModel(config.batchConfig),
+                new KafkaRecordSizes(config.kafkaConfig.defaultRecordSize),
+                () -> config.batchConfig.numPartitions
+        );
+    }
+
+    public BatchCalculator(
+            Config config,
+            ArchiveQuery aq,
+            KafkaQuery kq,
+            PlannerMetrics plannerMetrics,
+            ThroughputModel throughputModel,
+            KafkaRecordSizes kafkaRecordSizes,
+            IntSupplier availableCores
+    ) {
         this.config = config;
 
         this.archiveQuery = aq;
         this.kafkaQuery = kq;
+        this.plannerMetrics = plannerMetrics;
+        this.throughputModel = throughputModel;
+        this.kafkaRecordSizes = kafkaRecordSizes;
+        this.availableCores = availableCores;
+        this.learnedEnd = null;
     }
 
     public List<List<BatchUnit>> processRange(Offset start, Offset end) {
@@ -87,29 +128,69 @@ public final class BatchCalculator {
         }
 
         if (config.isKafkaEnabled) {
-            slice.addAll(new KafkaRangeProcessor(this.kafkaQuery).processRange(start, end));
+            slice
+                    .addAll(
+                            new KafkaRangeProcessor(
+                                    this.kafkaQuery,
+                                    this.kafkaRecordSizes,
+                                    config.kafkaConfig.maxRecordsPerPartition
+                            ).processRange(start, end)
+                    );
         }
 
-        return buildBatch(slice);
+        // a range planned again is not learned twice
+        if (!end.equals(learnedEnd)) {
+            learnRatios(slice);
+            learnedEnd = end;
+        }
 
+        final Timer.Context phaseTimerCtx = plannerMetrics.time(PlannerPhase.SCHEDULING);
+        try {
+            return buildBatch(slice);
+        }
+        finally {
+            phaseTimerCtx.stop();
+        }
+
+    }
+
+    private void learnRatios(final List<BatchUnit> sliceCollection) {
+        for (final BatchUnit batchUnit : sliceCollection) {
+            if (batchUnit.type.equals(BatchUnit.Type.ARCHIVE)) {
+                throughputModel
+                        .learnRatio(
+                                batchUnit.archiveS3ObjectMetadata.stream,
+                                batchUnit.archiveS3ObjectMetadata.compressedSize,
+                                batchUnit.archiveS3ObjectMetadata.uncompressedSize
+                        );
+            }
+        }
     }
 
     private List<List<BatchUnit>> buildBatch(List<BatchUnit> sliceCollection) {
 
+        // longest processing time first, by the estimate of the throughput model
+        final List<EstimatedUnit> estimatedUnits = new ArrayList<>(sliceCollection.size());
+        double estimatedSeconds = 0D;
+        for (final BatchUnit batchUnit : sliceCollection) {
+            final EstimatedUnit estimatedUnit = new EstimatedUnit(batchUnit, estimateSeconds(batchUnit));
+            estimatedUnits.add(estimatedUnit);
+            estimatedSeconds += estimatedUnit.seconds;
+        }
+        estimatedUnits.sort(Comparator.comparingDouble((EstimatedUnit unit) -> unit.seconds).reversed());
+
+        final int partitions = new PartitionCount(config.batchConfig, availableCores.getAsInt())
+                .count(estimatedSeconds, estimatedUnits.size());
         final PriorityQueue<BatchTaskQueue> runQueues = new PriorityQueue<>();
 
-        for (int i = 0; i < config.batchConfig.numPartitions; i++) {
+        for (int i = 0; i < partitions; i++) {
             runQueues.add(new BatchTaskQueue());
         }
 
-        PriorityQueue<BatchUnit> batchUnitQueue = new PriorityQueue<>(sliceCollection);
-
-        while (!batchUnitQueue.isEmpty()) {
-            BatchUnit longestObject = batchUnitQueue.poll();
-
+        for (final EstimatedUnit longestObject : estimatedUnits) {
             if (!runQueues.isEmpty()) {
                 BatchTaskQueue shortestQueue = runQueues.poll();
-                shortestQueue.add(longestObject);
+                shortestQueue.add(longestObject.batchUnit, longestObject.seconds);
                 runQueues.add(shortestQueue);
             }
             else {
@@ -118,12 +199,43 @@ public final class BatchCalculator {
         }
 
         final List<List<BatchUnit>> taskSliceQueues = new ArrayList<>(runQueues.size());
+        double makespan = 0D;
 
         for (BatchTaskQueue btq : runQueues) {
             taskSliceQueues.add(btq.getQueue());
+            makespan = Math.max(makespan, btq.getQueueTime());
         }
+        plannerMetrics.makespan(makespan);
 
-        LOGGER.debug("getBatch <{}> ", taskSliceQueues);
+        LOGGER.debug("getBatch <{}> with {}", taskSliceQueues, throughputModel);
         return taskSliceQueues;
     }
+
+    private double estimateSeconds(final BatchUnit batchUnit) {
+        final double seconds;
+        if (batchUnit.type.equals(BatchUnit.Type.ARCHIVE)) {
+            seconds = throughputModel
+                    .estimateSeconds(
+                            batchUnit.archiveS3ObjectMetadata.stream,
+                            batchUnit.archiveS3ObjectMetadata.compressedSize,
+                            batchUnit.archiveS3ObjectMetadata.uncompressedSize
+                    );
+        }
+        else {
+            // kafka records are not compressed like the archive objects
+            seconds = throughputModel.estimateUncompressedSeconds(batchUnit.getSize());
+        }
+        return seconds;
+    }
+
+    private static final class EstimatedUnit {
+
+        private final BatchUnit batchUnit;
+        private final double seconds;
+
+        private EstimatedUnit(final BatchUnit batchUnit, final double seconds) {
+            this.batchUnit = batchUnit;
+            this.seconds = seconds;
+        }
+    }
 }
@@ -49,7 +49,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * <h1>Batch Task Queue</h1> Class for creating a queue of batch tasks. Uses List with BatchUnits.
+ * <h1>Batch Task Queue</h1> Class for creating a queue of batch tasks. Uses List with BatchUnits. The time each unit
+ * takes to process is estimated by the {@link BatchCalculator}.
  *
  * @see BatchUnit
  * @since 23/02/2022
@@ -57,10 +58,6 @@ import java.util.List;
  */
 public final class BatchTaskQueue implements Comparable<BatchTaskQueue> {
 
-    private final double compressionRatio = 15.5F;
-    private final double contextSwitchCost = 0.1F; // seconds
-    private final double processingSpeed = 273 / 2F; // rlo_06 273 megabytes per second, spark the half of it
-
     private final List<BatchUnit> queue;
     private double queueTime = 0L; // seconds how long the queue will take to process
 
@@ -68,14 +65,13 @@ public final class BatchTaskQueue implements Comparable<BatchTaskQueue> {
         this.queue = new ArrayList<>();
     }
 
-    // give estimate on the queueTime after adding an object
-    private double estimate(BatchUnit batchUnit) {
-        return queueTime + (batchUnit.getSize() * compressionRatio) / 1024 / 1024 / processingSpeed;
-    }
-
-    public void add(BatchUnit batchUnit) {
+    /**
+     * @param batchUnit unit to add to the queue
+     * @param seconds   estimated seconds the unit takes to process
+     */
+    public void add(BatchUnit batchUnit, double seconds) {
         queue.add(batchUnit);
-        queueTime = estimate(batchUnit);
+        queueTime += seconds;
     }
 
     public List<BatchUnit> getQueue() {
@@ -74,21 +74,45 @@ public final class BatchUnit implements Serializable, Comparable<BatchUnit> {
     public final Type type;
     public final ArchiveS3ObjectMetadata archiveS3ObjectMetadata;
     public final KafkaTopicPartitionOffsetMetadata kafkaTopicPartitionOffsetMetadata;
+    private final long kafkaEstimatedSize;
 
     public BatchUnit(ArchiveS3ObjectMetadata archiveS3ObjectMetadata) {
         this.type = Type.ARCHIVE;
         this.archiveS3ObjectMetadata = archiveS3ObjectMetadata;
         this.kafkaTopicPartitionOffsetMetadata = null;
+        this.kafkaEstimatedSize = 0L;
     }
 
     public BatchUnit(KafkaTopicPartitionOffsetMetadata kafkaTopicPartitionOffsetMetadata) {
+        this(
+                kafkaTopicPartitionOffsetMetadata,
+                new KafkaRecordSizes()
+                        .estimateBytes(
+                                kafkaTopicPartitionOffsetMetadata.topicPartition,
+                                kafkaTopicPartitionOffsetMetadata.startOffset,
+                                kafkaTopicPartitionOffsetMetadata.endOffset
+                        )
+        );
+    }
+
+    /**
+     * @param kafkaTopicPartitionOffsetMetadata offset range of the unit
+     * @param kafkaEstimatedSize                estimated serialized bytes of the records in the range
+     * @see KafkaRecordSizes
+     */
+    public BatchUnit(KafkaTopicPartitionOffsetMetadata kafkaTopicPartitionOffsetMetadata, long kafkaEstimatedSize) {
         this.type = Type.KAFKA;
         this.archiveS3ObjectMetadata = null;
         this.kafkaTopicPartitionOffsetMetadata = kafkaTopicPartitionOffsetMetadata;
+        this.kafkaEstimatedSize = kafkaEstimatedSize;
     }
 
+    /**
+     * @return compressed size of an archive object or estimated size of a kafka range, the scheduler estimates archive
+     *         objects by their uncompressed size instead when known
+     * @see com.teragrep.pth_06.planner.ThroughputModel#estimateSeconds(String, long, long)
+     */
     public long getSize() {
-        // FIXME compressed size to realsize estimate
         switch (type) {
             case ARCHIVE:
                 // FIXME: Dummy metadata object if not present?
@@ -99,8 +123,7 @@ public final class BatchUnit implements Serializable, Comparable<BatchUnit> {
                     throw new RuntimeException("Expected archive s3 object metadata, instead was null");
                 }
             case KAFKA:
-                // TODO estimate based on offset delta
-                return 1024 * 1024 * 16;
+                return kafkaEstimatedSize;
             default:
                 throw new IllegalStateException("unknown BatchSliceType " + type);
         }
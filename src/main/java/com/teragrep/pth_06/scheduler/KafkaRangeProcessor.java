@@ -62,10 +62,22 @@ public final class KafkaRangeProcessor implements RangeProcessor {
 
     private final Logger LOGGER = LoggerFactory.getLogger(KafkaRangeProcessor.class);
     private final KafkaQuery kq;
+    private final KafkaRecordSizes kafkaRecordSizes;
+    private final long maxRecordsPerPartition;
 
     public KafkaRangeProcessor(KafkaQuery kq) {
+        this(kq, new KafkaRecordSizes());
+    }
+
+    public KafkaRangeProcessor(KafkaQuery kq, KafkaRecordSizes kafkaRecordSizes) {
+        this(kq, kafkaRecordSizes, Long.MAX_VALUE);
+    }
+
+    public KafkaRangeProcessor(KafkaQuery kq, KafkaRecordSizes kafkaRecordSizes, long maxRecordsPerPartition) {
         super();
         this.kq = kq;
+        this.kafkaRecordSizes = kafkaRecordSizes;
+        this.maxRecordsPerPartition = maxRecordsPerPartition;
     }
 
     public List<BatchUnit> processRange(Offset start, Offset end) {
@@ -82,19 +94,14 @@ public final class KafkaRangeProcessor implements RangeProcessor {
             TopicPartition topicPartition = entry.getKey();
             long topicStart = entry.getValue();
             long topicEnd = end.getOffsetMap().get(topicPartition);
-            if (topicStart != topicEnd) {
-                // new offsets available
+            // new offsets available, split into sub-ranges of at most maxRecordsPerPartition records
+            long subRangeStart = topicStart;
+            while (subRangeStart < topicEnd) {
+                final long subRangeEnd = topicEnd - subRangeStart > maxRecordsPerPartition ? subRangeStart
+                        + maxRecordsPerPartition : topicEnd;
                 rv
-                        .add(
-                                new BatchUnit(
-                                        new KafkaTopicPartitionOffsetMetadata(
-                                                entry.getKey(),
-                                                start.getOffsetMap().get(entry.getKey()),
-                                                end.getOffsetMap().get(entry.getKey())
-                                        )
-                                )
-                        );
-
+                        .add(new BatchUnit(new KafkaTopicPartitionOffsetMetadata(topicPartition, subRangeStart, subRangeEnd), kafkaRecordSizes.estimateBytes(topicPartition, subRangeStart, subRangeEnd)));
+                subRangeStart = subRangeEnd;
             }
         }
         return rv;
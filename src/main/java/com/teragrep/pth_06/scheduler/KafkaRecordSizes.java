@@ -0,0 +1,142 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.scheduler;
+
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Average serialized record size of each Kafka topic partition, observed from the {@code BytesProcessed} and
+ * {@code RecordsProcessed} task metrics of previous batches. Used to estimate the size of a Kafka {@link BatchUnit}
+ * from its offset delta. Observations arrive from the listener thread while the planner estimates, so the methods are
+ * synchronized.
+ */
+public final class KafkaRecordSizes {
+
+    /** size estimate of a record before any record sizes are observed */
+    static final long DEFAULT_RECORD_SIZE = 1024;
+
+    private final long defaultRecordSize;
+    private final Map<TopicPartition, Observed> observedPartitions;
+    private final Observed observedTotal;
+
+    public KafkaRecordSizes() {
+        this(DEFAULT_RECORD_SIZE);
+    }
+
+    /**
+     * @param defaultRecordSize size estimate of a record before any record sizes are observed
+     */
+    public KafkaRecordSizes(final long defaultRecordSize) {
+        this.defaultRecordSize = defaultRecordSize;
+        this.observedPartitions = new HashMap<>();
+        this.observedTotal = new Observed();
+    }
+
+    /**
+     * @param topicPartition partition the task consumed
+     * @param bytes          serialized bytes of the records the task consumed
+     * @param records        count of records the task consumed
+     */
+    public synchronized void observe(final TopicPartition topicPartition, final long bytes, final long records) {
+        if (bytes > 0L && records > 0L) {
+            observedPartitions.computeIfAbsent(topicPartition, tp -> new Observed()).add(bytes, records);
+            observedTotal.add(bytes, records);
+        }
+    }
+
+    /**
+     * Estimate the bytes of an offset range of a partition. Partitions not yet observed use the average over all the
+     * observed partitions, or the default record size before any partition is observed.
+     *
+     * @param topicPartition partition of the range
+     * @param startOffset    first offset of the range
+     * @param endOffset      offset after the last one of the range
+     * @return estimated bytes of the range
+     */
+    public synchronized long estimateBytes(
+            final TopicPartition topicPartition,
+            final long startOffset,
+            final long endOffset
+    ) {
+        final long records = Math.max(0L, endOffset - startOffset);
+        final Observed observed = observedPartitions.getOrDefault(topicPartition, observedTotal);
+        final long estimate;
+        if (observed.records == 0L) {
+            estimate = records * defaultRecordSize;
+        }
+        else {
+            estimate = (long) Math.ceil(records * observed.averageRecordSize());
+        }
+        return estimate;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "KafkaRecordSizes[partitions="
+                .concat(String.valueOf(observedPartitions.size()))
+                .concat(", records=")
+                .concat(String.valueOf(observedTotal.records))
+                .concat("]");
+    }
+
+    private static final class Observed {
+
+        private long bytes;
+        private long records;
+
+        private void add(final long addedBytes, final long addedRecords) {
+            bytes += addedBytes;
+            records += addedRecords;
+        }
+
+        private double averageRecordSize() {
+            return (double) bytes / records;
+        }
+    }
+}
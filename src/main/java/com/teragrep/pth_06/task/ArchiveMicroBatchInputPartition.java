@@ -45,19 +45,18 @@
  */
 package com.teragrep.pth_06.task;
 
-import com.teragrep.pth_06.ArchiveS3ObjectMetadata;
-
 // logger
 import org.apache.spark.sql.connector.read.InputPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.LinkedList;
-
 /**
  * <h1>Kafka Micro Batch Input Partition Reader</h1> Class for holding micro batch partition of RFC5424 syslog data.
+ * Carries only the encoded archive objects of the partition, the S3 and audit configuration are shipped once with the
+ * {@link TeragrepPartitionReaderFactory}.
  *
  * @see InputPartition
+ * @see EncodedArchiveObjects
  * @since 08/06/2022
  * @author Mikko Kortelainen
  */
@@ -65,63 +64,43 @@ public class ArchiveMicroBatchInputPartition implements InputPartition {
 
     final Logger LOGGER = LoggerFactory.getLogger(ArchiveMicroBatchInputPartition.class);
 
-    public final String S3endPoint;
-    public final String S3identity;
-    public final String S3credential;
-    public final LinkedList<ArchiveS3ObjectMetadata> taskObjectList;
+    public final EncodedArchiveObjects taskObjects;
+    private final String[] locations;
 
-    public final String TeragrepAuditQuery;
-    public final String TeragrepAuditReason;
-    public final String TeragrepAuditUser;
-    public final String TeragrepAuditPluginClassName;
-
-    public final boolean skipNonRFC5424Files;
-    public final boolean epochMigrationMode;
+    public ArchiveMicroBatchInputPartition(EncodedArchiveObjects taskObjects) {
+        this(taskObjects, new String[0]);
+    }
 
-    public ArchiveMicroBatchInputPartition(
-            String S3endPoint,
-            String S3identity,
-            String S3credential,
-            LinkedList<ArchiveS3ObjectMetadata> taskObjectList,
-            String TeragrepAuditQuery,
-            String TeragrepAuditReason,
-            String TeragrepAuditUser,
-            String TeragrepAuditPluginClassName,
-            boolean skipNonRFC5424Files,
-            boolean epochMigrationMode
-    ) {
+    /**
+     * @param taskObjects archive objects of the partition
+     * @param locations   preferred hosts of the partition, empty if there is no preference
+     * @see PartitionAffinity
+     */
+    public ArchiveMicroBatchInputPartition(EncodedArchiveObjects taskObjects, String[] locations) {
         LOGGER.debug("ArchiveMicroBatchInputPartition> init");
 
-        this.S3endPoint = S3endPoint;
-        this.S3identity = S3identity;
-        this.S3credential = S3credential;
-
-        this.taskObjectList = taskObjectList;
-
-        this.TeragrepAuditQuery = TeragrepAuditQuery;
-        this.TeragrepAuditReason = TeragrepAuditReason;
-        this.TeragrepAuditUser = TeragrepAuditUser;
-        this.TeragrepAuditPluginClassName = TeragrepAuditPluginClassName;
-
-        this.skipNonRFC5424Files = skipNonRFC5424Files;
-        this.epochMigrationMode = epochMigrationMode;
+        this.taskObjects = taskObjects;
+        this.locations = locations;
     }
 
     @Override
     public String[] preferredLocations() {
         LOGGER.debug("ArchiveMicroBatchInputPartition.preferredLocations>");
-        String[] loc = new String[1];
-        // we have none
-        loc[0] = "_";
+        final String[] loc;
+        if (locations.length == 0) {
+            // we have none
+            loc = new String[] {
+                    "_"
+            };
+        }
+        else {
+            loc = locations.clone();
+        }
         return loc;
     }
 
     @Override
     public String toString() {
-        return "ArchiveMicroBatchInputPartition{" + "S3endPoint='" + S3endPoint + '\'' + ", S3identity='" + S3identity
-                + '\'' + ", S3credential='" + S3credential + '\'' + ", taskObjectList=" + taskObjectList
-                + ", TeragrepAuditQuery='" + TeragrepAuditQuery + '\'' + ", TeragrepAuditReason='" + TeragrepAuditReason
-                + '\'' + ", TeragrepAuditUser='" + TeragrepAuditUser + '\'' + ", TeragrepAuditPluginClassName='"
-                + TeragrepAuditPluginClassName + '\'' + '}';
+        return "ArchiveMicroBatchInputPartition{" + "taskObjects=" + taskObjects + '}';
     }
 }
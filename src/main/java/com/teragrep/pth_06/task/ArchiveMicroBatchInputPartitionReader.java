@@ -50,6 +50,7 @@ import com.codahale.metrics.MetricRegistry;
 import com.teragrep.pth_06.metrics.TaskMetric;
 import com.teragrep.pth_06.ArchiveS3ObjectMetadata;
 import com.teragrep.pth_06.task.s3.EpochMigrationRowConverter;
+import com.teragrep.pth_06.task.s3.PrefetchingS3Client;
 import com.teragrep.pth_06.task.s3.Pth06S3Client;
 import com.teragrep.pth_06.task.s3.RowConverterImpl;
 import com.teragrep.pth_06.task.s3.RowConverter;
@@ -92,6 +93,9 @@ class ArchiveMicroBatchInputPartitionReader implements PartitionReader<InternalR
     private final boolean skipNonRFC5424Files;
     private final boolean epochMigrationMode;
     private final MetricRegistry metricRegistry;
+    // wall time from the first to the latest call of next(), the rows are processed downstream in between
+    private long firstNextNanos = -1L;
+    private long latestNextNanos = -1L;
 
     public ArchiveMicroBatchInputPartitionReader(
             MetricRegistry metricRegistry,
@@ -104,11 +108,26 @@ class ArchiveMicroBatchInputPartitionReader implements PartitionReader<InternalR
             String TeragrepAuditUser,
             String TeragrepAuditPluginClassName,
             boolean skipNonRFC5424Files,
-            boolean epochMigrationMode
+            boolean epochMigrationMode,
+            int prefetchObjects,
+            long prefetchBudgetBytes
     ) {
         this.taskObjectList = taskObjectList;
 
-        this.s3client = new Pth06S3Client(S3endPoint, S3identity, S3credential).build();
+        final AmazonS3 objectStorage = new Pth06S3Client(S3endPoint, S3identity, S3credential).build();
+        if (prefetchObjects > 0) {
+            // download the next objects while the current one is parsed
+            this.s3client = new PrefetchingS3Client(
+                    objectStorage,
+                    taskObjectList,
+                    prefetchObjects,
+                    prefetchBudgetBytes,
+                    metricRegistry
+            );
+        }
+        else {
+            this.s3client = objectStorage;
+        }
 
         AuditPluginFactory auditPluginFactory = new AuditPluginFactory(TeragrepAuditPluginClassName);
 
@@ -135,6 +154,10 @@ class ArchiveMicroBatchInputPartitionReader implements PartitionReader<InternalR
     // read zip until it ends
     @Override
     public boolean next() throws IOException {
+        latestNextNanos = System.nanoTime();
+        if (firstNextNanos < 0L) {
+            firstNextNanos = latestNextNanos;
+        }
         // true if data is available, false if not
         boolean rv = false;
 
@@ -197,6 +220,10 @@ class ArchiveMicroBatchInputPartitionReader implements PartitionReader<InternalR
         final long recordsProcessed = metricRegistry.counter("RecordsProcessed").getCount();
         metricRegistry.meter("RecordsPerSecond").mark(recordsProcessed);
         final double recordsPerSecond = metricRegistry.meter("RecordsPerSecond").getMeanRate();
+        final long processingNanos = latestNextNanos - firstNextNanos;
+        final long prefetchHits = metricRegistry.counter("ArchivePrefetchHits").getCount();
+        final long prefetchRequests = prefetchHits + metricRegistry.counter("ArchivePrefetchMisses").getCount();
+        final long prefetchHitRatio = prefetchRequests == 0L ? 0L : prefetchHits * 100L / prefetchRequests;
         return new CustomTaskMetric[] {
                 new TaskMetric("RecordsPerSecond", (long) recordsPerSecond),
                 new TaskMetric("RecordsProcessed", recordsProcessed),
@@ -204,6 +231,9 @@ class ArchiveMicroBatchInputPartitionReader implements PartitionReader<InternalR
                 new TaskMetric("BytesProcessed", bytesProcessed),
                 new TaskMetric("ArchiveCompressedBytesProcessed", compressedBytesProcessed),
                 new TaskMetric("ArchiveObjectsProcessed", objectsProcessed),
+                new TaskMetric("ArchiveProcessingNanos", processingNanos),
+                new TaskMetric("ArchivePrefetchHitRatio", prefetchHitRatio),
+                new TaskMetric("ArchivePrefetchWaitNanos", metricRegistry.counter("ArchivePrefetchWaitNanos").getCount()),
         };
     }
 
@@ -244,5 +274,9 @@ class ArchiveMicroBatchInputPartitionReader implements PartitionReader<InternalR
         if (rowConverter != null) {
             rowConverter.close();
         }
+        if (s3client instanceof PrefetchingS3Client) {
+            // cancels the downloads ahead of objects left unread
+            s3client.shutdown();
+        }
     }
 }
@@ -0,0 +1,142 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.task;
+
+import com.teragrep.pth_06.ArchiveS3ObjectMetadata;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h1>Encoded Archive Objects</h1> Compact serializable form of the archive objects of an input partition. Bucket,
+ * directory, stream, host and the directory part of the path are stored once in a string dictionary and referenced by
+ * index, numeric values are stored in primitive arrays.
+ *
+ * @see ArchiveS3ObjectMetadata
+ */
+public final class EncodedArchiveObjects implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String[] dictionary;
+    private final long[] ids;
+    private final int[] buckets;
+    private final int[] pathPrefixes;
+    private final String[] pathSuffixes;
+    private final int[] directories;
+    private final int[] streams;
+    private final int[] hosts;
+    private final long[] logtimeEpochs;
+    private final long[] compressedSizes;
+    private final long[] uncompressedSizes;
+
+    public EncodedArchiveObjects(final List<ArchiveS3ObjectMetadata> objects) {
+        final int size = objects.size();
+        final Map<String, Integer> indexes = new HashMap<>();
+        final List<String> values = new ArrayList<>();
+        this.ids = new long[size];
+        this.buckets = new int[size];
+        this.pathPrefixes = new int[size];
+        this.pathSuffixes = new String[size];
+        this.directories = new int[size];
+        this.streams = new int[size];
+        this.hosts = new int[size];
+        this.logtimeEpochs = new long[size];
+        this.compressedSizes = new long[size];
+        this.uncompressedSizes = new long[size];
+
+        int i = 0;
+        for (final ArchiveS3ObjectMetadata object : objects) {
+            final int separator = object.path.lastIndexOf('/') + 1;
+            ids[i] = Long.parseUnsignedLong(object.id);
+            buckets[i] = index(indexes, values, object.bucket);
+            pathPrefixes[i] = index(indexes, values, object.path.substring(0, separator));
+            pathSuffixes[i] = object.path.substring(separator);
+            directories[i] = index(indexes, values, object.directory);
+            streams[i] = index(indexes, values, object.stream);
+            hosts[i] = index(indexes, values, object.host);
+            logtimeEpochs[i] = object.logtimeEpoch;
+            compressedSizes[i] = object.compressedSize;
+            uncompressedSizes[i] = object.uncompressedSize;
+            i++;
+        }
+        this.dictionary = values.toArray(new String[0]);
+    }
+
+    private static int index(final Map<String, Integer> indexes, final List<String> values, final String value) {
+        return indexes.computeIfAbsent(value, v -> {
+            values.add(v);
+            return values.size() - 1;
+        });
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Decodes the objects into a list that the partition readers consume.
+     *
+     * @return decoded objects in their original order
+     */
+    public LinkedList<ArchiveS3ObjectMetadata> objects() {
+        final LinkedList<ArchiveS3ObjectMetadata> objects = new LinkedList<>();
+        for (int i = 0; i < ids.length; i++) {
+            objects
+                    .add(new ArchiveS3ObjectMetadata(Long.toUnsignedString(ids[i]), dictionary[buckets[i]], dictionary[pathPrefixes[i]].concat(pathSuffixes[i]), dictionary[directories[i]], dictionary[streams[i]], dictionary[hosts[i]], logtimeEpochs[i], compressedSizes[i], uncompressedSizes[i]));
+        }
+        return objects;
+    }
+
+    @Override
+    public String toString() {
+        return "EncodedArchiveObjects{" + "size=" + ids.length + ", dictionarySize=" + dictionary.length + '}';
+    }
+}
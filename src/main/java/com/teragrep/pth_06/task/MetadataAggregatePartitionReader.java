@@ -0,0 +1,108 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.task;
+
+import org.apache.spark.sql.catalyst.InternalRow;
+import org.apache.spark.sql.catalyst.expressions.codegen.UnsafeRowWriter;
+import org.apache.spark.sql.connector.read.PartitionReader;
+import org.apache.spark.unsafe.types.UTF8String;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * Writes the aggregated metadata rows built on the driver, one row per hour, index, sourcetype and host.
+ *
+ * @see MetadataAggregates
+ */
+public final class MetadataAggregatePartitionReader implements PartitionReader<InternalRow> {
+
+    private final MetadataAggregates aggregates;
+    private final UnsafeRowWriter rowWriter;
+    private int row;
+
+    public MetadataAggregatePartitionReader(final MetadataAggregates aggregates) {
+        this.aggregates = aggregates;
+        this.rowWriter = new UnsafeRowWriter(11);
+        this.row = -1;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        row++;
+        final boolean hasNext = row < aggregates.size();
+        if (hasNext) {
+            rowWriter.reset();
+            rowWriter.zeroOutNullBytes();
+            // the hour of the aggregate as _time
+            rowWriter
+                    .write(
+                            0, MetadataMicroBatchInputPartitionReader
+                                    .rfc3339ToEpoch(Instant.ofEpochSecond(aggregates.hour(row)).atZone(ZoneId.systemDefault()))
+                    );
+            rowWriter.write(1, UTF8String.fromString(aggregates.raw(row)));
+            rowWriter.write(2, UTF8String.fromString(aggregates.directory(row)));
+            rowWriter.write(3, UTF8String.fromString(aggregates.stream(row)));
+            rowWriter.write(4, UTF8String.fromString(aggregates.host(row)));
+            rowWriter.write(5, UTF8String.fromString(""));
+            rowWriter.write(6, UTF8String.fromString(""));
+            rowWriter.write(7, (long) row);
+            rowWriter.write(8, UTF8String.fromString(""));
+        }
+        return hasNext;
+    }
+
+    @Override
+    public InternalRow get() {
+        return rowWriter.getRow();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // no-op
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.task;
+
+import com.google.gson.Gson;
+import com.teragrep.pth_06.ArchiveS3ObjectMetadata;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Aggregates of the archive objects of a batch per hour, index, sourcetype and host, computed on the driver for
+ * metadata queries. The _raw column of each row is built once here, so that the executors only write the rows.
+ *
+ * @see AggregatedMetadata
+ */
+public final class MetadataAggregates implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long[] hours;
+    private final String[] directories;
+    private final String[] streams;
+    private final String[] hosts;
+    private final String[] raws;
+
+    public MetadataAggregates(final List<ArchiveS3ObjectMetadata> objects) {
+        // object count, compressed and uncompressed size of each group in the order of first appearance
+        final Map<Group, long[]> groups = new LinkedHashMap<>();
+        for (final ArchiveS3ObjectMetadata object : objects) {
+            final long[] sums = groups
+                    .computeIfAbsent(new Group(object.logtimeEpoch, object.directory, object.stream, object.host), group -> new long[3]);
+            sums[0]++;
+            sums[1] += object.compressedSize;
+            // uncompressed size is -1 when not known
+            if (object.uncompressedSize >= 0) {
+                sums[2] += object.uncompressedSize;
+            }
+        }
+
+        this.hours = new long[groups.size()];
+        this.directories = new String[groups.size()];
+        this.streams = new String[groups.size()];
+        this.hosts = new String[groups.size()];
+        this.raws = new String[groups.size()];
+
+        final Gson gson = new Gson();
+        int i = 0;
+        for (final Map.Entry<Group, long[]> group : groups.entrySet()) {
+            hours[i] = group.getKey().hour;
+            directories[i] = group.getKey().directory;
+            streams[i] = group.getKey().stream;
+            hosts[i] = group.getKey().host;
+            raws[i] = gson
+                    .toJson(new AggregatedMetadata(group.getValue()[2], group.getValue()[1], group.getValue()[0]));
+            i++;
+        }
+    }
+
+    public int size() {
+        return hours.length;
+    }
+
+    public long hour(final int row) {
+        return hours[row];
+    }
+
+    public String directory(final int row) {
+        return directories[row];
+    }
+
+    public String stream(final int row) {
+        return streams[row];
+    }
+
+    public String host(final int row) {
+        return hosts[row];
+    }
+
+    public String raw(final int row) {
+        return raws[row];
+    }
+
+    private static final class Group {
+
+        private final long hour;
+        private final String directory;
+        private final String stream;
+        private final String host;
+
+        private Group(final long hour, final String directory, final String stream, final String host) {
+            this.hour = hour;
+            this.directory = directory;
+            this.stream = stream;
+            this.host = host;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Group group = (Group) o;
+            return hour == group.hour && Objects.equals(directory, group.directory)
+                    && Objects.equals(stream, group.stream) && Objects.equals(host, group.host);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(hour, directory, stream, host);
+        }
+    }
+}
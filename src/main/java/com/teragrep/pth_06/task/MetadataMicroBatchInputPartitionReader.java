@@ -75,6 +75,7 @@ public class MetadataMicroBatchInputPartitionReader implements PartitionReader<I
 
     private long currentOffset;
     private final MetricRegistry metricRegistry;
+    private final Gson gson;
 
     public MetadataMicroBatchInputPartitionReader(
             MetricRegistry metricRegistry,
@@ -106,6 +107,7 @@ public class MetadataMicroBatchInputPartitionReader implements PartitionReader<I
         this.rowWriter = new UnsafeRowWriter(11);
         this.currentOffset = 0L;
         this.metricRegistry = metricRegistry;
+        this.gson = new Gson();
     }
 
     @Override
@@ -119,8 +121,7 @@ public class MetadataMicroBatchInputPartitionReader implements PartitionReader<I
             ArchiveS3ObjectMetadata taskObject = taskObjectList.removeFirst();
 
             // Use metadata java object to easily form a json representation of metadata
-            final String rawColumn = new Gson()
-                    .toJson(new Metadata(taskObject.uncompressedSize, taskObject.compressedSize));
+            final String rawColumn = gson.toJson(new Metadata(taskObject.uncompressedSize, taskObject.compressedSize));
             // use logtimeEpoch as _time
             rowWriter
                     .write(0, rfc3339ToEpoch(Instant.ofEpochSecond(taskObject.logtimeEpoch).atZone(ZoneId.systemDefault())));
@@ -0,0 +1,132 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.task;
+
+import com.teragrep.pth_06.ArchiveS3ObjectMetadata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h1>Partition Affinity</h1> Assigns archive input partitions stable preferred hosts, so that the same bucket and host
+ * or the same directory keeps landing on the same executors across micro-batches and the executor-local resources get
+ * reused. The key carrying most of the compressed bytes of a partition is mapped to hosts with rendezvous hashing,
+ * which moves only the keys of a host when the executors change. Two hosts are preferred and Spark's locality wait lets
+ * any executor take the partition if neither is free.
+ */
+public final class PartitionAffinity {
+
+    public static enum Mode {
+        NONE, HOST, DIRECTORY
+    }
+
+    private static final int PREFERRED_HOSTS = 2;
+
+    private final Mode mode;
+    private final List<String> hosts;
+
+    public PartitionAffinity(final Mode mode, final List<String> hosts) {
+        this.mode = mode;
+        this.hosts = hosts;
+    }
+
+    /**
+     * @param objects archive objects of the partition
+     * @return preferred hosts of the partition, empty if there is no preference
+     */
+    public String[] preferredLocations(final List<ArchiveS3ObjectMetadata> objects) {
+        final String[] locations;
+        if (mode == Mode.NONE || hosts.isEmpty() || objects.isEmpty()) {
+            locations = new String[0];
+        }
+        else {
+            final String key = dominantKey(objects);
+            final List<String> ranked = new ArrayList<>(hosts);
+            final Map<String, Long> scores = new HashMap<>();
+            for (final String host : ranked) {
+                scores.put(host, score(key, host));
+            }
+            ranked.sort((a, b) -> Long.compareUnsigned(scores.get(b), scores.get(a)));
+            locations = ranked.subList(0, Math.min(PREFERRED_HOSTS, ranked.size())).toArray(new String[0]);
+        }
+        return locations;
+    }
+
+    private String dominantKey(final List<ArchiveS3ObjectMetadata> objects) {
+        final Map<String, Long> bytesOfKeys = new HashMap<>();
+        for (final ArchiveS3ObjectMetadata object : objects) {
+            final String key;
+            if (mode == Mode.DIRECTORY) {
+                key = object.directory;
+            }
+            else {
+                key = object.bucket.concat("/").concat(object.host);
+            }
+            bytesOfKeys.merge(key, object.compressedSize, Long::sum);
+        }
+        // ties resolve to the smallest key to stay stable regardless of the order of the objects
+        return Collections.max(bytesOfKeys.entrySet(), (a, b) -> {
+            final int byBytes = Long.compare(a.getValue(), b.getValue());
+            return byBytes != 0 ? byBytes : b.getKey().compareTo(a.getKey());
+        }).getKey();
+    }
+
+    private static long score(final String key, final String host) {
+        // String.hashCode is specified and thus the same on every driver, mixed with the splitmix64 finalizer
+        long z = ((long) key.hashCode() << 32) ^ (host.hashCode() & 0xFFFFFFFFL);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public String toString() {
+        return "PartitionAffinity{" + "mode=" + mode + ", hosts=" + hosts + '}';
+    }
+}
@@ -53,7 +53,8 @@ import org.apache.spark.sql.connector.read.PartitionReaderFactory;
 
 /**
  * <h1>TeragrepPartitionReaderFactory</h1> Used to create appropriate PartitionReaders based on the type of the
- * InputPartition provided.
+ * InputPartition provided. Holds the S3 and audit configuration shared by all archive partitions, so that it is
+ * serialized once per stage instead of once per partition.
  * 
  * @author p000043u
  */
@@ -62,9 +63,47 @@ public final class TeragrepPartitionReaderFactory implements PartitionReaderFact
     private static final long serialVersionUID = 1L;
     public final boolean isMetadataQuery;
 
-    public TeragrepPartitionReaderFactory(boolean isMetadataQuery) {
+    private final String S3endPoint;
+    private final String S3identity;
+    private final String S3credential;
+
+    private final String TeragrepAuditQuery;
+    private final String TeragrepAuditReason;
+    private final String TeragrepAuditUser;
+    private final String TeragrepAuditPluginClassName;
+
+    private final boolean skipNonRFC5424Files;
+    private final boolean epochMigrationMode;
+    private final int prefetchObjects;
+    private final long prefetchBudgetBytes;
+
+    public TeragrepPartitionReaderFactory(
+            boolean isMetadataQuery,
+            String S3endPoint,
+            String S3identity,
+            String S3credential,
+            String TeragrepAuditQuery,
+            String TeragrepAuditReason,
+            String TeragrepAuditUser,
+            String TeragrepAuditPluginClassName,
+            boolean skipNonRFC5424Files,
+            boolean epochMigrationMode,
+            int prefetchObjects,
+            long prefetchBudgetBytes
+    ) {
         super();
         this.isMetadataQuery = isMetadataQuery;
+        this.S3endPoint = S3endPoint;
+        this.S3identity = S3identity;
+        this.S3credential = S3credential;
+        this.TeragrepAuditQuery = TeragrepAuditQuery;
+        this.TeragrepAuditReason = TeragrepAuditReason;
+        this.TeragrepAuditUser = TeragrepAuditUser;
+        this.TeragrepAuditPluginClassName = TeragrepAuditPluginClassName;
+        this.skipNonRFC5424Files = skipNonRFC5424Files;
+        this.epochMigrationMode = epochMigrationMode;
+        this.prefetchObjects = prefetchObjects;
+        this.prefetchBudgetBytes = prefetchBudgetBytes;
     }
 
     /**
@@ -82,29 +121,34 @@ public final class TeragrepPartitionReaderFactory implements PartitionReaderFact
             ArchiveMicroBatchInputPartition aip = (ArchiveMicroBatchInputPartition) inputPartition;
             return new MetadataMicroBatchInputPartitionReader(
                     new MetricRegistry(),
-                    aip.taskObjectList,
-                    aip.TeragrepAuditQuery,
-                    aip.TeragrepAuditReason,
-                    aip.TeragrepAuditUser,
-                    aip.TeragrepAuditPluginClassName
+                    aip.taskObjects.objects(),
+                    TeragrepAuditQuery,
+                    TeragrepAuditReason,
+                    TeragrepAuditUser,
+                    TeragrepAuditPluginClassName
             );
         }
         else if (inputPartition instanceof ArchiveMicroBatchInputPartition) {
             ArchiveMicroBatchInputPartition aip = (ArchiveMicroBatchInputPartition) inputPartition;
             return new ArchiveMicroBatchInputPartitionReader(
                     new MetricRegistry(),
-                    aip.S3endPoint,
-                    aip.S3identity,
-                    aip.S3credential,
-                    aip.taskObjectList,
-                    aip.TeragrepAuditQuery,
-                    aip.TeragrepAuditReason,
-                    aip.TeragrepAuditUser,
-                    aip.TeragrepAuditPluginClassName,
-                    aip.skipNonRFC5424Files,
-                    aip.epochMigrationMode
+                    S3endPoint,
+                    S3identity,
+                    S3credential,
+                    aip.taskObjects.objects(),
+                    TeragrepAuditQuery,
+                    TeragrepAuditReason,
+                    TeragrepAuditUser,
+                    TeragrepAuditPluginClassName,
+                    skipNonRFC5424Files,
+                    epochMigrationMode,
+                    prefetchObjects,
+                    prefetchBudgetBytes
             );
         }
+        else if (inputPartition instanceof MetadataAggregateInputPartition) {
+            return new MetadataAggregatePartitionReader(((MetadataAggregateInputPartition) inputPartition).aggregates);
+        }
         else if (inputPartition instanceof KafkaMicroBatchInputPartition) {
             KafkaMicroBatchInputPartition kip = (KafkaMicroBatchInputPartition) inputPartition;
             return new KafkaMicroBatchInputPartitionReader(
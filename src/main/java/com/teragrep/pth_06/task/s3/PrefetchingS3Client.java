@@ -0,0 +1,309 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.task.s3;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.amazonaws.util.IOUtils;
+import com.codahale.metrics.MetricRegistry;
+import com.teragrep.pth_06.ArchiveS3ObjectMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Downloads the next objects of a task in the background while the current one is parsed, so that the time to first
+ * byte of the object storage is paid once per task instead of once per object. The prefetched objects are held in
+ * memory, bounded by a budget of compressed bytes shared by all the readers of the executor. An object that does not
+ * fit the budget is left to be downloaded when requested. Only {@link #getObject(String, String)} is supported, which
+ * is all the row converters use.
+ */
+public final class PrefetchingS3Client extends AbstractAmazonS3 {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrefetchingS3Client.class);
+
+    // budgets shared by the readers of the executor in kibibytes, by the configured size in bytes
+    private static final Map<Long, Semaphore> budgets = new ConcurrentHashMap<>();
+
+    private final AmazonS3 s3client;
+    private final Deque<ArchiveS3ObjectMetadata> pending;
+    private final int objectsAhead;
+    private final Semaphore budget;
+    private final MetricRegistry metricRegistry;
+    private final ExecutorService executor;
+    // objects being downloaded or downloaded ahead, by bucket and path
+    private final Map<String, Prefetch> prefetches;
+
+    /**
+     * @param s3client       client downloading the objects
+     * @param objects        objects of the task in the order they are requested
+     * @param objectsAhead   count of objects downloaded ahead
+     * @param budgetBytes    compressed bytes the prefetching clients of the JVM with the same budget may hold at once
+     * @param metricRegistry registry of the prefetch hits, misses and wait time
+     */
+    public PrefetchingS3Client(
+            final AmazonS3 s3client,
+            final List<ArchiveS3ObjectMetadata> objects,
+            final int objectsAhead,
+            final long budgetBytes,
+            final MetricRegistry metricRegistry
+    ) {
+        this(
+                s3client,
+                objects,
+                objectsAhead,
+                budgets
+                        .computeIfAbsent(
+                                budgetBytes, bytes -> new Semaphore((int) Math.min(Integer.MAX_VALUE, bytes / 1024L))
+                        ),
+                metricRegistry
+        );
+    }
+
+    PrefetchingS3Client(
+            final AmazonS3 s3client,
+            final List<ArchiveS3ObjectMetadata> objects,
+            final int objectsAhead,
+            final Semaphore budget,
+            final MetricRegistry metricRegistry
+    ) {
+        if (objectsAhead < 1) {
+            throw new IllegalArgumentException("Objects ahead must be at least 1, was: " + objectsAhead);
+        }
+        this.s3client = s3client;
+        this.pending = new ArrayDeque<>(objects);
+        this.objectsAhead = objectsAhead;
+        this.budget = budget;
+        this.metricRegistry = metricRegistry;
+        this.executor = Executors.newFixedThreadPool(objectsAhead, runnable -> {
+            final Thread thread = new Thread(runnable, "pth_06-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.prefetches = new HashMap<>();
+    }
+
+    @Override
+    public S3Object getObject(final String bucketName, final String key) {
+        final String objectKey = bucketName.concat("/").concat(key);
+        final Prefetch prefetch = prefetches.remove(objectKey);
+        if (prefetch == null) {
+            // objects are requested in the order of the list, the ones before the requested one were skipped
+            while (!pending.isEmpty()) {
+                final ArchiveS3ObjectMetadata object = pending.removeFirst();
+                if (objectKey.equals(object.bucket.concat("/").concat(object.path))) {
+                    break;
+                }
+            }
+        }
+        // the next downloads start before waiting for the requested one
+        prefetchAhead();
+
+        final S3Object s3Object;
+        if (prefetch == null) {
+            metricRegistry.counter("ArchivePrefetchMisses").inc();
+            s3Object = s3client.getObject(bucketName, key);
+        }
+        else {
+            s3Object = prefetch.await();
+        }
+        return s3Object;
+    }
+
+    /**
+     * @param bucketName bucket of the object
+     * @param key        path of the object
+     * @return true if the object was downloaded ahead and not yet requested
+     */
+    boolean isPrefetched(final String bucketName, final String key) {
+        final Prefetch prefetch = prefetches.get(bucketName.concat("/").concat(key));
+        return prefetch != null && prefetch.isDone();
+    }
+
+    private void prefetchAhead() {
+        while (prefetches.size() < objectsAhead && !pending.isEmpty()) {
+            final ArchiveS3ObjectMetadata object = pending.getFirst();
+            final int permits = (int) Math.min(Integer.MAX_VALUE, Math.max(1L, object.compressedSize / 1024L));
+            if (!budget.tryAcquire(permits)) {
+                // left to be downloaded when requested, or ahead once the budget allows
+                break;
+            }
+            pending.removeFirst();
+            final Prefetch prefetch = new Prefetch(object.bucket, object.path, permits);
+            prefetch.start();
+            prefetches.put(object.bucket.concat("/").concat(object.path), prefetch);
+        }
+    }
+
+    /**
+     * Cancels the downloads ahead and releases their budget. The underlying client is left open.
+     */
+    @Override
+    public void shutdown() {
+        for (final Prefetch prefetch : prefetches.values()) {
+            prefetch.cancel();
+        }
+        prefetches.clear();
+        pending.clear();
+        executor.shutdownNow();
+    }
+
+    private final class Prefetch {
+
+        private final String bucketName;
+        private final String key;
+        private final int permits;
+        private final AtomicBoolean released;
+        private Future<Downloaded> future;
+
+        private Prefetch(final String bucketName, final String key, final int permits) {
+            this.bucketName = bucketName;
+            this.key = key;
+            this.permits = permits;
+            this.released = new AtomicBoolean(false);
+        }
+
+        private void start() {
+            future = executor.submit(() -> {
+                final S3Object s3Object = s3client.getObject(bucketName, key);
+                try (final S3ObjectInputStream objectContent = s3Object.getObjectContent()) {
+                    return new Downloaded(s3Object.getObjectMetadata(), IOUtils.toByteArray(objectContent));
+                }
+            });
+        }
+
+        private boolean isDone() {
+            return future.isDone();
+        }
+
+        private S3Object await() {
+            final Downloaded downloaded;
+            if (future.isDone()) {
+                metricRegistry.counter("ArchivePrefetchHits").inc();
+            }
+            else {
+                metricRegistry.counter("ArchivePrefetchMisses").inc();
+            }
+            final long startNanos = System.nanoTime();
+            try {
+                downloaded = future.get();
+            }
+            catch (final InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+                release();
+                throw new SdkClientException("Interrupted while prefetching " + bucketName + "/" + key);
+            }
+            catch (final ExecutionException executionException) {
+                release();
+                final Throwable cause = executionException.getCause();
+                if (cause instanceof RuntimeException) {
+                    // object storage errors, such as the denied access skipped by the row converters
+                    throw (RuntimeException) cause;
+                }
+                throw new SdkClientException("Failed to prefetch " + bucketName + "/" + key, cause);
+            }
+            finally {
+                metricRegistry.counter("ArchivePrefetchWaitNanos").inc(System.nanoTime() - startNanos);
+            }
+
+            final S3Object s3Object = new S3Object();
+            s3Object.setBucketName(bucketName);
+            s3Object.setKey(key);
+            s3Object.setObjectMetadata(downloaded.objectMetadata);
+            // the budget is held until the row converter closes the object
+            s3Object.setObjectContent(new ByteArrayInputStream(downloaded.bytes) {
+
+                @Override
+                public void close() throws IOException {
+                    release();
+                    super.close();
+                }
+            });
+            return s3Object;
+        }
+
+        private void cancel() {
+            future.cancel(true);
+            release();
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                budget.release(permits);
+                LOGGER.debug("Released <{}> KiB of prefetch budget of <{}/{}>", permits, bucketName, key);
+            }
+        }
+    }
+
+    private static final class Downloaded {
+
+        private final ObjectMetadata objectMetadata;
+        private final byte[] bytes;
+
+        private Downloaded(final ObjectMetadata objectMetadata, final byte[] bytes) {
+            this.objectMetadata = objectMetadata;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06;
+
+import com.teragrep.pth_06.metrics.bytes.ArchiveCompressedBytesProcessedMetricAggregator;
+import com.teragrep.pth_06.metrics.bytes.BytesProcessedMetricAggregator;
+import com.teragrep.pth_06.metrics.objects.ArchiveProcessingNanosMetricAggregator;
+import com.teragrep.pth_06.metrics.records.RecordsProcessedMetricAggregator;
+import com.teragrep.pth_06.planner.EventLimit;
+import com.teragrep.pth_06.planner.ThroughputModel;
+import com.teragrep.pth_06.scheduler.KafkaRecordSizes;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.spark.Success$;
+import org.apache.spark.TaskState;
+import org.apache.spark.scheduler.AccumulableInfo;
+import org.apache.spark.scheduler.SparkListenerTaskEnd;
+import org.apache.spark.scheduler.TaskInfo;
+import org.apache.spark.scheduler.TaskLocality;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import scala.Option;
+import scala.collection.JavaConverters;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class ExecutorThroughputListenerTest {
+
+    private SparkListenerTaskEnd taskEnd(final int stageId, final int index, final Map<String, Long> metrics) {
+        final TaskInfo taskInfo = new TaskInfo(
+                index,
+                index,
+                0,
+                index,
+                1L,
+                "executor",
+                "host",
+                TaskLocality.PROCESS_LOCAL(),
+                false
+        );
+        final List<AccumulableInfo> accumulables = new ArrayList<>();
+        for (final Map.Entry<String, Long> metric : metrics.entrySet()) {
+            accumulables
+                    .add(new AccumulableInfo(accumulables.size(), Option.apply(metric.getKey()), Option.apply(metric.getValue()), Option.apply(metric.getValue()), false, true, Option.empty()));
+        }
+        taskInfo.setAccumulables(JavaConverters.asScalaBuffer(accumulables));
+        taskInfo.markFinished(TaskState.FINISHED(), 2L);
+        return new SparkListenerTaskEnd(stageId, 0, "ResultTask", Success$.MODULE$, taskInfo, null, null);
+    }
+
+    private SparkListenerTaskEnd archiveTaskEnd(
+            final int stageId,
+            final int index,
+            final long compressedBytes,
+            final long records
+    ) {
+        final Map<String, Long> metrics = new HashMap<>();
+        metrics.put(new ArchiveCompressedBytesProcessedMetricAggregator().description(), compressedBytes);
+        metrics.put(new ArchiveProcessingNanosMetricAggregator().description(), 1_000_000_000L);
+        metrics.put(new RecordsProcessedMetricAggregator().description(), records);
+        return taskEnd(stageId, index, metrics);
+    }
+
+    private SparkListenerTaskEnd kafkaTaskEnd(
+            final int stageId,
+            final int index,
+            final long bytes,
+            final long records
+    ) {
+        final Map<String, Long> metrics = new HashMap<>();
+        metrics.put(new BytesProcessedMetricAggregator().description(), bytes);
+        metrics.put(new RecordsProcessedMetricAggregator().description(), records);
+        return taskEnd(stageId, index, metrics);
+    }
+
+    private Map<Integer, Map<String, Long>> partitions(final long... compressedBytes) {
+        final Map<Integer, Map<String, Long>> partitions = new HashMap<>();
+        for (int i = 0; i < compressedBytes.length; i++) {
+            partitions.put(i, Collections.singletonMap("stream", compressedBytes[i]));
+        }
+        return partitions;
+    }
+
+    @Test
+    public void testLateTaskEndIsCountedToEventLimit() {
+        final EventLimit eventLimit = new EventLimit(10L, 100L);
+        final ExecutorThroughputListener listener = new ExecutorThroughputListener(
+                new ThroughputModel(1F, 1F, 0.5D),
+                new KafkaRecordSizes(),
+                eventLimit,
+                false
+        );
+
+        listener.planned(partitions(1000L, 2000L), Collections.emptyMap());
+        listener.onTaskEnd(archiveTaskEnd(0, 0, 1000L, 4L));
+        // the next batch is planned before the last task of the previous one reports
+        listener.planned(partitions(3000L), Collections.emptyMap());
+        listener.onTaskEnd(archiveTaskEnd(0, 1, 2000L, 6L));
+
+        Assertions.assertEquals(10L, eventLimit.processedEvents());
+    }
+
+    @Test
+    public void testLateTaskEndIsObservedByThroughputModel() {
+        final ThroughputModel throughputModel = new ThroughputModel(1F, 1F, 0.5D);
+        final ExecutorThroughputListener listener = new ExecutorThroughputListener(
+                throughputModel,
+                new KafkaRecordSizes(),
+                new EventLimit(0L, 100L),
+                true
+        );
+
+        listener.planned(partitions(1000L, 2000L), Collections.emptyMap());
+        listener.onTaskEnd(archiveTaskEnd(0, 0, 1000L, 4L));
+        listener.planned(partitions(1000L, 2000L), Collections.emptyMap());
+        listener.onTaskEnd(archiveTaskEnd(1, 0, 1000L, 4L));
+        listener.onTaskEnd(archiveTaskEnd(1, 1, 2000L, 4L));
+        // the slowest task of the first batch reports last
+        listener.onTaskEnd(archiveTaskEnd(0, 1, 2000L, 4L));
+
+        Assertions.assertEquals(4L, throughputModel.observations());
+    }
+
+    @Test
+    public void testBatchIsBoundToStage() {
+        final ThroughputModel throughputModel = new ThroughputModel(1F, 1F, 0.5D);
+        final ExecutorThroughputListener listener = new ExecutorThroughputListener(
+                throughputModel,
+                new KafkaRecordSizes(),
+                new EventLimit(0L, 100L),
+                true
+        );
+
+        listener.planned(partitions(1000L, 2000L), Collections.emptyMap());
+        listener.onTaskEnd(archiveTaskEnd(0, 0, 1000L, 4L));
+        // a task of another stage fitting the partition is not of the batch
+        listener.onTaskEnd(archiveTaskEnd(7, 1, 2000L, 4L));
+        Assertions.assertEquals(1L, throughputModel.observations());
+        listener.onTaskEnd(archiveTaskEnd(0, 1, 2000L, 4L));
+        Assertions.assertEquals(2L, throughputModel.observations());
+    }
+
+    @Test
+    public void testLateKafkaTaskEndIsObserved() {
+        final KafkaRecordSizes kafkaRecordSizes = new KafkaRecordSizes(1024L);
+        final ExecutorThroughputListener listener = new ExecutorThroughputListener(
+                new ThroughputModel(1F, 1F, 0.5D),
+                kafkaRecordSizes,
+                new EventLimit(0L, 100L),
+                false
+        );
+        final TopicPartition topicPartition = new TopicPartition("topic", 0);
+
+        listener
+                .planned(Collections.emptyMap(), Collections.singletonMap(0, new KafkaTopicPartitionOffsetMetadata(topicPartition, 0L, 100L)));
+        listener
+                .planned(Collections.emptyMap(), Collections.singletonMap(0, new KafkaTopicPartitionOffsetMetadata(topicPartition, 100L, 200L)));
+        // the task of the first batch reports after the next batch is planned
+        listener.onTaskEnd(kafkaTaskEnd(0, 0, 10000L, 100L));
+
+        Assertions.assertEquals(10000L, kafkaRecordSizes.estimateBytes(topicPartition, 200L, 300L));
+    }
+
+    @Test
+    public void testUnobservedBatchesAreBounded() {
+        final EventLimit eventLimit = new EventLimit(10L, 100L);
+        final ExecutorThroughputListener listener = new ExecutorThroughputListener(
+                new ThroughputModel(1F, 1F, 0.5D),
+                new KafkaRecordSizes(),
+                eventLimit,
+                false
+        );
+
+        listener.planned(partitions(1000L), Collections.emptyMap());
+        for (int i = 0; i < ExecutorThroughputListener.MAX_PLANNED_BATCHES; i++) {
+            listener.planned(partitions(2000L), Collections.emptyMap());
+        }
+        // the oldest batch was dropped
+        listener.onTaskEnd(archiveTaskEnd(0, 0, 1000L, 4L));
+        Assertions.assertEquals(0L, eventLimit.processedEvents());
+        listener.onTaskEnd(archiveTaskEnd(1, 0, 2000L, 4L));
+        Assertions.assertEquals(4L, eventLimit.processedEvents());
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06;
+
+import com.teragrep.pth_06.planner.offset.DatasourceOffset;
+import org.apache.spark.sql.execution.streaming.LongOffset;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public final class SpeculativeOffsetPlannerTest {
+
+    @Test
+    public void testDisabledPlansSynchronously() {
+        final AtomicLong plans = new AtomicLong();
+        final AtomicReference<String> planningThread = new AtomicReference<>();
+        try (final SpeculativeOffsetPlanner planner = new SpeculativeOffsetPlanner(() -> {
+            planningThread.set(Thread.currentThread().getName());
+            return new DatasourceOffset(new LongOffset(plans.incrementAndGet()));
+        }, false)) {
+            planner.speculate();
+            Assertions.assertEquals(0L, plans.get());
+            Assertions.assertEquals(1L, planner.next().getArchiveOffset().offset());
+            Assertions.assertEquals(Thread.currentThread().getName(), planningThread.get());
+        }
+    }
+
+    @Test
+    public void testEnabledHandsOverSpeculation() {
+        final AtomicLong plans = new AtomicLong();
+        final AtomicReference<String> planningThread = new AtomicReference<>();
+        try (final SpeculativeOffsetPlanner planner = new SpeculativeOffsetPlanner(() -> {
+            planningThread.set(Thread.currentThread().getName());
+            return new DatasourceOffset(new LongOffset(plans.incrementAndGet()));
+        }, true)) {
+            Assertions.assertEquals(1L, planner.next().getArchiveOffset().offset());
+
+            planner.speculate();
+            planner.speculate(); // already planning, no second plan
+            planner.await();
+            Assertions.assertEquals(2L, plans.get());
+            Assertions.assertEquals("pth_06-speculative-planner", planningThread.get());
+            Assertions.assertEquals(2L, planner.next().getArchiveOffset().offset());
+            Assertions.assertEquals(2L, plans.get());
+        }
+    }
+
+    @Test
+    public void testMostRecentIsHandedOverOffset() {
+        final AtomicLong plans = new AtomicLong();
+        try (
+                final SpeculativeOffsetPlanner planner = new SpeculativeOffsetPlanner(
+                        () -> new DatasourceOffset(new LongOffset(plans.incrementAndGet())),
+                        true
+                )
+        ) {
+            final DatasourceOffset current = new DatasourceOffset(new LongOffset(-1L));
+            Assertions.assertEquals(current, planner.mostRecent(() -> current));
+
+            planner.next();
+            planner.speculate();
+            planner.await();
+            Assertions.assertEquals(1L, planner.mostRecent(() -> current).getArchiveOffset().offset());
+        }
+    }
+
+    @Test
+    public void testFailureSurfacesOnNext() {
+        try (final SpeculativeOffsetPlanner planner = new SpeculativeOffsetPlanner(() -> {
+            throw new IllegalStateException("planning failed");
+        }, true)) {
+            planner.speculate();
+            Assertions.assertDoesNotThrow(planner::await);
+            final IllegalStateException exception = Assertions.assertThrows(IllegalStateException.class, planner::next);
+            Assertions.assertEquals("planning failed", exception.getMessage());
+        }
+    }
+}
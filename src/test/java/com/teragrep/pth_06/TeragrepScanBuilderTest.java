@@ -0,0 +1,89 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06;
+
+import org.apache.spark.sql.types.StructType;
+import org.apache.spark.sql.util.CaseInsensitiveStringMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public final class TeragrepScanBuilderTest {
+
+    @Test
+    public void testPushedLimitIsPassedToPlanner() {
+        final TeragrepScanBuilder scanBuilder = new TeragrepScanBuilder(new StructType(), options(new HashMap<>()));
+        Assertions.assertTrue(scanBuilder.pushLimit(100));
+        Assertions.assertTrue(scanBuilder.isPartiallyPushed());
+
+        final CaseInsensitiveStringMap options = scanBuilder.options();
+        Assertions.assertEquals("100", options.get("archive.limit.events"));
+        Assertions.assertEquals("<index value=\"haproxy\" operation=\"EQUALS\"/>", options.get("queryXML"));
+    }
+
+    @Test
+    public void testLowerGivenLimitIsKept() {
+        final Map<String, String> opts = new HashMap<>();
+        opts.put("archive.limit.events", "10");
+        final TeragrepScanBuilder scanBuilder = new TeragrepScanBuilder(new StructType(), options(opts));
+        Assertions.assertTrue(scanBuilder.pushLimit(100));
+        Assertions.assertEquals("10", scanBuilder.options().get("archive.limit.events"));
+    }
+
+    @Test
+    public void testZeroLimitIsNotPushed() {
+        final TeragrepScanBuilder scanBuilder = new TeragrepScanBuilder(new StructType(), options(new HashMap<>()));
+        Assertions.assertFalse(scanBuilder.pushLimit(0));
+        Assertions.assertFalse(scanBuilder.options().containsKey("archive.limit.events"));
+    }
+
+    private CaseInsensitiveStringMap options(final Map<String, String> opts) {
+        opts.put("queryXML", "<index value=\"haproxy\" operation=\"EQUALS\"/>");
+        return new CaseInsensitiveStringMap(opts);
+    }
+}
@@ -170,9 +170,11 @@ public class XmlToSqlTest {
                 + "    and \"getArchivedObjects_filter_table\".\"host\" like 'loadbalancer.example.com'\n" + "  )\n"
                 + "  or (\n" + "    true\n"
                 + "    and \"getArchivedObjects_filter_table\".\"host\" like 'firewall.example.com'\n"
-                + "    and \"journaldb\".\"logfile\".\"logdate\" >= date '" + fromDate + "'\n"
-                + "    and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) >= "
-                + fromTime.getEpochSecond() + ")\n" + "  )\n" + ")";
+                + "    and \"journaldb\".\"logfile\".\"logdate\" >= date '" + fromDate + "'\n" + "    and (\n"
+                + "      \"journaldb\".\"logfile\".\"epoch_hour\" >= " + fromTime.getEpochSecond() + "\n"
+                + "      or (\n" + "        \"journaldb\".\"logfile\".\"epoch_hour\" is null\n"
+                + "        and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) >= "
+                + fromTime.getEpochSecond() + ")\n" + "      )\n" + "    )\n" + "  )\n" + ")";
         result = parser.fromString(q, false).toString();
         LOGGER.debug("Query=" + q);
         LOGGER.debug("Expected=" + e);
@@ -195,9 +197,11 @@ public class XmlToSqlTest {
                 + "    and \"getArchivedObjects_filter_table\".\"host\" like 'loadbalancer.example.com'\n" + "  )\n"
                 + "  or (\n" + "    true\n"
                 + "    and \"getArchivedObjects_filter_table\".\"host\" like 'firewall.example.com'\n"
-                + "    and \"journaldb\".\"logfile\".\"logdate\" <= date '" + fromDate + "'\n"
-                + "    and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) <= "
-                + fromTime.getEpochSecond() + ")\n" + "  )\n" + ")";
+                + "    and \"journaldb\".\"logfile\".\"logdate\" <= date '" + fromDate + "'\n" + "    and (\n"
+                + "      \"journaldb\".\"logfile\".\"epoch_hour\" <= " + fromTime.getEpochSecond() + "\n"
+                + "      or (\n" + "        \"journaldb\".\"logfile\".\"epoch_hour\" is null\n"
+                + "        and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) <= "
+                + fromTime.getEpochSecond() + ")\n" + "      )\n" + "    )\n" + "  )\n" + ")";
         result = parser.fromString(q, false).toString();
         LOGGER.debug("Query=" + q);
         LOGGER.debug("Expected=" + e);
@@ -221,12 +225,16 @@ public class XmlToSqlTest {
                 + "    and \"getArchivedObjects_filter_table\".\"host\" like 'loadbalancer.example.com'\n" + "  )\n"
                 + "  or (\n" + "    true\n"
                 + "    and \"getArchivedObjects_filter_table\".\"host\" like 'firewall.example.com'\n"
-                + "    and \"journaldb\".\"logfile\".\"logdate\" >= date '" + fromDate + "'\n"
-                + "    and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) >= "
-                + fromTime.getEpochSecond() + ")\n" + "    and \"journaldb\".\"logfile\".\"logdate\" <= date '" + toDate
-                + "'\n"
-                + "    and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) <= "
-                + toTime.getEpochSecond() + ")\n" + "  )\n" + ")";
+                + "    and \"journaldb\".\"logfile\".\"logdate\" >= date '" + fromDate + "'\n" + "    and (\n"
+                + "      \"journaldb\".\"logfile\".\"epoch_hour\" >= " + fromTime.getEpochSecond() + "\n"
+                + "      or (\n" + "        \"journaldb\".\"logfile\".\"epoch_hour\" is null\n"
+                + "        and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) >= "
+                + fromTime.getEpochSecond() + ")\n" + "      )\n" + "    )\n"
+                + "    and \"journaldb\".\"logfile\".\"logdate\" <= date '" + toDate + "'\n" + "    and (\n"
+                + "      \"journaldb\".\"logfile\".\"epoch_hour\" <= " + toTime.getEpochSecond() + "\n" + "      or (\n"
+                + "        \"journaldb\".\"logfile\".\"epoch_hour\" is null\n"
+                + "        and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) <= "
+                + toTime.getEpochSecond() + ")\n" + "      )\n" + "    )\n" + "  )\n" + ")";
         result = parser.fromString(q, false).toString();
         LOGGER.debug("Query=" + q);
         LOGGER.debug("Expected=" + e);
@@ -249,12 +257,16 @@ public class XmlToSqlTest {
         e = "(\n" + "  \"getArchivedObjects_filter_table\".\"host\" like 'sc-99-99-14-25'\n"
                 + "  and \"getArchivedObjects_filter_table\".\"directory\" like 'cpu'\n"
                 + "  and \"getArchivedObjects_filter_table\".\"stream\" like 'log:cpu:0'\n"
-                + "  and \"journaldb\".\"logfile\".\"logdate\" >= date '" + fromDate + "'\n"
-                + "  and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) >= "
-                + fromTime.getEpochSecond() + ")\n" + "  and \"journaldb\".\"logfile\".\"logdate\" <= date '" + toDate
-                + "'\n"
-                + "  and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) <= "
-                + toTime.getEpochSecond() + ")\n" + ")";
+                + "  and \"journaldb\".\"logfile\".\"logdate\" >= date '" + fromDate + "'\n" + "  and (\n"
+                + "    \"journaldb\".\"logfile\".\"epoch_hour\" >= " + fromTime.getEpochSecond() + "\n" + "    or (\n"
+                + "      \"journaldb\".\"logfile\".\"epoch_hour\" is null\n"
+                + "      and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) >= "
+                + fromTime.getEpochSecond() + ")\n" + "    )\n" + "  )\n"
+                + "  and \"journaldb\".\"logfile\".\"logdate\" <= date '" + toDate + "'\n" + "  and (\n"
+                + "    \"journaldb\".\"logfile\".\"epoch_hour\" <= " + toTime.getEpochSecond() + "\n" + "    or (\n"
+                + "      \"journaldb\".\"logfile\".\"epoch_hour\" is null\n"
+                + "      and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) <= "
+                + toTime.getEpochSecond() + ")\n" + "    )\n" + "  )\n" + ")";
         result = parser.fromString(q, false).toString();
         LOGGER.debug("Query=" + q);
         LOGGER.debug("Expected=" + e);
@@ -119,6 +119,74 @@ public class ArchiveConfigTest {
         Assertions.assertEquals(Long.MAX_VALUE, defaultConfig.archiveIncludeBeforeEpoch);
     }
 
+    @Test
+    public void testDefaultSeekWindow() {
+        Map<String, String> opts = options();
+        ArchiveConfig defaultConfig = new ArchiveConfig(opts);
+        Assertions.assertEquals(1, defaultConfig.seekWindowDays);
+        Assertions.assertEquals(1, defaultConfig.seekMaxWindowDays);
+    }
+
+    @Test
+    public void testSeekWindow() {
+        Map<String, String> opts = options();
+        opts.put("archive.seek.windowDays", "2");
+        opts.put("archive.seek.maxWindowDays", "64");
+        ArchiveConfig defaultConfig = new ArchiveConfig(opts);
+        Assertions.assertEquals(2, defaultConfig.seekWindowDays);
+        Assertions.assertEquals(64, defaultConfig.seekMaxWindowDays);
+    }
+
+    @Test
+    public void testFilterTableCacheTtl() {
+        Map<String, String> opts = options();
+        Assertions.assertEquals(0L, new ArchiveConfig(opts).filterTableCacheTtlSeconds);
+        opts.put("archive.filterTableCache.ttlSeconds", "300");
+        Assertions.assertEquals(300L, new ArchiveConfig(opts).filterTableCacheTtlSeconds);
+    }
+
+    @Test
+    public void testCorruptedArchiveInMemory() {
+        Map<String, String> opts = options();
+        Assertions.assertFalse(new ArchiveConfig(opts).corruptedArchiveInMemory);
+        Assertions.assertEquals(0L, new ArchiveConfig(opts).corruptedArchiveRefreshSeconds);
+        opts.put("archive.corruptedArchive.inMemory", "true");
+        opts.put("archive.corruptedArchive.refreshSeconds", "600");
+        Assertions.assertTrue(new ArchiveConfig(opts).corruptedArchiveInMemory);
+        Assertions.assertEquals(600L, new ArchiveConfig(opts).corruptedArchiveRefreshSeconds);
+    }
+
+    @Test
+    public void testSeekParallelConnections() {
+        Map<String, String> opts = options();
+        Assertions.assertEquals(1, new ArchiveConfig(opts).seekParallelConnections);
+        opts.put("archive.seek.parallelConnections", "8");
+        Assertions.assertEquals(8, new ArchiveConfig(opts).seekParallelConnections);
+        opts.put("archive.seek.parallelConnections", "0");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ArchiveConfig(opts));
+    }
+
+    @Test
+    public void testScanNewestFirst() {
+        Map<String, String> opts = options();
+        Assertions.assertFalse(new ArchiveConfig(opts).scanNewestFirst);
+        opts.put("archive.scan.newestFirst", "true");
+        Assertions.assertTrue(new ArchiveConfig(opts).scanNewestFirst);
+    }
+
+    @Test
+    public void testLimitEvents() {
+        Map<String, String> opts = options();
+        Assertions.assertEquals(0L, new ArchiveConfig(opts).limitEvents);
+        Assertions.assertEquals(512L, new ArchiveConfig(opts).limitAverageEventSize);
+        opts.put("archive.limit.events", "100");
+        opts.put("archive.limit.averageEventSize", "200");
+        Assertions.assertEquals(100L, new ArchiveConfig(opts).limitEvents);
+        Assertions.assertEquals(200L, new ArchiveConfig(opts).limitAverageEventSize);
+        opts.put("archive.limit.averageEventSize", "0");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ArchiveConfig(opts));
+    }
+
     // provides minimal options needed to avoid exceptions
     private Map<String, String> options() {
         Map<String, String> opts = new HashMap<>();
@@ -130,4 +198,45 @@ public class ArchiveConfigTest {
         opts.put("DBurl", "DBurl");
         return opts;
     }
+
+    @Test
+    public void testDefaultSliceStore() {
+        Map<String, String> opts = options();
+        ArchiveConfig defaultConfig = new ArchiveConfig(opts);
+        Assertions.assertFalse(defaultConfig.sliceStoreInMemory);
+        Assertions.assertEquals(1000000, defaultConfig.sliceStoreMaxRows);
+    }
+
+    @Test
+    public void testInMemorySliceStore() {
+        Map<String, String> opts = options();
+        opts.put("archive.sliceStore.inMemory", "true");
+        opts.put("archive.sliceStore.maxRows", "500");
+        ArchiveConfig defaultConfig = new ArchiveConfig(opts);
+        Assertions.assertTrue(defaultConfig.sliceStoreInMemory);
+        Assertions.assertEquals(500, defaultConfig.sliceStoreMaxRows);
+    }
+
+    @Test
+    public void testSegmentedSliceStore() {
+        Map<String, String> opts = options();
+        Assertions.assertFalse(new ArchiveConfig(opts).sliceStoreSegmented);
+        opts.put("archive.sliceStore.segmented", "true");
+        Assertions.assertTrue(new ArchiveConfig(opts).sliceStoreSegmented);
+    }
+
+    @Test
+    public void testServerPrepStmtsDefaultOn() {
+        Map<String, String> opts = options();
+        ArchiveConfig defaultConfig = new ArchiveConfig(opts);
+        Assertions.assertTrue(defaultConfig.dbUseServerPrepStmts);
+    }
+
+    @Test
+    public void testServerPrepStmtsOff() {
+        Map<String, String> opts = options();
+        opts.put("DBuseServerPrepStmts", "false");
+        ArchiveConfig defaultConfig = new ArchiveConfig(opts);
+        Assertions.assertFalse(defaultConfig.dbUseServerPrepStmts);
+    }
 }
@@ -106,6 +106,6 @@ public class ConditionConfigTest {
 
     @Test
     public void equalsHashCodeContractTest() {
-        EqualsVerifier.forClass(ConditionConfig.class).verify();
+        EqualsVerifier.forClass(ConditionConfig.class).withIgnoredFields("plannerMetrics").verify();
     }
 }
@@ -0,0 +1,116 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.metrics.planner;
+
+import com.codahale.metrics.Timer;
+import org.apache.spark.sql.connector.metric.CustomMetric;
+import org.apache.spark.sql.connector.metric.CustomTaskMetric;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public final class PlannerMetricsTest {
+
+    @Test
+    public void testPhaseTiming() {
+        final PlannerMetrics plannerMetrics = new PlannerMetrics();
+        for (int i = 0; i < 3; i++) {
+            try (final Timer.Context ignored = plannerMetrics.time(PlannerPhase.HOUR_WEIGHTS)) {
+                Assertions.assertNotNull(ignored);
+            }
+        }
+
+        final Map<String, Long> values = new HashMap<>();
+        for (final CustomTaskMetric metric : plannerMetrics.currentMetrics()) {
+            values.put(metric.name(), metric.value());
+        }
+        Assertions.assertEquals((PlannerPhase.values().length + 1) * 4, values.size());
+        Assertions.assertEquals(3L, values.get("ArchivePlannerHourWeightsCount"));
+        Assertions.assertTrue(values.get("ArchivePlannerHourWeightsMax") >= values.get("ArchivePlannerHourWeightsP50"));
+        Assertions.assertEquals(0L, values.get("ArchivePlannerPullCount"));
+        Assertions.assertEquals(0L, values.get("ArchivePlannerPullMax"));
+    }
+
+    @Test
+    public void testMakespan() {
+        final PlannerMetrics plannerMetrics = new PlannerMetrics();
+        plannerMetrics.makespan(1.5D);
+        plannerMetrics.makespan(4D);
+
+        final Map<String, Long> values = new HashMap<>();
+        for (final CustomTaskMetric metric : plannerMetrics.currentMetrics()) {
+            values.put(metric.name(), metric.value());
+        }
+        Assertions.assertEquals(2L, values.get("BatchEstimatedMakespanCount"));
+        Assertions.assertEquals(4000L, values.get("BatchEstimatedMakespanMax"));
+    }
+
+    @Test
+    public void testCurrentMetricsAreSupported() {
+        final Set<String> supported = new HashSet<>();
+        for (final CustomMetric metric : PlannerMetrics.supportedMetrics()) {
+            supported.add(metric.name());
+        }
+        for (final CustomTaskMetric metric : new PlannerMetrics().currentMetrics()) {
+            Assertions.assertTrue(supported.contains(metric.name()), metric.name());
+        }
+        Assertions.assertTrue(supported.contains("ArchiveRollingDayLag"));
+        Assertions.assertTrue(supported.contains("ArchiveEmptyDaysScanned"));
+    }
+
+    @Test
+    public void testAggregatorReportsMaximum() {
+        final PlannerMetricAggregator aggregator = new PlannerMetricAggregator();
+        Assertions.assertEquals("7", aggregator.aggregateTaskMetrics(new long[] {
+                3L, 7L, 5L
+        }));
+        Assertions.assertEquals("0", aggregator.aggregateTaskMetrics(new long[0]));
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import org.jooq.DSLContext;
+import org.jooq.Record1;
+import org.jooq.Record10;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockDataProvider;
+import org.jooq.tools.jdbc.MockResult;
+import org.jooq.types.ULong;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.teragrep.pth_06.jooq.generated.journaldb.Journaldb.JOURNALDB;
+
+public final class CorruptedArchiveIdsTest {
+
+    private final DSLContext ctx = DSL.using(SQLDialect.MYSQL);
+    private final List<Long> corruptedIds = new ArrayList<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final MockDataProvider provider = context -> {
+        loads.incrementAndGet();
+        final Result<Record1<ULong>> result = ctx.newResult(JOURNALDB.CORRUPTED_ARCHIVE.LOGFILE_ID);
+        for (final long id : corruptedIds) {
+            result.add(ctx.newRecord(JOURNALDB.CORRUPTED_ARCHIVE.LOGFILE_ID).values(ULong.valueOf(id)));
+        }
+        return new MockResult[] {
+                new MockResult(result.size(), result)
+        };
+    };
+
+    @Test
+    public void testFilterRemovesCorruptedRows() {
+        corruptedIds.addAll(Arrays.asList(2L, 4L, Long.MAX_VALUE));
+        final CorruptedArchiveIds corruptedArchiveIds = new CorruptedArchiveIds(
+                DSL.using(new MockConnection(provider), SQLDialect.MYSQL),
+                0L,
+                false,
+                false
+        );
+        Assertions.assertFalse(corruptedArchiveIds.isStub());
+
+        final Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> filtered = corruptedArchiveIds
+                .filter(rows(1L, 2L, 3L, 4L, 5L));
+        Assertions.assertEquals(3, filtered.size());
+        Assertions.assertEquals(ULong.valueOf(1L), filtered.get(0).value1());
+        Assertions.assertEquals(ULong.valueOf(3L), filtered.get(1).value1());
+        Assertions.assertEquals(ULong.valueOf(5L), filtered.get(2).value1());
+
+        // loaded once for the query
+        Assertions.assertEquals(3, corruptedArchiveIds.filter(rows(1L, 3L, 5L)).size());
+        Assertions.assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testRefresh() {
+        final AtomicLong clock = new AtomicLong(0L);
+        final CorruptedArchiveIds corruptedArchiveIds = new CorruptedArchiveIds(
+                DSL.using(new MockConnection(provider), SQLDialect.MYSQL),
+                1000L,
+                clock::get,
+                false,
+                false,
+                false
+        );
+        Assertions.assertEquals(2, corruptedArchiveIds.filter(rows(1L, 2L)).size());
+
+        corruptedIds.add(2L);
+        clock.set(999L);
+        Assertions.assertEquals(2, corruptedArchiveIds.filter(rows(1L, 2L)).size());
+        Assertions.assertEquals(1, loads.get());
+
+        clock.set(1000L);
+        Assertions.assertEquals(1, corruptedArchiveIds.filter(rows(1L, 2L)).size());
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testStubCanNotFilter() {
+        final CorruptedArchiveIds stub = new CorruptedArchiveIds();
+        Assertions.assertTrue(stub.isStub());
+        Assertions.assertThrows(IllegalStateException.class, () -> stub.filter(rows(1L)));
+    }
+
+    private Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> rows(
+            final long ... ids
+    ) {
+        final Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> result = ctx
+                .newResult(
+                        SliceTable.id, SliceTable.directory, SliceTable.stream, SliceTable.host, SliceTable.logdate,
+                        SliceTable.bucket, SliceTable.path, SliceTable.logtime, SliceTable.filesize,
+                        SliceTable.uncompressedFilesize
+                );
+        for (final long id : ids) {
+            result
+                    .add(
+                            ctx
+                                    .newRecord(
+                                            SliceTable.id, SliceTable.directory, SliceTable.stream, SliceTable.host,
+                                            SliceTable.logdate, SliceTable.bucket, SliceTable.path, SliceTable.logtime,
+                                            SliceTable.filesize, SliceTable.uncompressedFilesize
+                                    )
+                                    .values(ULong.valueOf(id), "directory", "stream", "host", Date.valueOf("2023-10-04"), "bucket", "2023/10-04/host/directory/directory.logGLOB-2023100422.log.gz", 1696460400L, ULong.valueOf(120L), null)
+                    );
+        }
+        return result;
+    }
+}
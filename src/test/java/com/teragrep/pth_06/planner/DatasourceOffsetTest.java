@@ -72,6 +72,30 @@ public class DatasourceOffsetTest {
         Assertions.assertEquals(1, deser.getKafkaOffset().getOffsetMap().size());
     }
 
+    @Test
+    public void archiveLogfileIdSerdeTest() {
+        final DatasourceOffset datasourceOffset = new DatasourceOffset(new LongOffset(3600L), 42L);
+
+        final DatasourceOffset deser = new DatasourceOffset(datasourceOffset.json());
+
+        Assertions.assertEquals(3600L, deser.getArchiveOffset().offset());
+        Assertions.assertEquals(42L, deser.getArchiveLogfileId());
+        Assertions.assertNull(deser.getKafkaOffset());
+    }
+
+    @Test
+    public void wholeHourOffsetKeepsFormatTest() {
+        // offset json written to checkpoints before the logfile id was added
+        final String checkpointed = "{\"version\":1,\"archiveOffset\":{\"offset\":3600,\"json\":\"3600\"}}";
+
+        final DatasourceOffset deser = new DatasourceOffset(checkpointed);
+
+        Assertions.assertEquals(3600L, deser.getArchiveOffset().offset());
+        Assertions.assertNull(deser.getArchiveLogfileId());
+        Assertions.assertEquals(checkpointed, deser.json());
+        Assertions.assertEquals(checkpointed, new DatasourceOffset(new LongOffset(3600L)).json());
+    }
+
     @Test
     public void kafkaOffsetSerdeTest() {
         Map<TopicPartition, Long> topicPartitionLongMap = new HashMap<>();
@@ -0,0 +1,104 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public final class EventLimitTest {
+
+    @Test
+    public void testUnlimitedIsNeverReached() {
+        final EventLimit eventLimit = new EventLimit(0L, 100L);
+        eventLimit.add(Long.MAX_VALUE / 2);
+        eventLimit.processed(Long.MAX_VALUE / 2);
+        Assertions.assertFalse(eventLimit.isBatchFull());
+        Assertions.assertFalse(eventLimit.isReached());
+    }
+
+    @Test
+    public void testBatchIsFullByEstimatedEvents() {
+        final EventLimit eventLimit = new EventLimit(10L, 100L);
+        eventLimit.startBatch();
+        eventLimit.add(500L);
+        Assertions.assertEquals(5L, eventLimit.estimatedEvents());
+        Assertions.assertFalse(eventLimit.isBatchFull());
+        eventLimit.add(499L);
+        Assertions.assertFalse(eventLimit.isBatchFull());
+        eventLimit.add(1L);
+        Assertions.assertTrue(eventLimit.isBatchFull());
+        // the estimate alone never stops the planning
+        Assertions.assertFalse(eventLimit.isReached());
+    }
+
+    @Test
+    public void testEventsLargerThanAverageKeepPlanning() {
+        // events are 200 bytes on average instead of the configured 100
+        final EventLimit eventLimit = new EventLimit(10L, 100L);
+        eventLimit.startBatch();
+        eventLimit.add(1000L);
+        Assertions.assertTrue(eventLimit.isBatchFull());
+        eventLimit.processed(5L);
+        Assertions.assertFalse(eventLimit.isReached());
+
+        // the next batch plans the events still missing
+        eventLimit.startBatch();
+        Assertions.assertFalse(eventLimit.isBatchFull());
+        eventLimit.add(400L);
+        Assertions.assertFalse(eventLimit.isBatchFull());
+        eventLimit.add(100L);
+        Assertions.assertTrue(eventLimit.isBatchFull());
+        eventLimit.processed(5L);
+        Assertions.assertTrue(eventLimit.isReached());
+        Assertions.assertEquals(10L, eventLimit.processedEvents());
+    }
+
+    @Test
+    public void testInvalidLimits() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new EventLimit(-1L, 100L));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new EventLimit(10L, 0L));
+    }
+}
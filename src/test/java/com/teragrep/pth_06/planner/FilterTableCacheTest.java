@@ -0,0 +1,157 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import org.jooq.DSLContext;
+import org.jooq.Record5;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.types.ULong;
+import org.jooq.types.UShort;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.teragrep.pth_06.planner.GetArchivedObjectsFilterTable.*;
+
+public final class FilterTableCacheTest {
+
+    private final DSLContext ctx = DSL.using(SQLDialect.MYSQL);
+
+    private Result<Record5<String, String, ULong, String, UShort>> rows() {
+        final Result<Record5<String, String, ULong, String, UShort>> rows = ctx
+                .newResult(directory, stream, tag_id, host, host_id);
+        final Record5<String, String, ULong, String, UShort> row = ctx
+                .newRecord(directory, stream, tag_id, host, host_id);
+        row.values("directory", "stream", ULong.valueOf(1L), "host", UShort.valueOf(2));
+        rows.add(row);
+        return rows;
+    }
+
+    @Test
+    public void testHitWithinTtl() {
+        final AtomicLong clock = new AtomicLong(1000L);
+        final FilterTableCache cache = new FilterTableCache(new HashMap<>(), "jdbc:test", "user", 60_000L, clock::get);
+        Assertions.assertFalse(cache.isStub());
+        Assertions.assertFalse(cache.get("condition").isPresent());
+
+        final Result<Record5<String, String, ULong, String, UShort>> rows = rows();
+        cache.put("condition", rows);
+        clock.addAndGet(59_999L);
+        Assertions.assertTrue(cache.get("condition").isPresent());
+        Assertions.assertEquals(rows, cache.get("condition").get());
+        Assertions.assertFalse(cache.get("other condition").isPresent());
+    }
+
+    @Test
+    public void testExpiresAfterTtl() {
+        final AtomicLong clock = new AtomicLong(1000L);
+        final Map<String, FilterTableCache.Entry> entries = new HashMap<>();
+        final FilterTableCache cache = new FilterTableCache(entries, "jdbc:test", "user", 60_000L, clock::get);
+        cache.put("condition", rows());
+        clock.addAndGet(60_000L);
+        Assertions.assertFalse(cache.get("condition").isPresent());
+        Assertions.assertTrue(entries.isEmpty());
+    }
+
+    @Test
+    public void testScopesDoNotShareRows() {
+        final Map<String, FilterTableCache.Entry> entries = new HashMap<>();
+        final FilterTableCache cache = new FilterTableCache(entries, "jdbc:first", "user", 60_000L, () -> 0L);
+        final FilterTableCache otherCache = new FilterTableCache(entries, "jdbc:second", "user", 60_000L, () -> 0L);
+        cache.put("condition", rows());
+        Assertions.assertTrue(cache.get("condition").isPresent());
+        Assertions.assertFalse(otherCache.get("condition").isPresent());
+    }
+
+    @Test
+    public void testUsersDoNotShareRows() {
+        final Map<String, FilterTableCache.Entry> entries = new HashMap<>();
+        final FilterTableCache cache = new FilterTableCache(entries, "jdbc:test", "first", 60_000L, () -> 0L);
+        final FilterTableCache otherCache = new FilterTableCache(entries, "jdbc:test", "second", 60_000L, () -> 0L);
+        cache.put("condition", rows());
+        Assertions.assertTrue(cache.get("condition").isPresent());
+        Assertions.assertFalse(otherCache.get("condition").isPresent());
+    }
+
+    @Test
+    public void testPutPurgesExpired() {
+        final AtomicLong clock = new AtomicLong(1000L);
+        final Map<String, FilterTableCache.Entry> entries = new HashMap<>();
+        final FilterTableCache cache = new FilterTableCache(entries, "jdbc:test", "user", 60_000L, clock::get);
+        cache.put("condition", rows());
+        cache.put("other condition", rows());
+        clock.addAndGet(60_000L);
+        cache.put("third condition", rows());
+        Assertions.assertEquals(1, entries.size());
+        Assertions.assertTrue(cache.get("third condition").isPresent());
+    }
+
+    @Test
+    public void testCachedRowsAreDetached() {
+        final FilterTableCache cache = new FilterTableCache(new HashMap<>(), "jdbc:test", "user", 60_000L, () -> 0L);
+        final Result<Record5<String, String, ULong, String, UShort>> rows = rows();
+        Assertions.assertNotNull(rows.configuration());
+        cache.put("condition", rows);
+        Assertions.assertNull(cache.get("condition").get().configuration());
+        Assertions.assertNull(cache.get("condition").get().get(0).configuration());
+    }
+
+    @Test
+    public void testStubNeverCaches() {
+        final Map<String, FilterTableCache.Entry> entries = new HashMap<>();
+        final FilterTableCache cache = new FilterTableCache(entries, "jdbc:test", "user", 0L, () -> 0L);
+        Assertions.assertTrue(cache.isStub());
+        cache.put("condition", rows());
+        Assertions.assertTrue(entries.isEmpty());
+        Assertions.assertFalse(cache.get("condition").isPresent());
+        Assertions.assertTrue(new FilterTableCache().isStub());
+    }
+}
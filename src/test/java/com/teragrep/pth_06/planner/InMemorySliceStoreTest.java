@@ -0,0 +1,236 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import org.jooq.DSLContext;
+import org.jooq.Record10;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.Select;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.jooq.types.ULong;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public final class InMemorySliceStoreTest {
+
+    private final DSLContext ctx = DSL.using(SQLDialect.MYSQL);
+
+    @Test
+    public void testHourWeights() {
+        final InMemorySliceStore store = new InMemorySliceStore(100, new InMemorySliceStore(100, null, false), false);
+        store.create();
+        Assertions
+                .assertEquals(4, store.insert(select(row(1L, 7200L, 10L), row(2L, 3600L, 20L), row(3L, 3600L, 30L), row(4L, null, 40L))));
+
+        final List<WeightedOffset> hourWeights = store.hourWeights(0L, Long.MAX_VALUE);
+        Assertions.assertEquals(2, hourWeights.size());
+        Assertions.assertEquals(3600L, hourWeights.get(0).offset());
+        Assertions.assertEquals(50L, hourWeights.get(0).fileSize());
+        Assertions.assertEquals(2L, hourWeights.get(0).objectCount());
+        // none of the rows have an uncompressed size
+        Assertions.assertEquals(0L, hourWeights.get(0).uncompressedSize());
+        Assertions.assertEquals(7200L, hourWeights.get(1).offset());
+        Assertions.assertEquals(10L, hourWeights.get(1).fileSize());
+        Assertions.assertEquals(1L, hourWeights.get(1).objectCount());
+
+        // start is exclusive and includeBeforeEpoch cuts off
+        Assertions.assertEquals(1, store.hourWeights(3600L, Long.MAX_VALUE).size());
+        Assertions.assertEquals(1, store.hourWeights(0L, 7200L).size());
+    }
+
+    @Test
+    public void testHourRangeRestoresRows() {
+        final InMemorySliceStore store = new InMemorySliceStore(100, new InMemorySliceStore(100, null, false), false);
+        store.create();
+        final Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong> original = row(
+                42L, 3600L, 120L
+        );
+        store.insert(select(original, row(43L, 7200L, 120L)));
+
+        final Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> hourRange = store
+                .hourRange(0L, 3600L, Long.MAX_VALUE);
+        Assertions.assertEquals(1, hourRange.size());
+        Assertions.assertEquals(original.intoList(), hourRange.get(0).intoList());
+        Assertions.assertEquals(2, store.hourRange(0L, 7200L, Long.MAX_VALUE).size());
+        Assertions.assertEquals(1, store.hourRange(0L, 7200L, 7200L).size());
+    }
+
+    @Test
+    public void testHourRangeStreamsRowsInLogtimeOrder() {
+        final InMemorySliceStore store = new InMemorySliceStore(100, new InMemorySliceStore(100, null, false), false);
+        store.create();
+        store.insert(select(row(2L, 7200L, 1L), row(1L, 3600L, 1L), row(3L, 10800L, 1L)));
+
+        final List<Long> ids = new ArrayList<>();
+        store.hourRange(0L, 7200L, Long.MAX_VALUE, r -> ids.add(r.value1().longValue()));
+        Assertions.assertEquals(Arrays.asList(1L, 2L), ids);
+    }
+
+    @Test
+    public void testInsertMergesByLogtime() {
+        final InMemorySliceStore store = new InMemorySliceStore(100, new InMemorySliceStore(100, null, false), false);
+        store.create();
+        store.insert(select(row(1L, 3600L, 1L), row(2L, 10800L, 1L)));
+        store.insert(select(row(3L, 7200L, 1L)));
+
+        final List<WeightedOffset> hourWeights = store.hourWeights(0L, Long.MAX_VALUE);
+        Assertions.assertEquals(3, hourWeights.size());
+        Assertions.assertEquals(3600L, hourWeights.get(0).offset());
+        Assertions.assertEquals(7200L, hourWeights.get(1).offset());
+        Assertions.assertEquals(10800L, hourWeights.get(2).offset());
+    }
+
+    @Test
+    public void testDeleteRange() {
+        final InMemorySliceStore store = new InMemorySliceStore(100, new InMemorySliceStore(100, null, false), false);
+        store.create();
+        store.insert(select(row(1L, 3600L, 1L), row(2L, 7200L, 1L), row(3L, 10800L, 1L), row(4L, 14400L, 1L)));
+
+        // commit drops from the head
+        Assertions.assertEquals(1, store.deleteRange(Long.MIN_VALUE, 3600L));
+        // deleting from the middle
+        Assertions.assertEquals(1, store.deleteRange(7200L, 10800L));
+        Assertions.assertEquals(0, store.deleteRange(Long.MIN_VALUE, 3600L));
+
+        final List<WeightedOffset> hourWeights = store.hourWeights(0L, Long.MAX_VALUE);
+        Assertions.assertEquals(2, hourWeights.size());
+        Assertions.assertEquals(7200L, hourWeights.get(0).offset());
+        Assertions.assertEquals(14400L, hourWeights.get(1).offset());
+
+        Assertions.assertEquals(2, store.deleteRange(Long.MIN_VALUE, 14400L));
+        Assertions.assertTrue(store.hourWeights(0L, Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void testMaxRows() {
+        final InMemorySliceStore store = new InMemorySliceStore(3, new InMemorySliceStore(100, null, false), false);
+        store.create();
+        store.insert(select(row(1L, 3600L, 1L), row(2L, 7200L, 1L)));
+        store.deleteRange(Long.MIN_VALUE, 3600L);
+        // committed rows no longer count
+        store.insert(select(row(3L, 10800L, 1L), row(4L, 14400L, 1L)));
+        Assertions.assertFalse(store.isOverflowed());
+
+        // going over maxRows moves the live rows to the fallback store instead of failing the query
+        Assertions.assertEquals(1, store.insert(select(row(5L, 18000L, 1L))));
+        Assertions.assertTrue(store.isOverflowed());
+        final List<WeightedOffset> hourWeights = store.hourWeights(0L, Long.MAX_VALUE);
+        Assertions.assertEquals(4, hourWeights.size());
+        Assertions.assertEquals(7200L, hourWeights.get(0).offset());
+        Assertions.assertEquals(18000L, hourWeights.get(3).offset());
+
+        // the fallback store keeps taking rows and commits
+        Assertions.assertEquals(1, store.insert(select(row(6L, 21600L, 1L))));
+        Assertions.assertEquals(2, store.deleteRange(Long.MIN_VALUE, 10800L));
+        final List<Long> ids = new ArrayList<>();
+        store.hourRange(0L, Long.MAX_VALUE, Long.MAX_VALUE, r -> ids.add(r.value1().longValue()));
+        Assertions.assertEquals(Arrays.asList(4L, 5L, 6L), ids);
+        Assertions.assertEquals(3L, store.currentMetrics()[0].value());
+    }
+
+    @Test
+    public void testMetrics() {
+        final InMemorySliceStore store = new InMemorySliceStore(100, new InMemorySliceStore(100, null, false), false);
+        store.create();
+        final long emptyBytes = store.estimatedBytes();
+        store.insert(select(row(1L, 3600L, 1L), row(2L, 7200L, 1L)));
+        Assertions.assertTrue(store.estimatedBytes() > emptyBytes);
+        Assertions.assertEquals(2, store.currentMetrics().length);
+        Assertions.assertEquals("ArchiveSliceStoreRows", store.currentMetrics()[0].name());
+        Assertions.assertEquals(2L, store.currentMetrics()[0].value());
+        Assertions.assertEquals("ArchiveSliceStoreBytes", store.currentMetrics()[1].name());
+        Assertions.assertEquals(store.estimatedBytes(), store.currentMetrics()[1].value());
+    }
+
+    private Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong> row(
+            final long id,
+            final Long logtime,
+            final long fileSize
+    ) {
+        final Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong> record = ctx
+                .newRecord(
+                        SliceTable.id, SliceTable.directory, SliceTable.stream, SliceTable.host, SliceTable.logdate,
+                        SliceTable.bucket, SliceTable.path, SliceTable.logtime, SliceTable.filesize,
+                        SliceTable.uncompressedFilesize
+                );
+        record
+                .values(ULong.valueOf(id), "directory", "stream", "host", Date.valueOf("2023-10-04"), "bucket", "2023/10-04/host/directory/directory.logGLOB-2023100422.log.gz", logtime, ULong.valueOf(fileSize), null);
+        return record;
+    }
+
+    @SafeVarargs
+    private final Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> select(
+            final Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong> ... rows
+    ) {
+        final Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> result = ctx
+                .newResult(
+                        SliceTable.id, SliceTable.directory, SliceTable.stream, SliceTable.host, SliceTable.logdate,
+                        SliceTable.bucket, SliceTable.path, SliceTable.logtime, SliceTable.filesize,
+                        SliceTable.uncompressedFilesize
+                );
+        for (final Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong> row : rows) {
+            result.add(row);
+        }
+        final DSLContext mockCtx = DSL.using(new MockConnection(context -> new MockResult[] {
+                new MockResult(result.size(), result)
+        }), SQLDialect.MYSQL);
+        return mockCtx
+                .select(
+                        SliceTable.id, SliceTable.directory, SliceTable.stream, SliceTable.host, SliceTable.logdate,
+                        SliceTable.bucket, SliceTable.path, SliceTable.logtime, SliceTable.filesize,
+                        SliceTable.uncompressedFilesize
+                )
+                .from(SliceTable.SLICE_TABLE);
+    }
+}
@@ -58,6 +58,7 @@ import java.sql.Date;
 import java.util.PriorityQueue;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 public final class MockArchiveQueryProcessor implements ArchiveQuery {
 
@@ -77,6 +78,35 @@ public final class MockArchiveQueryProcessor implements ArchiveQuery {
         this.latestOffset = new AtomicReference<>();
     }
 
+    @Override
+    public void processBetweenUnixEpochHours(
+            final long startHour,
+            final long endHour,
+            final Consumer<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> consumer
+    ) {
+        processBetweenUnixEpochHours(startHour, endHour).forEach(consumer);
+    }
+
+    @Override
+    public void processBetweenOffsets(
+            final long startHour,
+            final Long startLogfileId,
+            final long endHour,
+            final Long endLogfileId,
+            final Consumer<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> consumer
+    ) {
+        final long excludedStartHour = startLogfileId == null ? startHour : startHour - 1;
+        processBetweenUnixEpochHours(excludedStartHour, endHour).forEach(r -> {
+            final boolean consumedBeforeStart = startLogfileId != null && r.value8() == startHour
+                    && Long.compareUnsigned(r.value1().longValue(), startLogfileId) <= 0;
+            final boolean afterEnd = endLogfileId != null && r.value8() == endHour
+                    && Long.compareUnsigned(r.value1().longValue(), endLogfileId) > 0;
+            if (!consumedBeforeStart && !afterEnd) {
+                consumer.accept(r);
+            }
+        });
+    }
+
     @Override
     public Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> processBetweenUnixEpochHours(
             final long startHour,
@@ -127,6 +157,16 @@ public final class MockArchiveQueryProcessor implements ArchiveQuery {
         committedOffset.set(offset);
     }
 
+    @Override
+    public void commit(final long offset, final Long logfileId) {
+        if (logfileId == null) {
+            commit(offset);
+        }
+        else {
+            commit(offset - 1);
+        }
+    }
+
     @Override
     public Long getInitialOffset() {
         final PriorityQueue<MockDBRow> queue = sliceableTestDataSource.asPriorityQueue();
@@ -174,6 +214,11 @@ public final class MockArchiveQueryProcessor implements ArchiveQuery {
         return latestOffset.get();
     }
 
+    @Override
+    public Long mostRecentLogfileId() {
+        return null;
+    }
+
     @Override
     public CustomTaskMetric[] currentDatabaseMetrics() {
         return new CustomTaskMetric[0];
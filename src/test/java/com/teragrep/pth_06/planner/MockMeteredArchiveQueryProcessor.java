@@ -56,6 +56,7 @@ import org.jooq.Result;
 import org.jooq.types.ULong;
 
 import java.sql.Date;
+import java.util.function.Consumer;
 
 public final class MockMeteredArchiveQueryProcessor implements ArchiveQuery {
 
@@ -71,6 +72,35 @@ public final class MockMeteredArchiveQueryProcessor implements ArchiveQuery {
         this.metricRegistry = new MetricRegistry();
     }
 
+    @Override
+    public void processBetweenUnixEpochHours(
+            final long startHour,
+            final long endHour,
+            final Consumer<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> consumer
+    ) {
+        processBetweenUnixEpochHours(startHour, endHour).forEach(consumer);
+    }
+
+    @Override
+    public void processBetweenOffsets(
+            final long startHour,
+            final Long startLogfileId,
+            final long endHour,
+            final Long endLogfileId,
+            final Consumer<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> consumer
+    ) {
+        final long excludedStartHour = startLogfileId == null ? startHour : startHour - 1;
+        processBetweenUnixEpochHours(excludedStartHour, endHour).forEach(r -> {
+            final boolean consumedBeforeStart = startLogfileId != null && r.value8() == startHour
+                    && Long.compareUnsigned(r.value1().longValue(), startLogfileId) <= 0;
+            final boolean afterEnd = endLogfileId != null && r.value8() == endHour
+                    && Long.compareUnsigned(r.value1().longValue(), endLogfileId) > 0;
+            if (!consumedBeforeStart && !afterEnd) {
+                consumer.accept(r);
+            }
+        });
+    }
+
     @Override
     public Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> processBetweenUnixEpochHours(
             long startHour,
@@ -102,6 +132,11 @@ public final class MockMeteredArchiveQueryProcessor implements ArchiveQuery {
         archiveQuery.commit(offset);
     }
 
+    @Override
+    public void commit(final long offset, final Long logfileId) {
+        archiveQuery.commit(offset, logfileId);
+    }
+
     @Override
     public Long incrementAndGetLatestOffset() {
         return archiveQuery.incrementAndGetLatestOffset();
@@ -112,6 +147,11 @@ public final class MockMeteredArchiveQueryProcessor implements ArchiveQuery {
         return archiveQuery.mostRecentOffset();
     }
 
+    @Override
+    public Long mostRecentLogfileId() {
+        return archiveQuery.mostRecentLogfileId();
+    }
+
     @Override
     public CustomTaskMetric[] currentDatabaseMetrics() {
         final Snapshot snapshot = metricRegistry.histogram("mockRowTime").getSnapshot();
@@ -0,0 +1,161 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import com.teragrep.pth_06.metrics.planner.PlannerMetrics;
+import org.jooq.Record10;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.Select;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+import org.jooq.types.ULong;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+public final class ParallelDayPullerTest {
+
+    private final String url = "jdbc:h2:mem:parallelDayPuller;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE";
+
+    private DayPullConnection dayPullConnection() {
+        final Properties properties = new Properties();
+        properties.setProperty("user", "sa");
+        properties.setProperty("password", "");
+        final ReconnectingConnectionProvider connectionProvider = Assertions
+                .assertDoesNotThrow(() -> new ReconnectingConnectionProvider(url, properties, false));
+        final SessionTables sessionTables = new SessionTables(
+                "",
+                false,
+                false,
+                "",
+                new FilterTableCache(),
+                false,
+                new PlannerMetrics(),
+                false,
+                false
+        );
+        return new DayPullConnection(
+                connectionProvider,
+                DSL.using(connectionProvider, SQLDialect.MYSQL),
+                sessionTables,
+                false
+        );
+    }
+
+    private Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> day(
+            final long id,
+            final String day
+    ) {
+        return DSL
+                .select(DSL.val(ULong.valueOf(id)), DSL.val("directory"), DSL.val("stream"), DSL.val("host"), DSL.val(Date.valueOf(day)), DSL.val("bucket"), DSL.val("path-" + id), DSL.val(Date.valueOf(day).getTime() / 1000L), DSL.val(ULong.valueOf(100L)), DSL.val(ULong.valueOf(1000L)));
+    }
+
+    @Test
+    public void testStub() {
+        try (final ParallelDayPuller parallelDayPuller = new ParallelDayPuller()) {
+            Assertions.assertTrue(parallelDayPuller.isStub());
+            Assertions
+                    .assertThrows(
+                            IllegalStateException.class,
+                            () -> parallelDayPuller.pull(Collections.emptyList(), Result::size)
+                    );
+        }
+    }
+
+    @Test
+    public void testDaysAreStoredInOrder() {
+        try (
+                final ParallelDayPuller parallelDayPuller = new ParallelDayPuller(
+                        Arrays.asList(dayPullConnection(), dayPullConnection()),
+                        false
+                )
+        ) {
+            Assertions.assertFalse(parallelDayPuller.isStub());
+            final List<Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>>> selects = new ArrayList<>();
+            for (int i = 1; i <= 10; i++) {
+                selects.add(day(i, String.format("2023-10-%02d", i)));
+            }
+
+            final List<Long> storedIds = new ArrayList<>();
+            final int rows = parallelDayPuller.pull(selects, result -> {
+                for (
+                    final Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong> row : result
+                ) {
+                    storedIds.add(row.value1().longValue());
+                }
+                return result.size();
+            });
+
+            Assertions.assertEquals(10, rows);
+            Assertions.assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), storedIds);
+        }
+    }
+
+    @Test
+    public void testFailedDayIsThrown() {
+        try (
+                final ParallelDayPuller parallelDayPuller = new ParallelDayPuller(
+                        Collections.singletonList(dayPullConnection()),
+                        false
+                )
+        ) {
+            final List<Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>>> selects = new ArrayList<>();
+            selects.add(day(1, "2023-10-01"));
+            // the table does not exist
+            selects
+                    .add(DSL.select(DSL.field("id", ULong.class), DSL.field("directory", String.class), DSL.field("stream", String.class), DSL.field("host", String.class), DSL.field("logdate", Date.class), DSL.field("bucket", String.class), DSL.field("path", String.class), DSL.field("logtime", Long.class), DSL.field("filesize", ULong.class), DSL.field("uncompressed_filesize", ULong.class)).from(DSL.table("missing_table")));
+
+            Assertions.assertThrows(DataAccessException.class, () -> parallelDayPuller.pull(selects, Result::size));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+public final class PulledDaysTest {
+
+    private final ZoneId zoneId = ZoneId.of("UTC");
+
+    @Test
+    public void testEmpty() {
+        final PulledDays pulledDays = new PulledDays(zoneId);
+        Assertions.assertTrue(pulledDays.isEmpty());
+        Assertions.assertThrows(IllegalStateException.class, pulledDays::restoreStart);
+        Assertions.assertThrows(IllegalStateException.class, pulledDays::restoreEnd);
+    }
+
+    @Test
+    public void testUncommittedRestoresAllPulledDays() {
+        final PulledDays pulledDays = new PulledDays(zoneId);
+        pulledDays.pulled(Date.valueOf("2023-10-01"), Date.valueOf("2023-10-02"));
+        pulledDays.pulled(Date.valueOf("2023-10-03"), Date.valueOf("2023-10-06"));
+        Assertions.assertFalse(pulledDays.isEmpty());
+        Assertions.assertEquals(Date.valueOf("2023-10-01"), pulledDays.restoreStart());
+        Assertions.assertEquals(Date.valueOf("2023-10-06"), pulledDays.restoreEnd());
+    }
+
+    @Test
+    public void testCommittedRestoresFromDayBeforeCommit() {
+        final PulledDays pulledDays = new PulledDays(zoneId);
+        pulledDays.pulled(Date.valueOf("2023-10-01"), Date.valueOf("2023-10-06"));
+        pulledDays.committed(ZonedDateTime.of(2023, 10, 4, 12, 0, 0, 0, zoneId).toEpochSecond());
+        // an older commit does not move the restore back
+        pulledDays.committed(ZonedDateTime.of(2023, 10, 2, 12, 0, 0, 0, zoneId).toEpochSecond());
+        Assertions.assertEquals(Date.valueOf("2023-10-03"), pulledDays.restoreStart());
+        Assertions.assertEquals(Date.valueOf("2023-10-06"), pulledDays.restoreEnd());
+    }
+
+    @Test
+    public void testCommittedPastLastDay() {
+        final PulledDays pulledDays = new PulledDays(zoneId);
+        pulledDays.pulled(Date.valueOf("2023-10-01"), Date.valueOf("2023-10-02"));
+        pulledDays.committed(ZonedDateTime.of(2023, 10, 10, 0, 0, 0, 0, zoneId).toEpochSecond());
+        Assertions.assertEquals(Date.valueOf("2023-10-02"), pulledDays.restoreStart());
+    }
+
+    @Test
+    public void testNewestFirstCommittedRestoresUpToDayAfterCommit() {
+        final PulledDays pulledDays = new PulledDays(zoneId);
+        pulledDays.pulled(Date.valueOf("2023-10-01"), Date.valueOf("2023-10-06"));
+        pulledDays.committedNewestFirst(ZonedDateTime.of(2023, 10, 3, 12, 0, 0, 0, zoneId).toEpochSecond());
+        // a newer commit does not move the restore forward
+        pulledDays.committedNewestFirst(ZonedDateTime.of(2023, 10, 5, 12, 0, 0, 0, zoneId).toEpochSecond());
+        Assertions.assertEquals(Date.valueOf("2023-10-01"), pulledDays.restoreStart());
+        Assertions.assertEquals(Date.valueOf("2023-10-04"), pulledDays.restoreEnd());
+        Assertions
+                .assertEquals(ZonedDateTime.of(2023, 10, 3, 12, 0, 0, 0, zoneId).toEpochSecond(), pulledDays.newestFirstCommittedOffset());
+        Assertions.assertEquals(Long.MIN_VALUE, pulledDays.committedOffset());
+    }
+
+    @Test
+    public void testNewestFirstCommittedBeforeFirstDay() {
+        final PulledDays pulledDays = new PulledDays(zoneId);
+        pulledDays.pulled(Date.valueOf("2023-10-05"), Date.valueOf("2023-10-06"));
+        pulledDays.committedNewestFirst(ZonedDateTime.of(2023, 10, 1, 0, 0, 0, 0, zoneId).toEpochSecond());
+        Assertions.assertEquals(Date.valueOf("2023-10-05"), pulledDays.restoreEnd());
+    }
+}
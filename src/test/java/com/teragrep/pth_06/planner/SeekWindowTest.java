@@ -0,0 +1,118 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+public class SeekWindowTest {
+
+    private final LocalDate start = LocalDate.of(2023, 10, 4);
+    private final LocalDate limit = LocalDate.of(2024, 10, 4);
+
+    @Test
+    public void testDefaultWindowIsSingleDay() {
+        final SeekWindow seekWindow = new SeekWindow(1, 1);
+        Assertions.assertEquals(start, seekWindow.end(start, limit));
+        seekWindow.adapt(0);
+        Assertions.assertEquals(start, seekWindow.end(start, limit));
+    }
+
+    @Test
+    public void testWindowGrowsOnEmptyPulls() {
+        final SeekWindow seekWindow = new SeekWindow(1, 30);
+        seekWindow.adapt(0);
+        Assertions.assertEquals(2, seekWindow.days());
+        seekWindow.adapt(0);
+        Assertions.assertEquals(4, seekWindow.days());
+        Assertions.assertEquals(start.plusDays(3), seekWindow.end(start, limit));
+    }
+
+    @Test
+    public void testWindowIsCappedToMaximum() {
+        final SeekWindow seekWindow = new SeekWindow(1, 5);
+        for (int i = 0; i < 10; i++) {
+            seekWindow.adapt(0);
+        }
+        Assertions.assertEquals(5, seekWindow.days());
+    }
+
+    @Test
+    public void testWindowResetsWhenRowsFound() {
+        final SeekWindow seekWindow = new SeekWindow(2, 64);
+        seekWindow.adapt(0);
+        seekWindow.adapt(0);
+        Assertions.assertEquals(8, seekWindow.days());
+        seekWindow.adapt(10);
+        Assertions.assertEquals(2, seekWindow.days());
+    }
+
+    @Test
+    public void testWindowEndIsCappedToLimit() {
+        final SeekWindow seekWindow = new SeekWindow(30, 30);
+        final LocalDate nearLimit = limit.minusDays(2);
+        Assertions.assertEquals(limit, seekWindow.end(nearLimit, limit));
+        // window never ends before its start
+        Assertions.assertEquals(limit.plusDays(1), seekWindow.end(limit.plusDays(1), limit));
+    }
+
+    @Test
+    public void testWindowStartIsCappedToLimit() {
+        final SeekWindow seekWindow = new SeekWindow(4, 30);
+        Assertions.assertEquals(limit.minusDays(3), seekWindow.start(limit, start));
+        Assertions.assertEquals(start, seekWindow.start(start.plusDays(1), start));
+        // window never starts after its end
+        Assertions.assertEquals(start.minusDays(1), seekWindow.start(start.minusDays(1), start));
+    }
+
+    @Test
+    public void testInvalidWindows() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SeekWindow(0, 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SeekWindow(5, 4));
+    }
+}
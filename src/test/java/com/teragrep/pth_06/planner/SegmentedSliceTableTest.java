@@ -0,0 +1,375 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record10;
+import org.jooq.Record4;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.Select;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockDataProvider;
+import org.jooq.tools.jdbc.MockResult;
+import org.jooq.types.ULong;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public final class SegmentedSliceTableTest {
+
+    private static final Pattern segmentPattern = Pattern.compile("`(sliceTable_\\d+)`");
+    private final DSLContext ctx = DSL.using(SQLDialect.MYSQL);
+    private final Field<Long> logtime = DSL.field(DSL.name("logtime"), Long.class);
+    private final Field<BigDecimal> fileSize = DSL.field(DSL.name("filesize"), BigDecimal.class);
+    private final Field<BigDecimal> uncompressedFileSize = DSL
+            .field(DSL.name("uncompressed_filesize"), BigDecimal.class);
+    private final Field<Integer> count = DSL.field(DSL.name("count"), Integer.class);
+    private final Field<Date> logdate = DSL.field(DSL.name("logdate"), Date.class);
+    private final Field<Long> minLogtime = DSL.field(DSL.name("min"), Long.class);
+    private final Field<Long> maxLogtime = DSL.field(DSL.name("max"), Long.class);
+
+    // rows inserted by a query, logdates and hour weights of each segment table, and the statements executed
+    private final Map<String, Integer> selectedRows = new HashMap<>();
+    private final Map<String, Result<Record4<Date, Long, Long, Integer>>> logdates = new HashMap<>();
+    private final Map<String, Result<Record4<Long, BigDecimal, BigDecimal, Integer>>> hourWeights = new HashMap<>();
+    private final List<String> statements = new ArrayList<>();
+
+    private final MockDataProvider provider = context -> {
+        final String sql = context.sql();
+        statements.add(sql);
+        final Matcher matcher = segmentPattern.matcher(sql);
+        final String segment = matcher.find() ? matcher.group(1) : "";
+        final MockResult mockResult;
+        if (sql.startsWith("insert") && sql.contains("select")) {
+            mockResult = new MockResult(selectedRows.getOrDefault(segment, 0));
+        }
+        else if (sql.startsWith("insert")) {
+            mockResult = new MockResult(context.bindings().length / 10);
+        }
+        else if (sql.startsWith("select") && sql.contains("min(")) {
+            final Result<Record4<Date, Long, Long, Integer>> result = logdates
+                    .getOrDefault(segment, ctx.newResult(logdate, minLogtime, maxLogtime, count));
+            mockResult = new MockResult(result.size(), result);
+        }
+        else if (sql.startsWith("select") && sql.contains("sum(")) {
+            final Result<Record4<Long, BigDecimal, BigDecimal, Integer>> result = hourWeights
+                    .getOrDefault(segment, ctx.newResult(logtime, fileSize, uncompressedFileSize, count));
+            mockResult = new MockResult(result.size(), result);
+        }
+        else {
+            mockResult = new MockResult(0);
+        }
+        return new MockResult[] {
+                mockResult
+        };
+    };
+
+    private SegmentedSliceTable store() {
+        return new SegmentedSliceTable(DSL.using(new MockConnection(provider), SQLDialect.MYSQL), false, false);
+    }
+
+    private long statementCount(final String prefix) {
+        return statements.stream().filter(sql -> sql.startsWith(prefix)).count();
+    }
+
+    @Test
+    public void testHourWeightsSumSegments() {
+        hourWeights.put("sliceTable_1", weights(7200L, 20L, 1));
+        hourWeights.put("sliceTable_2", weights(7200L, 30L, 1));
+        hourWeights.get("sliceTable_2").addAll(weights(10800L, 40L, 1));
+
+        final SegmentedSliceTable store = store();
+        store.create();
+        Assertions.assertEquals(2, store.insertRows(rows(row(1L, 3600L, 10L), row(2L, 7200L, 20L))));
+        Assertions.assertEquals(2, store.insertRows(rows(row(3L, 7200L, 30L), row(4L, 10800L, 40L))));
+
+        final List<WeightedOffset> weightedOffsets = store.hourWeights(3600L, Long.MAX_VALUE);
+        Assertions.assertEquals(2, weightedOffsets.size());
+        Assertions.assertEquals(7200L, weightedOffsets.get(0).offset());
+        Assertions.assertEquals(50L, weightedOffsets.get(0).fileSize());
+        Assertions.assertEquals(150L, weightedOffsets.get(0).uncompressedSize());
+        Assertions.assertEquals(2L, weightedOffsets.get(0).objectCount());
+        Assertions.assertEquals(10800L, weightedOffsets.get(1).offset());
+        Assertions.assertEquals(40L, weightedOffsets.get(1).fileSize());
+
+        // the first segment has nothing after 7200
+        statements.clear();
+        store.hourWeights(7200L, Long.MAX_VALUE);
+        Assertions.assertEquals(1, statements.size());
+        Assertions.assertTrue(statements.get(0).contains("`sliceTable_2`"));
+    }
+
+    @Test
+    public void testEmptyPullLeavesNoSegment() {
+        final SegmentedSliceTable store = store();
+        store.create();
+        Assertions.assertEquals(0, store.insertRows(rows()));
+        Assertions.assertTrue(statements.isEmpty());
+        Assertions.assertEquals(0, store.insert(pull()));
+        Assertions.assertEquals(2, statementCount("drop temporary table if exists `sliceTable_1`"));
+
+        statements.clear();
+        Assertions.assertTrue(store.hourWeights(0L, Long.MAX_VALUE).isEmpty());
+        Assertions.assertTrue(statements.isEmpty());
+    }
+
+    @Test
+    public void testCommitDropsConsumedSegments() {
+        final SegmentedSliceTable store = store();
+        store.create();
+        store.insertRows(rows(row(1L, 3600L, 1L), row(2L, null, 1L)));
+        store.insertRows(rows(row(3L, 7200L, 1L), row(4L, 10800L, 1L)));
+
+        statements.clear();
+        // the partially consumed segment is kept as is
+        Assertions.assertEquals(2, store.deleteRange(Long.MIN_VALUE, 7200L));
+        Assertions.assertEquals(1, statementCount("drop temporary table if exists `sliceTable_1`"));
+        Assertions.assertEquals(0, statementCount("delete"));
+
+        statements.clear();
+        Assertions.assertEquals(2, store.deleteRange(Long.MIN_VALUE, 10800L));
+        Assertions.assertEquals(1, statementCount("drop temporary table if exists `sliceTable_2`"));
+        Assertions.assertEquals(0, statementCount("delete"));
+
+        statements.clear();
+        store.create();
+        Assertions.assertTrue(statements.isEmpty());
+    }
+
+    @Test
+    public void testDeleteRangeWithinSegment() {
+        final SegmentedSliceTable store = store();
+        store.create();
+        store.insertRows(rows(row(1L, 3600L, 1L), row(2L, 7200L, 1L), row(3L, 10800L, 1L)));
+
+        statements.clear();
+        store.deleteRange(3600L, 7200L);
+        Assertions.assertEquals(1, statementCount("delete from `sliceTable_1`"));
+        Assertions.assertEquals(0, statementCount("drop"));
+    }
+
+    @Test
+    public void testPullIsSplitByLogdate() {
+        final SegmentedSliceTable store = store();
+        store.create();
+        Assertions
+                .assertEquals(4, store.insertRows(rows(row(1L, 3600L, 1L, "2023-10-04"), row(2L, 7200L, 1L, "2023-10-04"), row(3L, 90000L, 1L, "2023-10-05"), row(4L, 93600L, 1L, "2023-10-05"))));
+        Assertions.assertEquals(1, statementCount("insert into `sliceTable_1`"));
+        Assertions.assertEquals(1, statementCount("insert into `sliceTable_2`"));
+
+        // the first day is released once it is consumed, without waiting for the rest of the pull
+        statements.clear();
+        Assertions.assertEquals(2, store.deleteRange(Long.MIN_VALUE, 7200L));
+        Assertions.assertEquals(1, statementCount("drop temporary table if exists `sliceTable_1`"));
+        Assertions.assertEquals(0, statementCount("delete"));
+    }
+
+    @Test
+    public void testNewestFirstCommitDropsSegments() {
+        final SegmentedSliceTable store = store();
+        store.create();
+        store
+                .insertRows(rows(row(1L, 3600L, 1L, "2023-10-04"), row(2L, 7200L, 1L, "2023-10-04"), row(3L, 90000L, 1L, "2023-10-05"), row(4L, 93600L, 1L, "2023-10-05")));
+
+        // newest first commits delete from the committed offset upwards
+        statements.clear();
+        Assertions.assertEquals(2, store.deleteRange(90000L - 1, Long.MAX_VALUE));
+        Assertions.assertEquals(1, statementCount("drop temporary table if exists `sliceTable_2`"));
+        Assertions.assertEquals(0, statementCount("delete"));
+
+        // a partially consumed day falls back to deleting rows
+        statements.clear();
+        store.deleteRange(7200L - 1, Long.MAX_VALUE);
+        Assertions.assertEquals(1, statementCount("delete from `sliceTable_1`"));
+        Assertions.assertEquals(0, statementCount("drop"));
+    }
+
+    @Test
+    public void testInsertSelectsEachLogdateIntoSegment() {
+        selectedRows.put("sliceTable_1", 2);
+        selectedRows.put("sliceTable_2", 1);
+        logdates.put("sliceTable_1", logdates("2023-10-04", 3600L, 7200L, 2));
+        logdates.put("sliceTable_2", logdates("2023-10-05", 90000L, 90000L, 1));
+
+        final SegmentedSliceTable store = store();
+        store.create();
+        Assertions
+                .assertEquals(3, store.insert(pull(), Arrays.asList(pull("2023-10-04"), pull("2023-10-05"), pull("2023-10-06"))));
+        // the rows are written once, straight into the segment of their logdate
+        Assertions.assertEquals(1, statementCount("insert into `sliceTable_1` select"));
+        Assertions.assertEquals(1, statementCount("insert into `sliceTable_2` select"));
+        Assertions.assertEquals(0, statements.stream().filter(sql -> sql.matches("insert .* from `sliceTable_\\d+`.*")).count());
+        Assertions.assertEquals(1, statementCount("drop temporary table if exists `sliceTable_1`"));
+        // the logdate without rows leaves no segment
+        Assertions.assertEquals(2, statementCount("drop temporary table if exists `sliceTable_3`"));
+        Assertions.assertEquals(3L, store.currentMetrics()[0].value());
+
+        statements.clear();
+        Assertions.assertEquals(2, store.deleteRange(Long.MIN_VALUE, 7200L));
+        Assertions.assertEquals(1, statementCount("drop temporary table if exists `sliceTable_1`"));
+    }
+
+    @Test
+    public void testInsertOfSeveralLogdatesKeepsOneSegment() {
+        selectedRows.put("sliceTable_1", 3);
+        final Result<Record4<Date, Long, Long, Integer>> logdatesOfPull = logdates("2023-10-04", 3600L, 7200L, 2);
+        logdatesOfPull.addAll(logdates("2023-10-05", 90000L, 90000L, 1));
+        logdates.put("sliceTable_1", logdatesOfPull);
+
+        final SegmentedSliceTable store = store();
+        store.create();
+        Assertions.assertEquals(3, store.insert(pull()));
+        Assertions.assertEquals(1, statementCount("insert into `sliceTable_1` select"));
+        Assertions.assertEquals(0, statementCount("insert into `sliceTable_2`"));
+
+        // the segment is dropped once both of its logdates are consumed
+        statements.clear();
+        Assertions.assertEquals(0, store.deleteRange(Long.MIN_VALUE, 7200L));
+        Assertions.assertEquals(0, statementCount("drop"));
+        Assertions.assertEquals(3, store.deleteRange(Long.MIN_VALUE, 90000L));
+        Assertions.assertEquals(1, statementCount("drop temporary table if exists `sliceTable_1`"));
+    }
+
+    private Result<Record4<Date, Long, Long, Integer>> logdates(
+            final String day,
+            final long minHour,
+            final long maxHour,
+            final int rows
+    ) {
+        final Result<Record4<Date, Long, Long, Integer>> result = ctx.newResult(logdate, minLogtime, maxLogtime, count);
+        result.add(ctx.newRecord(logdate, minLogtime, maxLogtime, count).values(Date.valueOf(day), minHour, maxHour, rows));
+        return result;
+    }
+
+    private Result<Record4<Long, BigDecimal, BigDecimal, Integer>> weights(
+            final long hour,
+            final long size,
+            final int objects
+    ) {
+        final Result<Record4<Long, BigDecimal, BigDecimal, Integer>> result = ctx
+                .newResult(logtime, fileSize, uncompressedFileSize, count);
+        // logfiles compress to a third of their size
+        result
+                .add(ctx.newRecord(logtime, fileSize, uncompressedFileSize, count).values(hour, BigDecimal.valueOf(size), BigDecimal.valueOf(size * 3), objects));
+        return result;
+    }
+
+    private Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong> row(
+            final long id,
+            final Long logtime,
+            final long fileSize
+    ) {
+        return row(id, logtime, fileSize, "2023-10-04");
+    }
+
+    private Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong> row(
+            final long id,
+            final Long logtime,
+            final long fileSize,
+            final String logdate
+    ) {
+        final Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong> record = ctx
+                .newRecord(
+                        SliceTable.id, SliceTable.directory, SliceTable.stream, SliceTable.host, SliceTable.logdate,
+                        SliceTable.bucket, SliceTable.path, SliceTable.logtime, SliceTable.filesize,
+                        SliceTable.uncompressedFilesize
+                );
+        record
+                .values(ULong.valueOf(id), "directory", "stream", "host", Date.valueOf(logdate), "bucket", "2023/10-04/host/directory/directory.logGLOB-2023100422.log.gz", logtime, ULong.valueOf(fileSize), null);
+        return record;
+    }
+
+    private Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> pull() {
+        return ctx
+                .select(
+                        SliceTable.id, SliceTable.directory, SliceTable.stream, SliceTable.host, SliceTable.logdate,
+                        SliceTable.bucket, SliceTable.path, SliceTable.logtime, SliceTable.filesize,
+                        SliceTable.uncompressedFilesize
+                )
+                .from(SliceTable.SLICE_TABLE);
+    }
+
+    private Select<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> pull(
+            final String day
+    ) {
+        return ctx
+                .select(
+                        SliceTable.id, SliceTable.directory, SliceTable.stream, SliceTable.host, SliceTable.logdate,
+                        SliceTable.bucket, SliceTable.path, SliceTable.logtime, SliceTable.filesize,
+                        SliceTable.uncompressedFilesize
+                )
+                .from(SliceTable.SLICE_TABLE)
+                .where(SliceTable.logdate.eq(Date.valueOf(day)));
+    }
+
+    @SafeVarargs
+    private final Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> rows(
+            final Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong> ... rows
+    ) {
+        final Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> result = ctx
+                .newResult(
+                        SliceTable.id, SliceTable.directory, SliceTable.stream, SliceTable.host, SliceTable.logdate,
+                        SliceTable.bucket, SliceTable.path, SliceTable.logtime, SliceTable.filesize,
+                        SliceTable.uncompressedFilesize
+                );
+        for (final Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong> row : rows) {
+            result.add(row);
+        }
+        return result;
+    }
+}
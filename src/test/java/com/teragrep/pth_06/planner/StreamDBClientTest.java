@@ -64,6 +64,7 @@ import org.testcontainers.utility.MountableFile;
 import java.sql.*;
 import java.time.*;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static com.teragrep.pth_06.jooq.generated.journaldb.Journaldb.JOURNALDB;
@@ -237,6 +238,76 @@ class StreamDBClientTest {
         });
     }
 
+    /**
+     * Testing that pullToSliceTable() pulls the rows of all the days within the given logdate range with one query.
+     */
+    @Test
+    public void pullToSliceTableRangeTest() {
+        // Add test data to logfile table in journaldb.
+        final DSLContext ctx = DSL.using(connection, SQLDialect.MYSQL);
+        Instant instant = Instant.ofEpochSecond(1696471200L);
+        ZonedDateTime instantZonedDateTime = ZonedDateTime.ofInstant(instant, zoneId);
+        ZonedDateTime instantPlusTwoDays = instantZonedDateTime.plusDays(2);
+        ZonedDateTime instantPlusWeek = instantZonedDateTime.plusDays(7);
+        // Set logdates to 2023-10-04, 2023-10-06 and 2023-10-11, but set epoch values to null.
+        ctx
+                .insertInto(JOURNALDB.LOGFILE)
+                .set(logfileRecordForEpoch(instantZonedDateTime.toEpochSecond(), true))
+                .execute();
+        ctx
+                .insertInto(JOURNALDB.LOGFILE)
+                .set(logfileRecordForEpoch(instantPlusTwoDays.toEpochSecond(), true))
+                .execute();
+        ctx.insertInto(JOURNALDB.LOGFILE).set(logfileRecordForEpoch(instantPlusWeek.toEpochSecond(), true)).execute();
+
+        // Assert StreamDBClient methods work as expected with the test data.
+        final Map<String, String> opts = this.opts;
+        opts.put("DBurl", mariadb.getJdbcUrl());
+        final Config config = new Config(opts);
+        Assertions.assertDoesNotThrow(() -> {
+            try (final StreamDBClient sdc = new StreamDBClient(config)) {
+                // Rows with logdate between "2023-10-4" and "2023-10-8" should be pulled to slicetable.
+                int rows = sdc
+                        .pullToSliceTable(Date.valueOf(instantZonedDateTime.toLocalDate()), Date.valueOf(instantZonedDateTime.plusDays(4).toLocalDate()));
+                Assertions.assertEquals(2, rows);
+            }
+        });
+    }
+
+    /**
+     * Testing that pullToSliceTable() pulls the same rows with a query per day on parallel connections.
+     */
+    @Test
+    public void pullToSliceTableParallelRangeTest() {
+        final DSLContext ctx = DSL.using(connection, SQLDialect.MYSQL);
+        final ZonedDateTime baseTime = ZonedDateTime.ofInstant(Instant.ofEpochSecond(1696471200L), zoneId);
+        ctx.insertInto(JOURNALDB.LOGFILE).set(logfileRecordForEpoch(baseTime.toEpochSecond(), true)).execute();
+        ctx
+                .insertInto(JOURNALDB.LOGFILE)
+                .set(logfileRecordForEpoch(baseTime.plusDays(2).toEpochSecond(), true))
+                .execute();
+        ctx
+                .insertInto(JOURNALDB.LOGFILE)
+                .set(logfileRecordForEpoch(baseTime.plusDays(7).toEpochSecond(), true))
+                .execute();
+
+        final Map<String, String> opts = this.opts;
+        opts.put("DBurl", mariadb.getJdbcUrl());
+        opts.put("archive.seek.parallelConnections", "3");
+        final Config config = new Config(opts);
+        Assertions.assertDoesNotThrow(() -> {
+            try (final StreamDBClient sdc = new StreamDBClient(config)) {
+                final int rows = sdc
+                        .pullToSliceTable(Date.valueOf(baseTime.toLocalDate()), Date.valueOf(baseTime.plusDays(4).toLocalDate()));
+                Assertions.assertEquals(2, rows);
+                final List<WeightedOffset> hourWeights = sdc.getHourWeightsFromSliceTable(0L);
+                Assertions.assertEquals(2, hourWeights.size());
+                Assertions.assertEquals(baseTime.toEpochSecond(), hourWeights.get(0).offset());
+                Assertions.assertEquals(baseTime.plusDays(2).toEpochSecond(), hourWeights.get(1).offset());
+            }
+        });
+    }
+
     /**
      * Testing that pullToSliceTable() does not pull any rows from the database when the index value in the queryXML
      * does not match with logtag.
@@ -294,8 +365,9 @@ class StreamDBClientTest {
                 Assertions.assertEquals(1, rows);
 
                 // Get the offset for the first non-empty hour of records from the slicetable.
-                WeightedOffset nextHourAndSizeFromSliceTable = sdc.getNextHourAndSizeFromSliceTable(0L);
-                Assertions.assertFalse(nextHourAndSizeFromSliceTable.isStub);
+                final List<WeightedOffset> hourWeights = sdc.getHourWeightsFromSliceTable(0L);
+                Assertions.assertFalse(hourWeights.isEmpty());
+                final WeightedOffset nextHourAndSizeFromSliceTable = hourWeights.get(0);
                 long latestOffset = nextHourAndSizeFromSliceTable.offset();
                 // zonedDateTime is used for checking timestamp errors caused by synthetic creation of logtime from logfile path column using regex.
                 Assertions.assertEquals(instantZonedDateTime.toEpochSecond(), latestOffset);
@@ -313,7 +385,7 @@ class StreamDBClientTest {
     }
 
     @Test
-    public void getNextHourAndSizeFromSliceTableTest() {
+    public void getHourWeightsFromSliceTableStartHourTest() {
         // Add test data to logfile table in journaldb.
         final DSLContext ctx = DSL.using(connection, SQLDialect.MYSQL);
         // Set logdate to 2023-10-04 and set logtime-string in path to 2023100422 UTC-4, but set epoch values to null.
@@ -334,8 +406,7 @@ class StreamDBClientTest {
             try (final StreamDBClient sdc = new StreamDBClient(config)) {
                 int rows = sdc.pullToSliceTable(Date.valueOf(instantZonedDateTime.toLocalDate()));
                 Assertions.assertEquals(2, rows);
-                WeightedOffset nextHourAndSizeFromSliceTable = sdc
-                        .getNextHourAndSizeFromSliceTable(instantZonedDateTime.toEpochSecond());
+                WeightedOffset nextHourAndSizeFromSliceTable = sdc.getHourWeightsFromSliceTable(instantZonedDateTime.toEpochSecond()).get(0);
                 // Assert that the result for next hour from slice table after 2023-10-4 22:00 UTC-4 is 2023-10-4 23:00 UTC-4.
                 Assertions.assertEquals(instantPlusHour.toEpochSecond(), nextHourAndSizeFromSliceTable.offset());
             }
@@ -371,8 +442,7 @@ class StreamDBClientTest {
                 // pull baseTime to SliceTable and assert weightedOffset to contain filesize=240 (2 rows) for that hour
                 final int baseTimeRows = sdc.pullToSliceTable(Date.valueOf(baseTime.toLocalDate()));
                 Assertions.assertEquals(2, baseTimeRows);
-                final WeightedOffset weightedOffsetForBaseTime = sdc
-                        .getNextHourAndSizeFromSliceTable(baseMinusOneHour.toEpochSecond());
+                final WeightedOffset weightedOffsetForBaseTime = sdc.getHourWeightsFromSliceTable(baseMinusOneHour.toEpochSecond()).get(0);
 
                 Assertions.assertEquals(baseTime.toEpochSecond(), weightedOffsetForBaseTime.offset());
                 Assertions.assertEquals(240L, weightedOffsetForBaseTime.fileSize());
@@ -380,14 +450,95 @@ class StreamDBClientTest {
                 // pull baseTime+1day to SliceTable and assert weightedOffset to contain filesize=120 (1 row) for that hour
                 final int plusOneDayRows = sdc.pullToSliceTable(Date.valueOf(basePlusOneDay.toLocalDate()));
                 Assertions.assertEquals(1, plusOneDayRows);
-                final WeightedOffset weightedOffsetForPlusOneDay = sdc
-                        .getNextHourAndSizeFromSliceTable(baseTime.toEpochSecond());
+                final WeightedOffset weightedOffsetForPlusOneDay = sdc.getHourWeightsFromSliceTable(baseTime.toEpochSecond()).get(0);
                 Assertions.assertEquals(basePlusOneDay.toEpochSecond(), weightedOffsetForPlusOneDay.offset());
                 Assertions.assertEquals(120L, weightedOffsetForPlusOneDay.fileSize());
             }
         });
     }
 
+    @Test
+    public void getHourWeightsFromSliceTableTest() {
+        // Add test data to logfile table in journaldb.
+        final DSLContext ctx = DSL.using(connection, SQLDialect.MYSQL);
+        final Instant instant = Instant.ofEpochSecond(1696471200L);
+
+        final ZonedDateTime baseTime = ZonedDateTime.ofInstant(instant, zoneId);
+        final ZonedDateTime baseMinusOneHour = baseTime.minusHours(1);
+        final ZonedDateTime basePlusOneMinute = baseTime.plusMinutes(1);
+        final ZonedDateTime basePlusOneDay = baseTime.plusDays(1);
+
+        ctx.insertInto(JOURNALDB.LOGFILE).set(logfileRecordForEpoch(baseTime.toEpochSecond(), true)).execute();
+        ctx.insertInto(JOURNALDB.LOGFILE).set(logfileRecordForEpoch(basePlusOneMinute.toEpochSecond(), true)).execute();
+        ctx.insertInto(JOURNALDB.LOGFILE).set(logfileRecordForEpoch(basePlusOneDay.toEpochSecond(), true)).execute();
+
+        final Map<String, String> opts = this.opts;
+        opts.put("DBurl", mariadb.getJdbcUrl());
+        final Config config = new Config(opts);
+
+        Assertions.assertDoesNotThrow(() -> {
+            try (final StreamDBClient sdc = new StreamDBClient(config)) {
+                final int rows = sdc
+                        .pullToSliceTable(Date.valueOf(baseTime.toLocalDate()), Date.valueOf(basePlusOneDay.toLocalDate()));
+                Assertions.assertEquals(3, rows);
+
+                // both hours are weighed by a single query, in ascending order
+                final List<WeightedOffset> hourWeights = sdc
+                        .getHourWeightsFromSliceTable(baseMinusOneHour.toEpochSecond());
+                Assertions.assertEquals(2, hourWeights.size());
+                Assertions.assertEquals(baseTime.toEpochSecond(), hourWeights.get(0).offset());
+                Assertions.assertEquals(240L, hourWeights.get(0).fileSize());
+                Assertions.assertEquals(2L, hourWeights.get(0).objectCount());
+                Assertions.assertEquals(basePlusOneDay.toEpochSecond(), hourWeights.get(1).offset());
+                Assertions.assertEquals(120L, hourWeights.get(1).fileSize());
+                Assertions.assertEquals(1L, hourWeights.get(1).objectCount());
+
+                // start hour is exclusive
+                Assertions.assertEquals(1, sdc.getHourWeightsFromSliceTable(baseTime.toEpochSecond()).size());
+                Assertions.assertTrue(sdc.getHourWeightsFromSliceTable(basePlusOneDay.toEpochSecond()).isEmpty());
+            }
+        });
+    }
+
+    @Test
+    public void reconnectRestoresUncommittedSliceTableTest() {
+        final DSLContext ctx = DSL.using(connection, SQLDialect.MYSQL);
+        final ZonedDateTime baseTime = ZonedDateTime.ofInstant(Instant.ofEpochSecond(1696471200L), zoneId);
+        final ZonedDateTime basePlusOneDay = baseTime.plusDays(1);
+        ctx.insertInto(JOURNALDB.LOGFILE).set(logfileRecordForEpoch(baseTime.toEpochSecond(), true)).execute();
+        ctx.insertInto(JOURNALDB.LOGFILE).set(logfileRecordForEpoch(basePlusOneDay.toEpochSecond(), true)).execute();
+
+        final Map<String, String> opts = this.opts;
+        opts.put("DBurl", mariadb.getJdbcUrl());
+        final Config config = new Config(opts);
+
+        Assertions.assertDoesNotThrow(() -> {
+            try (final StreamDBClient sdc = new StreamDBClient(config)) {
+                final int rows = sdc
+                        .pullToSliceTable(Date.valueOf(baseTime.toLocalDate()), Date.valueOf(basePlusOneDay.toLocalDate()));
+                Assertions.assertEquals(2, rows);
+                Assertions.assertEquals(1, sdc.deleteRangeFromSliceTable(Long.MIN_VALUE, baseTime.toEpochSecond()));
+
+                // drop the session of the client, losing its temporary tables
+                final List<Long> sessionIds = ctx
+                        .fetch(
+                                "SELECT ID FROM information_schema.PROCESSLIST WHERE ID <> CONNECTION_ID() AND USER = ?",
+                                streamDBUsername
+                        )
+                        .getValues(0, Long.class);
+                Assertions.assertFalse(sessionIds.isEmpty());
+                for (final Long sessionId : sessionIds) {
+                    ctx.execute("KILL CONNECTION " + sessionId);
+                }
+
+                // only the uncommitted hour is restored
+                final List<WeightedOffset> hourWeights = sdc.getHourWeightsFromSliceTable(0L);
+                Assertions.assertEquals(1, hourWeights.size());
+                Assertions.assertEquals(basePlusOneDay.toEpochSecond(), hourWeights.get(0).offset());
+            }
+        });
+    }
+
     @Test
     public void deleteRangeRemovesRowsInRange() {
         final DSLContext ctx = DSL.using(connection, SQLDialect.MYSQL);
@@ -409,8 +560,7 @@ class StreamDBClientTest {
         final int deletedRows = sdc
                 .deleteRangeFromSliceTable(inRangeZdt.minusHours(1).toEpochSecond(), inRangeZdt.toEpochSecond());
         Assertions.assertEquals(1, deletedRows, "in range logfile should be deleted from slice table");
-        final WeightedOffset remaining = sdc.getNextHourAndSizeFromSliceTable(0L);
-        Assertions.assertFalse(remaining.isStub, "out of range logfile should remain in slice table");
+        Assertions.assertFalse(sdc.getHourWeightsFromSliceTable(0L).isEmpty(), "out of range logfile should remain in slice table");
     }
 
     @Test
@@ -453,7 +603,7 @@ class StreamDBClientTest {
                 .deleteRangeFromSliceTable(baseTime.minusHours(1).toEpochSecond(), baseTime.toEpochSecond());
         Assertions.assertEquals(1, deleted, "row should be deleted even when it is outside of range");
         Assertions
-                .assertTrue(sdc.getNextHourAndSizeFromSliceTable(0L).isStub, "slice table should be empty after delete");
+                .assertTrue(sdc.getHourWeightsFromSliceTable(0L).isEmpty(), "slice table should be empty after delete");
     }
 
     /**
@@ -478,12 +628,12 @@ class StreamDBClientTest {
                 // Pull the records from a specific logdate to the slicetable for further processing.
                 int rows = sdc.pullToSliceTable(Date.valueOf(instantZonedDateTime.toLocalDate()));
                 Assertions.assertEquals(1, rows);
-                Assertions.assertFalse(sdc.getNextHourAndSizeFromSliceTable(0L).isStub);
+                Assertions.assertFalse(sdc.getHourWeightsFromSliceTable(0L).isEmpty());
 
                 // Delete rows from slicetable and assert that they are no longer present in the slicetable.
                 sdc
                         .deleteRangeFromSliceTable(instantZonedDateTime.minusHours(1).toEpochSecond(), instantZonedDateTime.toEpochSecond());
-                Assertions.assertTrue(sdc.getNextHourAndSizeFromSliceTable(0L).isStub);
+                Assertions.assertTrue(sdc.getHourWeightsFromSliceTable(0L).isEmpty());
             }
         });
     }
@@ -508,7 +658,7 @@ class StreamDBClientTest {
 
         // Assert StreamDBClient methods work as expected with the test data.
 
-        // Set includeBeforeEpoch in ArchiveConfig to an epoch that represents 2023-10-04 23:00 UTC-4, for getNextHourAndSizeFromSliceTable() to ignore records with logtime of 2023-10-04 23:00 UTC-4 or newer.
+        // Set includeBeforeEpoch in ArchiveConfig to an epoch that represents 2023-10-04 23:00 UTC-4, for getHourWeightsFromSliceTable() to ignore records with logtime of 2023-10-04 23:00 UTC-4 or newer.
         final Map<String, String> opts = this.opts;
         opts.put("DBurl", mariadb.getJdbcUrl());
         opts.put("archive.includeBeforeEpoch", String.valueOf(instantPlusHour.toEpochSecond()));
@@ -520,12 +670,12 @@ class StreamDBClientTest {
                 Assertions.assertEquals(2, rows);
 
                 // find the earliest row and assert that it has correct offset/logtime value
-                Assertions.assertFalse(sdc.getNextHourAndSizeFromSliceTable(0L).isStub);
+                Assertions.assertFalse(sdc.getHourWeightsFromSliceTable(0L).isEmpty());
                 Assertions
-                        .assertEquals(instantZonedDateTime.toEpochSecond(), sdc.getNextHourAndSizeFromSliceTable(0L).offset());
+                        .assertEquals(instantZonedDateTime.toEpochSecond(), sdc.getHourWeightsFromSliceTable(0L).get(0).offset());
                 // find the next row after earliest and assert that it is stub.
                 Assertions
-                        .assertTrue(sdc.getNextHourAndSizeFromSliceTable(instantZonedDateTime.toEpochSecond()).isStub);
+                        .assertTrue(sdc.getHourWeightsFromSliceTable(instantZonedDateTime.toEpochSecond()).isEmpty());
             }
         });
     }
@@ -560,8 +710,9 @@ class StreamDBClientTest {
                 Assertions.assertEquals(1, rows);
 
                 // Get the offset for the first non-empty hour of records from the slicetable.
-                WeightedOffset nextHourAndSizeFromSliceTable = sdc.getNextHourAndSizeFromSliceTable(0L);
-                Assertions.assertFalse(nextHourAndSizeFromSliceTable.isStub);
+                final List<WeightedOffset> hourWeights = sdc.getHourWeightsFromSliceTable(0L);
+                Assertions.assertFalse(hourWeights.isEmpty());
+                final WeightedOffset nextHourAndSizeFromSliceTable = hourWeights.get(0);
                 final long latestOffset = nextHourAndSizeFromSliceTable.offset();
                 // Get the record from slicetable and assert that it was found with the queryXML condition.
                 Result<Record10<ULong, String, String, String, Date, String, String, Long, ULong, ULong>> hourRange = sdc
@@ -622,8 +773,7 @@ class StreamDBClientTest {
         int rows = sdc.pullToSliceTable(Date.valueOf(zdt.toLocalDate()));
         // Assert that the record with ID present in corrupted_archive table is not included in the query result
         Assertions.assertEquals(0, rows);
-        WeightedOffset nextHourAndSizeFromSliceTable = sdc.getNextHourAndSizeFromSliceTable(0L);
-        Assertions.assertTrue(nextHourAndSizeFromSliceTable.isStub);
+        Assertions.assertTrue(sdc.getHourWeightsFromSliceTable(0L).isEmpty());
     }
 
     @Test
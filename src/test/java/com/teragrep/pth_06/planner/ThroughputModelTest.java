@@ -0,0 +1,146 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.planner;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class ThroughputModelTest {
+
+    @Test
+    public void testInitialEstimate() {
+        // ratio 15 at 3 MiB/s of uncompressed data is 5 seconds per compressed MiB
+        ThroughputModel model = new ThroughputModel(15F, 3F, 0.2D);
+        Assertions.assertEquals(5D, model.estimateSeconds(null, 1024L * 1024L), 1e-9);
+        Assertions.assertEquals(5D, model.estimateSeconds("stream", 1024L * 1024L), 1e-9);
+        Assertions.assertEquals(5D / 1024D / 1024D, model.secondsPerByte(), 1e-12);
+        Assertions.assertEquals(0L, model.observations());
+    }
+
+    @Test
+    public void testObserveFollowsThroughput() {
+        ThroughputModel model = new ThroughputModel(1F, 1F, 1D);
+        Map<String, Long> bytesOfStreams = new HashMap<>();
+        bytesOfStreams.put("slow", 1000L);
+        model.observe(bytesOfStreams, 2_000_000_000L);
+
+        Assertions.assertEquals(1L, model.observations());
+        Assertions.assertEquals(2D, model.estimateSeconds("slow", 1000L), 1e-9);
+        Assertions.assertEquals(2D, model.estimateSeconds(null, 1000L), 1e-9);
+        // streams not observed follow the rate over all streams
+        Assertions.assertEquals(2D, model.estimateSeconds("other", 1000L), 1e-9);
+    }
+
+    @Test
+    public void testObserveWeightsByShare() {
+        ThroughputModel model = new ThroughputModel(1F, 1F, 0.5D);
+        double initial = model.estimateSeconds(null, 1000L);
+        Map<String, Long> bytesOfStreams = new HashMap<>();
+        bytesOfStreams.put("major", 900L);
+        bytesOfStreams.put("minor", 100L);
+        model.observe(bytesOfStreams, 1L);
+
+        double major = model.estimateSeconds("major", 1000L);
+        double minor = model.estimateSeconds("minor", 1000L);
+        Assertions.assertTrue(major < minor);
+        Assertions.assertTrue(minor < initial);
+    }
+
+    @Test
+    public void testEstimateByUncompressedSize() {
+        // ratio 15 at 3 MiB/s of uncompressed data
+        ThroughputModel model = new ThroughputModel(15F, 3F, 0.2D);
+        // 3 MiB of uncompressed data takes a second regardless of the compressed size
+        Assertions.assertEquals(1D, model.estimateSeconds("dense", 1024L * 1024L / 40L, 3L * 1024L * 1024L), 1e-9);
+        Assertions.assertEquals(1D, model.estimateSeconds("sparse", 1024L * 1024L / 3L, 3L * 1024L * 1024L), 1e-9);
+        // unknown uncompressed size is estimated by the configured ratio
+        Assertions.assertEquals(5D, model.estimateSeconds("unknown", 1024L * 1024L, -1L), 1e-9);
+    }
+
+    @Test
+    public void testCompressionRatioOfStream() {
+        ThroughputModel model = new ThroughputModel(15F, 3F, 0.2D);
+        Assertions.assertEquals(15D, model.compressionRatio("stream"), 1e-9);
+        model.learnRatio("stream", 1000L, 40000L);
+        model.learnRatio("stream", 3000L, 80000L);
+        // objects without an uncompressed size are not learned
+        model.learnRatio("stream", 3000L, -1L);
+        Assertions.assertEquals(30D, model.compressionRatio("stream"), 1e-9);
+        Assertions.assertEquals(15D, model.compressionRatio("other"), 1e-9);
+
+        // objects of the stream without an uncompressed size are estimated by the ratio of the stream
+        Assertions
+                .assertEquals(
+                        model.estimateSeconds("other", 30L * 1024L * 1024L, -1L),
+                        model.estimateSeconds("stream", 15L * 1024L * 1024L, -1L), 1e-9
+                );
+    }
+
+    @Test
+    public void testEstimateDoesNotLearn() {
+        ThroughputModel model = new ThroughputModel(15F, 3F, 0.2D);
+        final double before = model.estimateSeconds("stream", 1024L * 1024L, -1L);
+        model.estimateSeconds("stream", 1000L, 40000L);
+        Assertions.assertEquals(15D, model.compressionRatio("stream"), 1e-9);
+        Assertions.assertEquals(before, model.estimateSeconds("stream", 1024L * 1024L, -1L), 1e-9);
+    }
+
+    @Test
+    public void testEmptyObservationIgnored() {
+        ThroughputModel model = new ThroughputModel(1F, 1F, 0.5D);
+        model.observe(new HashMap<>(), 1000L);
+        Assertions.assertEquals(0L, model.observations());
+    }
+
+    @Test
+    public void testInvalidAlpha() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ThroughputModel(1F, 1F, 0D));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ThroughputModel(1F, 1F, 1.5D));
+    }
+}
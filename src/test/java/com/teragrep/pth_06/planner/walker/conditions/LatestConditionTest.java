@@ -60,18 +60,22 @@ public class LatestConditionTest {
 
     @Test
     public void conditionTest() {
-        String e = "(\n" + "  \"journaldb\".\"logfile\".\"logdate\" <= date '1970-01-01'\n"
-                + "  and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) <= 1000)\n"
-                + ")";
+        String e = "(\n" + "  \"journaldb\".\"logfile\".\"logdate\" <= date '1970-01-01'\n" + "  and (\n"
+                + "    \"journaldb\".\"logfile\".\"epoch_hour\" <= 1000\n" + "    or (\n"
+                + "      \"journaldb\".\"logfile\".\"epoch_hour\" is null\n"
+                + "      and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) <= 1000)\n"
+                + "    )\n" + "  )\n" + ")";
         Condition elementCondition = new LatestCondition("1000").condition();
         Assertions.assertEquals(e, elementCondition.toString());
     }
 
     @Test
     public void conditionUpdatedTest() {
-        String e = "(\n" + "  \"journaldb\".\"logfile\".\"logdate\" <= date '2000-01-01'\n"
-                + "  and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) <= 946720800)\n"
-                + ")";
+        String e = "(\n" + "  \"journaldb\".\"logfile\".\"logdate\" <= date '2000-01-01'\n" + "  and (\n"
+                + "    \"journaldb\".\"logfile\".\"epoch_hour\" <= 946720800\n" + "    or (\n"
+                + "      \"journaldb\".\"logfile\".\"epoch_hour\" is null\n"
+                + "      and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) <= 946720800)\n"
+                + "    )\n" + "  )\n" + ")";
         Condition elementCondition = new LatestCondition("946720800").condition();
         Assertions.assertEquals(e, elementCondition.toString());
     }
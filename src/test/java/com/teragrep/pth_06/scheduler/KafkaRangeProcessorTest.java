@@ -0,0 +1,101 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.scheduler;
+
+import com.teragrep.pth_06.planner.offset.DatasourceOffset;
+import com.teragrep.pth_06.planner.offset.KafkaOffset;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class KafkaRangeProcessorTest {
+
+    private final TopicPartition topicPartition = new TopicPartition("topic", 0);
+
+    private List<BatchUnit> process(long start, long end, long maxRecordsPerPartition) {
+        Map<TopicPartition, Long> startOffsets = new HashMap<>();
+        startOffsets.put(topicPartition, start);
+        Map<TopicPartition, Long> endOffsets = new HashMap<>();
+        endOffsets.put(topicPartition, end);
+        return new KafkaRangeProcessor(null, new KafkaRecordSizes(), maxRecordsPerPartition)
+                .processRange(
+                        new DatasourceOffset(new KafkaOffset(startOffsets)),
+                        new DatasourceOffset(new KafkaOffset(endOffsets))
+                );
+    }
+
+    @Test
+    public void testUnsplit() {
+        List<BatchUnit> units = process(10L, 1000L, Long.MAX_VALUE);
+        Assertions.assertEquals(1, units.size());
+        Assertions.assertEquals(10L, units.get(0).kafkaTopicPartitionOffsetMetadata.startOffset);
+        Assertions.assertEquals(1000L, units.get(0).kafkaTopicPartitionOffsetMetadata.endOffset);
+    }
+
+    @Test
+    public void testSplit() {
+        List<BatchUnit> units = process(10L, 260L, 100L);
+        Assertions.assertEquals(3, units.size());
+        Assertions.assertEquals(10L, units.get(0).kafkaTopicPartitionOffsetMetadata.startOffset);
+        Assertions.assertEquals(110L, units.get(0).kafkaTopicPartitionOffsetMetadata.endOffset);
+        Assertions.assertEquals(110L, units.get(1).kafkaTopicPartitionOffsetMetadata.startOffset);
+        Assertions.assertEquals(210L, units.get(1).kafkaTopicPartitionOffsetMetadata.endOffset);
+        Assertions.assertEquals(210L, units.get(2).kafkaTopicPartitionOffsetMetadata.startOffset);
+        Assertions.assertEquals(260L, units.get(2).kafkaTopicPartitionOffsetMetadata.endOffset);
+        for (BatchUnit unit : units) {
+            Assertions.assertEquals(topicPartition, unit.kafkaTopicPartitionOffsetMetadata.topicPartition);
+        }
+    }
+
+    @Test
+    public void testEmptyRange() {
+        Assertions.assertTrue(process(10L, 10L, 100L).isEmpty());
+    }
+}
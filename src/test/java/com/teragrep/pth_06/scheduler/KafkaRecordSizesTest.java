@@ -0,0 +1,97 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.scheduler;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class KafkaRecordSizesTest {
+
+    @Test
+    public void testUnobserved() {
+        KafkaRecordSizes kafkaRecordSizes = new KafkaRecordSizes();
+        // the offset delta times the default record size
+        Assertions.assertEquals(5120L, kafkaRecordSizes.estimateBytes(new TopicPartition("topic", 0), 0L, 5L));
+        Assertions.assertEquals(0L, kafkaRecordSizes.estimateBytes(new TopicPartition("topic", 0), 5L, 5L));
+    }
+
+    @Test
+    public void testConfiguredDefaultRecordSize() {
+        KafkaRecordSizes kafkaRecordSizes = new KafkaRecordSizes(100L);
+        Assertions.assertEquals(1000L, kafkaRecordSizes.estimateBytes(new TopicPartition("topic", 0), 0L, 10L));
+    }
+
+    @Test
+    public void testEstimateFromOffsetDelta() {
+        KafkaRecordSizes kafkaRecordSizes = new KafkaRecordSizes();
+        TopicPartition topicPartition = new TopicPartition("topic", 0);
+        kafkaRecordSizes.observe(topicPartition, 1000L, 10L);
+        kafkaRecordSizes.observe(topicPartition, 3000L, 10L);
+
+        // 4000 bytes in 20 records
+        Assertions.assertEquals(2000L, kafkaRecordSizes.estimateBytes(topicPartition, 10L, 20L));
+        Assertions.assertEquals(1_000_000L, kafkaRecordSizes.estimateBytes(topicPartition, 0L, 5000L));
+        Assertions.assertEquals(0L, kafkaRecordSizes.estimateBytes(topicPartition, 5L, 5L));
+    }
+
+    @Test
+    public void testUnobservedPartitionUsesAverage() {
+        KafkaRecordSizes kafkaRecordSizes = new KafkaRecordSizes();
+        kafkaRecordSizes.observe(new TopicPartition("topic", 0), 1000L, 10L);
+        kafkaRecordSizes.observe(new TopicPartition("other", 0), 3000L, 10L);
+
+        Assertions.assertEquals(2000L, kafkaRecordSizes.estimateBytes(new TopicPartition("topic", 1), 0L, 10L));
+    }
+
+    @Test
+    public void testEmptyObservationIgnored() {
+        KafkaRecordSizes kafkaRecordSizes = new KafkaRecordSizes();
+        TopicPartition topicPartition = new TopicPartition("topic", 0);
+        kafkaRecordSizes.observe(topicPartition, 0L, 0L);
+        Assertions.assertEquals(10240L, kafkaRecordSizes.estimateBytes(topicPartition, 0L, 10L));
+    }
+}
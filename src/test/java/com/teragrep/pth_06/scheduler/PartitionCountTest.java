@@ -0,0 +1,105 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.scheduler;
+
+import com.teragrep.pth_06.config.BatchConfig;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class PartitionCountTest {
+
+    @Test
+    public void testStatic() {
+        Map<String, String> opts = new HashMap<>();
+        opts.put("num_partitions", "4");
+        PartitionCount partitionCount = new PartitionCount(new BatchConfig(opts), 16);
+        Assertions.assertEquals(4, partitionCount.count(1D, 1));
+        Assertions.assertEquals(4, partitionCount.count(100000D, 30000));
+    }
+
+    @Test
+    public void testAuto() {
+        Map<String, String> opts = new HashMap<>();
+        opts.put("batch.partitions.auto", "true");
+        opts.put("batch.partitions.targetTaskSeconds", "10");
+        PartitionCount partitionCount = new PartitionCount(new BatchConfig(opts), 16);
+        // small batches do not pay for empty tasks
+        Assertions.assertEquals(1, partitionCount.count(5D, 3));
+        Assertions.assertEquals(3, partitionCount.count(25D, 3000));
+        Assertions.assertEquals(2, partitionCount.count(1000D, 2));
+        // big batches spread over every core
+        Assertions.assertEquals(16, partitionCount.count(100000D, 30000));
+        Assertions.assertEquals(1, partitionCount.count(0D, 0));
+    }
+
+    @Test
+    public void testAutoBounds() {
+        Map<String, String> opts = new HashMap<>();
+        opts.put("batch.partitions.auto", "true");
+        opts.put("batch.partitions.targetTaskSeconds", "10");
+        opts.put("batch.partitions.min", "2");
+        opts.put("batch.partitions.max", "8");
+        PartitionCount partitionCount = new PartitionCount(new BatchConfig(opts), 16);
+        Assertions.assertEquals(2, partitionCount.count(5D, 3));
+        Assertions.assertEquals(8, partitionCount.count(100000D, 30000));
+    }
+
+    @Test
+    public void testInvalidBounds() {
+        Map<String, String> opts = new HashMap<>();
+        opts.put("batch.partitions.min", "0");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BatchConfig(opts));
+        opts.put("batch.partitions.min", "4");
+        opts.put("batch.partitions.max", "2");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BatchConfig(opts));
+        opts.remove("batch.partitions.max");
+        opts.put("batch.partitions.targetTaskSeconds", "0");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BatchConfig(opts));
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.task;
+
+import com.teragrep.pth_06.ArchiveS3ObjectMetadata;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+public final class EncodedArchiveObjectsTest {
+
+    @Test
+    public void testRoundTrip() {
+        final List<ArchiveS3ObjectMetadata> objects = new ArrayList<>();
+        objects.add(object(1L, "2010/01-08/sc-99-99-14-108/f17/f17.logGLOB-2010010801.log.gz", 1262905200L));
+        objects.add(object(2L, "2010/01-08/sc-99-99-14-108/f17/f17.logGLOB-2010010802.log.gz", 1262908800L));
+        objects.add(object(-1L, "no-directory.log.gz", 0L));
+
+        final EncodedArchiveObjects encoded = new EncodedArchiveObjects(objects);
+        Assertions.assertEquals(3, encoded.size());
+
+        final LinkedList<ArchiveS3ObjectMetadata> decoded = encoded.objects();
+        Assertions.assertEquals(objects.size(), decoded.size());
+        for (int i = 0; i < objects.size(); i++) {
+            final ArchiveS3ObjectMetadata expected = objects.get(i);
+            final ArchiveS3ObjectMetadata actual = decoded.get(i);
+            Assertions.assertEquals(expected.id, actual.id);
+            Assertions.assertEquals(expected.bucket, actual.bucket);
+            Assertions.assertEquals(expected.path, actual.path);
+            Assertions.assertEquals(expected.directory, actual.directory);
+            Assertions.assertEquals(expected.stream, actual.stream);
+            Assertions.assertEquals(expected.host, actual.host);
+            Assertions.assertEquals(expected.logtimeEpoch, actual.logtimeEpoch);
+            Assertions.assertEquals(expected.compressedSize, actual.compressedSize);
+            Assertions.assertEquals(expected.uncompressedSize, actual.uncompressedSize);
+        }
+    }
+
+    @Test
+    public void testSmallerThanObjectList() throws IOException {
+        final LinkedList<ArchiveS3ObjectMetadata> objects = new LinkedList<>();
+        for (long i = 0; i < 500; i++) {
+            objects
+                    .add(object(i, "2010/01-08/sc-99-99-14-108/f17/f17.logGLOB-" + i + ".log.gz", 1262905200L + i * 60L));
+        }
+        Assertions.assertTrue(serializedSize(new EncodedArchiveObjects(objects)) < serializedSize(objects));
+    }
+
+    // distinct string instances like the ones read from the database, serialization does not share them
+    private ArchiveS3ObjectMetadata object(final long id, final String path, final long logtime) {
+        return new ArchiveS3ObjectMetadata(
+                Long.toUnsignedString(id),
+                new String("hundred-year"),
+                path,
+                new String("f17"),
+                new String("log:f17:0"),
+                new String("sc-99-99-14-108"),
+                logtime,
+                120L,
+                1200L
+        );
+    }
+
+    private int serializedSize(final Serializable serializable) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(serializable);
+        }
+        return bytes.size();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.task;
+
+import com.teragrep.pth_06.ArchiveS3ObjectMetadata;
+import org.apache.spark.sql.catalyst.InternalRow;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public final class MetadataAggregatesTest {
+
+    @Test
+    public void testObjectsAreAggregatedPerHourIndexSourcetypeAndHost() {
+        final MetadataAggregates aggregates = new MetadataAggregates(
+                Arrays.asList(object("1", "host-1", 3600L, 10L, 100L), object("2", "host-2", 3600L, 20L, 200L), object("3", "host-1", 3600L, 30L, -1L), object("4", "host-1", 7200L, 40L, 400L))
+        );
+
+        Assertions.assertEquals(3, aggregates.size());
+        Assertions.assertEquals(3600L, aggregates.hour(0));
+        Assertions.assertEquals("host-1", aggregates.host(0));
+        Assertions.assertEquals("directory", aggregates.directory(0));
+        Assertions.assertEquals("stream", aggregates.stream(0));
+        // unknown uncompressed size is left out of the sum
+        Assertions.assertEquals("{\"uncompressed\":100,\"compressed\":40,\"objects\":2}", aggregates.raw(0));
+        Assertions.assertEquals("host-2", aggregates.host(1));
+        Assertions.assertEquals("{\"uncompressed\":200,\"compressed\":20,\"objects\":1}", aggregates.raw(1));
+        Assertions.assertEquals(7200L, aggregates.hour(2));
+        Assertions.assertEquals("{\"uncompressed\":400,\"compressed\":40,\"objects\":1}", aggregates.raw(2));
+    }
+
+    @Test
+    public void testReaderWritesAggregateRows() throws IOException {
+        final MetadataAggregates aggregates = new MetadataAggregates(
+                Arrays.asList(object("1", "host-1", 3600L, 10L, 100L), object("2", "host-2", 3600L, 20L, 200L))
+        );
+
+        try (final MetadataAggregatePartitionReader reader = new MetadataAggregatePartitionReader(aggregates)) {
+            Assertions.assertTrue(reader.next());
+            InternalRow row = reader.get();
+            Assertions.assertEquals(3600L * 1000L * 1000L, row.getLong(0));
+            Assertions.assertEquals(aggregates.raw(0), row.getUTF8String(1).toString());
+            Assertions.assertEquals("host-1", row.getUTF8String(4).toString());
+            Assertions.assertEquals(0L, row.getLong(7));
+
+            Assertions.assertTrue(reader.next());
+            row = reader.get();
+            Assertions.assertEquals("host-2", row.getUTF8String(4).toString());
+            Assertions.assertEquals(1L, row.getLong(7));
+
+            Assertions.assertFalse(reader.next());
+        }
+    }
+
+    private ArchiveS3ObjectMetadata object(
+            final String id,
+            final String host,
+            final long logtime,
+            final long compressedSize,
+            final long uncompressedSize
+    ) {
+        return new ArchiveS3ObjectMetadata(
+                id,
+                "bucket",
+                "2023/10-04/" + host + "/directory/directory.logGLOB-2023100422.log.gz",
+                "directory",
+                "stream",
+                host,
+                logtime,
+                compressedSize,
+                uncompressedSize
+        );
+    }
+}
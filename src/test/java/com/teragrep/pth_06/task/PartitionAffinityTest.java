@@ -0,0 +1,133 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.task;
+
+import com.teragrep.pth_06.ArchiveS3ObjectMetadata;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class PartitionAffinityTest {
+
+    private final List<String> hosts = Arrays.asList("exec-1", "exec-2", "exec-3", "exec-4", "exec-5");
+
+    @Test
+    public void testNoPreference() {
+        List<ArchiveS3ObjectMetadata> objects = Collections.singletonList(object("bucket", "dir", "host-1", 10L));
+        Assertions
+                .assertEquals(0, new PartitionAffinity(PartitionAffinity.Mode.NONE, hosts).preferredLocations(objects).length);
+        Assertions
+                .assertEquals(0, new PartitionAffinity(PartitionAffinity.Mode.HOST, new ArrayList<>()).preferredLocations(objects).length);
+        Assertions.assertArrayEquals(new String[] {
+                "_"
+        }, new ArchiveMicroBatchInputPartition(new EncodedArchiveObjects(objects)).preferredLocations());
+    }
+
+    @Test
+    public void testStableAcrossBatches() {
+        PartitionAffinity affinity = new PartitionAffinity(PartitionAffinity.Mode.HOST, hosts);
+        String[] first = affinity
+                .preferredLocations(Arrays.asList(object("bucket", "dir", "host-1", 10L), object("bucket", "dir", "host-2", 5L)));
+        String[] second = affinity
+                .preferredLocations(Arrays.asList(object("bucket", "other", "host-2", 1L), object("bucket", "dir", "host-1", 20L)));
+        Assertions.assertEquals(2, first.length);
+        Assertions.assertArrayEquals(first, second);
+        Assertions.assertNotEquals(first[0], first[1]);
+    }
+
+    @Test
+    public void testByDirectory() {
+        PartitionAffinity affinity = new PartitionAffinity(PartitionAffinity.Mode.DIRECTORY, hosts);
+        String[] first = affinity.preferredLocations(Collections.singletonList(object("bucket", "dir", "host-1", 10L)));
+        String[] second = affinity.preferredLocations(Collections.singletonList(object("other", "dir", "host-2", 10L)));
+        Assertions.assertArrayEquals(first, second);
+    }
+
+    @Test
+    public void testKeysSpreadOverHosts() {
+        PartitionAffinity affinity = new PartitionAffinity(PartitionAffinity.Mode.HOST, hosts);
+        Set<String> preferred = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            preferred
+                    .add(affinity.preferredLocations(Collections.singletonList(object("bucket", "dir", "host-" + i, 10L)))[0]);
+        }
+        Assertions.assertEquals(new HashSet<>(hosts), preferred);
+    }
+
+    @Test
+    public void testRemovedHostMovesOnlyItsKeys() {
+        PartitionAffinity affinity = new PartitionAffinity(PartitionAffinity.Mode.HOST, hosts);
+        PartitionAffinity shrunk = new PartitionAffinity(PartitionAffinity.Mode.HOST, hosts.subList(0, 4));
+        for (int i = 0; i < 100; i++) {
+            List<ArchiveS3ObjectMetadata> objects = Collections
+                    .singletonList(object("bucket", "dir", "host-" + i, 10L));
+            String before = affinity.preferredLocations(objects)[0];
+            if (!"exec-5".equals(before)) {
+                Assertions.assertEquals(before, shrunk.preferredLocations(objects)[0]);
+            }
+        }
+    }
+
+    private ArchiveS3ObjectMetadata object(String bucket, String directory, String host, long compressedSize) {
+        return new ArchiveS3ObjectMetadata(
+                "1",
+                bucket,
+                directory + "/" + host + ".log.gz",
+                directory,
+                "stream",
+                host,
+                0L,
+                compressedSize,
+                compressedSize * 10
+        );
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.task.s3;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.amazonaws.util.IOUtils;
+import com.codahale.metrics.MetricRegistry;
+import com.teragrep.pth_06.ArchiveS3ObjectMetadata;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+
+public class PrefetchingS3ClientTest {
+
+    private static final class StubS3 extends AbstractAmazonS3 {
+
+        private final List<String> requested = Collections.synchronizedList(new ArrayList<>());
+        // holds the downloads of the slow objects until opened
+        private final CountDownLatch slowGate = new CountDownLatch(1);
+
+        @Override
+        public S3Object getObject(final String bucketName, final String key) {
+            requested.add(key);
+            if (key.startsWith("slow")) {
+                try {
+                    slowGate.await();
+                }
+                catch (final InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(interruptedException);
+                }
+            }
+            if (key.startsWith("denied")) {
+                final AmazonS3Exception exception = new AmazonS3Exception("Access Denied");
+                exception.setStatusCode(403);
+                throw exception;
+            }
+            final S3Object s3Object = new S3Object();
+            s3Object.setObjectMetadata(new ObjectMetadata());
+            s3Object.setObjectContent(new ByteArrayInputStream(key.getBytes(StandardCharsets.UTF_8)));
+            return s3Object;
+        }
+    }
+
+    private List<ArchiveS3ObjectMetadata> objects(final long compressedSize, final String... paths) {
+        final List<ArchiveS3ObjectMetadata> objects = new ArrayList<>();
+        for (int i = 0; i < paths.length; i++) {
+            objects
+                    .add(new ArchiveS3ObjectMetadata(String.valueOf(i), "bucket", paths[i], "directory", "stream", "host", 0L, compressedSize, -1L));
+        }
+        return objects;
+    }
+
+    private String read(final S3Object s3Object) throws IOException {
+        try (final S3ObjectInputStream objectContent = s3Object.getObjectContent()) {
+            return new String(IOUtils.toByteArray(objectContent), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testPrefetch() throws IOException, InterruptedException {
+        final StubS3 stubS3 = new StubS3();
+        final Semaphore budget = new Semaphore(100);
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final PrefetchingS3Client client = new PrefetchingS3Client(
+                stubS3,
+                objects(1024L, "first", "second", "third"),
+                2,
+                budget,
+                metricRegistry
+        );
+
+        Assertions.assertEquals("first", read(client.getObject("bucket", "first")));
+        // downloads of the next objects were started when the first was requested
+        while (!client.isPrefetched("bucket", "second") || !client.isPrefetched("bucket", "third")) {
+            Thread.sleep(1);
+        }
+        Assertions.assertEquals("second", read(client.getObject("bucket", "second")));
+        Assertions.assertEquals("third", read(client.getObject("bucket", "third")));
+        client.shutdown();
+
+        Assertions.assertEquals(3, stubS3.requested.size());
+        Assertions.assertEquals(2L, metricRegistry.counter("ArchivePrefetchHits").getCount());
+        Assertions.assertEquals(1L, metricRegistry.counter("ArchivePrefetchMisses").getCount());
+        Assertions.assertEquals(100, budget.availablePermits());
+    }
+
+    @Test
+    public void testPrefetchInProgress() throws IOException, InterruptedException {
+        final StubS3 stubS3 = new StubS3();
+        final Semaphore budget = new Semaphore(100);
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final PrefetchingS3Client client = new PrefetchingS3Client(
+                stubS3,
+                objects(1024L, "first", "slow"),
+                1,
+                budget,
+                metricRegistry
+        );
+
+        Assertions.assertEquals("first", read(client.getObject("bucket", "first")));
+        Assertions.assertFalse(client.isPrefetched("bucket", "slow"));
+        // the download is let through once the request of the object waits for it
+        final Thread opener = new Thread(() -> {
+            while (metricRegistry.counter("ArchivePrefetchMisses").getCount() < 2L) {
+                Thread.yield();
+            }
+            stubS3.slowGate.countDown();
+        });
+        opener.start();
+        Assertions.assertEquals("slow", read(client.getObject("bucket", "slow")));
+        opener.join();
+        client.shutdown();
+
+        Assertions.assertEquals(Arrays.asList("first", "slow"), stubS3.requested);
+        Assertions.assertEquals(0L, metricRegistry.counter("ArchivePrefetchHits").getCount());
+        Assertions.assertEquals(2L, metricRegistry.counter("ArchivePrefetchMisses").getCount());
+        Assertions.assertEquals(100, budget.availablePermits());
+    }
+
+    @Test
+    public void testSkippedObjectsAreNotPrefetched() throws IOException {
+        final StubS3 stubS3 = new StubS3();
+        final Semaphore budget = new Semaphore(100);
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final PrefetchingS3Client client = new PrefetchingS3Client(
+                stubS3,
+                objects(1024L, "first", "second", "third"),
+                1,
+                budget,
+                metricRegistry
+        );
+
+        // the objects before the requested one are not requested anymore
+        Assertions.assertEquals("third", read(client.getObject("bucket", "third")));
+        client.shutdown();
+
+        Assertions.assertEquals(Collections.singletonList("third"), stubS3.requested);
+        Assertions.assertEquals(1L, metricRegistry.counter("ArchivePrefetchMisses").getCount());
+        Assertions.assertEquals(100, budget.availablePermits());
+    }
+
+    @Test
+    public void testBudgetExceeded() throws IOException {
+        final StubS3 stubS3 = new StubS3();
+        // a KiB of budget does not fit an object of 2 KiB
+        final Semaphore budget = new Semaphore(1);
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final PrefetchingS3Client client = new PrefetchingS3Client(
+                stubS3,
+                objects(2048L, "first", "second"),
+                2,
+                budget,
+                metricRegistry
+        );
+
+        Assertions.assertEquals("first", read(client.getObject("bucket", "first")));
+        Assertions.assertEquals(Collections.singletonList("first"), stubS3.requested);
+        Assertions.assertEquals("second", read(client.getObject("bucket", "second")));
+        client.shutdown();
+
+        Assertions.assertEquals(0L, metricRegistry.counter("ArchivePrefetchHits").getCount());
+        Assertions.assertEquals(2L, metricRegistry.counter("ArchivePrefetchMisses").getCount());
+        Assertions.assertEquals(1, budget.availablePermits());
+    }
+
+    @Test
+    public void testErrorOfPrefetchedObject() throws IOException {
+        final StubS3 stubS3 = new StubS3();
+        final Semaphore budget = new Semaphore(100);
+        final PrefetchingS3Client client = new PrefetchingS3Client(
+                stubS3,
+                objects(1024L, "first", "denied"),
+                1,
+                budget,
+                new MetricRegistry()
+        );
+
+        Assertions.assertEquals("first", read(client.getObject("bucket", "first")));
+        final AmazonServiceException exception = Assertions
+                .assertThrows(AmazonServiceException.class, () -> client.getObject("bucket", "denied"));
+        Assertions.assertEquals(403, exception.getStatusCode());
+        client.shutdown();
+        Assertions.assertEquals(100, budget.availablePermits());
+    }
+
+    @Test
+    public void testShutdownReleasesBudget() throws IOException {
+        final StubS3 stubS3 = new StubS3();
+        final Semaphore budget = new Semaphore(100);
+        final PrefetchingS3Client client = new PrefetchingS3Client(
+                stubS3,
+                objects(10240L, "first", "second", "third", "fourth"),
+                3,
+                budget,
+                new MetricRegistry()
+        );
+
+        final S3Object first = client.getObject("bucket", "first");
+        Assertions.assertEquals(70, budget.availablePermits());
+        first.getObjectContent().abort();
+        client.shutdown();
+        Assertions.assertEquals(100, budget.availablePermits());
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Teragrep Archive Datasource (pth_06)
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.pth_06.walker;
+
+import com.teragrep.pth_06.planner.walker.LatestWalker;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class LatestWalkerTest {
+
+    private final LatestWalker latestWalker = new LatestWalker();
+
+    @Test
+    void latestTest() throws Exception {
+        String q = "<AND><AND><AND><index value=\"*\" operation=\"EQUALS\"/><earliest value=\"1611657303\" operation=\"GE\"/></AND><latest value=\"1619437701\" operation=\"LE\"/></AND><indexstring value=\"Denied\" /></AND>";
+        Long result = latestWalker.fromString(q);
+
+        assertEquals(1619437701L, result);
+    }
+
+    @Test
+    void indexLatestTest() throws Exception {
+        String q = "<AND><index value=\"*\" operation=\"EQUALS\"/><index_latest value=\"1619437701\" operation=\"LE\"/></AND>";
+        Long result = latestWalker.fromString(q);
+
+        assertEquals(1619437701L, result);
+    }
+
+    @Test
+    void unboundedTest() throws Exception {
+        String q = "<AND><index value=\"*\" operation=\"EQUALS\"/><earliest value=\"1611657303\" operation=\"GE\"/></AND>";
+        Long result = latestWalker.fromString(q);
+
+        assertEquals(LatestWalker.unboundedLatestEpoch, result);
+    }
+
+    @Test
+    void andTakesLowerLatestTest() throws Exception {
+        String q = "<AND><latest value=\"2\" operation=\"LE\"/><latest value=\"1\" operation=\"LE\"/></AND>";
+        Long result = latestWalker.fromString(q);
+
+        assertEquals(1L, result);
+    }
+
+    @Test
+    void orTakesHigherLatestTest() throws Exception {
+        String q = "<OR><latest value=\"2\" operation=\"LE\"/><latest value=\"1\" operation=\"LE\"/></OR>";
+        Long result = latestWalker.fromString(q);
+
+        assertEquals(2L, result);
+    }
+
+    @Test
+    void orWithUnboundedBranchTest() throws Exception {
+        String q = "<OR><AND><index value=\"a\" operation=\"EQUALS\"/><latest value=\"1\" operation=\"LE\"/></AND><index value=\"b\" operation=\"EQUALS\"/></OR>";
+        Long result = latestWalker.fromString(q);
+
+        assertEquals(LatestWalker.unboundedLatestEpoch, result);
+    }
+
+    @Test
+    void ignoreUnaryOperationsTest() throws Exception {
+        String q = "<AND><latest value=\"1000\" operation=\"LE\"/><NOT><latest value=\"1\" operation=\"LE\"/></NOT></AND>";
+        Long result = latestWalker.fromString(q);
+
+        assertEquals(1000L, result);
+        assertNull(latestWalker.fromString("<NOT><latest value=\"1\" operation=\"LE\"/></NOT>"));
+    }
+}
@@ -187,9 +187,11 @@ public class XmlWalkerTest {
                 + "    and \"getArchivedObjects_filter_table\".\"host\" like 'loadbalancer.example.com'\n" + "  )\n"
                 + "  or (\n" + "    true\n"
                 + "    and \"getArchivedObjects_filter_table\".\"host\" like 'firewall.example.com'\n"
-                + "    and \"journaldb\".\"logfile\".\"logdate\" >= date '2021-01-26'\n"
-                + "    and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) >= 1611655200)\n"
-                + "  )\n" + ")";
+                + "    and \"journaldb\".\"logfile\".\"logdate\" >= date '2021-01-26'\n" + "    and (\n"
+                + "      \"journaldb\".\"logfile\".\"epoch_hour\" >= 1611655200\n" + "      or (\n"
+                + "        \"journaldb\".\"logfile\".\"epoch_hour\" is null\n"
+                + "        and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) >= 1611655200)\n"
+                + "      )\n" + "    )\n" + "  )\n" + ")";
         result = conditionWalker.fromString(q, false).toString();
         assertEquals(e, result);
     }
@@ -203,11 +205,15 @@ public class XmlWalkerTest {
                 + "    and \"getArchivedObjects_filter_table\".\"host\" like 'loadbalancer.example.com'\n" + "  )\n"
                 + "  or (\n" + "    true\n"
                 + "    and \"getArchivedObjects_filter_table\".\"host\" like 'firewall.example.com'\n"
-                + "    and \"journaldb\".\"logfile\".\"logdate\" >= date '2021-01-26'\n"
-                + "    and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) >= 1611655200)\n"
-                + "    and \"journaldb\".\"logfile\".\"logdate\" <= date '2021-04-26'\n"
-                + "    and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) <= 1619437701)\n"
-                + "  )\n" + ")";
+                + "    and \"journaldb\".\"logfile\".\"logdate\" >= date '2021-01-26'\n" + "    and (\n"
+                + "      \"journaldb\".\"logfile\".\"epoch_hour\" >= 1611655200\n" + "      or (\n"
+                + "        \"journaldb\".\"logfile\".\"epoch_hour\" is null\n"
+                + "        and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) >= 1611655200)\n"
+                + "      )\n" + "    )\n" + "    and \"journaldb\".\"logfile\".\"logdate\" <= date '2021-04-26'\n"
+                + "    and (\n" + "      \"journaldb\".\"logfile\".\"epoch_hour\" <= 1619437701\n" + "      or (\n"
+                + "        \"journaldb\".\"logfile\".\"epoch_hour\" is null\n"
+                + "        and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) <= 1619437701)\n"
+                + "      )\n" + "    )\n" + "  )\n" + ")";
         Condition cond = conditionWalker.fromString(q, false);
         if (cond != null) {
             result = conditionWalker.fromString(q, false).toString();
@@ -225,11 +231,15 @@ public class XmlWalkerTest {
         e = "(\n" + "  \"getArchivedObjects_filter_table\".\"host\" like 'sc-99-99-14-25'\n"
                 + "  and \"getArchivedObjects_filter_table\".\"directory\" like 'cpu'\n"
                 + "  and \"getArchivedObjects_filter_table\".\"stream\" like 'log:cpu:0'\n"
-                + "  and \"journaldb\".\"logfile\".\"logdate\" >= date '1970-01-01'\n"
-                + "  and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) >= 0)\n"
-                + "  and \"journaldb\".\"logfile\".\"logdate\" <= date '2030-01-01'\n"
-                + "  and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) <= 1893491420)\n"
-                + ")";
+                + "  and \"journaldb\".\"logfile\".\"logdate\" >= date '1970-01-01'\n" + "  and (\n"
+                + "    \"journaldb\".\"logfile\".\"epoch_hour\" >= 0\n" + "    or (\n"
+                + "      \"journaldb\".\"logfile\".\"epoch_hour\" is null\n"
+                + "      and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) >= 0)\n"
+                + "    )\n" + "  )\n" + "  and \"journaldb\".\"logfile\".\"logdate\" <= date '2030-01-01'\n"
+                + "  and (\n" + "    \"journaldb\".\"logfile\".\"epoch_hour\" <= 1893491420\n" + "    or (\n"
+                + "      \"journaldb\".\"logfile\".\"epoch_hour\" is null\n"
+                + "      and (UNIX_TIMESTAMP(STR_TO_DATE(SUBSTRING(REGEXP_SUBSTR(path,'[0-9]+(\\.log)?\\.gz(\\.[0-9]*)?$'), 1, 10), '%Y%m%d%H')) <= 1893491420)\n"
+                + "    )\n" + "  )\n" + ")";
         Condition cond = conditionWalker.fromString(q, false);
         result = cond.toString();
         assertEquals(e, result);